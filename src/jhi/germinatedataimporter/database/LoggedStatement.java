@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.database;
+
+import java.util.*;
+
+import jhi.database.server.*;
+import jhi.database.shared.exception.*;
+
+/**
+ * {@link LoggedStatement} wraps a {@link DatabaseStatement} and remembers the values that are bound to it. {@link
+ * DatabaseStatement#getStringRepresentation()} only works as long as the statement is open and renders the whole statement straight away, {@link
+ * #getText()} on the other hand returns a {@link StatementText} that can be rendered at any time later, e.g. once the log entry is actually shown.
+ * All executed statements are recorded in the {@link StatementStatistics}.
+ *
+ * @author Sebastian Raubach
+ */
+public class LoggedStatement
+{
+	private final DatabaseStatement stmt;
+	private final String            sql;
+
+	private Object[] values = new Object[8];
+	private int      count;
+
+	/**
+	 * Creates a new instance of {@link LoggedStatement} and prepares the statement
+	 *
+	 * @param database The {@link Database}
+	 * @param sql      The SQL statement with placeholders
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public LoggedStatement(Database database, String sql) throws DatabaseException
+	{
+		this.stmt = database.prepareStatement(sql);
+		this.sql = sql;
+	}
+
+	private void record(int index, Object value)
+	{
+		if (index > values.length)
+			values = Arrays.copyOf(values, Math.max(index, values.length << 1));
+
+		values[index - 1] = value;
+		count = Math.max(count, index);
+	}
+
+	public void setInt(int index, int value) throws DatabaseException
+	{
+		stmt.setInt(index, value);
+		record(index, value);
+	}
+
+	public void setLong(int index, long value) throws DatabaseException
+	{
+		stmt.setLong(index, value);
+		record(index, value);
+	}
+
+	public void setNull(int index, int type) throws DatabaseException
+	{
+		stmt.setNull(index, type);
+		record(index, null);
+	}
+
+	public void setString(int index, String value) throws DatabaseException
+	{
+		stmt.setString(index, value);
+		record(index, value);
+	}
+
+	public void setDouble(int index, double value) throws DatabaseException
+	{
+		stmt.setDouble(index, value);
+		record(index, value);
+	}
+
+	public void setDate(int index, Date value) throws DatabaseException
+	{
+		stmt.setDate(index, value);
+		record(index, value == null ? null : new java.sql.Date(value.getTime()));
+	}
+
+	public void setTimestamp(int index, Date value) throws DatabaseException
+	{
+		stmt.setTimestamp(index, value);
+		record(index, value == null ? null : new java.sql.Timestamp(value.getTime()));
+	}
+
+	public DatabaseResult query() throws DatabaseException
+	{
+		return StatementStatistics.getInstance().query(sql, this::getText, stmt::query);
+	}
+
+	public List<Long> execute() throws DatabaseException
+	{
+		return StatementStatistics.getInstance().execute(sql, this::getText, stmt::execute);
+	}
+
+	public int executeUpdate() throws DatabaseException
+	{
+		return StatementStatistics.getInstance().executeUpdate(sql, this::getText, stmt::executeUpdate);
+	}
+
+	/**
+	 * Returns the {@link StatementText} of this statement with the values that have been bound so far
+	 *
+	 * @return The {@link StatementText}
+	 */
+	public StatementText getText()
+	{
+		return new StatementText(sql, Arrays.copyOf(values, count), count);
+	}
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.database;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.logging.*;
+import java.util.regex.*;
+
+import jhi.database.server.*;
+import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.gui.dialog.*;
+import jhi.germinatedataimporter.gui.i18n.*;
+import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.log.*;
+
+/**
+ * {@link SlowStatementLog} logs the statements that take longer than the configured threshold ({@link GerminateParameter#sqlslowthreshold}) with
+ * their bound values. The first time a statement with a certain fingerprint (see {@link StatementStatistics#fingerprint(String)}) is slow, it's
+ * explained on a separate connection in the background and the plan is logged as well. The statements are reported by {@link
+ * StatementStatistics}.
+ *
+ * @author Sebastian Raubach
+ */
+public class SlowStatementLog
+{
+	/** The default threshold in milliseconds */
+	public static final int DEFAULT_THRESHOLD = 1000;
+
+	/** The maximal number of statements waiting to be explained, further ones are rejected and explained the next time they're slow */
+	private static final int MAX_PENDING = 16;
+
+	/** Only these statements can be explained by MySQL */
+	private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(SELECT|INSERT|UPDATE|DELETE|REPLACE)\\b", Pattern.CASE_INSENSITIVE);
+
+	private static final SlowStatementLog INSTANCE = new SlowStatementLog();
+
+	private final Set<String>        explained = ConcurrentHashMap.newKeySet();
+	private final ThreadPoolExecutor executor;
+
+	private SlowStatementLog()
+	{
+		executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING), r -> {
+			Thread thread = new Thread(r, "SlowStatementLog");
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	public static SlowStatementLog getInstance()
+	{
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the threshold in nanoseconds or <code>0</code> if slow statements aren't logged
+	 *
+	 * @return The threshold in nanoseconds or <code>0</code>
+	 */
+	public long getThreshold()
+	{
+		Integer threshold = (Integer) GerminateParameterStore.getInstance().get(GerminateParameter.sqlslowthreshold);
+
+		if (threshold == null)
+			threshold = DEFAULT_THRESHOLD;
+
+		return Math.max(0, threshold) * 1_000_000L;
+	}
+
+	/**
+	 * Logs the given statement if it took longer than the threshold and explains it if it's the first slow statement with this fingerprint
+	 *
+	 * @param sql         The SQL of the statement
+	 * @param fingerprint The fingerprint of the statement
+	 * @param text        The {@link StatementText} with the bound values (can be <code>null</code>)
+	 * @param nanos       The time the statement took in nanoseconds
+	 */
+	public void check(String sql, String fingerprint, Supplier<StatementText> text, long nanos)
+	{
+		long threshold = getThreshold();
+
+		if (threshold <= 0 || nanos < threshold)
+			return;
+
+		StatementText statement = text == null ? null : text.get();
+		if (statement == null)
+			statement = new StatementText(sql, new Object[0], 0);
+
+		StatementText finalStatement = statement;
+		LogDialog.getInstance().add(RB.getString(RB.DIALOG_LOG_SLOW), () -> RB.getString(RB.DIALOG_LOG_SLOW_CONTENT, nanos / 1e6, finalStatement.get()));
+
+		if (isExplainable(statement) && explained.add(fingerprint))
+		{
+			try
+			{
+				executor.execute(() -> explain(finalStatement));
+			}
+			catch (RejectedExecutionException e)
+			{
+				/* The queue is full, forget the fingerprint, so the next slow execution gets another chance */
+				explained.remove(fingerprint);
+			}
+		}
+	}
+
+	/**
+	 * Checks if the given statement can be explained, i.e. if it's a DML statement and all placeholders have a value
+	 */
+	private static boolean isExplainable(StatementText statement)
+	{
+		String sql = statement.getSql();
+
+		if (!EXPLAINABLE.matcher(sql).find())
+			return false;
+
+		return StatementStatistics.countPlaceholders(sql) == statement.getCount();
+	}
+
+	/**
+	 * Runs <code>EXPLAIN</code> for the given statement on a separate connection and logs the plan
+	 */
+	private void explain(StatementText statement)
+	{
+		Database database = null;
+
+		try
+		{
+			database = Database.connect();
+
+			DatabaseStatement stmt = database.prepareStatement("EXPLAIN " + statement.getSql());
+
+			for (int i = 0; i < statement.getCount(); i++)
+				bind(stmt, i + 1, statement.getValue(i));
+
+			DatabaseResult rs = stmt.query();
+
+			StringBuilder builder = new StringBuilder(statement.get());
+			int columns = rs.getColumnCount();
+
+			while (rs.next())
+			{
+				builder.append("\n");
+
+				for (int i = 1; i <= columns; i++)
+				{
+					String column = rs.getColumnName(i);
+
+					if (i > 1)
+						builder.append(" | ");
+
+					builder.append(column).append("=").append(rs.getString(column));
+				}
+			}
+
+			String plan = builder.toString();
+			LogDialog.getInstance().add(RB.getString(RB.DIALOG_LOG_EXPLAIN), plan);
+		}
+		catch (DatabaseException | RuntimeException e)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+		}
+		finally
+		{
+			if (database != null)
+				database.close();
+		}
+	}
+
+	private static void bind(DatabaseStatement stmt, int index, Object value) throws DatabaseException
+	{
+		if (value == null)
+			stmt.setNull(index, Types.VARCHAR);
+		else if (value instanceof Long)
+			stmt.setLong(index, (Long) value);
+		else if (value instanceof Integer)
+			stmt.setInt(index, (Integer) value);
+		else if (value instanceof Double)
+			stmt.setDouble(index, (Double) value);
+		else if (value instanceof Timestamp)
+			stmt.setTimestamp(index, (Timestamp) value);
+		else if (value instanceof java.util.Date)
+			stmt.setDate(index, (java.util.Date) value);
+		else
+			stmt.setString(index, value.toString());
+	}
+}
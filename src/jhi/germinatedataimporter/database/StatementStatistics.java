@@ -0,0 +1,358 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.database;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.regex.*;
+import java.util.stream.*;
+
+import jhi.database.shared.exception.*;
+
+/**
+ * {@link StatementStatistics} aggregates the statements of the session by their fingerprint, similar to <code>pg_stat_statements</code>. The
+ * fingerprint is the SQL with normalized whitespace, literals replaced by placeholders and <code>IN</code> lists collapsed, so e.g. all chunks of
+ * a bulk lookup end up in the same {@link Entry}, no matter how many values they contain.
+ * <p>
+ * For every fingerprint, the number of calls, the total and maximal latency, the number of affected rows and the number of errors are counted.
+ * Recording a statement only costs a map lookup, since the fingerprint of every distinct SQL string is only computed once. Statements that take
+ * longer than the threshold are passed on to the {@link SlowStatementLog}.
+ *
+ * @author Sebastian Raubach
+ */
+public class StatementStatistics
+{
+	/** The maximal number of distinct SQL strings whose fingerprints are remembered */
+	private static final int MAX_CACHED_SQL = 10000;
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	private static final Pattern STRINGS    = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'|\"(?:[^\"\\\\]|\\\\.|\"\")*\"");
+	private static final Pattern NUMBERS    = Pattern.compile("(?<![\\w.`])-?\\d+(?:\\.\\d+)?(?![\\w`])");
+	private static final Pattern IN_LISTS   = Pattern.compile("(?i)\\bIN \\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+	private static final String[] CSV_HEADERS = {"fingerprint", "calls", "total_ms", "mean_ms", "max_ms", "rows", "errors"};
+
+	private static final StatementStatistics INSTANCE = new StatementStatistics();
+
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Entry> bySql   = new ConcurrentHashMap<>();
+
+	private StatementStatistics()
+	{
+	}
+
+	public static StatementStatistics getInstance()
+	{
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the fingerprint of the given SQL statement
+	 *
+	 * @param sql The SQL statement
+	 * @return The fingerprint
+	 */
+	public static String fingerprint(String sql)
+	{
+		String result = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+		result = STRINGS.matcher(result).replaceAll("?");
+		result = NUMBERS.matcher(result).replaceAll("?");
+		result = IN_LISTS.matcher(result).replaceAll("IN (...)");
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of placeholders of the given SQL statement. Question marks inside string literals aren't placeholders and aren't counted.
+	 *
+	 * @param sql The SQL statement
+	 * @return The number of placeholders
+	 */
+	public static int countPlaceholders(String sql)
+	{
+		String code = STRINGS.matcher(sql).replaceAll("''");
+
+		int result = 0;
+		for (int i = 0; i < code.length(); i++)
+		{
+			if (code.charAt(i) == '?')
+				result++;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Runs a query and records it
+	 *
+	 * @param sql  The SQL of the query
+	 * @param call The {@link StatementCall} that runs the query
+	 * @param <T>  The type of the result
+	 * @return The result of the {@link StatementCall}
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public <T> T query(String sql, StatementCall<T> call) throws DatabaseException
+	{
+		return run(sql, null, call, result -> 0);
+	}
+
+	/**
+	 * Runs a query and records it like {@link #query(String, StatementCall)}. The {@link StatementText} is only requested if the query is slow.
+	 *
+	 * @param sql  The SQL of the query
+	 * @param text Returns the {@link StatementText} with the bound values
+	 * @param call The {@link StatementCall} that runs the query
+	 * @param <T>  The type of the result
+	 * @return The result of the {@link StatementCall}
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public <T> T query(String sql, Supplier<StatementText> text, StatementCall<T> call) throws DatabaseException
+	{
+		return run(sql, text, call, result -> 0);
+	}
+
+	/**
+	 * Executes an insert statement and records it. The affected rows are the generated ids.
+	 *
+	 * @param sql  The SQL of the statement
+	 * @param call The {@link StatementCall} that executes the statement
+	 * @return The generated ids
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public List<Long> execute(String sql, StatementCall<List<Long>> call) throws DatabaseException
+	{
+		return execute(sql, null, call);
+	}
+
+	/**
+	 * Executes an insert statement and records it like {@link #execute(String, StatementCall)}. The {@link StatementText} is only requested if the
+	 * statement is slow.
+	 *
+	 * @param sql  The SQL of the statement
+	 * @param text Returns the {@link StatementText} with the bound values
+	 * @param call The {@link StatementCall} that executes the statement
+	 * @return The generated ids
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public List<Long> execute(String sql, Supplier<StatementText> text, StatementCall<List<Long>> call) throws DatabaseException
+	{
+		return run(sql, text, call, ids -> ids == null ? 0 : ids.size());
+	}
+
+	/**
+	 * Executes an update statement and records it
+	 *
+	 * @param sql  The SQL of the statement
+	 * @param call The {@link StatementCall} that executes the statement
+	 * @return The number of affected rows
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public int executeUpdate(String sql, StatementCall<Integer> call) throws DatabaseException
+	{
+		return executeUpdate(sql, null, call);
+	}
+
+	/**
+	 * Executes an update statement and records it like {@link #executeUpdate(String, StatementCall)}. The {@link StatementText} is only requested
+	 * if the statement is slow.
+	 *
+	 * @param sql  The SQL of the statement
+	 * @param text Returns the {@link StatementText} with the bound values
+	 * @param call The {@link StatementCall} that executes the statement
+	 * @return The number of affected rows
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public int executeUpdate(String sql, Supplier<StatementText> text, StatementCall<Integer> call) throws DatabaseException
+	{
+		return run(sql, text, call, Integer::longValue);
+	}
+
+	private <T> T run(String sql, Supplier<StatementText> text, StatementCall<T> call, ToLongFunction<T> rows) throws DatabaseException
+	{
+		long start = System.nanoTime();
+		T result;
+
+		try
+		{
+			result = call.call();
+		}
+		catch (DatabaseException | RuntimeException e)
+		{
+			add(sql, System.nanoTime() - start, 0, true);
+			throw e;
+		}
+
+		long nanos = System.nanoTime() - start;
+
+		Entry entry = add(sql, nanos, rows.applyAsLong(result), false);
+		SlowStatementLog.getInstance().check(sql, entry.getFingerprint(), text, nanos);
+
+		return result;
+	}
+
+	/**
+	 * Records a statement
+	 *
+	 * @param sql    The SQL of the statement
+	 * @param nanos  The time it took in nanoseconds
+	 * @param rows   The number of affected rows
+	 * @param failed Did the statement fail?
+	 * @return The {@link Entry} of the statement
+	 */
+	public Entry add(String sql, long nanos, long rows, boolean failed)
+	{
+		Entry entry = bySql.get(sql);
+
+		if (entry == null)
+		{
+			entry = entries.computeIfAbsent(fingerprint(sql), Entry::new);
+
+			if (bySql.size() < MAX_CACHED_SQL)
+				bySql.put(sql, entry);
+		}
+
+		entry.add(nanos, rows, failed);
+
+		return entry;
+	}
+
+	/**
+	 * Returns a copy of all {@link Entry}s, the ones with the highest total time first
+	 *
+	 * @return A copy of all {@link Entry}s
+	 */
+	public List<Entry> getEntries()
+	{
+		return entries.values()
+					  .stream()
+					  .map(Entry::copy)
+					  .sorted(Comparator.comparingLong(Entry::getTotal).reversed())
+					  .collect(Collectors.toList());
+	}
+
+	/**
+	 * Forgets all statements
+	 */
+	public void reset()
+	{
+		bySql.clear();
+		entries.clear();
+	}
+
+	/**
+	 * Writes the current {@link Entry}s to the given CSV file
+	 *
+	 * @param file The CSV {@link File}
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public void writeCsv(File file) throws IOException
+	{
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))
+		{
+			writer.write(String.join(",", CSV_HEADERS));
+			writer.newLine();
+
+			for (Entry entry : getEntries())
+			{
+				writer.write(String.format(Locale.ENGLISH, "\"%s\",%d,%.3f,%.3f,%.3f,%d,%d", entry.getFingerprint().replace("\"", "\"\""), entry.getCalls(),
+						entry.getTotal() / 1e6, entry.getMean() / 1e6, entry.getMax() / 1e6, entry.getRows(), entry.getErrors()));
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * {@link Entry} holds the numbers of one fingerprint. Times are in nanoseconds.
+	 */
+	public static class Entry
+	{
+		private final String fingerprint;
+
+		private long calls;
+		private long total;
+		private long max;
+		private long rows;
+		private long errors;
+
+		private Entry(String fingerprint)
+		{
+			this.fingerprint = fingerprint;
+		}
+
+		private synchronized void add(long nanos, long rows, boolean failed)
+		{
+			calls++;
+			total += nanos;
+			max = Math.max(max, nanos);
+			this.rows += rows;
+
+			if (failed)
+				errors++;
+		}
+
+		private synchronized Entry copy()
+		{
+			Entry result = new Entry(fingerprint);
+			result.calls = calls;
+			result.total = total;
+			result.max = max;
+			result.rows = rows;
+			result.errors = errors;
+			return result;
+		}
+
+		public String getFingerprint()
+		{
+			return fingerprint;
+		}
+
+		public long getCalls()
+		{
+			return calls;
+		}
+
+		public long getTotal()
+		{
+			return total;
+		}
+
+		public double getMean()
+		{
+			return calls == 0 ? 0 : total / (double) calls;
+		}
+
+		public long getMax()
+		{
+			return max;
+		}
+
+		public long getRows()
+		{
+			return rows;
+		}
+
+		public long getErrors()
+		{
+			return errors;
+		}
+	}
+}
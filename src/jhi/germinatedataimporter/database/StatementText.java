@@ -0,0 +1,143 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.database;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * {@link StatementText} is the text representation of an SQL statement with its bound values. The text is only rendered the first time {@link
+ * #get()} is called, so statements that are never looked at don't cost more than remembering their values.
+ * <p>
+ * The values replace the placeholders (<code>?</code>) in order. {@link String}s are quoted, <code>null</code> is shown as <code>NULL</code> and all
+ * other values use their {@link Object#toString()}.
+ *
+ * @author Sebastian Raubach
+ */
+public class StatementText implements Supplier<String>
+{
+	private final String   sql;
+	private final Object[] values;
+	private final int      count;
+
+	private volatile String text;
+
+	/**
+	 * Creates a new instance of {@link StatementText}. The array is not copied, so it mustn't be changed afterwards.
+	 *
+	 * @param sql    The SQL statement with placeholders
+	 * @param values The bound values, the first value replaces the first placeholder
+	 * @param count  The number of values
+	 */
+	public StatementText(String sql, Object[] values, int count)
+	{
+		this.sql = sql;
+		this.values = values;
+		this.count = count;
+	}
+
+	public String getSql()
+	{
+		return sql;
+	}
+
+	/**
+	 * Returns the number of bound values
+	 *
+	 * @return The number of bound values
+	 */
+	public int getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the bound value with the given index
+	 *
+	 * @param index The index of the value (starting at <code>0</code>)
+	 * @return The bound value
+	 */
+	public Object getValue(int index)
+	{
+		return values[index];
+	}
+
+	@Override
+	public String get()
+	{
+		/* Rendering it twice from different threads doesn't hurt, the result is the same */
+		String result = text;
+		if (result == null)
+			text = result = render();
+
+		return result;
+	}
+
+	private String render()
+	{
+		StringBuilder builder = new StringBuilder(sql.length() + count * 16);
+
+		int value = 0;
+		for (int i = 0; i < sql.length(); i++)
+		{
+			char c = sql.charAt(i);
+
+			if (c == '?' && value < count)
+				append(builder, values[value++]);
+			else
+				builder.append(c);
+		}
+
+		return builder.toString();
+	}
+
+	private static void append(StringBuilder builder, Object value)
+	{
+		if (value == null)
+		{
+			builder.append("NULL");
+		}
+		else if (value instanceof String || value instanceof Date)
+		{
+			String string = value.toString();
+
+			builder.append('\'');
+			for (int i = 0; i < string.length(); i++)
+			{
+				char c = string.charAt(i);
+
+				if (c == '\'' || c == '\\')
+					builder.append('\\');
+
+				builder.append(c);
+			}
+			builder.append('\'');
+		}
+		else
+		{
+			builder.append(value);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return get();
+	}
+}
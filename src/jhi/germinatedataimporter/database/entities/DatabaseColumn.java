@@ -22,6 +22,7 @@ import jhi.database.server.parser.*;
 import jhi.database.server.query.*;
 import jhi.database.shared.exception.*;
 import jhi.database.shared.util.*;
+import jhi.germinatedataimporter.database.*;
 import jhi.germinatedataimporter.util.*;
 import jhi.swtcommons.util.*;
 
@@ -86,12 +87,12 @@ public class DatabaseColumn extends DatabaseObject
 		if (table == null)
 			return null;
 
-		return new DatabaseObjectQuery<DatabaseColumn>(SQLUtils.SELECT_COLUMNS_OF_TABLE_WITH_NAME)
+		return StatementStatistics.getInstance().query(SQLUtils.SELECT_COLUMNS_OF_TABLE_WITH_NAME, () -> new DatabaseObjectQuery<DatabaseColumn>(SQLUtils.SELECT_COLUMNS_OF_TABLE_WITH_NAME)
 				.setString(GerminateParameterStore.getInstance().getAsString(GerminateParameter.database))
 				.setString(table.getName())
 				.setString(columnName)
 				.run()
-				.getObject(DatabaseColumn.Parser.Instance.getInstance());
+				.getObject(DatabaseColumn.Parser.Instance.getInstance()));
 	}
 
 	public String getName()
@@ -21,6 +21,7 @@ import java.util.*;
 
 import jhi.database.server.query.*;
 import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.*;
 import jhi.germinatedataimporter.util.*;
 import jhi.germinatedataimporter.util.thread.*;
 
@@ -62,8 +63,9 @@ public class DatabaseDatabase
 		{
 			tables = new ArrayList<>();
 
-			DatabaseObjectQuery.DatabaseObjectStreamer<DatabaseTable> streamer = new DatabaseObjectQuery<DatabaseTable>(String.format(SQLUtils.SELECT_TABLES_OF_DATABASE, name))
-					.getStreamer(DatabaseTable.Parser.Instance.getInstance());
+			String sql = String.format(SQLUtils.SELECT_TABLES_OF_DATABASE, name);
+			DatabaseObjectQuery.DatabaseObjectStreamer<DatabaseTable> streamer = StatementStatistics.getInstance().query(sql, () -> new DatabaseObjectQuery<DatabaseTable>(sql)
+					.getStreamer(DatabaseTable.Parser.Instance.getInstance()));
 
 			DatabaseTable table;
 
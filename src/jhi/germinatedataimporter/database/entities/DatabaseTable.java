@@ -24,9 +24,11 @@ import jhi.database.server.parser.*;
 import jhi.database.server.query.*;
 import jhi.database.shared.exception.*;
 import jhi.database.shared.util.*;
+import jhi.germinatedataimporter.database.*;
 import jhi.germinatedataimporter.gui.dialog.*;
 import jhi.germinatedataimporter.gui.i18n.*;
 import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.metrics.*;
 import jhi.swtcommons.util.*;
 
 /**
@@ -74,10 +76,12 @@ public class DatabaseTable extends DatabaseObject
 		if (database == null)
 			return null;
 
-		return new DatabaseObjectQuery<DatabaseTable>(String.format(SQLUtils.SELECT_TABLES_OF_DATABASE_WITH_NAME, database.getName()))
+		String sql = String.format(SQLUtils.SELECT_TABLES_OF_DATABASE_WITH_NAME, database.getName());
+
+		return StatementStatistics.getInstance().query(sql, () -> new DatabaseObjectQuery<DatabaseTable>(sql)
 				.setString(tableName)
 				.run()
-				.getObject(DatabaseTable.Parser.Instance.getInstance());
+				.getObject(DatabaseTable.Parser.Instance.getInstance()));
 	}
 
 	public String getName()
@@ -109,9 +113,10 @@ public class DatabaseTable extends DatabaseObject
 	 */
 	public boolean refresh() throws DatabaseException
 	{
-		Integer size = new ValueQuery(String.format(SQLUtils.SELECT_COUNT_OF_TABLE, this.name))
+		String sql = String.format(SQLUtils.SELECT_COUNT_OF_TABLE, this.name);
+		Integer size = StatementStatistics.getInstance().query(sql, () -> new ValueQuery(sql)
 				.run(HEADER_COUNT)
-				.getInt();
+				.getInt());
 
 		if (size != null)
 		{
@@ -132,11 +137,11 @@ public class DatabaseTable extends DatabaseObject
 	 */
 	public long getAutoIncrement() throws DatabaseException
 	{
-		return new ValueQuery(SQLUtils.SELECT_AUTO_INCREMENT)
+		return StatementStatistics.getInstance().query(SQLUtils.SELECT_AUTO_INCREMENT, () -> new ValueQuery(SQLUtils.SELECT_AUTO_INCREMENT)
 				.setString(GerminateParameterStore.getInstance().getAsString(GerminateParameter.database))
 				.setString(this.name)
 				.run(SQLUtils.AUTO_INCREMENT)
-				.getLong(1);
+				.getLong(1));
 	}
 
 	/**
@@ -146,13 +151,15 @@ public class DatabaseTable extends DatabaseObject
 	 */
 	public void setAutoIncrement() throws DatabaseException
 	{
-		long autoIncrement = new ValueQuery(String.format(SQLUtils.SELECT_MAX_ID, this.name))
+		String select = String.format(SQLUtils.SELECT_MAX_ID, this.name);
+		long autoIncrement = StatementStatistics.getInstance().query(select, () -> new ValueQuery(select)
 				.run(SQLUtils.AUTO_INCREMENT)
-				.getLong(1);
+				.getLong(1));
 
-		new ValueQuery(String.format(SQLUtils.ALTER_AUTO_INCREMENT, this.name))
+		String alter = String.format(SQLUtils.ALTER_AUTO_INCREMENT, this.name);
+		StatementStatistics.getInstance().execute(alter, () -> new ValueQuery(alter)
 				.setLong(autoIncrement + 1)
-				.execute();
+				.execute());
 	}
 
 	/**
@@ -166,10 +173,10 @@ public class DatabaseTable extends DatabaseObject
 		{
 			try
 			{
-				DatabaseObjectQuery.DatabaseObjectStreamer<DatabaseColumn> streamer = new DatabaseObjectQuery<DatabaseColumn>(SQLUtils.SELECT_COLUMNS_OF_TABLE)
+				DatabaseObjectQuery.DatabaseObjectStreamer<DatabaseColumn> streamer = StatementStatistics.getInstance().query(SQLUtils.SELECT_COLUMNS_OF_TABLE, () -> new DatabaseObjectQuery<DatabaseColumn>(SQLUtils.SELECT_COLUMNS_OF_TABLE)
 						.setString(GerminateParameterStore.getInstance().getAsString(GerminateParameter.database))
 						.setString(DatabaseTable.this.name)
-						.getStreamer(DatabaseColumn.Parser.Instance.getInstance());
+						.getStreamer(DatabaseColumn.Parser.Instance.getInstance()));
 
 				DatabaseColumn row;
 
@@ -206,12 +213,15 @@ public class DatabaseTable extends DatabaseObject
 			int size = Math.min(DELETE_CHUNK_SIZE, ids.size() - chunk * DELETE_CHUNK_SIZE);
 			String formatted = String.format(SQLUtils.DELETE_ENTRIES, this.name, SQLUtils.generateSqlPlaceholderString(size));
 
+			List<Long> chunkIds = ids.subList(DELETE_CHUNK_SIZE * chunk, Math.min(ids.size(), DELETE_CHUNK_SIZE * (chunk + 1)));
 			ValueQuery query = new ValueQuery(formatted)
-					.setLongs(ids.subList(DELETE_CHUNK_SIZE * chunk, Math.min(ids.size(), DELETE_CHUNK_SIZE * (chunk + 1))));
+					.setLongs(chunkIds);
 
 			LogDialog.getInstance().add(RB.getString(RB.DIALOG_LOG_DELETE), query.getStringRepresentation());
 
-			query.execute();
+			ImportEvents.Span event = ImportEvents.begin(ImportEvents.Type.REVERT);
+			StatementStatistics.getInstance().execute(formatted, () -> new StatementText(formatted, chunkIds.toArray(), chunkIds.size()), query::execute);
+			event.commit(name, size);
 		}
 	}
 
@@ -226,9 +236,11 @@ public class DatabaseTable extends DatabaseObject
 	{
 		try
 		{
-			return new ValueQuery(String.format(SQLUtils.SELECT_EXAMPLE_DATA_FROM_TABLE_COLUMN, column.getName(), name, column.getName()))
+			String sql = String.format(SQLUtils.SELECT_EXAMPLE_DATA_FROM_TABLE_COLUMN, column.getName(), name, column.getName());
+
+			return StatementStatistics.getInstance().query(sql, () -> new ValueQuery(sql)
 					.run(column.getName())
-					.getStrings();
+					.getStrings());
 		}
 		catch (DatabaseException e)
 		{
@@ -31,6 +31,7 @@ import jhi.germinatedataimporter.gui.dialog.*;
 import jhi.germinatedataimporter.gui.i18n.*;
 import jhi.germinatedataimporter.gui.widget.*;
 import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.metrics.*;
 import jhi.germinatedataimporter.util.thread.*;
 import jhi.swtcommons.gui.*;
 import jhi.swtcommons.gui.layout.*;
@@ -267,6 +268,11 @@ public class GerminateDataImporter extends RestartableApplication
 		item.addListener(SWT.Selection, e -> LogDialog.getInstance().setVisible(logMenuItem.getSelection()));
 		LogDialog.addVisibilityHandler(visible -> logMenuItem.setSelection(false));
 
+		/* Help - Import history */
+		item = new MenuItem(aboutMenu, SWT.NONE);
+		item.setText(RB.getString(RB.MENU_MAIN_HELP_HISTORY));
+		item.addListener(SWT.Selection, e -> new ImportHistoryDialog(shell).open());
+
          /* Help - Settings */
 		addPreferencesMenuItemListener(RB.getString(RB.MENU_MAIN_HELP_PREFERENCES), aboutMenu, e -> {
 			PreferencesDialog dialog = new PreferencesDialog(shell);
@@ -344,6 +350,9 @@ public class GerminateDataImporter extends RestartableApplication
 		LogDialog.reset();
 		LogDialog.init(new Shell(shell, SWT.SHELL_TRIM));
 
+		/* Allow JMX clients to watch and control imports */
+		ImportMonitor.register();
+
 		shell.setText(RB.getString(RB.APPLICATION_TITLE));
 		shell.setImage(Resources.Images.GERMINATE_TRAY);
 
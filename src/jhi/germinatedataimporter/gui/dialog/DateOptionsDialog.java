@@ -32,6 +32,7 @@ import java.util.List;
 import jhi.germinatedataimporter.database.entities.*;
 import jhi.germinatedataimporter.gui.i18n.*;
 import jhi.germinatedataimporter.gui.widget.*;
+import jhi.germinatedataimporter.util.parse.*;
 import jhi.swtcommons.gui.dialog.*;
 import jhi.swtcommons.gui.layout.*;
 import jhi.swtcommons.util.*;
@@ -278,17 +279,20 @@ public class DateOptionsDialog extends I18nDialog
 	}
 
 	/**
-	 * This class is used if the user selects a custom pattern to create a {@link SimpleDateFormat}
+	 * This class is used if the user selects a custom pattern to create a {@link SimpleDateFormat}. The pattern is compiled into a {@link DateParser}
+	 * once, which is then used to parse the dates during the import.
 	 *
 	 * @author Sebastian Raubach
 	 */
 	public static class PatternOption implements DateOption
 	{
-		public SimpleDateFormat format;
+		public       SimpleDateFormat format;
+		public final DateParser       parser;
 
 		public PatternOption(SimpleDateFormat format)
 		{
 			this.format = format;
+			this.parser = new DateParser(format.toPattern());
 		}
 	}
 
@@ -0,0 +1,347 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.gui.dialog;
+
+import org.eclipse.jface.dialogs.*;
+import org.eclipse.swt.*;
+import org.eclipse.swt.graphics.*;
+import org.eclipse.swt.widgets.*;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+import java.util.List;
+import java.util.logging.*;
+import java.util.stream.*;
+
+import jhi.germinatedataimporter.gui.i18n.*;
+import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.log.*;
+import jhi.germinatedataimporter.util.metrics.*;
+import jhi.swtcommons.gui.dialog.*;
+import jhi.swtcommons.gui.layout.*;
+import jhi.swtcommons.util.*;
+
+/**
+ * {@link ImportHistoryDialog} shows the {@link ImportHistory}: a chart of the rows per second of the imports over time, one line per {@link
+ * ImportHistory.Mode}, and a table with the details of every import. The imports can be restricted to a single table.
+ *
+ * @author Sebastian Raubach
+ */
+public class ImportHistoryDialog extends I18nDialog
+{
+	private static final int CLEAR_ID = IDialogConstants.CLIENT_ID + 1;
+
+	private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm";
+
+	/** The colors of the lines of the {@link ImportHistory.Mode}s */
+	private static final int[] MODE_COLORS = {SWT.COLOR_DARK_BLUE, SWT.COLOR_DARK_GREEN, SWT.COLOR_DARK_RED, SWT.COLOR_DARK_MAGENTA};
+
+	private static final int MARGIN = 8;
+
+	private Combo  tableCombo;
+	private Canvas chart;
+	private Table  table;
+
+	private List<ImportHistory.Record> records  = new ArrayList<>();
+	private List<ImportHistory.Record> filtered = new ArrayList<>();
+
+	public ImportHistoryDialog(Shell parentShell)
+	{
+		super(parentShell);
+		setBlockOnOpen(true);
+	}
+
+	@Override
+	protected Control createDialogArea(Composite parent)
+	{
+		final Composite composite = (Composite) super.createDialogArea(parent);
+
+		tableCombo = new Combo(composite, SWT.READ_ONLY);
+		tableCombo.addListener(SWT.Selection, e -> filter());
+
+		chart = new Canvas(composite, SWT.BORDER | SWT.DOUBLE_BUFFERED);
+		chart.setBackground(chart.getDisplay().getSystemColor(SWT.COLOR_WHITE));
+		chart.addListener(SWT.Paint, e -> paintChart(e.gc, chart.getClientArea()));
+		chart.addListener(SWT.Resize, e -> chart.redraw());
+
+		table = new Table(composite, SWT.BORDER | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+		table.setHeaderVisible(true);
+		table.setLinesVisible(true);
+
+		addColumn(RB.DIALOG_HISTORY_TIME, SWT.LEFT, 120);
+		addColumn(RB.DIALOG_HISTORY_TABLE, SWT.LEFT, 120);
+		addColumn(RB.DIALOG_HISTORY_MODE, SWT.LEFT, 100);
+		addColumn(RB.DIALOG_HISTORY_OUTCOME, SWT.LEFT, 80);
+		addColumn(RB.DIALOG_HISTORY_ROWS, SWT.RIGHT, 80);
+		addColumn(RB.DIALOG_HISTORY_SIZE, SWT.RIGHT, 70);
+		addColumn(RB.DIALOG_HISTORY_DURATION, SWT.RIGHT, 80);
+		addColumn(RB.DIALOG_HISTORY_ROWS_PER_SECOND, SWT.RIGHT, 80);
+		addColumn(RB.DIALOG_HISTORY_ERRORS, SWT.RIGHT, 60);
+		addColumn(RB.DIALOG_HISTORY_READER, SWT.LEFT, 120);
+		addColumn(RB.DIALOG_HISTORY_POLICY, SWT.LEFT, 100);
+
+		load();
+
+		GridLayoutUtils.useValues(1, false).applyTo(composite);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).widthHint(1000 * Resources.getZoomFactor() / 100).applyTo(composite);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.BEGINNING_CENTER_FALSE).applyTo(tableCombo);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).heightHint(250 * Resources.getZoomFactor() / 100).applyTo(chart);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).heightHint(200 * Resources.getZoomFactor() / 100).applyTo(table);
+
+		return composite;
+	}
+
+	private void addColumn(String title, int style, int width)
+	{
+		TableColumn column = new TableColumn(table, style);
+		column.setText(RB.getString(title));
+		column.setWidth(width * Resources.getZoomFactor() / 100);
+	}
+
+	/**
+	 * Reads the {@link ImportHistory} and fills the table selection
+	 */
+	private void load()
+	{
+		try
+		{
+			records = ImportHistory.getInstance().load();
+		}
+		catch (IOException e)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+			records = new ArrayList<>();
+		}
+
+		String selection = tableCombo.getSelectionIndex() > 0 ? tableCombo.getText() : null;
+
+		tableCombo.removeAll();
+		tableCombo.add(RB.getString(RB.DIALOG_HISTORY_ALL_TABLES));
+		records.stream()
+			   .map(r -> r.table)
+			   .distinct()
+			   .sorted(String.CASE_INSENSITIVE_ORDER)
+			   .forEach(tableCombo::add);
+
+		int index = selection == null ? 0 : tableCombo.indexOf(selection);
+		tableCombo.select(Math.max(0, index));
+
+		filter();
+	}
+
+	/**
+	 * Applies the table selection and updates the chart and the table
+	 */
+	private void filter()
+	{
+		String selection = tableCombo.getSelectionIndex() > 0 ? tableCombo.getText() : null;
+
+		filtered = records.stream()
+						  .filter(r -> selection == null || selection.equals(r.table))
+						  .sorted(Comparator.comparingLong(r -> r.time))
+						  .collect(Collectors.toList());
+
+		DateFormat format = new SimpleDateFormat(DATE_FORMAT);
+
+		table.setRedraw(false);
+		table.removeAll();
+
+		/* The newest import first */
+		for (int i = filtered.size() - 1; i >= 0; i--)
+		{
+			ImportHistory.Record record = filtered.get(i);
+
+			TableItem item = new TableItem(table, SWT.NONE);
+			item.setText(new String[]{
+					format.format(new Date(record.time)),
+					record.table,
+					record.mode.name(),
+					record.outcome.name(),
+					Long.toString(record.rows),
+					record.bytes < 0 ? "-" : String.format("%.1f", record.bytes / (1024d * 1024d)),
+					String.format("%.1f", record.duration / 1000d),
+					String.format("%.0f", record.rowsPerSecond),
+					Long.toString(record.errors),
+					record.reader,
+					record.errorPolicy
+			});
+		}
+
+		table.setRedraw(true);
+		chart.redraw();
+	}
+
+	/**
+	 * Draws the rows per second of the filtered imports. The imports are spread evenly along the x-axis in the order they were started, the first and
+	 * the last date are shown below the axis.
+	 */
+	private void paintChart(GC gc, Rectangle area)
+	{
+		Display display = chart.getDisplay();
+		gc.setAntialias(SWT.ON);
+
+		if (filtered.isEmpty())
+		{
+			String text = RB.getString(RB.DIALOG_HISTORY_EMPTY);
+			Point extent = gc.textExtent(text);
+			gc.drawText(text, area.x + (area.width - extent.x) / 2, area.y + (area.height - extent.y) / 2, true);
+			return;
+		}
+
+		double max = filtered.stream()
+							 .mapToDouble(r -> r.rowsPerSecond)
+							 .max()
+							 .orElse(0);
+		max = max <= 0 ? 1 : max * 1.1;
+
+		int textHeight = gc.getFontMetrics().getHeight();
+		int labelWidth = gc.textExtent(String.format("%.0f", max)).x;
+
+		Rectangle plot = new Rectangle(area.x + MARGIN * 2 + labelWidth, area.y + MARGIN + textHeight, 0, 0);
+		plot.width = area.x + area.width - MARGIN - plot.x;
+		plot.height = area.y + area.height - MARGIN * 2 - textHeight - plot.y;
+
+		if (plot.width <= 0 || plot.height <= 0)
+			return;
+
+		/* The horizontal grid lines and their labels */
+		gc.setForeground(display.getSystemColor(SWT.COLOR_GRAY));
+		for (int i = 0; i <= 4; i++)
+		{
+			int y = plot.y + plot.height - plot.height * i / 4;
+			String label = String.format("%.0f", max * i / 4);
+
+			gc.drawLine(plot.x, y, plot.x + plot.width, y);
+			gc.drawText(label, plot.x - MARGIN - gc.textExtent(label).x, y - textHeight / 2, true);
+		}
+
+		gc.setForeground(display.getSystemColor(SWT.COLOR_BLACK));
+		gc.drawText(RB.getString(RB.DIALOG_HISTORY_CHART_Y), area.x + MARGIN, area.y + MARGIN / 2, true);
+
+		DateFormat format = new SimpleDateFormat(DATE_FORMAT);
+		String first = format.format(new Date(filtered.get(0).time));
+		String last = format.format(new Date(filtered.get(filtered.size() - 1).time));
+		int labelY = plot.y + plot.height + MARGIN / 2;
+		gc.drawText(first, plot.x, labelY, true);
+		if (filtered.size() > 1)
+			gc.drawText(last, plot.x + plot.width - gc.textExtent(last).x, labelY, true);
+
+		/* One line per mode, the legend in the top right corner */
+		int legendX = plot.x + plot.width;
+		for (ImportHistory.Mode mode : ImportHistory.Mode.values())
+		{
+			gc.setForeground(display.getSystemColor(MODE_COLORS[mode.ordinal() % MODE_COLORS.length]));
+			gc.setBackground(gc.getForeground());
+
+			int previousX = -1;
+			int previousY = -1;
+			boolean used = false;
+
+			for (int i = 0; i < filtered.size(); i++)
+			{
+				ImportHistory.Record record = filtered.get(i);
+
+				if (record.mode != mode)
+					continue;
+
+				int x = plot.x + (filtered.size() == 1 ? plot.width / 2 : (int) ((long) plot.width * i / (filtered.size() - 1)));
+				int y = plot.y + plot.height - (int) (plot.height * record.rowsPerSecond / max);
+
+				if (previousX != -1)
+					gc.drawLine(previousX, previousY, x, y);
+
+				/* Imports that didn't finish are drawn as hollow points */
+				if (record.outcome == ImportMetrics.Outcome.FINISHED)
+					gc.fillOval(x - 3, y - 3, 7, 7);
+				else
+					gc.drawOval(x - 3, y - 3, 6, 6);
+
+				previousX = x;
+				previousY = y;
+				used = true;
+			}
+
+			if (used)
+			{
+				String name = mode.name();
+				legendX -= gc.textExtent(name).x;
+				gc.drawText(name, legendX, area.y + MARGIN / 2, true);
+				legendX -= MARGIN * 2;
+			}
+		}
+	}
+
+	@Override
+	protected void createButtonsForButtonBar(Composite parent)
+	{
+		createButton(parent, CLEAR_ID, RB.getString(RB.DIALOG_HISTORY_CLEAR), false);
+		createButton(parent, IDialogConstants.CLOSE_ID, IDialogConstants.CLOSE_LABEL, true);
+	}
+
+	@Override
+	protected void buttonPressed(int buttonId)
+	{
+		if (buttonId == CLEAR_ID)
+		{
+			DialogUtils.showQuestion(RB.getString(RB.DIALOG_HISTORY_CLEAR_QUESTION), result -> {
+				if (!result)
+					return;
+
+				try
+				{
+					ImportHistory.getInstance().clear();
+				}
+				catch (IOException e)
+				{
+					DialogUtils.handleException(e);
+				}
+
+				load();
+			});
+		}
+		else if (buttonId == IDialogConstants.CLOSE_ID)
+		{
+			close();
+		}
+		else
+		{
+			super.buttonPressed(buttonId);
+		}
+	}
+
+	@Override
+	protected boolean isResizable()
+	{
+		return true;
+	}
+
+	@Override
+	protected void configureShell(Shell shell)
+	{
+		super.configureShell(shell);
+		shell.setText(RB.getString(RB.DIALOG_HISTORY_TITLE));
+	}
+
+	@Override
+	protected Point getInitialLocation(Point initialSize)
+	{
+		/* Center the dialog based on the parent */
+		return ShellUtils.getLocationCenteredTo(getParentShell(), initialSize);
+	}
+}
@@ -42,9 +42,11 @@ import jhi.swtcommons.util.*;
  */
 public class InputOptionsDialog extends I18nDialog
 {
-	private FileSeparatorComboViewer separatorCombo;
-	private InputLocaleComboViewer   numberFormatCombo;
-	private Text                     exampleText;
+	private FileSeparatorComboViewer   separatorCombo;
+	private InputLocaleComboViewer     numberFormatCombo;
+	private Text                       exampleText;
+	private ErrorPolicyModeComboViewer errorPolicyCombo;
+	private Text                       errorLimitText;
 
 	private double exampleNumber = 1234567.89;
 	private DecimalFormat numberFormatter;
@@ -74,6 +76,7 @@ public class InputOptionsDialog extends I18nDialog
 		GerminateParameterStore store = GerminateParameterStore.getInstance();
 		removeSpacesBoolean = (Boolean) store.get(GerminateParameter.removetrailingspaces);
 		askAgainBoolean = (Boolean) store.get(GerminateParameter.inputalwaysask);
+		ErrorPolicy errorPolicy = (ErrorPolicy) store.get(GerminateParameter.errorpolicy);
 
 		if (options.separator == null)
 			options.separator = (FileSeparator) store.get(GerminateParameter.inputseparator);
@@ -98,6 +101,14 @@ public class InputOptionsDialog extends I18nDialog
 
 		numberFormatCombo.setSelection(new StructuredSelection(options.locale));
 
+		if (errorPolicy == null)
+			errorPolicy = ErrorPolicy.ASK;
+
+		errorPolicyCombo.setSelection(new StructuredSelection(errorPolicy.getMode()));
+		if (errorPolicy.getMode() == ErrorPolicy.Mode.LIMIT)
+			errorLimitText.setText(errorPolicy.getLimitString());
+		errorLimitText.setEnabled(errorPolicy.getMode() == ErrorPolicy.Mode.LIMIT);
+
 		originalSeparator = options.separator;
 	}
 
@@ -128,6 +139,17 @@ public class InputOptionsDialog extends I18nDialog
 
 		exampleText = new Text(composite, SWT.BORDER | SWT.READ_ONLY);
 
+		Label errorPolicyLabel = new Label(composite, SWT.NONE);
+		errorPolicyLabel.setText(RB.getString(RB.DIALOG_INPUT_OPTIONS_ERROR_POLICY));
+
+		errorPolicyCombo = new ErrorPolicyModeComboViewer(composite, SWT.NONE);
+		errorPolicyCombo.addSelectionChangedListener(e -> errorLimitText.setEnabled(errorPolicyCombo.getSelectedItem() == ErrorPolicy.Mode.LIMIT));
+
+		Label errorLimitLabel = new Label(composite, SWT.NONE);
+		errorLimitLabel.setText(RB.getString(RB.DIALOG_INPUT_OPTIONS_ERROR_LIMIT));
+
+		errorLimitText = new Text(composite, SWT.BORDER);
+
 		new Label(composite, SWT.NONE);
 		new Label(composite, SWT.NONE);
 
@@ -145,6 +167,10 @@ public class InputOptionsDialog extends I18nDialog
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).applyTo(numberFormatCombo.getCombo());
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.END_CENTER_FALSE).applyTo(exampleLabel);
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).applyTo(exampleText);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.END_CENTER_FALSE).applyTo(errorPolicyLabel);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).applyTo(errorPolicyCombo.getCombo());
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.END_CENTER_FALSE).applyTo(errorLimitLabel);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).applyTo(errorLimitText);
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_TOP).horizontalSpan(2).applyTo(removeSpaces);
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_TOP).horizontalSpan(2).applyTo(askAgain);
 
@@ -188,6 +214,22 @@ public class InputOptionsDialog extends I18nDialog
 			return;
 		}
 
+		ErrorPolicy errorPolicy;
+		try
+		{
+			ErrorPolicy.Mode mode = errorPolicyCombo.getSelectedItem();
+
+			if (mode == ErrorPolicy.Mode.LIMIT)
+				errorPolicy = ErrorPolicy.parseLimit(errorLimitText.getText());
+			else
+				errorPolicy = new ErrorPolicy(mode == null ? ErrorPolicy.Mode.ASK : mode, 0, false);
+		}
+		catch (IllegalArgumentException e)
+		{
+			DialogUtils.showError(RB.getString(RB.ERROR_INPUT_OPTIONS_INVALID_LIMIT));
+			return;
+		}
+
 		options.locale = numberFormatCombo.getSelectedItem();
 		options.separator = separatorCombo.getSelectedItem();
 
@@ -197,6 +239,7 @@ public class InputOptionsDialog extends I18nDialog
 		store.put(GerminateParameter.inputalwaysask, askAgainBoolean);
 		store.put(GerminateParameter.inputseparator, options.separator);
 		store.put(GerminateParameter.inputlocale, options.locale);
+		store.put(GerminateParameter.errorpolicy, errorPolicy);
 
 		super.okPressed();
 	}
@@ -21,12 +21,11 @@ import org.eclipse.swt.*;
 import org.eclipse.swt.dnd.*;
 import org.eclipse.swt.graphics.*;
 import org.eclipse.swt.widgets.*;
-import org.joda.time.DateTime;
-import org.joda.time.*;
-
 import java.text.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
 import java.util.logging.*;
 
 import jhi.germinatedataimporter.gui.*;
@@ -44,51 +43,67 @@ import jhi.swtcommons.util.*;
  */
 public class LogDialog
 {
-	public static final int ENTRIES_PER_HEADER = 10;
+	public static final int ENTRIES_PER_HEADER = LogBuffer.ENTRIES_PER_GROUP;
+
+	/** The minimal time between two updates of the log in milliseconds (about one frame) */
+	private static final int REFRESH_INTERVAL = 16;
 
 	private static Shell shell;
 	private static int width  = -1;
 	private static int height = -1;
 	private static LogDialog INSTANCE;
 	private static List<VisibilityHandler> visibilityHandlerList = new ArrayList<>();
-	private Tree     log;
-	private String   lastHeader;
-	private TreeItem lastHeaderItem;
-	private TreeItem moreItem;
-	private int              entriesWithThisHeader = 0;
-	private boolean          updateInsteadOfAdd    = false;
-	private SimpleDateFormat format                = new SimpleDateFormat(RB.getString(RB.DIALOG_LOG_TIME_FORMAT));
-	private DateTime         lastUpdate            = null;
-	private Composite content;
+	private final LogBuffer        buffer           = new LogBuffer(LogBuffer.DEFAULT_CAPACITY);
+	private final AtomicBoolean    refreshScheduled = new AtomicBoolean();
+	private final Display          display;
+	private       Tree             log;
+	private       SimpleDateFormat format           = new SimpleDateFormat(RB.getString(RB.DIALOG_LOG_TIME_FORMAT));
+	private       Composite        content;
+
+	/* What the tree currently shows, only used on the UI thread */
+	private int  shownGroups = 0;
+	private long shownAdded  = 0;
 
 	private LogDialog(Shell parentShell)
 	{
+		display = parentShell.getDisplay();
 		content = new Composite(parentShell, SWT.NONE);
 		GridLayoutUtils.useDefault().applyTo(parentShell);
-		GridLayoutUtils.useValues(2, false).applyTo(content);
+		GridLayoutUtils.useValues(3, false).applyTo(content);
 
-		log = new Tree(content, SWT.H_SCROLL | SWT.V_SCROLL | SWT.BORDER | SWT.FULL_SELECTION);
+		log = new Tree(content, SWT.VIRTUAL | SWT.H_SCROLL | SWT.V_SCROLL | SWT.BORDER | SWT.FULL_SELECTION);
+		log.addListener(SWT.SetData, this::setData);
 		log.setHeaderVisible(true);
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).applyTo(content);
-		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).horizontalSpan(2).applyTo(log);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).horizontalSpan(3).applyTo(log);
 
 		Button clear = new Button(content, SWT.PUSH);
 		clear.setText(RB.getString(RB.DIALOG_LOG_CLEAR));
 		clear.addListener(SWT.Selection, event -> {
-			log.removeAll();
-			entriesWithThisHeader = 1;
-			updateInsteadOfAdd = false;
-			moreItem = null;
-			lastHeaderItem = null;
-			lastHeader = null;
+			synchronized (buffer)
+			{
+				buffer.clear();
+				log.removeAll();
+				shownGroups = 0;
+				shownAdded = buffer.getAdded();
+			}
 		});
 
 		Button showLogFile = new Button(content, SWT.PUSH);
 		showLogFile.setText(RB.getString(RB.DIALOG_LOG_SHOW_LOG_FILE));
-		showLogFile.addListener(SWT.Selection, event -> OSUtils.open(SQLLogger.getInstance().getLogFile()));
+		showLogFile.addListener(SWT.Selection, event -> {
+			/* Records are written in the background, make sure they're all there */
+			SQLLogger.getInstance().flush();
+			OSUtils.open(SQLLogger.getInstance().getLogFile());
+		});
+
+		Button statements = new Button(content, SWT.PUSH);
+		statements.setText(RB.getString(RB.DIALOG_LOG_STATEMENTS));
+		statements.addListener(SWT.Selection, event -> new StatementStatisticsDialog(shell).open());
 
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.BEGINNING_CENTER).applyTo(clear);
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.END_CENTER).applyTo(showLogFile);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.END_CENTER).applyTo(statements);
 
 		new TreeColumn(log, SWT.NONE).setText(RB.getString(RB.DIALOG_LOG_TIME));
 		new TreeColumn(log, SWT.NONE).setText(RB.getString(RB.DIALOG_LOG_CONTENT));
@@ -275,77 +290,170 @@ public class LogDialog
 	/**
 	 * Adds a new item to the {@link LogDialog}. <p> <b>IMPORTANT:</b> Note that at most {@link #ENTRIES_PER_HEADER} ( {@value #ENTRIES_PER_HEADER})
 	 * many items with the same header are allowed. If another header is used in between, the counter is reset.
+	 * <p>
+	 * This only adds the item to the {@link LogBuffer}, the tree is updated at most once every {@link #REFRESH_INTERVAL} milliseconds.
 	 *
 	 * @param header  The header (category) of the log entry. This will be used as the parent element name
 	 * @param content The content of the log entry.
 	 */
 	public void add(final String header, final String content)
 	{
-		Display.getDefault().asyncExec(() -> {
-			DateTime now = new DateTime();
-			if (header.equals(lastHeader))
-			{
-				entriesWithThisHeader++;
-				if (updateInsteadOfAdd)
-				{
-					if (new Interval(lastUpdate, now).toDuration().isLongerThan(new Duration(1000)))
-					{
-						entriesWithThisHeader = 1;
-						updateInsteadOfAdd = false;
-						moreItem = null;
-						lastHeaderItem = new TreeItem(log, SWT.NONE);
-						lastHeaderItem.setText(0, header);
+		add(header, () -> content);
+	}
 
-						addToParent(lastHeaderItem, content);
-					}
-					else
-					{
-						moreItem.setText(1, RB.getString(RB.DIALOG_LOG_MORE, entriesWithThisHeader - ENTRIES_PER_HEADER));
-					}
-				}
-				else if (entriesWithThisHeader > ENTRIES_PER_HEADER)
-				{
-					updateInsteadOfAdd = true;
-					moreItem = new TreeItem(lastHeaderItem, SWT.NONE);
-					moreItem.setText(1, RB.getString(RB.DIALOG_LOG_MORE, entriesWithThisHeader - ENTRIES_PER_HEADER));
-				}
-				else
-				{
-					addToParent(lastHeaderItem, content);
-				}
-			}
-			else
+	/**
+	 * Adds a new item to the {@link LogDialog} like {@link #add(String, String)}. The content is only created once it's shown or written to the log
+	 * file, which is considerably cheaper for statements that nobody looks at.
+	 *
+	 * @param header  The header (category) of the log entry. This will be used as the parent element name
+	 * @param content The {@link Supplier} of the content of the log entry.
+	 */
+	public void add(final String header, final Supplier<String> content)
+	{
+		buffer.add(header, content, System.currentTimeMillis());
+
+		/* Only the first item after a refresh schedules the next one */
+		if (refreshScheduled.compareAndSet(false, true) && !display.isDisposed())
+			display.asyncExec(() -> display.timerExec(REFRESH_INTERVAL, this::refresh));
+
+		SQLLogger.getInstance().log(Level.INFO, content);
+	}
+
+	/**
+	 * Brings the tree up to date with the {@link LogBuffer}. Only the groups that have been started since the last refresh and the last group of
+	 * the previous refresh can have changed, all other items stay as they are. The changed groups are copied while holding the lock of the {@link
+	 * LogBuffer}, the tree is updated after releasing it, so that the import threads never wait for the tree.
+	 */
+	private void refresh()
+	{
+		refreshScheduled.set(false);
+
+		if (log.isDisposed())
+			return;
+
+		int size;
+		long added;
+		int dropped;
+		int first;
+		String[] headers;
+		int[] childCounts;
+
+		synchronized (buffer)
+		{
+			size = buffer.size();
+			added = buffer.getAdded();
+			int started = (int) Math.min(added - shownAdded, Integer.MAX_VALUE);
+
+			/* The groups that have been dropped from the buffer */
+			dropped = Math.max(0, shownGroups + started - size);
+			first = dropped >= shownGroups ? 0 : Math.max(0, shownGroups - dropped - 1);
+
+			headers = new String[size - first];
+			childCounts = new int[size - first];
+			for (int i = first; i < size; i++)
 			{
-				lastHeader = header;
-				entriesWithThisHeader = 1;
-				updateInsteadOfAdd = false;
-				moreItem = null;
-				lastHeaderItem = new TreeItem(log, SWT.NONE);
-				lastHeaderItem.setText(0, header);
-
-				addToParent(lastHeaderItem, content);
+				headers[i - first] = buffer.getHeader(i);
+				childCounts[i - first] = buffer.getChildCount(i);
 			}
-			lastUpdate = now;
-		});
+		}
 
-		SQLLogger.getInstance().log(Level.INFO, content);
+		/* Remove the groups that have been dropped from the buffer */
+		if (dropped >= shownGroups)
+		{
+			log.removeAll();
+		}
+		else
+		{
+			for (int i = 0; i < dropped; i++)
+				log.getItem(0).dispose();
+		}
+
+		log.setItemCount(size);
+
+		TreeItem lastItem = null;
+		for (int i = first; i < size; i++)
+		{
+			TreeItem item = log.getItem(i);
+			item.setText(0, headers[i - first]);
+			item.setItemCount(childCounts[i - first]);
+			item.clearAll(false);
+			item.setExpanded(true);
+
+			lastItem = item;
+		}
+
+		shownGroups = size;
+		shownAdded = added;
+
+		if (lastItem != null && lastItem.getItemCount() > 0)
+			log.setTopItem(lastItem.getItem(lastItem.getItemCount() - 1));
 	}
 
 	/**
-	 * Adds a new {@link TreeItem} to the given parent {@link TreeItem}. The current date will be used for the first column
+	 * Fills the virtual {@link TreeItem}s with the content of the {@link LogBuffer}. The content is only rendered after releasing the lock of the
+	 * {@link LogBuffer}.
 	 *
-	 * @param parent  The parent {@link TreeItem}
-	 * @param content The content of the new {@link TreeItem}
+	 * @param event The {@link SWT#SetData} {@link Event}
 	 */
-	private void addToParent(TreeItem parent, String content)
+	private void setData(Event event)
 	{
-		TreeItem item = new TreeItem(parent, SWT.NONE);
-		item.setText(0, format.format(new Date(System.currentTimeMillis())));
-		item.setText(1, content);
+		TreeItem item = (TreeItem) event.item;
+		TreeItem parent = item.getParentItem();
+
+		if (parent == null)
+		{
+			int index = log.indexOf(item);
+			String header;
+			int childCount;
 
-		parent.setExpanded(true);
+			synchronized (buffer)
+			{
+				if (index < 0 || index >= buffer.size())
+					return;
+
+				header = buffer.getHeader(index);
+				childCount = buffer.getChildCount(index);
+			}
+
+			item.setText(0, header);
+			item.setItemCount(childCount);
+		}
+		else
+		{
+			int index = log.indexOf(parent);
+			int entry = parent.indexOf(item);
+			int more;
+			boolean placeholder;
+			long time = 0;
+			Supplier<String> content = null;
+
+			synchronized (buffer)
+			{
+				if (index < 0 || index >= buffer.size() || entry < 0 || entry >= buffer.getChildCount(index))
+					return;
+
+				more = buffer.getMore(index);
+
+				/* The last child is a placeholder for the entries that aren't shown */
+				placeholder = more > 0 && entry == buffer.getChildCount(index) - 1;
 
-		log.setTopItem(item);
+				if (!placeholder)
+				{
+					time = buffer.getTime(index, entry);
+					content = buffer.getSupplier(index, entry);
+				}
+			}
+
+			if (placeholder)
+			{
+				item.setText(1, RB.getString(RB.DIALOG_LOG_MORE, more));
+			}
+			else
+			{
+				item.setText(0, format.format(new Date(time)));
+				item.setText(1, content == null ? "" : content.get());
+			}
+		}
 	}
 
 	public interface VisibilityHandler
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.gui.dialog;
+
+import org.eclipse.jface.dialogs.*;
+import org.eclipse.swt.*;
+import org.eclipse.swt.graphics.*;
+import org.eclipse.swt.widgets.*;
+
+import java.io.*;
+
+import jhi.germinatedataimporter.database.*;
+import jhi.germinatedataimporter.gui.i18n.*;
+import jhi.germinatedataimporter.util.*;
+import jhi.swtcommons.gui.dialog.*;
+import jhi.swtcommons.gui.layout.*;
+import jhi.swtcommons.util.*;
+
+/**
+ * {@link StatementStatisticsDialog} shows the {@link StatementStatistics} of the session, the statements with the highest total time first. The
+ * statistics can be refreshed, reset and exported to a CSV file.
+ *
+ * @author Sebastian Raubach
+ */
+public class StatementStatisticsDialog extends I18nDialog
+{
+	private static final int EXPORT_ID  = IDialogConstants.CLIENT_ID + 1;
+	private static final int RESET_ID   = IDialogConstants.CLIENT_ID + 2;
+	private static final int REFRESH_ID = IDialogConstants.CLIENT_ID + 3;
+
+	private Table table;
+
+	public StatementStatisticsDialog(Shell parentShell)
+	{
+		super(parentShell);
+		setBlockOnOpen(true);
+	}
+
+	@Override
+	protected Control createDialogArea(Composite parent)
+	{
+		final Composite composite = (Composite) super.createDialogArea(parent);
+
+		table = new Table(composite, SWT.BORDER | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+		table.setHeaderVisible(true);
+		table.setLinesVisible(true);
+
+		addColumn(RB.DIALOG_STATEMENTS_FINGERPRINT, SWT.LEFT, 400);
+		addColumn(RB.DIALOG_STATEMENTS_CALLS, SWT.RIGHT, 70);
+		addColumn(RB.DIALOG_STATEMENTS_TOTAL, SWT.RIGHT, 90);
+		addColumn(RB.DIALOG_STATEMENTS_MEAN, SWT.RIGHT, 80);
+		addColumn(RB.DIALOG_STATEMENTS_MAX, SWT.RIGHT, 80);
+		addColumn(RB.DIALOG_STATEMENTS_ROWS, SWT.RIGHT, 70);
+		addColumn(RB.DIALOG_STATEMENTS_ERRORS, SWT.RIGHT, 60);
+
+		/* Show the whole statement as the tooltip of the selected row */
+		table.addListener(SWT.Selection, e -> table.setToolTipText(table.getSelectionCount() == 0 ? null : table.getSelection()[0].getText(0)));
+
+		refresh();
+
+		GridLayoutUtils.useValues(1, false).applyTo(composite);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).widthHint(900 * Resources.getZoomFactor() / 100).applyTo(composite);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).heightHint(300 * Resources.getZoomFactor() / 100).applyTo(table);
+
+		return composite;
+	}
+
+	private void addColumn(String title, int style, int width)
+	{
+		TableColumn column = new TableColumn(table, style);
+		column.setText(RB.getString(title));
+		column.setWidth(width * Resources.getZoomFactor() / 100);
+	}
+
+	/**
+	 * Fills the table with the current {@link StatementStatistics}
+	 */
+	private void refresh()
+	{
+		table.removeAll();
+
+		for (StatementStatistics.Entry entry : StatementStatistics.getInstance().getEntries())
+		{
+			TableItem item = new TableItem(table, SWT.NONE);
+			item.setText(new String[]{
+					entry.getFingerprint(),
+					Long.toString(entry.getCalls()),
+					String.format("%.1f", entry.getTotal() / 1e6),
+					String.format("%.2f", entry.getMean() / 1e6),
+					String.format("%.2f", entry.getMax() / 1e6),
+					Long.toString(entry.getRows()),
+					Long.toString(entry.getErrors())
+			});
+		}
+	}
+
+	/**
+	 * Asks for a file and writes the {@link StatementStatistics} to it as CSV
+	 */
+	private void export()
+	{
+		FileDialog dialog = new FileDialog(getShell(), SWT.SAVE);
+		dialog.setFilterExtensions(new String[]{"*.csv", "*.*"});
+		dialog.setFileName("statement-statistics.csv");
+		dialog.setOverwrite(true);
+
+		String f = dialog.open();
+
+		if (StringUtils.isEmpty(f))
+			return;
+
+		try
+		{
+			StatementStatistics.getInstance().writeCsv(new File(f));
+		}
+		catch (IOException e)
+		{
+			DialogUtils.handleException(e);
+		}
+	}
+
+	@Override
+	protected void createButtonsForButtonBar(Composite parent)
+	{
+		createButton(parent, REFRESH_ID, RB.getString(RB.DIALOG_STATEMENTS_REFRESH), false);
+		createButton(parent, RESET_ID, RB.getString(RB.DIALOG_STATEMENTS_RESET), false);
+		createButton(parent, EXPORT_ID, RB.getString(RB.DIALOG_STATEMENTS_EXPORT), false);
+		createButton(parent, IDialogConstants.CLOSE_ID, IDialogConstants.CLOSE_LABEL, true);
+	}
+
+	@Override
+	protected void buttonPressed(int buttonId)
+	{
+		if (buttonId == REFRESH_ID)
+		{
+			refresh();
+		}
+		else if (buttonId == RESET_ID)
+		{
+			StatementStatistics.getInstance().reset();
+			refresh();
+		}
+		else if (buttonId == EXPORT_ID)
+		{
+			export();
+		}
+		else if (buttonId == IDialogConstants.CLOSE_ID)
+		{
+			close();
+		}
+		else
+		{
+			super.buttonPressed(buttonId);
+		}
+	}
+
+	@Override
+	protected boolean isResizable()
+	{
+		return true;
+	}
+
+	@Override
+	protected void configureShell(Shell shell)
+	{
+		super.configureShell(shell);
+		shell.setText(RB.getString(RB.DIALOG_STATEMENTS_TITLE));
+	}
+
+	@Override
+	protected Point getInitialLocation(Point initialSize)
+	{
+		/* Center the dialog based on the parent */
+		return ShellUtils.getLocationCenteredTo(getParentShell(), initialSize);
+	}
+}
@@ -87,11 +87,50 @@ public class RB extends jhi.swtcommons.gui.i18n.RB
 	public static final String DIALOG_LOG_INSERT            = "dialog.log.insert";
 	public static final String DIALOG_LOG_CLEAR             = "dialog.log.clear";
 	public static final String DIALOG_LOG_SHOW_LOG_FILE     = "dialog.log.show.log.file";
+	public static final String DIALOG_LOG_STATEMENTS        = "dialog.log.statements";
+	public static final String DIALOG_LOG_SLOW              = "dialog.log.slow";
+	public static final String DIALOG_LOG_SLOW_CONTENT      = "dialog.log.slow.content";
+	public static final String DIALOG_LOG_EXPLAIN           = "dialog.log.explain";
+
+	public static final String DIALOG_STATEMENTS_TITLE       = "dialog.statements.title";
+	public static final String DIALOG_STATEMENTS_FINGERPRINT = "dialog.statements.fingerprint";
+	public static final String DIALOG_STATEMENTS_CALLS       = "dialog.statements.calls";
+	public static final String DIALOG_STATEMENTS_TOTAL       = "dialog.statements.total";
+	public static final String DIALOG_STATEMENTS_MEAN        = "dialog.statements.mean";
+	public static final String DIALOG_STATEMENTS_MAX         = "dialog.statements.max";
+	public static final String DIALOG_STATEMENTS_ROWS        = "dialog.statements.rows";
+	public static final String DIALOG_STATEMENTS_ERRORS      = "dialog.statements.errors";
+	public static final String DIALOG_STATEMENTS_REFRESH     = "dialog.statements.refresh";
+	public static final String DIALOG_STATEMENTS_RESET       = "dialog.statements.reset";
+	public static final String DIALOG_STATEMENTS_EXPORT      = "dialog.statements.export";
+
+	public static final String DIALOG_HISTORY_TITLE           = "dialog.history.title";
+	public static final String DIALOG_HISTORY_ALL_TABLES      = "dialog.history.all.tables";
+	public static final String DIALOG_HISTORY_EMPTY           = "dialog.history.empty";
+	public static final String DIALOG_HISTORY_CHART_Y         = "dialog.history.chart.y";
+	public static final String DIALOG_HISTORY_TIME            = "dialog.history.time";
+	public static final String DIALOG_HISTORY_TABLE           = "dialog.history.table";
+	public static final String DIALOG_HISTORY_MODE            = "dialog.history.mode";
+	public static final String DIALOG_HISTORY_OUTCOME         = "dialog.history.outcome";
+	public static final String DIALOG_HISTORY_ROWS            = "dialog.history.rows";
+	public static final String DIALOG_HISTORY_SIZE            = "dialog.history.size";
+	public static final String DIALOG_HISTORY_DURATION        = "dialog.history.duration";
+	public static final String DIALOG_HISTORY_ROWS_PER_SECOND = "dialog.history.rows.per.second";
+	public static final String DIALOG_HISTORY_ERRORS          = "dialog.history.errors";
+	public static final String DIALOG_HISTORY_READER          = "dialog.history.reader";
+	public static final String DIALOG_HISTORY_POLICY          = "dialog.history.policy";
+	public static final String DIALOG_HISTORY_CLEAR           = "dialog.history.clear";
+	public static final String DIALOG_HISTORY_CLEAR_QUESTION  = "dialog.history.clear.question";
 
 	public static final String DIALOG_IMPORT_PROGRESS_TITLE       = "dialog.import.progress.title";
 	public static final String DIALOG_IMPORT_PROGRESS_PREPARATION = "dialog.import.progress.preparation";
 	public static final String DIALOG_IMPORT_PROGRESS_DATUM       = "dialog.import.progress.datum";
 	public static final String DIALOG_IMPORT_PROGRESS_ROW         = "dialog.import.progress.row";
+	public static final String DIALOG_IMPORT_PROGRESS_REFERENCES  = "dialog.import.progress.references";
+	public static final String DIALOG_IMPORT_PROGRESS_ETA         = "dialog.import.progress.eta";
+
+	public static final String DIALOG_VALIDATION_PROGRESS_TITLE = "dialog.validation.progress.title";
+	public static final String DIALOG_VALIDATION_PROGRESS_ROW   = "dialog.validation.progress.row";
 
 	public static final String DIALOG_INPUT_OPTIONS_TITLE                 = "dialog.input.options.title";
 	public static final String DIALOG_INPUT_OPTIONS_SEPARATOR             = "dialog.input.options.separator";
@@ -99,6 +138,12 @@ public class RB extends jhi.swtcommons.gui.i18n.RB
 	public static final String DIALOG_INPUT_OPTIONS_NUMBER_FORMAT_EXAMPLE = "dialog.input.options.number.format.example";
 	public static final String DIALOG_INPUT_OPTIONS_REMOVE_SPACES         = "dialog.input.options.remove.spaces";
 	public static final String DIALOG_INPUT_OPTIONS_ASK_AGAIN             = "dialog.input.options.ask.again";
+	public static final String DIALOG_INPUT_OPTIONS_ERROR_POLICY          = "dialog.input.options.error.policy";
+	public static final String DIALOG_INPUT_OPTIONS_ERROR_POLICY_ASK      = "dialog.input.options.error.policy.ask";
+	public static final String DIALOG_INPUT_OPTIONS_ERROR_POLICY_ABORT    = "dialog.input.options.error.policy.abort";
+	public static final String DIALOG_INPUT_OPTIONS_ERROR_POLICY_SKIP     = "dialog.input.options.error.policy.skip";
+	public static final String DIALOG_INPUT_OPTIONS_ERROR_POLICY_LIMIT    = "dialog.input.options.error.policy.limit";
+	public static final String DIALOG_INPUT_OPTIONS_ERROR_LIMIT           = "dialog.input.options.error.limit";
 
 	public static final String DIALOG_NUMBER_RANGE_TITLE       = "dialog.number.range.title";
 	public static final String DIALOG_NUMBER_RANGE_MIN         = "dialog.number.range.min";
@@ -123,6 +168,7 @@ public class RB extends jhi.swtcommons.gui.i18n.RB
 	public static final String MENU_MAIN_HELP_PREFERENCES              = "menu.main.help.preferences";
 	public static final String MENU_MAIN_HELP_UPDATE                   = "main.menu.help.update";
 	public static final String MENU_MAIN_HELP_LOG                      = "menu.main.help.log";
+	public static final String MENU_MAIN_HELP_HISTORY                  = "menu.main.help.history";
 
 	public static final String TOOLTIP_MAPPING_CONDITION    = "tooltip.mapping.condition";
 	public static final String TOOLTIP_MAPPING_DATE         = "tooltip.mapping.date";
@@ -135,6 +181,7 @@ public class RB extends jhi.swtcommons.gui.i18n.RB
 
 	public static final String TOOLTIP_IMPORT_CHOOSE_FILE   = "tooltip.import.choose.file";
 	public static final String TOOLTIP_IMPORT_IMPORT_DATA   = "tooltip.import.import.data";
+	public static final String TOOLTIP_IMPORT_VALIDATE_DATA = "tooltip.import.validate.data";
 	public static final String TOOLTIP_IMPORT_UPDATE_DATA   = "tooltip.import.update.data";
 	public static final String TOOLTIP_IMPORT_REVERT        = "tooltip.import.revert";
 	public static final String TOOLTIP_IMPORT_INPUT_OPTIONS = "tooltip.importinput.options";
@@ -142,6 +189,8 @@ public class RB extends jhi.swtcommons.gui.i18n.RB
 	public static final String INFORMATION_IMPORT_SUCCESS_MANY = "information.import.success.many";
 	public static final String INFORMATION_IMPORT_SUCCESS_ONE  = "information.import.success.one";
 
+	public static final String INFORMATION_VALIDATION_SUCCESS = "information.validation.success";
+
 	public static final String ERROR_IMPORT_XML_INVALID_MAPPING = "error.import.xml.invalid.mapping";
 
 	public static final String ERROR_ABOUT_LICENSE = "error.about.license";
@@ -162,6 +211,7 @@ public class RB extends jhi.swtcommons.gui.i18n.RB
 
 	public static final String ERROR_INPUT_OPTIONS_INVALID_LOCALE    = "error.input.options.invalid.locale";
 	public static final String ERROR_INPUT_OPTIONS_INVALID_SEPARATOR = "error.input.options.invalid.separator";
+	public static final String ERROR_INPUT_OPTIONS_INVALID_LIMIT     = "error.input.options.invalid.limit";
 
 	public static final String ERROR_FILE_NO_DATA = "error.file.no.data";
 
@@ -169,6 +219,7 @@ public class RB extends jhi.swtcommons.gui.i18n.RB
 	public static final String ERROR_IMPORT_PARSE_EXCEPTION         = "error.import.parse.exception";
 	public static final String ERROR_IMPORT_DATABASE_EXCEPTION      = "error.import.database.exception";
 	public static final String ERROR_IMPORT_NUMBER_FORMAT_EXCEPTION = "error.import.number.format.exception";
+	public static final String ERROR_IMPORT_UNRESOLVED_REFERENCE    = "error.import.unresolved.reference";
 	public static final String ERROR_IMPORT_ASK_FOR_UNDO            = "error.import.ask.for.undo";
 	public static final String ERROR_IMPORT_CANCELLED               = "error.import.cancelled";
 	public static final String ERROR_IMPORT_ASK_FOR_CONTINUE        = "error.import.ask.for.continue";
@@ -186,6 +237,11 @@ public class RB extends jhi.swtcommons.gui.i18n.RB
 	public static final String ERROR_NUMBER_RANGE_MIN_LARGER_THAN_MAX = "error.number.range.min.larger.than.max";
 
 	public static final String WARNING_CONDITION_COLUMN_IS_FOREIGN_KEY = "warning.condition.column.is.foreign.key";
+	public static final String WARNING_IMPORT_UNRESOLVED_REFERENCES    = "warning.import.unresolved.references";
+	public static final String WARNING_VALIDATION_PROBLEMS             = "warning.validation.problems";
+	public static final String WARNING_IMPORT_REJECTED_ROWS            = "warning.import.rejected.rows";
+	public static final String WARNING_IMPORT_REJECTED_PARTIAL         = "warning.import.rejected.partial";
+	public static final String WARNING_INPUT_INCONSISTENT_ROWS         = "warning.input.inconsistent.rows";
 
 	public static final String QUESTION_UNDO = "question.undo";
 
@@ -203,6 +259,8 @@ public class RB extends jhi.swtcommons.gui.i18n.RB
 
 	public static final String STATUS_IDLE                = "status.idle";
 	public static final String STATUS_UPDATING_TABLE_SIZE = "status.updating.table.size";
+	public static final String STATUS_SCANNING_INPUT_FILE = "status.scanning.input.file";
+	public static final String STATUS_IMPORT_METRICS      = "status.import.metrics";
 
 	public static final String DIALOG_UPDATE_ROW_SELECTION_TITLE   = "dialog.update.row.selection.title";
 	public static final String DIALOG_UPDATE_ROW_SELECTION_MESSAGE = "dialog.update.row.selection.message";
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.gui.viewer;
+
+import org.eclipse.jface.viewers.*;
+import org.eclipse.swt.*;
+import org.eclipse.swt.widgets.*;
+
+import jhi.germinatedataimporter.gui.i18n.*;
+import jhi.germinatedataimporter.util.*;
+import jhi.swtcommons.gui.viewer.*;
+
+/**
+ * {@link ErrorPolicyModeComboViewer} extends {@link AdvancedComboViewer} and displays {@link ErrorPolicy.Mode}s
+ *
+ * @author Sebastian Raubach
+ */
+public class ErrorPolicyModeComboViewer extends AdvancedComboViewer<ErrorPolicy.Mode>
+{
+	public ErrorPolicyModeComboViewer(Composite parent, int style)
+	{
+		super(parent, style | SWT.READ_ONLY);
+
+		this.setLabelProvider(new LabelProvider()
+		{
+			@Override
+			public String getText(Object element)
+			{
+				if (element instanceof ErrorPolicy.Mode)
+				{
+					return getDisplayText((ErrorPolicy.Mode) element);
+				}
+				else
+				{
+					return super.getText(element);
+				}
+			}
+		});
+
+		setInput(ErrorPolicy.Mode.values());
+	}
+
+	@Override
+	protected String getDisplayText(ErrorPolicy.Mode item)
+	{
+		switch (item)
+		{
+			case ABORT:
+				return RB.getString(RB.DIALOG_INPUT_OPTIONS_ERROR_POLICY_ABORT);
+			case SKIP:
+				return RB.getString(RB.DIALOG_INPUT_OPTIONS_ERROR_POLICY_SKIP);
+			case LIMIT:
+				return RB.getString(RB.DIALOG_INPUT_OPTIONS_ERROR_POLICY_LIMIT);
+			case ASK:
+			default:
+				return RB.getString(RB.DIALOG_INPUT_OPTIONS_ERROR_POLICY_ASK);
+		}
+	}
+}
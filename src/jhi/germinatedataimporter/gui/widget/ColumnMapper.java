@@ -32,6 +32,9 @@ import jhi.germinatedataimporter.gui.dialog.*;
 import jhi.germinatedataimporter.gui.i18n.*;
 import jhi.germinatedataimporter.gui.viewer.*;
 import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.io.*;
+import jhi.germinatedataimporter.util.thread.*;
+import jhi.germinatedataimporter.util.validation.*;
 import jhi.germinatedataimporter.util.xml.*;
 import jhi.swtcommons.gui.layout.*;
 import jhi.swtcommons.util.*;
@@ -41,6 +44,11 @@ import jhi.swtcommons.util.*;
  */
 public abstract class ColumnMapper
 {
+	/** The maximal number of missing values per referenced column shown to the user */
+	protected static final int UNRESOLVED_REFERENCES_SHOWN = 20;
+	/** The maximal number of validation errors shown to the user */
+	protected static final int VALIDATION_ERRORS_SHOWN     = 20;
+
 	/** The currently available {@link SimpleColumnMapperRow}s */
 	protected List<ColumnMapperRow> rows = new ArrayList<>();
 
@@ -59,6 +67,7 @@ public abstract class ColumnMapper
 	protected Button                   revert;
 	protected Button                   run;
 	protected Button                   update;
+	protected Button                   validate;
 
 	protected CTabItem contentHolder;
 
@@ -71,6 +80,8 @@ public abstract class ColumnMapper
 	protected TrimmedLabel selectedFileName;
 	protected File         selectedFile;
 
+	protected InputPreScanThread preScan;
+
 	public ColumnMapper(Composite parent, CTabItem contentHolder)
 	{
 		content = new Composite(parent, SWT.NONE);
@@ -98,7 +109,7 @@ public abstract class ColumnMapper
 		chooseFile.setImage(Resources.Images.FOLDER);
 		chooseFile.addListener(SWT.Selection, e -> {
 			FileDialog dialog = new FileDialog(content.getShell());
-			dialog.setFilterExtensions(new String[]{"*.txt;*.tsv;*.csv", "*.*"});
+			dialog.setFilterExtensions(new String[]{"*.txt;*.tsv;*.csv;*.gz;*.bgz;*.zip", "*.*"});
 
 			/* See if there is a location to restore */
 			String path = store.getAsString(GerminateParameter.inputfile);
@@ -132,6 +143,7 @@ public abstract class ColumnMapper
 					try
 					{
 						columnsFile = FileUtils.readHeaders(options);
+						startPreScan();
 					}
 					catch (IOException e1)
 					{
@@ -171,6 +183,13 @@ public abstract class ColumnMapper
 		update.setVisible(supportsUpdate);
 		update.addListener(SWT.Selection, e -> update());
 
+        /* Button to check the input file without importing it */
+		validate = new Button(buttonBar, SWT.PUSH);
+		validate.setToolTipText(RB.getString(RB.TOOLTIP_IMPORT_VALIDATE_DATA));
+		validate.setImage(Resources.Images.OK);
+		validate.setEnabled(false);
+		validate.addListener(SWT.Selection, e -> validate());
+
         /* Button to start the import process */
 		run = new Button(buttonBar, SWT.PUSH);
 		run.setToolTipText(RB.getString(RB.TOOLTIP_IMPORT_IMPORT_DATA));
@@ -179,7 +198,7 @@ public abstract class ColumnMapper
 		run.addListener(SWT.Selection, e -> insert());
 
 		GridLayoutUtils.useValues(5, false).applyTo(content);
-		GridLayoutUtils.useValues(supportsUpdate ? 3 : 2, true).applyTo(buttonBar);
+		GridLayoutUtils.useValues(supportsUpdate ? 4 : 3, true).applyTo(buttonBar);
 
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.FILL_BOTH).applyTo(content);
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.END_CENTER_FALSE).applyTo(buttonBar);
@@ -188,6 +207,7 @@ public abstract class ColumnMapper
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.BEGINNING_CENTER_FALSE).applyTo(inputOptions);
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.END_CENTER).applyTo(revert);
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.END_CENTER).exclude(!supportsUpdate).applyTo(update);
+		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.END_CENTER).applyTo(validate);
 		GridDataUtils.usePredefined(GridDataUtils.GridDataStyle.END_CENTER).applyTo(run);
 
 		reset();
@@ -276,6 +296,9 @@ public abstract class ColumnMapper
 
 			columnsFile = newColumns;
 
+			/* Count the rows in the background */
+			startPreScan();
+
 			if (selectedTable != null && !areEqual)
 				setUpContent();
 
@@ -339,6 +362,7 @@ public abstract class ColumnMapper
 
 		run.setEnabled(false);
 		update.setEnabled(false);
+		validate.setEnabled(false);
 
 		if (dynamicContent != null && !dynamicContent.isDisposed())
 			dynamicContent.dispose();
@@ -350,8 +374,33 @@ public abstract class ColumnMapper
 
 	protected abstract void update();
 
+	protected abstract void validate();
+
 	protected abstract boolean supportsUpdate();
 
+	/**
+	 * Tells the user about the rows that have been rejected during an import
+	 *
+	 * @param rejects The {@link RejectsWriter} containing the rejected rows
+	 */
+	protected void onRowsRejected(RejectsWriter rejects)
+	{
+		DialogUtils.showWarning(RB.getString(RB.WARNING_IMPORT_REJECTED_ROWS, rejects.getCount(), rejects.getFile().getAbsolutePath()));
+	}
+
+	/**
+	 * Shows the result of a {@link DataValidationThread} to the user
+	 *
+	 * @param report The {@link ValidationReport}
+	 */
+	protected void onValidationFinished(ValidationReport report)
+	{
+		if (report.isEmpty())
+			DialogUtils.showInformation(RB.getString(RB.INFORMATION_VALIDATION_SUCCESS, report.getRows()));
+		else
+			DialogUtils.showWarning(RB.getString(RB.WARNING_VALIDATION_PROBLEMS, report.getErrors(), report.getRowsWithErrors(), report.getRows(), report.format(VALIDATION_ERRORS_SHOWN), report.getFile().getAbsolutePath()));
+	}
+
 	public boolean setInputMapping(final InputMapping mapping)
 	{
 		tableCombo.selectItem(mapping.getTargetTable());
@@ -374,7 +423,32 @@ public abstract class ColumnMapper
 	}
 
 	/**
-	 * {@link InputOptions} is a simple DTO holding the {@link FileSeparator}, {@link Locale} and {@link File} used to process the input
+	 * Starts the {@link InputPreScanThread} for the currently selected file. A scan that's still running for a previous selection is stopped.
+	 */
+	protected void startPreScan()
+	{
+		if (preScan != null)
+			preScan.interrupt();
+
+		options.statistics = null;
+
+		preScan = new InputPreScanThread(options, statistics -> {
+			/* Only keep them if the user hasn't selected something else in the meantime */
+			if (statistics.matches(options))
+			{
+				options.statistics = statistics;
+
+				/* Tell the user about rows that will be rejected before they start the import */
+				if (statistics.getInconsistentRows() > 0)
+					DialogUtils.showWarning(RB.getString(RB.WARNING_INPUT_INCONSISTENT_ROWS, statistics.getInconsistentRows(), statistics.getRows(), options.file.getName(), statistics.getColumns(), statistics.getFirstInconsistentRow() + 1));
+			}
+		});
+		preScan.start();
+	}
+
+	/**
+	 * {@link InputOptions} is a simple DTO holding the {@link FileSeparator}, {@link Locale} and {@link File} used to process the input. The {@link
+	 * InputStatistics} are set once the {@link InputPreScanThread} has finished.
 	 *
 	 * @author Sebastian Raubach
 	 */
@@ -383,5 +457,7 @@ public abstract class ColumnMapper
 		public FileSeparator separator;
 		public Locale        locale;
 		public File          file;
+
+		public volatile InputStatistics statistics;
 	}
 }
@@ -38,7 +38,10 @@ import jhi.germinatedataimporter.gui.i18n.*;
 import jhi.germinatedataimporter.gui.widget.MatrixColumnMapperRow.*;
 import jhi.germinatedataimporter.util.*;
 import jhi.germinatedataimporter.util.exception.*;
+import jhi.germinatedataimporter.util.io.*;
+import jhi.germinatedataimporter.util.lookup.*;
 import jhi.germinatedataimporter.util.thread.*;
+import jhi.germinatedataimporter.util.validation.*;
 import jhi.swtcommons.gui.layout.*;
 import jhi.swtcommons.util.*;
 
@@ -81,6 +84,18 @@ public class MatrixColumnMapper extends ColumnMapper
 					return DialogUtils.showQuestionToggle(RB.getString(RB.ERROR_IMPORT_ASK_FOR_CONTINUE, message), RB.getString(RB.ERROR_IMPORT_ASK_FOR_CONTINUE_TOGGLE), checkedState);
 				}
 
+				@Override
+				public void onUnresolvedReferences(UnresolvedReferenceReport report)
+				{
+					DialogUtils.showWarning(RB.getString(RB.WARNING_IMPORT_UNRESOLVED_REFERENCES, report.getSkipped(), report.getDistinctValues(), report.format(UNRESOLVED_REFERENCES_SHOWN)));
+				}
+
+				@Override
+				public void onRowsRejected(RejectsWriter rejects)
+				{
+					MatrixColumnMapper.this.onRowsRejected(rejects);
+				}
+
 				@Override
 				public void onImportFailed(final List<Long> generatedIds, int updatedIds, Exception e)
 				{
@@ -102,6 +117,10 @@ public class MatrixColumnMapper extends ColumnMapper
 					{
 						message = RB.getString(RB.ERROR_IMPORT_NUMBER_FORMAT_EXCEPTION, e.getLocalizedMessage());
 					}
+					else if (e instanceof UnresolvedReferenceException)
+					{
+						message = RB.getString(RB.ERROR_IMPORT_UNRESOLVED_REFERENCE, e.getLocalizedMessage());
+					}
 
                     /* If nothing has been inserted into the database yet */
 					if (CollectionUtils.isEmpty(generatedIds))
@@ -260,14 +279,23 @@ public class MatrixColumnMapper extends ColumnMapper
 	}
 
 	protected void insert()
+	{
+		if (isMappingValid())
+			startImport(getMapping());
+	}
+
+	/**
+	 * Checks the conditions (see {@link #checkConditions()}) and shows an error message if they aren't fulfilled
+	 *
+	 * @return <code>true</code> if all the conditions are fulfilled
+	 */
+	private boolean isMappingValid()
 	{
 		try
 		{
 			checkConditions();
 
-			List<MatrixColumnMapperRowDTO> mapping = getMapping();
-
-			startImport(mapping);
+			return true;
 		}
 		catch (IllegalArgumentException e1)
 		{
@@ -297,6 +325,40 @@ public class MatrixColumnMapper extends ColumnMapper
 		{
 			DialogUtils.handleException(e1);
 		}
+
+		return false;
+	}
+
+	@Override
+	protected void validate()
+	{
+		if (!isMappingValid())
+			return;
+
+		try
+		{
+			IRunnableWithProgress op = new MatrixDataValidationThread(options, getMapping())
+			{
+				@Override
+				public void onValidationFinished(ValidationReport report)
+				{
+					MatrixColumnMapper.this.onValidationFinished(report);
+				}
+
+				@Override
+				public void onValidationFailed(Exception e)
+				{
+					DialogUtils.handleException(e);
+				}
+			};
+
+            /* Start the progress dialog */
+			new ProgressMonitorDialog(content.getShell()).run(true, true, op);
+		}
+		catch (InvocationTargetException | InterruptedException e)
+		{
+			DialogUtils.handleException(e);
+		}
 	}
 
 	/**
@@ -312,6 +374,7 @@ public class MatrixColumnMapper extends ColumnMapper
 		rows.clear();
 
 		run.setEnabled(true);
+		validate.setEnabled(true);
 
 		dynamicContent = new Composite(content, SWT.NONE);
 
@@ -42,7 +42,10 @@ import jhi.germinatedataimporter.gui.i18n.*;
 import jhi.germinatedataimporter.gui.widget.SimpleColumnMapperRow.*;
 import jhi.germinatedataimporter.util.*;
 import jhi.germinatedataimporter.util.exception.*;
+import jhi.germinatedataimporter.util.io.*;
+import jhi.germinatedataimporter.util.lookup.*;
 import jhi.germinatedataimporter.util.thread.*;
+import jhi.germinatedataimporter.util.validation.*;
 import jhi.germinatedataimporter.util.xml.*;
 import jhi.swtcommons.gui.layout.*;
 import jhi.swtcommons.util.*;
@@ -89,6 +92,18 @@ public class SimpleColumnMapper extends ColumnMapper
 							return SimpleColumnMapper.this.onImportError(e, checkedState);
 						}
 
+						@Override
+						public void onUnresolvedReferences(UnresolvedReferenceReport report)
+						{
+							SimpleColumnMapper.this.onUnresolvedReferences(report);
+						}
+
+						@Override
+						public void onRowsRejected(RejectsWriter rejects)
+						{
+							SimpleColumnMapper.this.onRowsRejected(rejects);
+						}
+
 						@Override
 						public void onImportFailed(List<Long> generatedIds, int updatedIds, Exception e)
 						{
@@ -117,6 +132,18 @@ public class SimpleColumnMapper extends ColumnMapper
 							return SimpleColumnMapper.this.onImportError(e, checkedState);
 						}
 
+						@Override
+						public void onUnresolvedReferences(UnresolvedReferenceReport report)
+						{
+							SimpleColumnMapper.this.onUnresolvedReferences(report);
+						}
+
+						@Override
+						public void onRowsRejected(RejectsWriter rejects)
+						{
+							SimpleColumnMapper.this.onRowsRejected(rejects);
+						}
+
 						@Override
 						public void onImportFailed(List<Long> generatedIds, int updatedIds, Exception e)
 						{
@@ -145,6 +172,18 @@ public class SimpleColumnMapper extends ColumnMapper
 							return SimpleColumnMapper.this.onImportError(e, checkedState);
 						}
 
+						@Override
+						public void onUnresolvedReferences(UnresolvedReferenceReport report)
+						{
+							SimpleColumnMapper.this.onUnresolvedReferences(report);
+						}
+
+						@Override
+						public void onRowsRejected(RejectsWriter rejects)
+						{
+							SimpleColumnMapper.this.onRowsRejected(rejects);
+						}
+
 						@Override
 						public void onImportFailed(List<Long> generatedIds, int updatedIds, Exception e)
 						{
@@ -230,6 +269,10 @@ public class SimpleColumnMapper extends ColumnMapper
 		{
 			message = RB.getString(RB.ERROR_IMPORT_NUMBER_FORMAT_EXCEPTION, e.getLocalizedMessage());
 		}
+		else if (e instanceof UnresolvedReferenceException)
+		{
+			message = RB.getString(RB.ERROR_IMPORT_UNRESOLVED_REFERENCE, e.getLocalizedMessage());
+		}
 
 		/* If nothing has been inserted into the database yet */
 		if (CollectionUtils.isEmpty(generatedIds))
@@ -253,6 +296,11 @@ public class SimpleColumnMapper extends ColumnMapper
 		}
 	}
 
+	private void onUnresolvedReferences(UnresolvedReferenceReport report)
+	{
+		DialogUtils.showWarning(RB.getString(RB.WARNING_IMPORT_UNRESOLVED_REFERENCES, report.getSkipped(), report.getDistinctValues(), report.format(UNRESOLVED_REFERENCES_SHOWN)));
+	}
+
 	private Tuple.Pair<Boolean, Boolean> onImportError(Exception e, boolean checkedState)
 	{
 		String message = e.getLocalizedMessage();
@@ -372,12 +420,24 @@ public class SimpleColumnMapper extends ColumnMapper
 	}
 
 	private void run(List<SimpleColumnMapperRowDTO> mapping)
+	{
+		if (isMappingValid(state == State.UPDATE))
+			startImport(mapping);
+	}
+
+	/**
+	 * Checks the conditions (see {@link #checkConditions(boolean)}) and shows an error message if they aren't fulfilled
+	 *
+	 * @param isUpdate Is this an update?
+	 * @return <code>true</code> if all the conditions are fulfilled
+	 */
+	private boolean isMappingValid(boolean isUpdate)
 	{
 		try
 		{
-			checkConditions(state == State.UPDATE);
+			checkConditions(isUpdate);
 
-			startImport(mapping);
+			return true;
 		}
 		catch (IllegalArgumentException e1)
 		{
@@ -403,6 +463,41 @@ public class SimpleColumnMapper extends ColumnMapper
 		{
 			DialogUtils.handleException(e1);
 		}
+
+		return false;
+	}
+
+	@Override
+	protected void validate()
+	{
+		/* Columns that aren't mapped don't matter for the validation of the mapped ones, so don't insist on them */
+		if (!isMappingValid(true))
+			return;
+
+		try
+		{
+			IRunnableWithProgress op = new RowDataValidationThread(options, getMapping())
+			{
+				@Override
+				public void onValidationFinished(ValidationReport report)
+				{
+					SimpleColumnMapper.this.onValidationFinished(report);
+				}
+
+				@Override
+				public void onValidationFailed(Exception e)
+				{
+					DialogUtils.handleException(e);
+				}
+			};
+
+            /* Start the progress dialog */
+			new ProgressMonitorDialog(content.getShell()).run(true, true, op);
+		}
+		catch (InvocationTargetException | InterruptedException e)
+		{
+			DialogUtils.handleException(e);
+		}
 	}
 
 	/**
@@ -419,6 +514,7 @@ public class SimpleColumnMapper extends ColumnMapper
 
 		run.setEnabled(true);
 		update.setEnabled(true);
+		validate.setEnabled(true);
 
 		dynamicContent = new Composite(content, SWT.NONE);
 
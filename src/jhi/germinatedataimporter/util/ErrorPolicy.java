@@ -0,0 +1,170 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util;
+
+import java.util.*;
+
+/**
+ * {@link ErrorPolicy} defines what happens when a row of the input file cannot be imported. Rejected rows are always written to the rejects file
+ * (see {@link jhi.germinatedataimporter.util.io.RejectsWriter}), the {@link Mode} decides whether the import continues afterwards.
+ * <p>
+ * The {@link #toString()} representation is the one stored in the properties and can be read by {@link #parse(String)}, e.g.
+ * <code>SKIP</code>, <code>LIMIT:100</code> or <code>LIMIT:5%</code>.
+ *
+ * @author Sebastian Raubach
+ */
+public class ErrorPolicy
+{
+	public static final ErrorPolicy ASK = new ErrorPolicy(Mode.ASK, 0, false);
+
+	private static final String LIMIT_SEPARATOR = ":";
+	private static final String PERCENT         = "%";
+
+	private final Mode    mode;
+	private final double  limit;
+	private final boolean isPercentage;
+
+	/**
+	 * Creates a new instance of {@link ErrorPolicy}
+	 *
+	 * @param mode         The {@link Mode}
+	 * @param limit        The number (or percentage) of errors that are tolerated if the {@link Mode} is {@link Mode#LIMIT}
+	 * @param isPercentage Is the limit a percentage of the rows?
+	 */
+	public ErrorPolicy(Mode mode, double limit, boolean isPercentage)
+	{
+		if (Double.isNaN(limit) || limit < 0 || (isPercentage && limit > 100))
+			throw new IllegalArgumentException("Invalid error limit: " + limit);
+
+		this.mode = mode;
+		this.limit = limit;
+		this.isPercentage = isPercentage;
+	}
+
+	/**
+	 * Parses the given {@link String} as created by {@link #toString()}
+	 *
+	 * @param value The {@link String} to parse
+	 * @return The {@link ErrorPolicy}
+	 * @throws IllegalArgumentException Thrown if the {@link String} isn't a valid {@link ErrorPolicy}
+	 */
+	public static ErrorPolicy parse(String value)
+	{
+		if (value == null)
+			throw new IllegalArgumentException("No error policy");
+
+		value = value.trim();
+
+		int index = value.indexOf(LIMIT_SEPARATOR);
+
+		if (index == -1)
+		{
+			Mode mode = Mode.valueOf(value.toUpperCase(Locale.ENGLISH));
+
+			if (mode == Mode.LIMIT)
+				throw new IllegalArgumentException("Missing error limit");
+
+			return new ErrorPolicy(mode, 0, false);
+		}
+		else
+		{
+			Mode mode = Mode.valueOf(value.substring(0, index).trim().toUpperCase(Locale.ENGLISH));
+
+			if (mode != Mode.LIMIT)
+				throw new IllegalArgumentException("Only " + Mode.LIMIT + " has a limit: " + value);
+
+			return parseLimit(value.substring(index + 1));
+		}
+	}
+
+	/**
+	 * Parses the given limit, either a number of errors (<code>100</code>) or a percentage of the rows (<code>5%</code>)
+	 *
+	 * @param limit The limit to parse
+	 * @return The {@link ErrorPolicy} with the {@link Mode} {@link Mode#LIMIT}
+	 * @throws IllegalArgumentException Thrown if the limit is invalid
+	 */
+	public static ErrorPolicy parseLimit(String limit)
+	{
+		limit = limit.trim();
+
+		if (limit.endsWith(PERCENT))
+			return new ErrorPolicy(Mode.LIMIT, Double.parseDouble(limit.substring(0, limit.length() - 1).trim()), true);
+		else
+			return new ErrorPolicy(Mode.LIMIT, Long.parseLong(limit), false);
+	}
+
+	public Mode getMode()
+	{
+		return mode;
+	}
+
+	/**
+	 * Returns the limit as entered by the user, e.g. <code>100</code> or <code>5%</code>
+	 *
+	 * @return The limit as entered by the user
+	 */
+	public String getLimitString()
+	{
+		String result = (limit == Math.rint(limit)) ? Long.toString((long) limit) : Double.toString(limit);
+
+		return isPercentage ? result + PERCENT : result;
+	}
+
+	/**
+	 * Checks if the given number of errors exceeds the limit. The import continues if the number of errors is at most the limit.
+	 *
+	 * @param errors The number of errors so far
+	 * @param rows   The number of rows used for percentages
+	 * @return <code>true</code> if the limit has been exceeded
+	 */
+	public boolean isExceeded(long errors, long rows)
+	{
+		if (isPercentage)
+			return errors > rows * limit / 100;
+		else
+			return errors > limit;
+	}
+
+	@Override
+	public String toString()
+	{
+		if (mode == Mode.LIMIT)
+			return mode.name() + LIMIT_SEPARATOR + getLimitString();
+		else
+			return mode.name();
+	}
+
+	/**
+	 * The {@link Mode} of an {@link ErrorPolicy}
+	 *
+	 * @author Sebastian Raubach
+	 */
+	public enum Mode
+	{
+		/** Ask the user what to do (blocks the import until the user answers) */
+		ASK,
+		/** Stop the import at the first error */
+		ABORT,
+		/** Skip all rows that cannot be imported */
+		SKIP,
+		/** Skip rows that cannot be imported until a limit has been exceeded */
+		LIMIT
+	}
+}
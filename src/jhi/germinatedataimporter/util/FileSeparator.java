@@ -24,17 +24,19 @@ package jhi.germinatedataimporter.util;
  */
 public enum FileSeparator
 {
-	TAB("\t", "tab"),
-	COMMA(",", ","),
-	SEMICOLON(";", ";"),
-	PIPE("\\|", "|");
+	TAB("\t", '\t', "tab"),
+	COMMA(",", ',', ","),
+	SEMICOLON(";", ';', ";"),
+	PIPE("\\|", '|', "|");
 
 	private String separator;
+	private char   separatorChar;
 	private String name;
 
-	FileSeparator(String separator, String name)
+	FileSeparator(String separator, char separatorChar, String name)
 	{
 		this.separator = separator;
+		this.separatorChar = separatorChar;
 		this.name = name;
 	}
 
@@ -48,6 +50,16 @@ public enum FileSeparator
 		this.separator = separator;
 	}
 
+	/**
+	 * Returns the separator as a plain character (as opposed to {@link #getSeparator()}, which returns a regular expression)
+	 *
+	 * @return The separator as a plain character
+	 */
+	public char getSeparatorChar()
+	{
+		return separatorChar;
+	}
+
 	public String getName()
 	{
 		return name;
@@ -22,6 +22,7 @@ import java.util.*;
 
 import jhi.germinatedataimporter.gui.*;
 import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
+import jhi.germinatedataimporter.util.io.*;
 import jhi.swtcommons.util.*;
 
 /**
@@ -42,25 +43,22 @@ public class FileUtils
 	 */
 	public static Set<String> readHeaders(InputOptions options) throws IOException
 	{
-		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(options.file), "UTF8"));
+		RowReader reader = RowReaders.open(options, true);
 
 		Set<String> result = new LinkedHashSet<>();
 
-		String line = br.readLine();
+		String[] parts = reader.next(null);
 
-		if (!StringUtils.isEmpty(line))
+		if (parts != null)
 		{
-			String[] parts = line.split(options.separator.getSeparator());
-
 			for (String part : parts)
 			{
-				part = part.trim();
 				if (!StringUtils.isEmpty(part))
 					result.add(part);
 			}
 		}
 
-		br.close();
+		reader.close();
 
 		return result;
 	}
@@ -20,6 +20,7 @@ package jhi.germinatedataimporter.util;
 import java.util.*;
 
 import jhi.germinatedataimporter.database.entities.*;
+import jhi.germinatedataimporter.util.log.*;
 import jhi.swtcommons.util.*;
 
 /**
@@ -41,6 +42,17 @@ public enum GerminateParameter implements Parameter
 	inputlocale(Locale.class),
 	inputalwaysask(Boolean.class),
 	removetrailingspaces(Boolean.class),
+	preloadthreshold(Integer.class),
+	referencecache(Boolean.class),
+	parallelparsing(Boolean.class),
+	errorpolicy(ErrorPolicy.class),
+	sqllogpolicy(AsyncLogWriter.Policy.class),
+	sqllogfirst(Integer.class),
+	sqllogevery(Integer.class),
+	sqllogmaxsize(Integer.class),
+	sqllogmaxage(Integer.class),
+	sqllogbudget(Integer.class),
+	sqlslowthreshold(Integer.class),
 	//	updateData(Boolean.class),
 	userId(String.class);
 
@@ -21,8 +21,11 @@ import java.io.*;
 import java.nio.file.*;
 import java.util.*;
 
+import jhi.germinatedataimporter.database.*;
 import jhi.germinatedataimporter.database.entities.*;
 import jhi.germinatedataimporter.gui.*;
+import jhi.germinatedataimporter.util.log.*;
+import jhi.germinatedataimporter.util.lookup.*;
 import jhi.swtcommons.util.*;
 
 /**
@@ -33,6 +36,8 @@ import jhi.swtcommons.util.*;
 public class PropertyReader extends jhi.swtcommons.util.PropertyReader
 {
 	public static final  String PROPERTIES_FOLDER_NEW       = "jhi-ics";
+	/** The folder containing the local properties file, the log files and caches */
+	public static final  File   CONFIG_FOLDER               = new File(System.getProperty("user.home"), "." + PROPERTIES_FOLDER_NEW);
 	private static final String INPUT_FILE_PATH             = "input.file.path";
 	private static final String INPUT_FILE_SEPARATOR        = "input.file.separator";
 	private static final String INPUT_FILE_NUMBER_FORMAT    = "input.file.locale";
@@ -44,6 +49,17 @@ public class PropertyReader extends jhi.swtcommons.util.PropertyReader
 	private static final String PREFERENCES_LOCALE          = "preferences.locale";
 	private static final String PREFERENCES_UPDATE_INTERVAL = "preferences.update.interval";
 	private static final String INTERNAL_USER_ID            = "internal.user.id";
+	private static final String IMPORT_PRELOAD_THRESHOLD    = "import.reference.preload.threshold";
+	private static final String IMPORT_REFERENCE_CACHE      = "import.reference.cache";
+	private static final String IMPORT_PARALLEL_PARSING     = "import.input.parallel";
+	private static final String IMPORT_ERROR_POLICY         = "import.error.policy";
+	private static final String LOG_SQL_POLICY              = "log.sql.policy";
+	private static final String LOG_SQL_SAMPLE_FIRST        = "log.sql.sample.first";
+	private static final String LOG_SQL_SAMPLE_EVERY        = "log.sql.sample.every";
+	private static final String LOG_SQL_MAX_FILE_SIZE       = "log.sql.max.file.size";
+	private static final String LOG_SQL_MAX_AGE             = "log.sql.max.age";
+	private static final String LOG_SQL_DISK_BUDGET         = "log.sql.disk.budget";
+	private static final String LOG_SQL_SLOW_THRESHOLD      = "log.sql.slow.threshold";
 	/** The name of the properties file (slash necessary for MacOS X) */
 	private static final String PROPERTIES_FILE             = "/g3di.properties";
 	private static final String PROPERTIES_FOLDER_OLD       = "scri-bioinf";
@@ -170,6 +186,59 @@ public class PropertyReader extends jhi.swtcommons.util.PropertyReader
 		else
 			store.put(GerminateParameter.removetrailingspaces, Boolean.parseBoolean(removeSpaces));
 
+		/* Get the maximal size of referenced tables that are loaded into memory before an import */
+		store.put(GerminateParameter.preloadthreshold, getPropertyInteger(IMPORT_PRELOAD_THRESHOLD, ReferenceResolver.DEFAULT_PRELOAD_THRESHOLD));
+
+		/* Get the value for keeping resolved references between sessions */
+		String referenceCache = getProperty(IMPORT_REFERENCE_CACHE);
+		if (StringUtils.isEmpty(referenceCache))
+			store.put(GerminateParameter.referencecache, true);
+		else
+			store.put(GerminateParameter.referencecache, Boolean.parseBoolean(referenceCache));
+
+		/* Get the value for parsing the input file on multiple threads */
+		String parallelParsing = getProperty(IMPORT_PARALLEL_PARSING);
+		if (StringUtils.isEmpty(parallelParsing))
+			store.put(GerminateParameter.parallelparsing, true);
+		else
+			store.put(GerminateParameter.parallelparsing, Boolean.parseBoolean(parallelParsing));
+
+		/* Get the error policy and fall back on asking the user if necessary */
+		ErrorPolicy errorPolicy;
+		try
+		{
+			errorPolicy = ErrorPolicy.parse(getProperty(IMPORT_ERROR_POLICY));
+		}
+		catch (Exception e)
+		{
+			errorPolicy = ErrorPolicy.ASK;
+		}
+		store.put(GerminateParameter.errorpolicy, errorPolicy);
+
+		/* Get what happens to SQL log records if the log writer can't keep up and fall back on waiting for it if necessary */
+		AsyncLogWriter.Policy sqlLogPolicy;
+		try
+		{
+			sqlLogPolicy = AsyncLogWriter.Policy.valueOf(getProperty(LOG_SQL_POLICY).trim().toUpperCase(Locale.ENGLISH));
+		}
+		catch (Exception e)
+		{
+			sqlLogPolicy = AsyncLogWriter.Policy.BLOCK;
+		}
+		store.put(GerminateParameter.sqllogpolicy, sqlLogPolicy);
+
+		/* Get which statements of an import are logged, by default all of them */
+		store.put(GerminateParameter.sqllogfirst, getPropertyInteger(LOG_SQL_SAMPLE_FIRST, StatementLogSampler.DEFAULT_FIRST));
+		store.put(GerminateParameter.sqllogevery, getPropertyInteger(LOG_SQL_SAMPLE_EVERY, StatementLogSampler.DEFAULT_EVERY));
+
+		/* Get when the SQL log is rolled over (in MB and hours) and how much space all SQL logs may use (in MB) */
+		store.put(GerminateParameter.sqllogmaxsize, getPropertyInteger(LOG_SQL_MAX_FILE_SIZE, SQLLogger.DEFAULT_MAX_FILE_SIZE));
+		store.put(GerminateParameter.sqllogmaxage, getPropertyInteger(LOG_SQL_MAX_AGE, SQLLogger.DEFAULT_MAX_AGE));
+		store.put(GerminateParameter.sqllogbudget, getPropertyInteger(LOG_SQL_DISK_BUDGET, SQLLogger.DEFAULT_DISK_BUDGET));
+
+		/* Get from how many milliseconds on a statement is logged and explained as slow (0 to turn it off) */
+		store.put(GerminateParameter.sqlslowthreshold, getPropertyInteger(LOG_SQL_SLOW_THRESHOLD, SlowStatementLog.DEFAULT_THRESHOLD));
+
         /* Get previously used database servers */
 		List<String> servers = getPropertyListAsString(DATABASE_SERVER, ",");
 		store.put(GerminateParameter.servers, servers);
@@ -214,6 +283,17 @@ public class PropertyReader extends jhi.swtcommons.util.PropertyReader
 		set(DATABASE_PORT, store.getAsString(GerminateParameter.port));
 		set(PREFERENCES_UPDATE_INTERVAL, store.getAsString(GerminateParameter.updateInterval));
 		set(INTERNAL_USER_ID, store.getAsString(GerminateParameter.userId));
+		set(IMPORT_PRELOAD_THRESHOLD, store.getAsString(GerminateParameter.preloadthreshold));
+		set(IMPORT_REFERENCE_CACHE, store.getAsString(GerminateParameter.referencecache));
+		set(IMPORT_PARALLEL_PARSING, store.getAsString(GerminateParameter.parallelparsing));
+		set(IMPORT_ERROR_POLICY, store.getAsString(GerminateParameter.errorpolicy));
+		set(LOG_SQL_POLICY, store.getAsString(GerminateParameter.sqllogpolicy));
+		set(LOG_SQL_SAMPLE_FIRST, store.getAsString(GerminateParameter.sqllogfirst));
+		set(LOG_SQL_SAMPLE_EVERY, store.getAsString(GerminateParameter.sqllogevery));
+		set(LOG_SQL_MAX_FILE_SIZE, store.getAsString(GerminateParameter.sqllogmaxsize));
+		set(LOG_SQL_MAX_AGE, store.getAsString(GerminateParameter.sqllogmaxage));
+		set(LOG_SQL_DISK_BUDGET, store.getAsString(GerminateParameter.sqllogbudget));
+		set(LOG_SQL_SLOW_THRESHOLD, store.getAsString(GerminateParameter.sqlslowthreshold));
 
 		localFile.getParentFile().mkdirs();
 		localFile.createNewFile();
@@ -24,17 +24,23 @@ package jhi.germinatedataimporter.util;
  */
 public class SQLUtils
 {
-	public static final String AUTO_INCREMENT = "AUTO_INCREMENT";
+	public static final String AUTO_INCREMENT  = "AUTO_INCREMENT";
+	public static final String REFERENCE_VALUE = "reference_value";
+	public static final String UPDATE_TIME     = "UPDATE_TIME";
 
 	public static final String SELECT_TABLES_OF_DATABASE             = "SHOW TABLE STATUS FROM %s WHERE Comment != \"VIEW\"";
 	public static final String SELECT_TABLES_OF_DATABASE_WITH_NAME   = "SHOW TABLE STATUS FROM %s WHERE Comment != \"VIEW\" AND Name = ?";
 	public static final String SELECT_COUNT_OF_TABLE                 = "SELECT COUNT(*) AS count FROM %s";
 	public static final String SELECT_COLUMNS_OF_TABLE               = "SELECT c.COLUMN_NAME, c.IS_NULLABLE, c.DATA_TYPE, GROUP_CONCAT(k.REFERENCED_COLUMN_NAME) AS FOREIGN_KEY_COLUMN, GROUP_CONCAT(k.CONSTRAINT_NAME ORDER BY FIELD(k.CONSTRAINT_NAME, 'PRIMARY') DESC SEPARATOR ' ') AS PRIMARY_KEY, GROUP_CONCAT(k.REFERENCED_TABLE_NAME) AS FOREIGN_KEY_TABLE FROM information_schema.columns AS c LEFT JOIN information_schema.KEY_COLUMN_USAGE AS k ON c.TABLE_SCHEMA = k.TABLE_SCHEMA AND c.TABLE_NAME = k.TABLE_NAME AND c.COLUMN_NAME = k.COLUMN_NAME WHERE c.TABLE_SCHEMA = ? AND c.TABLE_NAME = ? GROUP BY COLUMN_NAME, IS_NULLABLE, DATA_TYPE";
 	public static final String SELECT_COLUMNS_OF_TABLE_WITH_NAME     = "SELECT c.COLUMN_NAME, c.IS_NULLABLE, c.DATA_TYPE, GROUP_CONCAT(k.REFERENCED_COLUMN_NAME) AS FOREIGN_KEY_COLUMN, GROUP_CONCAT(k.CONSTRAINT_NAME ORDER BY FIELD(k.CONSTRAINT_NAME, 'PRIMARY') DESC SEPARATOR ' ') AS PRIMARY_KEY, GROUP_CONCAT(k.REFERENCED_TABLE_NAME) AS FOREIGN_KEY_TABLE FROM information_schema.columns AS c LEFT JOIN information_schema.KEY_COLUMN_USAGE AS k ON c.TABLE_SCHEMA = k.TABLE_SCHEMA AND c.TABLE_NAME = k.TABLE_NAME AND c.COLUMN_NAME = k.COLUMN_NAME WHERE c.TABLE_SCHEMA = ? AND c.TABLE_NAME = ? AND c.COLUMN_NAME = ? GROUP BY COLUMN_NAME, IS_NULLABLE, DATA_TYPE";
-	public static final String SELECT_SUBQUERY                       = "(SELECT id FROM %s WHERE %s=? LIMIT 1)";
+	public static final String SELECT_REFERENCE_ID                   = "SELECT id FROM %s WHERE %s = ? LIMIT 1";
+	public static final String SELECT_REFERENCE_VALUES               = "SELECT id, %s AS reference_value FROM %s ORDER BY id";
+	public static final String SELECT_REFERENCE_VALUES_IN            = "SELECT id, %s AS reference_value FROM %s WHERE %s IN (%s) ORDER BY id";
 	public static final String DELETE_ENTRIES                        = "DELETE FROM %s WHERE id IN (%s)";
 	public static final String SELECT_EXAMPLE_DATA_FROM_TABLE_COLUMN = "SELECT * FROM (SELECT DISTINCT(%s) FROM %s ORDER BY RAND() LIMIT 10) AS a ORDER BY %s";
 	public static final String SELECT_AUTO_INCREMENT                 = "SELECT AUTO_INCREMENT FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?";
+	public static final String SELECT_TABLE_CHANGE_MARKERS           = "SELECT UPDATE_TIME, AUTO_INCREMENT FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?";
+	public static final String SET_STATISTICS_EXPIRY                 = "SET SESSION information_schema_stats_expiry = 0";
 	public static final String ALTER_AUTO_INCREMENT                  = "ALTER TABLE %s AUTO_INCREMENT = ?";
 	public static final String SELECT_MAX_ID                         = "SELECT MAX(id) AS AUTO_INCREMENT FROM %s";
 
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.exception;
+
+import jhi.germinatedataimporter.database.entities.*;
+
+/**
+ * {@link UnresolvedReferenceException} extends {@link Exception} and is thrown if a value of the input file cannot be found in the table referenced
+ * by a {@link DatabaseColumn.Condition}
+ *
+ * @author Sebastian Raubach
+ */
+public class UnresolvedReferenceException extends Exception
+{
+	private static final long serialVersionUID = 4207591187420853610L;
+
+	private DatabaseColumn.Condition condition;
+	private String                   value;
+
+	public UnresolvedReferenceException(DatabaseColumn.Condition condition, String value)
+	{
+		super("Value '" + value + "' not found in " + condition.getTable().getName() + "." + condition.getColumn().getName());
+		this.condition = condition;
+		this.value = value;
+	}
+
+	public DatabaseColumn.Condition getCondition()
+	{
+		return condition;
+	}
+
+	public String getValue()
+	{
+		return value;
+	}
+}
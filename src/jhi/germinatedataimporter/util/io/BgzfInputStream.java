@@ -0,0 +1,273 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * {@link BgzfInputStream} reads files in the blocked gzip format (bgzip) used by samtools and htslib. Each block is an independent gzip member of at
+ * most 64KB, so the blocks are read sequentially, but inflated in parallel on the common {@link ForkJoinPool}. The inflated blocks are returned in
+ * their original order and only a limited number of blocks are inflated ahead of the reader.
+ *
+ * @author Sebastian Raubach
+ */
+public class BgzfInputStream extends InputStream
+{
+	private static final int HEADER_SIZE  = 12;
+	private static final int TRAILER_SIZE = 8;
+	/** The maximal inflated size of a block */
+	private static final int MAX_BLOCK_SIZE = 65536;
+
+	private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+	private final DataInputStream in;
+	private final int             maxInFlight;
+
+	private final Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+
+	private boolean endOfInput = false;
+	private byte[]  block      = new byte[0];
+	private int     position   = 0;
+
+	/**
+	 * Creates a new instance of {@link BgzfInputStream}
+	 *
+	 * @param in The compressed {@link InputStream}
+	 */
+	public BgzfInputStream(InputStream in)
+	{
+		this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+		this.maxInFlight = Math.max(4, ForkJoinPool.getCommonPoolParallelism() * 4);
+	}
+
+	/**
+	 * Checks if the given bytes are the start of a bgzip block, i.e. a gzip header with a "BC" extra subfield
+	 *
+	 * @param header The first bytes of the file
+	 * @param length The number of available bytes
+	 * @return <code>true</code> if the bytes are the start of a bgzip block
+	 */
+	static boolean isBgzfHeader(byte[] header, int length)
+	{
+		return length >= 16
+				&& (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B && header[2] == 8 && (header[3] & 4) != 0
+				&& header[12] == 'B' && header[13] == 'C' && header[14] == 2 && header[15] == 0;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		if (!ensureAvailable())
+			return -1;
+
+		return block[position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		if (len == 0)
+			return 0;
+
+		if (!ensureAvailable())
+			return -1;
+
+		int length = Math.min(len, block.length - position);
+		System.arraycopy(block, position, b, off, length);
+		position += length;
+
+		return length;
+	}
+
+	@Override
+	public int available() throws IOException
+	{
+		return block.length - position;
+	}
+
+	private boolean ensureAvailable() throws IOException
+	{
+		while (position == block.length)
+		{
+			/* Keep the pool busy */
+			while (!endOfInput && pending.size() < maxInFlight)
+			{
+				byte[] compressed = readBlock();
+
+				if (compressed == null)
+					endOfInput = true;
+				else
+					pending.add(ForkJoinPool.commonPool().submit(() -> inflate(compressed)));
+			}
+
+			if (pending.isEmpty())
+				return false;
+
+			block = await(pending.poll());
+			position = 0;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Reads the next compressed block including its header and trailer
+	 *
+	 * @return The next compressed block or <code>null</code> if the end of the input has been reached
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	private byte[] readBlock() throws IOException
+	{
+		byte[] header = new byte[HEADER_SIZE];
+
+		int first = in.read();
+		if (first == -1)
+			return null;
+
+		header[0] = (byte) first;
+		in.readFully(header, 1, HEADER_SIZE - 1);
+
+		if ((header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B || (header[3] & 4) == 0)
+			throw new ZipException("Not a bgzip block");
+
+		/* Find the total block size in the "BC" extra subfield */
+		int extraLength = (header[10] & 0xFF) | ((header[11] & 0xFF) << 8);
+		byte[] extra = new byte[extraLength];
+		in.readFully(extra);
+
+		int blockSize = -1;
+		for (int i = 0; i + 4 <= extraLength; )
+		{
+			int subfieldLength = (extra[i + 2] & 0xFF) | ((extra[i + 3] & 0xFF) << 8);
+
+			if (extra[i] == 'B' && extra[i + 1] == 'C' && subfieldLength == 2 && i + 6 <= extraLength)
+				blockSize = ((extra[i + 4] & 0xFF) | ((extra[i + 5] & 0xFF) << 8)) + 1;
+
+			i += 4 + subfieldLength;
+		}
+
+		if (blockSize == -1)
+			throw new ZipException("Missing bgzip block size");
+		else if (blockSize < HEADER_SIZE + extraLength + TRAILER_SIZE)
+			throw new ZipException("Invalid bgzip block size: " + blockSize);
+
+		/* The remainder of the block is the deflated data followed by the CRC and the inflated size */
+		byte[] remainder = new byte[blockSize - HEADER_SIZE - extraLength];
+		in.readFully(remainder);
+
+		return remainder;
+	}
+
+	/**
+	 * Inflates the given block and checks its CRC and size
+	 *
+	 * @param remainder The deflated data followed by the CRC and the inflated size
+	 * @return The inflated data
+	 * @throws IOException Thrown if the block is corrupt
+	 */
+	private static byte[] inflate(byte[] remainder) throws IOException
+	{
+		int dataLength = remainder.length - TRAILER_SIZE;
+
+		long crc = readInt(remainder, dataLength) & 0xFFFFFFFFL;
+		int size = readInt(remainder, dataLength + 4);
+
+		/* Don't trust the trailer of a corrupt block with the size of the array */
+		if (size < 0 || size > MAX_BLOCK_SIZE)
+			throw new ZipException("Corrupt bgzip block: invalid inflated size " + (size & 0xFFFFFFFFL));
+
+		byte[] result = new byte[size];
+
+		Inflater inflater = INFLATER.get();
+		inflater.reset();
+		inflater.setInput(remainder, 0, dataLength);
+
+		try
+		{
+			int length = 0;
+			while (length < size && !inflater.finished())
+			{
+				int inflated = inflater.inflate(result, length, size - length);
+
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+
+				length += inflated;
+			}
+
+			if (length != size)
+				throw new ZipException("Corrupt bgzip block: expected " + size + " bytes, got " + length);
+		}
+		catch (DataFormatException e)
+		{
+			throw new ZipException(e.getMessage());
+		}
+
+		CRC32 check = new CRC32();
+		check.update(result, 0, size);
+
+		if (check.getValue() != crc)
+			throw new ZipException("Corrupt bgzip block: CRC mismatch");
+
+		return result;
+	}
+
+	private static int readInt(byte[] bytes, int offset)
+	{
+		return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8) | ((bytes[offset + 2] & 0xFF) << 16) | ((bytes[offset + 3] & 0xFF) << 24);
+	}
+
+	private static byte[] await(ForkJoinTask<byte[]> task) throws IOException
+	{
+		try
+		{
+			return task.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException e)
+		{
+			/* The pool wraps the checked exceptions of the task in RuntimeExceptions, so look for the original one */
+			for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause())
+			{
+				if (cause instanceof IOException)
+					throw (IOException) cause;
+			}
+
+			throw new IOException(e.getCause());
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		for (ForkJoinTask<byte[]> task : pending)
+			task.cancel(false);
+
+		pending.clear();
+
+		in.close();
+	}
+}
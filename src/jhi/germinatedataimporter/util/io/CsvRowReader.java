@@ -0,0 +1,343 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+import java.util.*;
+
+import jhi.germinatedataimporter.util.*;
+
+/**
+ * {@link CsvRowReader} is a {@link RowReader} for quoted input as described in RFC 4180. Fields may be enclosed in double quotes, in which case
+ * they can contain separators, line breaks and escaped (doubled) quotes. Unquoted fields are read as they are.
+ * <p>
+ * Most rows don't contain any quotes. If such a row lies completely within the input buffer, its fields are taken straight from the input buffer.
+ * Otherwise the content of all fields of the row is collected in one reusable buffer. Either way only the fields that are part of the projection
+ * are turned into {@link String}s.
+ *
+ * @author Sebastian Raubach
+ */
+public class CsvRowReader implements RowReader
+{
+	private static final char QUOTE = '"';
+
+	private final Reader  reader;
+	private final char    separator;
+	private final boolean trim;
+
+	/* The input buffer */
+	private char[] input = new char[65536];
+	private int    inputPosition;
+	private int    inputLength;
+
+	/* The unescaped content of the current row and the boundaries of its fields */
+	private char[] record = new char[4096];
+	private int    recordLength;
+	private int[]  starts = new int[64];
+	private int[]  ends   = new int[64];
+
+	private boolean[] projected;
+	private long      line = 1;
+	private long      rowLine;
+
+	/**
+	 * Creates a new instance of {@link CsvRowReader}
+	 *
+	 * @param reader    The {@link Reader} to read from
+	 * @param separator The {@link FileSeparator}
+	 * @param trim      Should the fields be trimmed?
+	 */
+	public CsvRowReader(Reader reader, FileSeparator separator, boolean trim)
+	{
+		this.reader = reader;
+		this.separator = separator.getSeparatorChar();
+		this.trim = trim;
+	}
+
+	@Override
+	public String[] next(String[] reuse) throws IOException
+	{
+		if (peek() == -1)
+			return null;
+
+		rowLine = line;
+
+		/* The fast path for rows without quotes */
+		int count = splitUnquoted();
+		if (count != -1)
+			return toFields(input, count, reuse);
+
+		int c = read();
+		count = 0;
+		recordLength = 0;
+
+		while (true)
+		{
+			int start = recordLength;
+
+			if (c == QUOTE)
+			{
+				long quoteLine = line;
+
+				/* Read until the closing quote, a doubled quote is an escaped quote */
+				while (true)
+				{
+					c = read();
+
+					if (c == -1)
+						throw new IOException("Unterminated quoted field starting in line " + quoteLine);
+					else if (c == QUOTE)
+					{
+						if (peek() != QUOTE)
+							break;
+
+						read();
+					}
+					else if (c == '\n')
+					{
+						line++;
+					}
+
+					append((char) c);
+				}
+
+				c = read();
+			}
+
+			/* Read the (rest of the) unquoted field */
+			if (c != -1 && c != separator && c != '\n' && c != '\r')
+			{
+				append((char) c);
+				c = readUnquoted();
+			}
+
+			count = addField(count, start, recordLength);
+
+			if (c == separator)
+			{
+				c = read();
+				continue;
+			}
+
+			if (c == '\r' && peek() == '\n')
+				read();
+			if (c != -1)
+				line++;
+
+			break;
+		}
+
+		return toFields(record, count, reuse);
+	}
+
+	/**
+	 * Splits the row at the current position of the input buffer if it doesn't contain any quotes and ends within the input buffer. The field
+	 * boundaries refer to the input buffer then.
+	 *
+	 * @return The number of fields or <code>-1</code> if the row has to be read by the general path, in which case nothing has been consumed
+	 */
+	private int splitUnquoted()
+	{
+		char[] in = input;
+		int length = inputLength;
+		int start = inputPosition;
+		int count = 0;
+
+		for (int i = start; i < length; i++)
+		{
+			char c = in[i];
+
+			if (c == separator)
+			{
+				count = addField(count, start, i);
+				start = i + 1;
+			}
+			else if (c == '\n' || c == '\r')
+			{
+				/* Don't know whether a line feed follows */
+				if (c == '\r' && i + 1 == length)
+					return -1;
+
+				count = addField(count, start, i);
+
+				inputPosition = (c == '\r' && in[i + 1] == '\n') ? i + 2 : i + 1;
+				line++;
+
+				return count;
+			}
+			else if (c == QUOTE)
+			{
+				return -1;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Creates the fields of the current row
+	 *
+	 * @param source The buffer the field boundaries refer to
+	 * @param count  The number of fields
+	 * @param reuse  An array to reuse if it has the correct length (can be <code>null</code>)
+	 * @return The fields
+	 */
+	private String[] toFields(char[] source, int count, String[] reuse)
+	{
+		String[] fields = (reuse != null && reuse.length == count) ? reuse : new String[count];
+
+		for (int i = 0; i < count; i++)
+		{
+			if (projected == null || (i < projected.length && projected[i]))
+				fields[i] = materialize(source, starts[i], ends[i]);
+			else
+				fields[i] = null;
+		}
+
+		return fields;
+	}
+
+	/**
+	 * Copies characters to the record until a separator or line break is found
+	 *
+	 * @return The separator or line break or <code>-1</code> if the end of the input has been reached
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	private int readUnquoted() throws IOException
+	{
+		while (true)
+		{
+			int i = inputPosition;
+			int length = inputLength;
+			char[] in = input;
+
+			while (i < length)
+			{
+				char c = in[i];
+
+				if (c == separator || c == '\n' || c == '\r')
+					break;
+
+				i++;
+			}
+
+			append(in, inputPosition, i);
+			inputPosition = i;
+
+			if (i < length)
+				return input[inputPosition++];
+			else if (!fill())
+				return -1;
+		}
+	}
+
+	private String materialize(char[] source, int start, int end)
+	{
+		if (trim)
+		{
+			while (start < end && source[start] <= ' ')
+				start++;
+			while (end > start && source[end - 1] <= ' ')
+				end--;
+		}
+
+		return start == end ? "" : new String(source, start, end - start);
+	}
+
+	private int addField(int count, int start, int end)
+	{
+		if (count == starts.length)
+		{
+			starts = Arrays.copyOf(starts, count << 1);
+			ends = Arrays.copyOf(ends, count << 1);
+		}
+
+		starts[count] = start;
+		ends[count] = end;
+
+		return count + 1;
+	}
+
+	private void append(char c)
+	{
+		if (recordLength == record.length)
+			record = Arrays.copyOf(record, recordLength << 1);
+
+		record[recordLength++] = c;
+	}
+
+	private void append(char[] chars, int start, int end)
+	{
+		int length = end - start;
+
+		if (recordLength + length > record.length)
+			record = Arrays.copyOf(record, Math.max(recordLength + length, record.length << 1));
+
+		System.arraycopy(chars, start, record, recordLength, length);
+		recordLength += length;
+	}
+
+	private int read() throws IOException
+	{
+		if (inputPosition == inputLength && !fill())
+			return -1;
+
+		return input[inputPosition++];
+	}
+
+	private int peek() throws IOException
+	{
+		if (inputPosition == inputLength && !fill())
+			return -1;
+
+		return input[inputPosition];
+	}
+
+	private boolean fill() throws IOException
+	{
+		inputLength = reader.read(input, 0, input.length);
+		inputPosition = 0;
+
+		if (inputLength < 0)
+		{
+			inputLength = 0;
+			return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public void setProjection(boolean[] projected)
+	{
+		this.projected = projected;
+	}
+
+	@Override
+	public long getLine()
+	{
+		return rowLine;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+}
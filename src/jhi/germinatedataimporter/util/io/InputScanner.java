@@ -0,0 +1,194 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.function.*;
+
+import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
+import jhi.germinatedataimporter.util.*;
+
+/**
+ * {@link InputScanner} quickly scans an input file to collect {@link InputStatistics}. Uncompressed files are mapped into memory and scanned for
+ * newlines and separators eight bytes at a time, without decoding anything. Compressed and comma separated files are read through their {@link
+ * RowReader} without extracting any fields.
+ *
+ * @author Sebastian Raubach
+ */
+public class InputScanner
+{
+	private static final long WINDOW_SIZE = 64L << 20;
+
+	private static final long ONES    = 0x0101010101010101L;
+	private static final long HIGHS   = 0x8080808080808080L;
+	private static final long NEWLINE = ONES * '\n';
+
+	/* Counters of the current scan */
+	private long rows                 = -1;
+	private int  columns              = 0;
+	private long inconsistentRows     = 0;
+	private long firstInconsistentRow = -1;
+
+	private InputScanner()
+	{
+	}
+
+	/**
+	 * Scans the file of the given {@link InputOptions}. The scan stops early if the current thread is interrupted.
+	 *
+	 * @param options  The {@link InputOptions}
+	 * @param progress Receives the number of bytes scanned so far (only for uncompressed files that aren't comma separated, can be
+	 *                 <code>null</code>)
+	 * @return The {@link InputStatistics} or <code>null</code> if the scan has been interrupted
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public static InputStatistics scan(InputOptions options, LongConsumer progress) throws IOException
+	{
+		InputScanner scanner = new InputScanner();
+
+		if (options.separator != FileSeparator.COMMA && options.file.isFile() && InputStreams.detect(options.file) == InputStreams.Compression.NONE)
+			return scanner.scanMapped(options, progress);
+		else
+			return scanner.scanRows(options);
+	}
+
+	private void onLine(int fields)
+	{
+		/* The first line is the header */
+		if (rows == -1)
+		{
+			columns = fields;
+		}
+		else if (fields != columns)
+		{
+			inconsistentRows++;
+			if (firstInconsistentRow == -1)
+				firstInconsistentRow = rows + 1;
+		}
+
+		rows++;
+	}
+
+	private InputStatistics scanMapped(InputOptions options, LongConsumer progress) throws IOException
+	{
+		byte separator = (byte) options.separator.getSeparatorChar();
+		long separators = ONES * (separator & 0xFF);
+
+		try (FileChannel channel = FileChannel.open(options.file.toPath(), StandardOpenOption.READ))
+		{
+			long size = channel.size();
+
+			long lineStart = 0;
+			int fields = 1;
+
+			for (long windowStart = 0; windowStart < size; windowStart += WINDOW_SIZE)
+			{
+				if (Thread.currentThread().isInterrupted())
+					return null;
+
+				int windowLength = (int) Math.min(WINDOW_SIZE, size - windowStart);
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+				window.order(ByteOrder.LITTLE_ENDIAN);
+
+				int i = 0;
+				for (; i <= windowLength - 8; i += 8)
+				{
+					long word = window.getLong(i);
+					long hits = zeroBytes(word ^ NEWLINE) | zeroBytes(word ^ separators);
+
+					while (hits != 0)
+					{
+						int index = i + (Long.numberOfTrailingZeros(hits) >>> 3);
+						byte b = window.get(index);
+
+						if (b == '\n')
+						{
+							onLine(fields);
+
+							lineStart = windowStart + index + 1;
+							fields = 1;
+						}
+						else if (b == separator)
+						{
+							fields++;
+						}
+
+						hits &= hits - 1;
+					}
+				}
+
+				for (; i < windowLength; i++)
+				{
+					byte b = window.get(i);
+
+					if (b == '\n')
+					{
+						onLine(fields);
+
+						lineStart = windowStart + i + 1;
+						fields = 1;
+					}
+					else if (b == separator)
+					{
+						fields++;
+					}
+				}
+
+				if (progress != null)
+					progress.accept(windowStart + windowLength);
+			}
+
+			/* The last line doesn't have to end with a newline */
+			if (lineStart < size)
+			{
+				onLine(fields);
+			}
+		}
+
+		return new InputStatistics(options.file, options.separator, Math.max(rows, 0), columns, inconsistentRows, firstInconsistentRow);
+	}
+
+	private InputStatistics scanRows(InputOptions options) throws IOException
+	{
+		try (RowReader reader = RowReaders.open(options, false))
+		{
+			/* Don't extract any of the fields, only count them */
+			reader.setProjection(new boolean[0]);
+
+			String[] row = null;
+			while ((row = reader.next(row)) != null)
+			{
+				onLine(row.length);
+
+				if ((rows & 0xFFFF) == 0 && Thread.currentThread().isInterrupted())
+					return null;
+			}
+		}
+
+		return new InputStatistics(options.file, options.separator, Math.max(rows, 0), columns, inconsistentRows, firstInconsistentRow);
+	}
+
+	private static long zeroBytes(long word)
+	{
+		return (word - ONES) & ~word & HIGHS;
+	}
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+
+import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
+import jhi.germinatedataimporter.util.*;
+
+/**
+ * {@link InputStatistics} holds the results of a pre-scan of an input file by the {@link InputScanner}.
+ *
+ * @author Sebastian Raubach
+ */
+public class InputStatistics
+{
+	private final File          file;
+	private final long          lastModified;
+	private final FileSeparator separator;
+	private final long          rows;
+	private final int           columns;
+	private final long          inconsistentRows;
+	private final long          firstInconsistentRow;
+
+	InputStatistics(File file, FileSeparator separator, long rows, int columns, long inconsistentRows, long firstInconsistentRow)
+	{
+		this.file = file;
+		this.lastModified = file.lastModified();
+		this.separator = separator;
+		this.rows = rows;
+		this.columns = columns;
+		this.inconsistentRows = inconsistentRows;
+		this.firstInconsistentRow = firstInconsistentRow;
+	}
+
+	/**
+	 * Checks if these statistics still describe the file of the given {@link InputOptions}, i.e. the file and separator are the same and the file
+	 * hasn't been modified since the scan
+	 *
+	 * @param options The {@link InputOptions}
+	 * @return <code>true</code> if these statistics still describe the file
+	 */
+	public boolean matches(InputOptions options)
+	{
+		return file.equals(options.file) && separator == options.separator && lastModified == file.lastModified();
+	}
+
+	/**
+	 * Returns the number of data rows (excluding the header row)
+	 *
+	 * @return The number of data rows
+	 */
+	public long getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns of the header row
+	 *
+	 * @return The number of columns of the header row
+	 */
+	public int getColumns()
+	{
+		return columns;
+	}
+
+	/**
+	 * Returns the number of data rows that don't have the same number of columns as the header row
+	 *
+	 * @return The number of data rows with a different number of columns
+	 */
+	public long getInconsistentRows()
+	{
+		return inconsistentRows;
+	}
+
+	/**
+	 * Returns the number (starting at 1) of the first data row that doesn't have the same number of columns as the header row or <code>-1</code> if
+	 * there is no such row
+	 *
+	 * @return The number of the first data row with a different number of columns
+	 */
+	public long getFirstInconsistentRow()
+	{
+		return firstInconsistentRow;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "InputStatistics [file=" + file + ", rows=" + rows + ", columns=" + columns + ", inconsistentRows=" + inconsistentRows + ", firstInconsistentRow="
+				+ firstInconsistentRow + "]";
+	}
+}
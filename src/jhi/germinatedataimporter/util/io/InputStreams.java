@@ -0,0 +1,123 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+import java.util.zip.*;
+
+/**
+ * {@link InputStreams} opens input files and transparently decompresses them. The compression is detected from the first bytes of the file, not
+ * from the file extension.
+ *
+ * @author Sebastian Raubach
+ */
+public class InputStreams
+{
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The supported compression formats
+	 */
+	public enum Compression
+	{
+		NONE,
+		GZIP,
+		BGZIP,
+		ZIP
+	}
+
+	/**
+	 * Detects the compression of the given {@link File} from its first bytes
+	 *
+	 * @param file The {@link File}
+	 * @return The {@link Compression}
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public static Compression detect(File file) throws IOException
+	{
+		byte[] header = new byte[16];
+		int length = 0;
+
+		try (InputStream in = new FileInputStream(file))
+		{
+			int read;
+			while (length < header.length && (read = in.read(header, length, header.length - length)) != -1)
+				length += read;
+		}
+
+		if (length >= 4 && header[0] == 'P' && header[1] == 'K' && header[2] == 3 && header[3] == 4)
+			return Compression.ZIP;
+		else if (length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B)
+			return BgzfInputStream.isBgzfHeader(header, length) ? Compression.BGZIP : Compression.GZIP;
+		else
+			return Compression.NONE;
+	}
+
+	/**
+	 * Opens the given {@link File} for reading. gzip and zip files are decompressed (only the first file within a zip file is read) and bgzip files
+	 * are decompressed on multiple threads.
+	 *
+	 * @param file The {@link File}
+	 * @return The (decompressed) {@link InputStream}
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public static InputStream open(File file) throws IOException
+	{
+		return open(file, detect(file));
+	}
+
+	/**
+	 * Opens the given {@link File} for reading with the given {@link Compression}
+	 *
+	 * @param file        The {@link File}
+	 * @param compression The {@link Compression} of the file
+	 * @return The (decompressed) {@link InputStream}
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public static InputStream open(File file, Compression compression) throws IOException
+	{
+		InputStream in = new FileInputStream(file);
+
+		switch (compression)
+		{
+			case BGZIP:
+				return new BgzfInputStream(in);
+			case GZIP:
+				return new GZIPInputStream(in, BUFFER_SIZE);
+			case ZIP:
+				ZipInputStream zip = new ZipInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+
+				ZipEntry entry;
+				while ((entry = zip.getNextEntry()) != null && entry.isDirectory())
+				{
+				}
+
+				if (entry == null)
+				{
+					zip.close();
+					throw new IOException("The zip file doesn't contain any files: " + file.getName());
+				}
+
+				return zip;
+			case NONE:
+			default:
+				return in;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+
+/**
+ * {@link LineRowReader} is a {@link RowReader} that reads the input line by line from a {@link BufferedReader} and splits the lines using a {@link
+ * LineTokenizer}. The projection is passed on to the {@link LineTokenizer}.
+ *
+ * @author Sebastian Raubach
+ */
+public class LineRowReader implements RowReader
+{
+	private final BufferedReader reader;
+	private final LineTokenizer  tokenizer;
+
+	private long lineNumber;
+
+	/**
+	 * Creates a new instance of {@link LineRowReader}
+	 *
+	 * @param reader    The {@link BufferedReader} to read from
+	 * @param tokenizer The {@link LineTokenizer} to split the lines with
+	 */
+	public LineRowReader(BufferedReader reader, LineTokenizer tokenizer)
+	{
+		this.reader = reader;
+		this.tokenizer = tokenizer;
+	}
+
+	@Override
+	public String[] next(String[] reuse) throws IOException
+	{
+		String line = reader.readLine();
+
+		if (line == null)
+			return null;
+
+		lineNumber++;
+
+		return tokenizer.tokenize(line, reuse);
+	}
+
+	@Override
+	public void setProjection(boolean[] projected)
+	{
+		tokenizer.setProjection(projected);
+	}
+
+	@Override
+	public long getLine()
+	{
+		return lineNumber;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+}
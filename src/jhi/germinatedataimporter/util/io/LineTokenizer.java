@@ -0,0 +1,136 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.io;
+
+import java.util.*;
+
+import jhi.germinatedataimporter.util.*;
+
+/**
+ * {@link LineTokenizer} splits lines of the input file at the character of a {@link FileSeparator}. It's a replacement for {@link
+ * String#split(String, int)} with a limit of <code>-1</code> (empty fields, including trailing ones, are kept) that doesn't go through {@link
+ * java.util.regex.Pattern}, doesn't create intermediate lists and can reuse the field array of the previous line.
+ * <p>
+ * If trimming is enabled, fields are trimmed (like {@link String#trim()}) before they are extracted, so no untrimmed copy is created. Fields that
+ * aren't part of the projection (see {@link #setProjection(boolean[])}) aren't extracted at all.
+ *
+ * @author Sebastian Raubach
+ */
+public class LineTokenizer
+{
+	private final char    separator;
+	private final boolean trim;
+
+	/** The positions of the separators in the current line, reused between lines */
+	private int[] positions = new int[64];
+
+	private boolean[] projected;
+
+	/**
+	 * Creates a new instance of {@link LineTokenizer}
+	 *
+	 * @param separator The {@link FileSeparator}
+	 * @param trim      Should the fields be trimmed?
+	 */
+	public LineTokenizer(FileSeparator separator, boolean trim)
+	{
+		this.separator = separator.getSeparatorChar();
+		this.trim = trim;
+	}
+
+	/**
+	 * Returns the number of fields in the given line
+	 *
+	 * @param line The line
+	 * @return The number of fields in the given line
+	 */
+	public int countFields(String line)
+	{
+		int count = 1;
+
+		int index = -1;
+		while ((index = line.indexOf(separator, index + 1)) != -1)
+			count++;
+
+		return count;
+	}
+
+	/**
+	 * Restricts the fields that are extracted by {@link #tokenize(String, String[])}. Fields that aren't projected are <code>null</code>.
+	 *
+	 * @param projected The fields to extract (<code>null</code> to extract all fields)
+	 */
+	public void setProjection(boolean[] projected)
+	{
+		this.projected = projected;
+	}
+
+	/**
+	 * Splits the given line into its fields.
+	 *
+	 * @param line  The line
+	 * @param reuse An array to reuse if it has the correct length (can be <code>null</code>)
+	 * @return The fields. This is <code>reuse</code> if the line has exactly <code>reuse.length</code> fields, a new array otherwise.
+	 */
+	public String[] tokenize(String line, String[] reuse)
+	{
+		/* Find all separators in a single pass */
+		int count = 0;
+		int index = -1;
+		while ((index = line.indexOf(separator, index + 1)) != -1)
+		{
+			if (count == positions.length)
+				positions = Arrays.copyOf(positions, count << 1);
+
+			positions[count++] = index;
+		}
+
+		String[] fields = (reuse != null && reuse.length == count + 1) ? reuse : new String[count + 1];
+
+		int start = 0;
+		for (int i = 0; i <= count; i++)
+		{
+			int end = i < count ? positions[i] : line.length();
+
+			if (projected == null || (i < projected.length && projected[i]))
+				fields[i] = extract(line, start, end);
+			else
+				fields[i] = null;
+
+			start = end + 1;
+		}
+
+		return fields;
+	}
+
+	private String extract(String line, int start, int end)
+	{
+		if (trim)
+		{
+			while (start < end && line.charAt(start) <= ' ')
+				start++;
+			while (end > start && line.charAt(end - 1) <= ' ')
+				end--;
+		}
+
+		if (start == end)
+			return "";
+
+		return line.substring(start, end);
+	}
+}
@@ -0,0 +1,330 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import jhi.germinatedataimporter.util.*;
+
+/**
+ * {@link MappedRowReader} is a {@link RowReader} that maps the input file into memory in windows of {@link #WINDOW_SIZE} bytes and scans the bytes
+ * for newlines and separators directly, instead of decoding the whole file into characters first. The scan looks at eight bytes at a time (using
+ * the usual "has zero byte" bit trick), which is considerably faster than checking byte by byte. Only the fields that are part of the projection are
+ * decoded and fields that only contain ASCII characters skip the UTF-8 decoder.
+ * <p>
+ * Lines are terminated by <code>\n</code> or <code>\r\n</code>. The separator has to be an ASCII character, which is true for all {@link
+ * FileSeparator}s.
+ *
+ * @author Sebastian Raubach
+ */
+public class MappedRowReader implements RowReader
+{
+	private static final long WINDOW_SIZE = 64L << 20;
+
+	private static final long ONES    = 0x0101010101010101L;
+	private static final long HIGHS   = 0x8080808080808080L;
+	private static final long NEWLINE = ONES * '\n';
+
+	private final FileChannel channel;
+	private final boolean     ownsChannel;
+	private final long        size;
+	private final long        start;
+	private final long        end;
+	private final long        windowSize;
+	private final byte        separator;
+	private final long        separators;
+	private final boolean     trim;
+
+	/* The currently mapped part of the file */
+	private MappedByteBuffer window;
+	private long             windowStart;
+	private int              windowLength;
+	private long             position;
+	private boolean          aligned;
+
+	/* Buffers that are reused between lines */
+	private byte[] line      = new byte[8192];
+	private int[]  positions = new int[64];
+
+	private boolean[] projected;
+	private long      lineNumber;
+
+	/**
+	 * Creates a new instance of {@link MappedRowReader}
+	 *
+	 * @param file      The input {@link File}
+	 * @param separator The {@link FileSeparator}
+	 * @param trim      Should the fields be trimmed?
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public MappedRowReader(File file, FileSeparator separator, boolean trim) throws IOException
+	{
+		this(FileChannel.open(file.toPath(), StandardOpenOption.READ), true, 0, Long.MAX_VALUE, separator, trim);
+	}
+
+	/**
+	 * Creates a new instance of {@link MappedRowReader} that only reads the lines that start within the given byte range of the channel. A line that
+	 * starts before the range is skipped, a line that starts within the range is read completely, even if it ends after the range. The channel is
+	 * not closed by {@link #close()}.
+	 *
+	 * @param channel   The {@link FileChannel}
+	 * @param start     The start of the byte range (inclusive)
+	 * @param end       The end of the byte range (exclusive)
+	 * @param separator The {@link FileSeparator}
+	 * @param trim      Should the fields be trimmed?
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	MappedRowReader(FileChannel channel, long start, long end, FileSeparator separator, boolean trim) throws IOException
+	{
+		this(channel, false, start, end, separator, trim);
+	}
+
+	private MappedRowReader(FileChannel channel, boolean ownsChannel, long start, long end, FileSeparator separator, boolean trim) throws IOException
+	{
+		this.channel = channel;
+		this.ownsChannel = ownsChannel;
+		this.size = channel.size();
+		this.start = start;
+		this.end = Math.min(end, size);
+		this.windowSize = Math.min(WINDOW_SIZE, this.end - start + 65536);
+		this.separator = (byte) separator.getSeparatorChar();
+		this.separators = ONES * (this.separator & 0xFF);
+		this.trim = trim;
+		this.position = start;
+		this.aligned = start == 0;
+	}
+
+	/**
+	 * Returns the position of the next line
+	 *
+	 * @return The position of the next line
+	 */
+	long getPosition()
+	{
+		return position;
+	}
+
+	/**
+	 * Returns a word with the high bit set in (at least) every byte that is zero in the given word. Bytes above a zero byte may be false positives.
+	 */
+	private static long zeroBytes(long word)
+	{
+		return (word - ONES) & ~word & HIGHS;
+	}
+
+	@Override
+	public String[] next(String[] reuse) throws IOException
+	{
+		if (!aligned)
+			skipPartialLine();
+
+		if (position >= end)
+			return null;
+
+		if (window == null || position >= windowStart + windowLength)
+			map(position, windowSize);
+
+		int lineStart = (int) (position - windowStart);
+		int lineEnd = -1;
+		int scan = lineStart;
+		int count = 0;
+
+		while (lineEnd == -1)
+		{
+			/* Check eight bytes at a time */
+			int limit = windowLength - 8;
+			words:
+			while (scan <= limit)
+			{
+				long word = window.getLong(scan);
+				long hits = zeroBytes(word ^ NEWLINE) | zeroBytes(word ^ separators);
+
+				while (hits != 0)
+				{
+					int index = scan + (Long.numberOfTrailingZeros(hits) >>> 3);
+					byte b = window.get(index);
+
+					if (b == '\n')
+					{
+						lineEnd = index;
+						break words;
+					}
+					else if (b == separator)
+					{
+						count = addPosition(count, index - lineStart);
+					}
+
+					hits &= hits - 1;
+				}
+
+				scan += 8;
+			}
+
+			/* Check the remaining bytes of the window one by one */
+			for (; lineEnd == -1 && scan < windowLength; scan++)
+			{
+				byte b = window.get(scan);
+
+				if (b == '\n')
+					lineEnd = scan;
+				else if (b == separator)
+					count = addPosition(count, scan - lineStart);
+			}
+
+			if (lineEnd == -1)
+			{
+				/* The last line of the file doesn't have to end with a newline */
+				if (windowStart + windowLength >= size)
+				{
+					lineEnd = windowLength;
+				}
+				/* Otherwise map a new window starting at this line and continue where we stopped. Make it larger if the line doesn't fit */
+				else
+				{
+					long length = lineStart == 0 ? Math.min((long) windowLength << 1, Integer.MAX_VALUE) : windowSize;
+					scan -= lineStart;
+					map(windowStart + lineStart, length);
+					lineStart = 0;
+				}
+			}
+		}
+
+		position = windowStart + lineEnd + 1;
+
+		if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r')
+			lineEnd--;
+
+		/* Copy the line, so the fields can be decoded from a plain array */
+		int length = lineEnd - lineStart;
+		if (length > line.length)
+			line = new byte[Math.max(length, line.length << 1)];
+
+		window.position(lineStart);
+		window.get(line, 0, length);
+
+		String[] fields = (reuse != null && reuse.length == count + 1) ? reuse : new String[count + 1];
+
+		int start = 0;
+		for (int i = 0; i <= count; i++)
+		{
+			int end = i < count ? positions[i] : length;
+
+			if (projected == null || (i < projected.length && projected[i]))
+				fields[i] = decode(start, Math.min(end, length));
+			else
+				fields[i] = null;
+
+			start = end + 1;
+		}
+
+		lineNumber++;
+
+		return fields;
+	}
+
+	private int addPosition(int count, int position)
+	{
+		if (count == positions.length)
+			positions = Arrays.copyOf(positions, count << 1);
+
+		positions[count] = position;
+
+		return count + 1;
+	}
+
+	/**
+	 * Moves to the start of the first line that starts within the byte range, i.e. right after the first newline at or after <code>start - 1</code>
+	 */
+	private void skipPartialLine() throws IOException
+	{
+		position = start - 1;
+
+		while (position < size)
+		{
+			if (window == null || position >= windowStart + windowLength)
+				map(position, windowSize);
+
+			byte b = window.get((int) (position++ - windowStart));
+
+			if (b == '\n')
+				break;
+		}
+
+		aligned = true;
+	}
+
+	@Override
+	public void setProjection(boolean[] projected)
+	{
+		this.projected = projected;
+	}
+
+	/**
+	 * Returns the line the last row starts in, counted from the start of the byte range this reader has been created for
+	 */
+	@Override
+	public long getLine()
+	{
+		return lineNumber;
+	}
+
+	private void map(long start, long length) throws IOException
+	{
+		windowStart = start;
+		windowLength = (int) Math.min(length, size - start);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+		window.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private String decode(int start, int end)
+	{
+		if (trim)
+		{
+			while (start < end && (line[start] & 0xFF) <= ' ')
+				start++;
+			while (end > start && (line[end - 1] & 0xFF) <= ' ')
+				end--;
+		}
+
+		if (start >= end)
+			return "";
+
+		/* ASCII is a subset of ISO-8859-1, which can be copied without actually decoding anything */
+		for (int i = start; i < end; i++)
+		{
+			if (line[i] < 0)
+				return new String(line, start, end - start, StandardCharsets.UTF_8);
+		}
+
+		return new String(line, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		window = null;
+
+		if (ownsChannel)
+			channel.close();
+	}
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import jhi.germinatedataimporter.util.*;
+
+/**
+ * {@link ParallelRowReader} is a {@link RowReader} that splits the input file into byte ranges and parses them on the common {@link ForkJoinPool}.
+ * Each range is read by a {@link MappedRowReader} that only reads the lines starting within the range, so the ranges don't have to be aligned on
+ * newlines up front. The rows are returned in the original order of the file, so line numbers and the order of generated ids stay the same as with
+ * a sequential reader.
+ * <p>
+ * Only a limited number of ranges are parsed ahead of the consumer, which keeps the memory footprint bounded regardless of the file size.
+ *
+ * @author Sebastian Raubach
+ */
+public class ParallelRowReader implements RowReader
+{
+	/** The number of bytes parsed by one task */
+	static final long RANGE_SIZE = 4L << 20;
+
+	private final FileChannel   channel;
+	private final long          size;
+	private final FileSeparator separator;
+	private final boolean       trim;
+	private final int           maxInFlight;
+
+	private final Deque<ForkJoinTask<List<String[]>>> pending = new ArrayDeque<>();
+
+	private MappedRowReader headerReader;
+	private long            nextRange = -1;
+	private boolean[]       projected;
+
+	private List<String[]> rows  = Collections.emptyList();
+	private int            index = 0;
+	private long           lineNumber;
+
+	/**
+	 * Creates a new instance of {@link ParallelRowReader}
+	 *
+	 * @param file      The input {@link File}
+	 * @param separator The {@link FileSeparator}
+	 * @param trim      Should the fields be trimmed?
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public ParallelRowReader(File file, FileSeparator separator, boolean trim) throws IOException
+	{
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.size = channel.size();
+		this.separator = separator;
+		this.trim = trim;
+		this.maxInFlight = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+
+		/* The header row is read sequentially, the ranges start right after it */
+		this.headerReader = new MappedRowReader(channel, 0, size, separator, trim);
+	}
+
+	@Override
+	public String[] next(String[] reuse) throws IOException
+	{
+		if (nextRange == -1)
+		{
+			String[] headers = headerReader.next(null);
+
+			nextRange = headerReader.getPosition();
+			headerReader.close();
+			headerReader = null;
+
+			lineNumber = 1;
+
+			return headers;
+		}
+
+		while (index == rows.size())
+		{
+			/* Keep the pool busy */
+			while (pending.size() < maxInFlight && nextRange < size)
+			{
+				long start = nextRange;
+				long end = Math.min(start + RANGE_SIZE, size);
+				boolean[] projected = this.projected;
+
+				pending.add(ForkJoinPool.commonPool().submit(() -> parse(start, end, projected)));
+				nextRange = end;
+			}
+
+			if (pending.isEmpty())
+				return null;
+
+			rows = await(pending.poll());
+			index = 0;
+		}
+
+		lineNumber++;
+
+		return rows.get(index++);
+	}
+
+	/**
+	 * Parses all lines that start within the given byte range
+	 *
+	 * @param start     The start of the byte range (inclusive)
+	 * @param end       The end of the byte range (exclusive)
+	 * @param projected The fields to extract
+	 * @return The rows of the byte range
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	private List<String[]> parse(long start, long end, boolean[] projected) throws IOException
+	{
+		List<String[]> result = new ArrayList<>();
+
+		MappedRowReader reader = new MappedRowReader(channel, start, end, separator, trim);
+		reader.setProjection(projected);
+
+		String[] row;
+		while ((row = reader.next(null)) != null)
+			result.add(row);
+
+		reader.close();
+
+		return result;
+	}
+
+	private static List<String[]> await(ForkJoinTask<List<String[]>> task) throws IOException
+	{
+		try
+		{
+			return task.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException e)
+		{
+			/* The pool wraps the checked exceptions of the task in RuntimeExceptions, so look for the original one */
+			for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause())
+			{
+				if (cause instanceof IOException)
+					throw (IOException) cause;
+			}
+
+			throw new IOException(e.getCause());
+		}
+	}
+
+	@Override
+	public void setProjection(boolean[] projected)
+	{
+		this.projected = projected;
+	}
+
+	@Override
+	public long getLine()
+	{
+		return lineNumber;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		for (ForkJoinTask<List<String[]>> task : pending)
+			task.cancel(false);
+
+		pending.clear();
+
+		if (headerReader != null)
+			headerReader.close();
+
+		channel.close();
+	}
+}
@@ -0,0 +1,320 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+import java.nio.charset.*;
+
+import jhi.germinatedataimporter.util.*;
+
+/**
+ * {@link RejectsWriter} writes the rows that couldn't be imported to a file next to the input file. Each row is followed by its line number and the
+ * error message, so the file can be corrected and imported again. The file is only created once the first row is rejected and every row is flushed
+ * right away, so the file can be inspected while the import is still running.
+ * <p>
+ * The rejected rows are copied from the input file as they are, including the columns that aren't extracted during the import (see {@link
+ * RowReader#setProjection(boolean[])}). To do so, the input file is read a second time alongside the import, but only up to the last rejected row.
+ * Rows have to be rejected in the order they appear in the input file, otherwise the input file is read again from the start.
+ *
+ * @author Sebastian Raubach
+ */
+public class RejectsWriter implements Closeable
+{
+	private static final char QUOTE = '"';
+
+	private final File          input;
+	private final File          file;
+	private final FileSeparator separator;
+
+	private Writer writer;
+	private long   count = 0;
+
+	/* The second pass over the input file */
+	private PushbackReader source;
+	private StringBuilder  record = new StringBuilder();
+	private long           row;
+	private long           line;
+	private long           nextLine;
+
+	/**
+	 * Creates a new instance of {@link RejectsWriter}. The rejects file of a previous import of the same input file is removed.
+	 *
+	 * @param input     The input {@link File}
+	 * @param separator The {@link FileSeparator} of the input file
+	 */
+	public RejectsWriter(File input, FileSeparator separator)
+	{
+		this.input = input;
+		this.file = getRejectsFile(input);
+		this.separator = separator;
+
+		if (file.exists())
+			file.delete();
+	}
+
+	/**
+	 * Returns the rejects {@link File} for the given input {@link File}. It's placed next to the input file.
+	 *
+	 * @param input The input {@link File}
+	 * @return The rejects {@link File}
+	 */
+	public static File getRejectsFile(File input)
+	{
+		return new File(input.getAbsoluteFile().getParentFile(), input.getName() + ".rejects.txt");
+	}
+
+	/**
+	 * Writes a rejected row as it appears in the input file
+	 *
+	 * @param row     The number of the row in the input file (the header is row 1)
+	 * @param message The reason why the row has been rejected
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public void write(long row, String message) throws IOException
+	{
+		write(row, null, message);
+	}
+
+	/**
+	 * Writes a rejected row
+	 *
+	 * @param row     The number of the row in the input file (the header is row 1)
+	 * @param fields  The fields to write instead of the row as it appears in the input file (<code>null</code> to copy the row)
+	 * @param message The reason why the row has been rejected
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public void write(long row, String[] fields, String message) throws IOException
+	{
+		if (writer == null)
+		{
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+
+			String header = seek(1);
+			writeRow(header == null ? "" : header, "line", "error");
+		}
+
+		String original = seek(row);
+
+		if (fields != null)
+		{
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < fields.length; i++)
+			{
+				if (i > 0)
+					builder.append(separator.getSeparatorChar());
+				builder.append(escape(fields[i]));
+			}
+
+			original = builder.toString();
+		}
+
+		writeRow(original == null ? "" : original, Long.toString(original == null ? row : line), message);
+		writer.flush();
+
+		count++;
+	}
+
+	private void writeRow(String row, String line, String message) throws IOException
+	{
+		writer.write(row);
+		writer.write(separator.getSeparatorChar());
+		writer.write(escape(line));
+		writer.write(separator.getSeparatorChar());
+		writer.write(escape(message));
+		writer.write(System.lineSeparator());
+	}
+
+	private String escape(String field)
+	{
+		if (field == null)
+			return "";
+
+		char separatorChar = separator.getSeparatorChar();
+
+		boolean needsQuotes = false;
+		for (int i = 0; i < field.length() && !needsQuotes; i++)
+		{
+			char c = field.charAt(i);
+			needsQuotes = c == separatorChar || c == QUOTE || c == '\n' || c == '\r';
+		}
+
+		if (!needsQuotes)
+			return field;
+		/* Only comma separated files support quoted fields, the other readers would split them anyway */
+		else if (separator == FileSeparator.COMMA)
+			return QUOTE + field.replace("\"", "\"\"") + QUOTE;
+		else
+			return field.replace(separatorChar, ' ').replace('\n', ' ').replace('\r', ' ');
+	}
+
+	/**
+	 * Moves the second pass over the input file to the given row and returns its content
+	 *
+	 * @param target The number of the row (the header is row 1)
+	 * @return The content of the row without the line break or <code>null</code> if the input file doesn't have that many rows
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	private String seek(long target) throws IOException
+	{
+		if (source == null || target <= row)
+		{
+			if (source != null)
+				source.close();
+
+			InputStreams.Compression compression = input.isFile() ? InputStreams.detect(input) : InputStreams.Compression.NONE;
+			source = new PushbackReader(new BufferedReader(new InputStreamReader(InputStreams.open(input, compression), StandardCharsets.UTF_8), 1 << 16));
+			row = 0;
+			nextLine = 1;
+		}
+
+		String result = null;
+		while (row < target)
+		{
+			result = readRecord();
+
+			if (result == null)
+				return null;
+
+			row++;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reads the next row of the input file. Comma separated rows may span multiple lines if a quoted field contains line breaks, see {@link
+	 * CsvRowReader}.
+	 *
+	 * @return The content of the row without the line break or <code>null</code> if the end of the file has been reached
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	private String readRecord() throws IOException
+	{
+		int c = source.read();
+
+		if (c == -1)
+			return null;
+
+		record.setLength(0);
+		line = nextLine;
+
+		char separatorChar = separator.getSeparatorChar();
+		boolean quotes = separator == FileSeparator.COMMA;
+		boolean fieldStart = true;
+
+		while (c != -1)
+		{
+			if (quotes && fieldStart && c == QUOTE)
+			{
+				/* Copy the quoted field up to the closing quote, a doubled quote is an escaped quote */
+				record.append(QUOTE);
+
+				while ((c = source.read()) != -1)
+				{
+					record.append((char) c);
+
+					if (c == '\n')
+					{
+						nextLine++;
+					}
+					else if (c == QUOTE)
+					{
+						int next = source.read();
+
+						if (next != QUOTE)
+						{
+							if (next != -1)
+								source.unread(next);
+							break;
+						}
+
+						record.append(QUOTE);
+					}
+				}
+
+				fieldStart = false;
+				c = source.read();
+				continue;
+			}
+
+			if (c == '\n')
+			{
+				nextLine++;
+				break;
+			}
+			else if (c == '\r')
+			{
+				int next = source.read();
+
+				if (next == '\n' || quotes)
+				{
+					if (next != '\n' && next != -1)
+						source.unread(next);
+					nextLine++;
+					break;
+				}
+				else if (next != -1)
+				{
+					source.unread(next);
+				}
+			}
+
+			record.append((char) c);
+			fieldStart = c == separatorChar;
+			c = source.read();
+		}
+
+		return record.toString();
+	}
+
+	/**
+	 * Returns the rejects {@link File}
+	 *
+	 * @return The rejects {@link File}
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Returns the number of rejected rows
+	 *
+	 * @return The number of rejected rows
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			if (source != null)
+				source.close();
+		}
+		finally
+		{
+			if (writer != null)
+				writer.close();
+		}
+	}
+}
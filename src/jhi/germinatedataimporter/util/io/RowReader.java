@@ -0,0 +1,54 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+
+/**
+ * A {@link RowReader} reads the rows of an input file one after the other and splits them into their fields. The first call to {@link
+ * #next(String[])} returns the header row.
+ *
+ * @author Sebastian Raubach
+ */
+public interface RowReader extends Closeable
+{
+	/**
+	 * Reads the next row.
+	 *
+	 * @param reuse An array to reuse if it has the correct length (can be <code>null</code>)
+	 * @return The fields of the next row or <code>null</code> if the end of the file has been reached
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	String[] next(String[] reuse) throws IOException;
+
+	/**
+	 * Restricts the fields that are extracted from subsequent rows. Fields that aren't projected are <code>null</code> in the result of {@link
+	 * #next(String[])}, the length of the result still reflects the number of fields in the row.
+	 *
+	 * @param projected The fields to extract (<code>null</code> to extract all fields)
+	 */
+	void setProjection(boolean[] projected);
+
+	/**
+	 * Returns the line of the input file the row returned by the last call to {@link #next(String[])} starts in. The header row starts in line 1.
+	 * Rows only span several lines if quoted fields contain line breaks, so this can differ from the number of rows read so far.
+	 *
+	 * @return The line the last row starts in or <code>0</code> if no row has been read yet
+	 */
+	long getLine();
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.io;
+
+import java.io.*;
+
+import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
+import jhi.germinatedataimporter.util.*;
+
+/**
+ * {@link RowReaders} creates the {@link RowReader} that's most suitable for the given {@link InputOptions}.
+ *
+ * @author Sebastian Raubach
+ */
+public class RowReaders
+{
+	/**
+	 * Opens a {@link RowReader} for the file of the given {@link InputOptions}
+	 *
+	 * @param options The {@link InputOptions}
+	 * @param trim    Should the fields be trimmed?
+	 * @return The {@link RowReader}
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public static RowReader open(InputOptions options, boolean trim) throws IOException
+	{
+		InputStreams.Compression compression = options.file.isFile() ? InputStreams.detect(options.file) : InputStreams.Compression.NONE;
+
+		/* Comma separated files may contain quoted fields, which can span multiple lines, so they can neither be split into lines nor byte ranges */
+		if (options.separator == FileSeparator.COMMA)
+			return new CsvRowReader(new InputStreamReader(InputStreams.open(options.file, compression), "UTF8"), options.separator, trim);
+		/* Uncompressed regular files can be mapped into memory, anything else is read as a stream */
+		else if (options.file.isFile() && compression == InputStreams.Compression.NONE)
+		{
+			/* Large files are split into ranges that are parsed in parallel, unless there's nothing to run them on */
+			Boolean parallel = (Boolean) GerminateParameterStore.getInstance().get(GerminateParameter.parallelparsing);
+			if ((parallel == null || parallel) && Runtime.getRuntime().availableProcessors() > 1 && options.file.length() > 2 * ParallelRowReader.RANGE_SIZE)
+				return new ParallelRowReader(options.file, options.separator, trim);
+			else
+				return new MappedRowReader(options.file, options.separator, trim);
+		}
+		else
+			return new LineRowReader(new BufferedReader(new InputStreamReader(InputStreams.open(options.file, compression), "UTF8"), 1 << 16), new LineTokenizer(options.separator, trim));
+	}
+}
@@ -0,0 +1,445 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.log;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+import java.util.logging.*;
+
+/**
+ * {@link AsyncLogWriter} writes log records to a file on a background thread. The logging threads only claim a slot in a bounded ring buffer and
+ * publish the record, the writer thread drains the buffer in batches, formats the records and writes them to a buffered {@link RotatingFileWriter}.
+ * The file is only flushed once the buffer runs empty, so a busy import results in a few large writes instead of one write per record. Rolling the
+ * file over happens on the writer thread as well.
+ * <p>
+ * The ring buffer is lock-free for any number of producers and exactly one consumer: every slot has a sequence number that tells the producers
+ * whether the slot is free and the consumer whether it has been published. The {@link Policy} decides what happens if the buffer is full.
+ *
+ * @author Sebastian Raubach
+ */
+public class AsyncLogWriter implements Closeable
+{
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final int    BATCH_SIZE       = 4096;
+	private static final long   IDLE_PARK_NANOS  = TimeUnit.MILLISECONDS.toNanos(50);
+	private static final long   FULL_PARK_NANOS  = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final long   CLOSE_TIMEOUT_MS = 5000;
+	private static final String NEWLINE          = System.lineSeparator();
+
+	private final RotatingFileWriter file;
+	private final Policy             policy;
+	private final Thread             thread;
+
+	/* The ring buffer. A slot is free for position p if its sequence is p and published if its sequence is p + 1 */
+	private final int             mask;
+	private final AtomicLongArray sequences;
+	private final long[]          times;
+	private final Level[]         levels;
+	private final Object[]        messages;
+	private final Throwable[]     throwables;
+
+	private final AtomicLong    tail    = new AtomicLong();
+	private final AtomicBoolean idle    = new AtomicBoolean();
+	private final LongAdder     dropped = new LongAdder();
+
+	/* Only ever touched by the writer thread */
+	private final SimpleDateFormat format     = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+	private       long             head;
+	private       Writer           out;
+	private       long             lastSecond = Long.MIN_VALUE;
+	private       String           lastPrefix;
+
+	private volatile long    flushed;
+	private volatile long    flushTarget;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new instance of {@link AsyncLogWriter} that writes to the given {@link RotatingFileWriter} and starts the writer thread
+	 *
+	 * @param file     The {@link RotatingFileWriter}
+	 * @param capacity The number of records the ring buffer can hold (rounded up to the next power of two)
+	 * @param policy   The {@link Policy} to apply if the ring buffer is full
+	 */
+	public AsyncLogWriter(RotatingFileWriter file, int capacity, Policy policy)
+	{
+		if (capacity < 2)
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+		int size = Integer.highestOneBit(capacity - 1) << 1;
+
+		this.file = file;
+		this.policy = policy;
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		this.times = new long[size];
+		this.levels = new Level[size];
+		this.messages = new Object[size];
+		this.throwables = new Throwable[size];
+
+		for (int i = 0; i < size; i++)
+			sequences.set(i, i);
+
+		out = file;
+
+		thread = new Thread(this::run, "AsyncLogWriter-" + file.getFile().getName());
+		thread.setDaemon(true);
+		thread.start();
+
+		/* Make sure everything ends up in the file when the application exits */
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+	}
+
+	/**
+	 * Adds a record to the ring buffer. This never touches the file. If the ring buffer is full, the record is either dropped or the calling thread
+	 * waits for the writer, depending on the {@link Policy}.
+	 *
+	 * @param level     The log {@link Level}
+	 * @param message   The log message
+	 * @param throwable The {@link Throwable} to log (can be <code>null</code>)
+	 * @return <code>true</code> if the record has been added, <code>false</code> if it has been dropped
+	 */
+	public boolean log(Level level, String message, Throwable throwable)
+	{
+		return offer(level, message, throwable);
+	}
+
+	/**
+	 * Adds a record to the ring buffer like {@link #log(Level, String, Throwable)}, but the message is only created by the writer thread when the
+	 * record is written
+	 *
+	 * @param level     The log {@link Level}
+	 * @param message   The {@link Supplier} of the log message
+	 * @param throwable The {@link Throwable} to log (can be <code>null</code>)
+	 * @return <code>true</code> if the record has been added, <code>false</code> if it has been dropped
+	 */
+	public boolean log(Level level, Supplier<String> message, Throwable throwable)
+	{
+		return offer(level, message, throwable);
+	}
+
+	private boolean offer(Level level, Object message, Throwable throwable)
+	{
+		if (closed)
+		{
+			dropped.increment();
+			return false;
+		}
+
+		long position;
+		int index;
+
+		for (; ; )
+		{
+			position = tail.get();
+			index = (int) position & mask;
+
+			long diff = sequences.get(index) - position;
+
+			if (diff == 0)
+			{
+				if (tail.compareAndSet(position, position + 1))
+					break;
+			}
+			/* The slot still holds a record from the previous round, i.e. the buffer is full */
+			else if (diff < 0)
+			{
+				if (policy == Policy.DROP || closed || !thread.isAlive())
+				{
+					dropped.increment();
+					return false;
+				}
+
+				wakeUp();
+				LockSupport.parkNanos(this, FULL_PARK_NANOS);
+			}
+			/* Otherwise another producer claimed the slot in the meantime, just try again */
+		}
+
+		times[index] = System.currentTimeMillis();
+		levels[index] = level;
+		messages[index] = message;
+		throwables[index] = throwable;
+		sequences.lazySet(index, position + 1);
+
+		wakeUp();
+
+		return true;
+	}
+
+	/**
+	 * Waits until all records that have been added so far have been written to the file
+	 */
+	public void flush()
+	{
+		long target = tail.get();
+		long end = System.currentTimeMillis() + CLOSE_TIMEOUT_MS;
+
+		if (flushTarget < target)
+			flushTarget = target;
+
+		LockSupport.unpark(thread);
+
+		while (flushed < target && thread.isAlive() && System.currentTimeMillis() < end)
+			LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+	/**
+	 * Returns the number of records that have been dropped because the ring buffer was full (see {@link Policy#DROP}) or the writer was closed
+	 *
+	 * @return The number of dropped records
+	 */
+	public long getDropped()
+	{
+		return dropped.sum();
+	}
+
+	public File getFile()
+	{
+		return file.getFile();
+	}
+
+	public Policy getPolicy()
+	{
+		return policy;
+	}
+
+	/**
+	 * Stops accepting new records, writes the remaining records to the file and closes it
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		LockSupport.unpark(thread);
+
+		if (Thread.currentThread() == thread)
+			return;
+
+		try
+		{
+			thread.join(CLOSE_TIMEOUT_MS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Wakes up the writer thread if it's waiting for new records. Only the first producer after the writer went idle actually unparks it.
+	 */
+	private void wakeUp()
+	{
+		if (idle.get() && idle.compareAndSet(true, false))
+			LockSupport.unpark(thread);
+	}
+
+	private boolean isEmpty()
+	{
+		return sequences.get((int) head & mask) != head + 1;
+	}
+
+	private void run()
+	{
+		try
+		{
+			while (true)
+			{
+				int count = drain();
+
+				if (count == 0 || head >= flushTarget && flushed < flushTarget)
+					flushOutput();
+
+				if (count == 0)
+				{
+					if (closed && isEmpty())
+						break;
+
+					idle.set(true);
+
+					/* Check again, a producer may have published right before we went idle */
+					if (isEmpty() && !closed)
+						LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+
+					idle.set(false);
+				}
+			}
+		}
+		finally
+		{
+			try
+			{
+				if (out != null)
+					out.close();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Formats and writes up to {@link #BATCH_SIZE} published records
+	 *
+	 * @return The number of records that have been taken from the ring buffer
+	 */
+	private int drain()
+	{
+		int count = 0;
+
+		while (count < BATCH_SIZE)
+		{
+			int index = (int) head & mask;
+
+			if (sequences.get(index) != head + 1)
+				break;
+
+			long time = times[index];
+			Level level = levels[index];
+			Object message = messages[index];
+			Throwable throwable = throwables[index];
+
+			levels[index] = null;
+			messages[index] = null;
+			throwables[index] = null;
+			sequences.lazySet(index, head + mask + 1);
+
+			head++;
+			count++;
+
+			write(time, level, message, throwable);
+		}
+
+		return count;
+	}
+
+	private void write(long time, Level level, Object message, Throwable throwable)
+	{
+		if (out == null)
+		{
+			dropped.increment();
+			return;
+		}
+
+		/* Render the message first, so a message that fails to render doesn't leave half a record in the file */
+		String text;
+		try
+		{
+			text = message instanceof Supplier ? String.valueOf(((Supplier<?>) message).get()) : String.valueOf(message);
+		}
+		catch (RuntimeException e)
+		{
+			e.printStackTrace();
+			text = "<message could not be rendered: " + e + ">";
+		}
+
+		try
+		{
+			/* Records are never split across files */
+			file.rollIfNeeded();
+
+			/* Formatting the date is the expensive part, so only do it once per second */
+			long second = time / 1000;
+			if (second != lastSecond)
+			{
+				lastSecond = second;
+				lastPrefix = format.format(new Date(second * 1000));
+			}
+
+			int millis = (int) (time - second * 1000);
+
+			out.write(lastPrefix);
+			out.write(millis < 10 ? ".00" : millis < 100 ? ".0" : ".");
+			out.write(Integer.toString(millis));
+			out.write(' ');
+			out.write(level.getName());
+			out.write(' ');
+			out.write(text);
+			out.write(NEWLINE);
+
+			if (throwable != null)
+			{
+				PrintWriter writer = new PrintWriter(out);
+				throwable.printStackTrace(writer);
+				writer.flush();
+			}
+		}
+		catch (IOException e)
+		{
+			fail(e);
+		}
+		catch (RuntimeException e)
+		{
+			/* Only give up on this record, the writer thread has to keep going or every following record would be dropped */
+			e.printStackTrace();
+		}
+	}
+
+	private void flushOutput()
+	{
+		try
+		{
+			if (out != null)
+				out.flush();
+		}
+		catch (IOException e)
+		{
+			fail(e);
+		}
+
+		flushed = head;
+	}
+
+	/**
+	 * Gives up on the file after a write failed. Records are still taken from the ring buffer, so producers never block on a broken file.
+	 */
+	private void fail(IOException e)
+	{
+		e.printStackTrace();
+
+		try
+		{
+			out.close();
+		}
+		catch (IOException ex)
+		{
+			/* Ignore, we're giving up on the file anyway */
+		}
+
+		out = null;
+	}
+
+	/**
+	 * {@link Policy} defines what happens when a record is logged while the ring buffer is full
+	 */
+	public enum Policy
+	{
+		/** The logging thread waits until the writer has made room */
+		BLOCK,
+		/** The record is dropped and counted (see {@link #getDropped()}) */
+		DROP
+	}
+}
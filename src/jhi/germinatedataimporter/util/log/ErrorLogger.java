@@ -75,7 +75,8 @@ public class ErrorLogger extends FileLogger
 	@Override
 	protected void deleteOldLogFiles()
 	{
-		File[] files = getFilesMatching("^" + LOG_NAME + ".*\\.log");
+		/* Lock files and numbered files of the FileHandler that used to write the log */
+		File[] files = getFilesMatching("^" + LOG_NAME + "\\.log\\.(\\d+|lck)$");
 
 		if (files != null)
 		{
@@ -18,6 +18,8 @@
 package jhi.germinatedataimporter.util.log;
 
 import java.io.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 import java.util.logging.*;
 import java.util.regex.*;
 
@@ -26,9 +28,9 @@ import jhi.germinatedataimporter.util.*;
 public abstract class FileLogger
 {
 	protected final String FILE_PATTERN  = "%s.log";
-	private final   File   CONFIG_FOLDER = new File(System.getProperty("user.home"), "." + PropertyReader.PROPERTIES_FOLDER_NEW);
-	protected Logger      LOGGER;
-	protected FileHandler fileHandler;
+	private final   File   CONFIG_FOLDER = PropertyReader.CONFIG_FOLDER;
+	protected Logger         LOGGER;
+	protected AsyncLogWriter writer;
 
 	protected File file;
 
@@ -65,17 +67,11 @@ public abstract class FileLogger
 		LOGGER = Logger.getLogger(getLoggerName());
 		LOGGER.setLevel(getLevel());
 
-		try
-		{
-			fileHandler = new FileHandler(file.getAbsolutePath(), true);
-			/* create a TXT formatter */
-			fileHandler.setFormatter(new SimpleFormatter());
-			LOGGER.addHandler(fileHandler);
-		}
-		catch (SecurityException | IOException e)
-		{
-			e.printStackTrace();
-		}
+		/* The file is rolled over and compressed once it gets too large or too old, the previous session's file is kept as well */
+		RotatingFileWriter output = new RotatingFileWriter(file, getMaxFileSize(), getMaxAge(), getDiskBudget());
+
+		/* The records are handed to a background writer, so the logging thread never flushes or rolls over the file */
+		writer = new AsyncLogWriter(output, AsyncLogWriter.DEFAULT_CAPACITY, getAsyncPolicy());
 	}
 
 	/**
@@ -84,10 +80,22 @@ public abstract class FileLogger
 	 * @param logLevel The log {@link Level}
 	 * @param msg      The log message
 	 */
-	public synchronized void log(Level logLevel, String msg)
+	public void log(Level logLevel, String msg)
+	{
+		if (LOGGER.isLoggable(logLevel))
+			writer.log(logLevel, msg, null);
+	}
+
+	/**
+	 * Logs the given message to the log file. The message is only created if it's actually written, which happens on the writer thread.
+	 *
+	 * @param logLevel The log {@link Level}
+	 * @param msg      The {@link Supplier} of the log message
+	 */
+	public void log(Level logLevel, Supplier<String> msg)
 	{
-		if (LOGGER != null)
-			LOGGER.log(logLevel, msg);
+		if (LOGGER.isLoggable(logLevel))
+			writer.log(logLevel, msg, null);
 	}
 
 	/**
@@ -97,10 +105,10 @@ public abstract class FileLogger
 	 * @param msg      The log message
 	 * @param e        The {@link Throwable}
 	 */
-	public synchronized void log(Level logLevel, String msg, Throwable e)
+	public void log(Level logLevel, String msg, Throwable e)
 	{
-		if (LOGGER != null)
-			LOGGER.log(logLevel, msg, e);
+		if (LOGGER.isLoggable(logLevel))
+			writer.log(logLevel, msg, e);
 	}
 
 	/**
@@ -109,7 +117,7 @@ public abstract class FileLogger
 	 * @param logLevel The log {@link Level}
 	 * @param e        The {@link Throwable}
 	 */
-	public synchronized void log(Level logLevel, Throwable e)
+	public void log(Level logLevel, Throwable e)
 	{
 		log(logLevel, e.toString(), e);
 	}
@@ -120,8 +128,60 @@ public abstract class FileLogger
 
 	protected abstract Level getLevel();
 
+	/**
+	 * Deletes files that are left over from older versions. The log files themselves are managed by the {@link RotatingFileWriter}.
+	 */
 	protected abstract void deleteOldLogFiles();
 
+	/**
+	 * Returns the size in bytes after which the log file is rolled over
+	 *
+	 * @return The size in bytes after which the log file is rolled over
+	 */
+	protected long getMaxFileSize()
+	{
+		return 10L << 20;
+	}
+
+	/**
+	 * Returns the age in milliseconds after which the log file is rolled over
+	 *
+	 * @return The age in milliseconds after which the log file is rolled over
+	 */
+	protected long getMaxAge()
+	{
+		return TimeUnit.DAYS.toMillis(1);
+	}
+
+	/**
+	 * Returns the number of bytes the log file and its rolled files may use together. The oldest rolled files are deleted if they use more.
+	 *
+	 * @return The number of bytes the log files may use
+	 */
+	protected long getDiskBudget()
+	{
+		return 100L << 20;
+	}
+
+	/**
+	 * Returns the {@link AsyncLogWriter.Policy} that decides what happens to a record if the {@link AsyncLogWriter} can't keep up
+	 *
+	 * @return The {@link AsyncLogWriter.Policy}
+	 */
+	protected AsyncLogWriter.Policy getAsyncPolicy()
+	{
+		/* Never drop a record by default */
+		return AsyncLogWriter.Policy.BLOCK;
+	}
+
+	/**
+	 * Makes sure that all records that have been logged so far have been written to the log file
+	 */
+	public void flush()
+	{
+		writer.flush();
+	}
+
 	public String getLogFile()
 	{
 		return file.getAbsolutePath();
@@ -0,0 +1,282 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.log;
+
+import java.util.function.*;
+
+/**
+ * {@link LogBuffer} holds the entries shown in the log window. Entries are grouped by their header: a group shows at most {@link
+ * #ENTRIES_PER_GROUP} entries, further entries with the same header only increase a counter. A new group with the same header is started if there
+ * hasn't been an entry for {@link #GROUP_TIMEOUT} milliseconds.
+ * <p>
+ * The groups are kept in a ring buffer of fixed size, the oldest group is dropped once it's full, so the memory used by the log doesn't depend on
+ * how long the application runs. Adding an entry is cheap and doesn't allocate anything once the ring buffer is full. All methods are thread-safe,
+ * callers that need a consistent view across several calls can synchronize on the {@link LogBuffer}.
+ * <p>
+ * The content of an entry is a {@link Supplier}, it's only created once the entry is shown (see {@link #getContent(int, int)}).
+ *
+ * @author Sebastian Raubach
+ */
+public class LogBuffer
+{
+	public static final int ENTRIES_PER_GROUP = 10;
+	public static final int DEFAULT_CAPACITY  = 1000;
+
+	private static final long GROUP_TIMEOUT = 1000;
+
+	private final Group[] groups;
+	private       int     start;
+	private       int     size;
+	private       long    added;
+
+	/* The state of the current group */
+	private String  lastHeader;
+	private int     entriesWithThisHeader;
+	private boolean updateInsteadOfAdd;
+	private long    lastUpdate;
+
+	/**
+	 * Creates a new instance of {@link LogBuffer}
+	 *
+	 * @param capacity The maximal number of groups
+	 */
+	public LogBuffer(int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+		groups = new Group[capacity];
+	}
+
+	/**
+	 * Adds a new entry
+	 *
+	 * @param header  The header (category) of the entry
+	 * @param content The content of the entry
+	 * @param time    The time of the entry in milliseconds
+	 */
+	public synchronized void add(String header, Supplier<String> content, long time)
+	{
+		if (header.equals(lastHeader))
+		{
+			entriesWithThisHeader++;
+
+			if (updateInsteadOfAdd)
+			{
+				if (time - lastUpdate > GROUP_TIMEOUT)
+					startGroup(header).add(content, time);
+				else
+					last().more = entriesWithThisHeader - ENTRIES_PER_GROUP;
+			}
+			else if (entriesWithThisHeader > ENTRIES_PER_GROUP)
+			{
+				updateInsteadOfAdd = true;
+				last().more = entriesWithThisHeader - ENTRIES_PER_GROUP;
+			}
+			else
+			{
+				last().add(content, time);
+			}
+		}
+		else
+		{
+			lastHeader = header;
+			startGroup(header).add(content, time);
+		}
+
+		lastUpdate = time;
+	}
+
+	private Group startGroup(String header)
+	{
+		entriesWithThisHeader = 1;
+		updateInsteadOfAdd = false;
+
+		int index;
+		if (size < groups.length)
+		{
+			index = (start + size++) % groups.length;
+		}
+		else
+		{
+			/* Reuse the oldest group */
+			index = start;
+			start = (start + 1) % groups.length;
+		}
+
+		Group group = groups[index];
+		if (group == null)
+			group = groups[index] = new Group();
+
+		group.reset(header);
+		added++;
+
+		return group;
+	}
+
+	private Group last()
+	{
+		return groups[(start + size - 1) % groups.length];
+	}
+
+	private Group get(int index)
+	{
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+
+		return groups[(start + index) % groups.length];
+	}
+
+	/**
+	 * Removes all groups
+	 */
+	public synchronized void clear()
+	{
+		for (int i = 0; i < size; i++)
+			get(i).reset(null);
+
+		start = 0;
+		size = 0;
+		lastHeader = null;
+		entriesWithThisHeader = 0;
+		updateInsteadOfAdd = false;
+	}
+
+	/**
+	 * Returns the number of groups
+	 *
+	 * @return The number of groups
+	 */
+	public synchronized int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the number of groups that have ever been started (including the ones that have been dropped or cleared). The difference to the value
+	 * of a previous call tells how many groups have been started in the meantime.
+	 *
+	 * @return The number of groups that have ever been started
+	 */
+	public synchronized long getAdded()
+	{
+		return added;
+	}
+
+	/**
+	 * Returns the header of the group at the given index
+	 *
+	 * @param index The index of the group (oldest first)
+	 * @return The header of the group at the given index
+	 */
+	public synchronized String getHeader(int index)
+	{
+		return get(index).header;
+	}
+
+	/**
+	 * Returns the number of children of the group at the given index. This is the number of entries plus one if there are more entries than shown.
+	 *
+	 * @param index The index of the group (oldest first)
+	 * @return The number of children of the group at the given index
+	 */
+	public synchronized int getChildCount(int index)
+	{
+		Group group = get(index);
+		return group.size + (group.more > 0 ? 1 : 0);
+	}
+
+	/**
+	 * Returns the number of entries of the group at the given index that aren't shown or <code>0</code>. This is the content of the last child (see
+	 * {@link #getChildCount(int)}) if it's positive.
+	 *
+	 * @param index The index of the group (oldest first)
+	 * @return The number of entries that aren't shown
+	 */
+	public synchronized int getMore(int index)
+	{
+		return get(index).more;
+	}
+
+	/**
+	 * Returns the content of the given entry
+	 *
+	 * @param index The index of the group (oldest first)
+	 * @param entry The index of the entry within the group
+	 * @return The content of the given entry
+	 */
+	public synchronized String getContent(int index, int entry)
+	{
+		Supplier<String> content = getSupplier(index, entry);
+		return content == null ? null : content.get();
+	}
+
+	/**
+	 * Returns the {@link Supplier} of the content of the given entry. Unlike {@link #getContent(int, int)}, this allows callers to render the
+	 * content without holding the lock of the {@link LogBuffer}.
+	 *
+	 * @param index The index of the group (oldest first)
+	 * @param entry The index of the entry within the group
+	 * @return The {@link Supplier} of the content of the given entry
+	 */
+	public synchronized Supplier<String> getSupplier(int index, int entry)
+	{
+		return get(index).contents[entry];
+	}
+
+	/**
+	 * Returns the time of the given entry in milliseconds
+	 *
+	 * @param index The index of the group (oldest first)
+	 * @param entry The index of the entry within the group
+	 * @return The time of the given entry in milliseconds
+	 */
+	public synchronized long getTime(int index, int entry)
+	{
+		return get(index).times[entry];
+	}
+
+	private static class Group
+	{
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private final Supplier<String>[] contents = new Supplier[ENTRIES_PER_GROUP];
+		private final long[]             times    = new long[ENTRIES_PER_GROUP];
+		private       String             header;
+		private       int                size;
+		private       int                more;
+
+		private void reset(String header)
+		{
+			this.header = header;
+
+			for (int i = 0; i < size; i++)
+				contents[i] = null;
+
+			size = 0;
+			more = 0;
+		}
+
+		private void add(Supplier<String> content, long time)
+		{
+			contents[size] = content;
+			times[size] = time;
+			size++;
+		}
+	}
+}
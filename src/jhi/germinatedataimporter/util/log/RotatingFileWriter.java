@@ -0,0 +1,310 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.log;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
+import java.util.zip.*;
+
+/**
+ * {@link RotatingFileWriter} writes to a log file and rolls it over once it's larger than the maximal file size or older than the maximal age. The
+ * rolled files are renamed to <code>&lt;name&gt;-&lt;yyyyMMdd-HHmmss&gt;.log</code> and compressed to <code>.log.gz</code> on a background
+ * thread. Once all log files together use more than the disk budget, the oldest rolled files are deleted.
+ * <p>
+ * A file that still exists from a previous session is rolled over when the {@link RotatingFileWriter} is created, so the history survives restarts.
+ * Rolling over only renames the file and opens a new one, everything else happens on the background thread, so the thread that writes never waits
+ * for the compression.
+ * <p>
+ * Instances aren't thread-safe, they're meant to be used by a single writer thread or under a lock.
+ *
+ * @author Sebastian Raubach
+ */
+public class RotatingFileWriter extends Writer
+{
+	private static final int    BUFFER_SIZE    = 1 << 16;
+	private static final String EXTENSION      = ".log";
+	private static final String GZ_EXTENSION   = ".gz";
+	private static final String TMP_EXTENSION  = ".tmp";
+	private static final String ROLLED_PATTERN = "yyyyMMdd-HHmmss";
+
+	/** Compresses the rolled files and enforces the disk budgets of all log files, one task after the other */
+	private static final ExecutorService COMPRESSOR = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "LogCompressor");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+
+	/** The rolled files that are waiting for the compression, they don't count towards the disk budget yet */
+	private static final Set<File> PENDING = ConcurrentHashMap.newKeySet();
+
+	private final File    file;
+	private final File    folder;
+	private final String  name;
+	private final Pattern rolledFiles;
+	private final long    maxFileSize;
+	private final long    maxAge;
+	private final long    diskBudget;
+
+	private Writer         out;
+	private CountingStream counter;
+	private long           openedAt;
+
+	/**
+	 * Creates a new instance of {@link RotatingFileWriter}
+	 *
+	 * @param file        The log {@link File}, its name has to end with <code>.log</code>
+	 * @param maxFileSize The size in bytes after which the file is rolled over
+	 * @param maxAge      The age in milliseconds after which the file is rolled over
+	 * @param diskBudget  The number of bytes all log files (including the rolled ones) may use
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public RotatingFileWriter(File file, long maxFileSize, long maxAge, long diskBudget) throws IOException
+	{
+		if (!file.getName().endsWith(EXTENSION))
+			throw new IllegalArgumentException("Not a log file: " + file.getName());
+		if (maxFileSize <= 0 || maxAge <= 0 || diskBudget <= 0)
+			throw new IllegalArgumentException("Invalid rotation settings: " + maxFileSize + ", " + maxAge + ", " + diskBudget);
+
+		this.file = file;
+		this.folder = file.getAbsoluteFile().getParentFile();
+		this.name = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+		this.rolledFiles = Pattern.compile("^" + Pattern.quote(name) + "-\\d{8}-\\d{6}(-\\d+)?" + Pattern.quote(EXTENSION) + "(" + Pattern.quote(GZ_EXTENSION) + ")?$");
+		this.maxFileSize = maxFileSize;
+		this.maxAge = maxAge;
+		this.diskBudget = diskBudget;
+
+		folder.mkdirs();
+
+		/* Keep the log of the previous session */
+		if (file.length() > 0)
+			rename();
+
+		/* Finish what couldn't be done before the last exit */
+		File[] uncompressed = folder.listFiles((dir, n) -> rolledFiles.matcher(n).matches() && n.endsWith(EXTENSION));
+		if (uncompressed != null)
+		{
+			for (File rolled : uncompressed)
+				submitCompression(rolled);
+		}
+		COMPRESSOR.submit(this::enforceBudget);
+
+		open();
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Rolls the file over if it's larger than the maximal file size or older than the maximal age. Call this between records, so records aren't
+	 * split across files.
+	 *
+	 * @return <code>true</code> if the file has been rolled over
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public boolean rollIfNeeded() throws IOException
+	{
+		if (counter.count < maxFileSize && System.currentTimeMillis() - openedAt < maxAge)
+			return false;
+
+		out.close();
+
+		if (file.length() > 0)
+		{
+			File rolled = rename();
+
+			if (rolled != null)
+			{
+				submitCompression(rolled);
+				COMPRESSOR.submit(this::enforceBudget);
+			}
+		}
+
+		open();
+
+		return true;
+	}
+
+	private void open() throws IOException
+	{
+		counter = new CountingStream(new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE), file.length());
+		out = new OutputStreamWriter(counter, StandardCharsets.UTF_8);
+		openedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Renames the log file to its rolled name
+	 *
+	 * @return The renamed {@link File} or <code>null</code> if it couldn't be renamed
+	 */
+	private File rename()
+	{
+		String timestamp = new SimpleDateFormat(ROLLED_PATTERN).format(new Date(file.lastModified()));
+
+		File rolled = new File(folder, name + "-" + timestamp + EXTENSION);
+		for (int i = 1; rolled.exists() || new File(rolled.getPath() + GZ_EXTENSION).exists(); i++)
+			rolled = new File(folder, name + "-" + timestamp + "-" + i + EXTENSION);
+
+		/* If it can't be renamed (e.g. it's still open elsewhere), just keep appending to it */
+		return file.renameTo(rolled) ? rolled : null;
+	}
+
+	private static void submitCompression(File rolled)
+	{
+		PENDING.add(rolled);
+		COMPRESSOR.submit(() -> {
+			try
+			{
+				compress(rolled);
+			}
+			finally
+			{
+				PENDING.remove(rolled);
+			}
+		});
+	}
+
+	/**
+	 * Compresses the given rolled file and deletes it afterwards. Runs on the background thread.
+	 *
+	 * @param rolled The rolled {@link File}
+	 */
+	private static void compress(File rolled)
+	{
+		if (!rolled.exists())
+			return;
+
+		File target = new File(rolled.getPath() + GZ_EXTENSION);
+		File tmp = new File(target.getPath() + TMP_EXTENSION);
+
+		try (InputStream in = new FileInputStream(rolled);
+			 OutputStream gz = new GZIPOutputStream(new FileOutputStream(tmp), BUFFER_SIZE))
+		{
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				gz.write(buffer, 0, read);
+		}
+		catch (IOException e)
+		{
+			/* Keep the uncompressed file */
+			e.printStackTrace();
+			tmp.delete();
+			return;
+		}
+
+		/* Keep the time, it's used to find the oldest files */
+		tmp.setLastModified(rolled.lastModified());
+
+		if (tmp.renameTo(target))
+			rolled.delete();
+		else
+			tmp.delete();
+	}
+
+	/**
+	 * Deletes the oldest rolled files until all log files fit into the disk budget. Runs on the background thread.
+	 */
+	private void enforceBudget()
+	{
+		File[] rolled = folder.listFiles((dir, n) -> rolledFiles.matcher(n).matches() && !PENDING.contains(new File(dir, n)));
+
+		if (rolled == null)
+			return;
+
+		/* The active file always stays */
+		long total = file.length();
+		for (File f : rolled)
+			total += f.length();
+
+		Arrays.sort(rolled, Comparator.comparingLong(File::lastModified).thenComparing(File::getName));
+
+		for (int i = 0; i < rolled.length && total > diskBudget; i++)
+		{
+			long length = rolled[i].length();
+
+			if (rolled[i].delete())
+				total -= length;
+		}
+	}
+
+	@Override
+	public void write(char[] buffer, int offset, int length) throws IOException
+	{
+		out.write(buffer, offset, length);
+	}
+
+	@Override
+	public void write(String string, int offset, int length) throws IOException
+	{
+		out.write(string, offset, length);
+	}
+
+	@Override
+	public void write(int c) throws IOException
+	{
+		out.write(c);
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		out.close();
+	}
+
+	/**
+	 * Counts the bytes that go into the file
+	 */
+	private static class CountingStream extends FilterOutputStream
+	{
+		private long count;
+
+		private CountingStream(OutputStream out, long count)
+		{
+			super(out);
+			this.count = count;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
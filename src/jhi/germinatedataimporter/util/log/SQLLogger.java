@@ -18,8 +18,11 @@
 package jhi.germinatedataimporter.util.log;
 
 import java.io.*;
+import java.util.concurrent.*;
 import java.util.logging.*;
 
+import jhi.germinatedataimporter.util.*;
+
 /**
  * {@link SQLLogger} is a utility class containing methods for error logging.
  *
@@ -29,6 +32,10 @@ public class SQLLogger extends FileLogger
 {
 	private static final String LOG_NAME = "g3di-sql";
 
+	public static final int DEFAULT_MAX_FILE_SIZE = 64;
+	public static final int DEFAULT_MAX_AGE       = 24;
+	public static final int DEFAULT_DISK_BUDGET   = 1024;
+
 	private static SQLLogger INSTANCE;
 
 	private SQLLogger() throws IOException
@@ -72,10 +79,43 @@ public class SQLLogger extends FileLogger
 		return Level.INFO;
 	}
 
+	@Override
+	protected AsyncLogWriter.Policy getAsyncPolicy()
+	{
+		/* Keep every statement by default, imports only wait for the disk if the ring buffer is full. DROP never makes them wait. */
+		AsyncLogWriter.Policy policy = (AsyncLogWriter.Policy) GerminateParameterStore.getInstance().get(GerminateParameter.sqllogpolicy);
+		return policy == null ? AsyncLogWriter.Policy.BLOCK : policy;
+	}
+
+	@Override
+	protected long getMaxFileSize()
+	{
+		return (long) getSetting(GerminateParameter.sqllogmaxsize, DEFAULT_MAX_FILE_SIZE) << 20;
+	}
+
+	@Override
+	protected long getMaxAge()
+	{
+		return TimeUnit.HOURS.toMillis(getSetting(GerminateParameter.sqllogmaxage, DEFAULT_MAX_AGE));
+	}
+
+	@Override
+	protected long getDiskBudget()
+	{
+		return (long) getSetting(GerminateParameter.sqllogbudget, DEFAULT_DISK_BUDGET) << 20;
+	}
+
+	private static int getSetting(GerminateParameter parameter, int fallback)
+	{
+		Integer value = (Integer) GerminateParameterStore.getInstance().get(parameter);
+		return (value == null || value <= 0) ? fallback : value;
+	}
+
 	@Override
 	protected void deleteOldLogFiles()
 	{
-		File[] files = getFilesMatching("^" + LOG_NAME + ".*\\.log");
+		/* Lock files and numbered files of the FileHandler that used to write the log */
+		File[] files = getFilesMatching("^" + LOG_NAME + "\\.log\\.(\\d+|lck)$");
 
 		if (files != null)
 		{
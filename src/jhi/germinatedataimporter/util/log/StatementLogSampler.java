@@ -0,0 +1,86 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.log;
+
+/**
+ * {@link StatementLogSampler} decides which statements of an import end up in the log. The first {@link #getFirst()} statements are always logged,
+ * afterwards only every {@link #getEvery()}th one. Failed statements should always be logged, regardless of what {@link #sample()} said.
+ * <p>
+ * Instances aren't thread-safe, every import uses its own one.
+ *
+ * @author Sebastian Raubach
+ */
+public class StatementLogSampler
+{
+	public static final int DEFAULT_FIRST = 1000;
+	public static final int DEFAULT_EVERY = 1;
+
+	private final int  first;
+	private final int  every;
+	private       long count;
+
+	/**
+	 * Creates a new instance of {@link StatementLogSampler}
+	 *
+	 * @param first The number of statements that are always logged
+	 * @param every Log every n-th statement after the first ones (<code>1</code> logs all statements, <code>0</code> or less none)
+	 */
+	public StatementLogSampler(int first, int every)
+	{
+		this.first = Math.max(0, first);
+		this.every = every;
+	}
+
+	/**
+	 * Counts the next statement and returns whether it should be logged
+	 *
+	 * @return <code>true</code> if the statement should be logged
+	 */
+	public boolean sample()
+	{
+		long n = ++count;
+
+		if (n <= first)
+			return true;
+		else if (every <= 0)
+			return false;
+		else
+			return (n - first) % every == 0;
+	}
+
+	/**
+	 * Returns the number of statements that have been counted so far
+	 *
+	 * @return The number of statements that have been counted so far
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	public int getFirst()
+	{
+		return first;
+	}
+
+	public int getEvery()
+	{
+		return every;
+	}
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.lookup;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.logging.*;
+
+import jhi.database.server.*;
+import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.*;
+import jhi.germinatedataimporter.database.entities.*;
+import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.log.*;
+
+/**
+ * {@link PersistentReferenceCache} keeps resolved (table, column, value) to id mappings in a file in the {@link PropertyReader#CONFIG_FOLDER}, so
+ * that they survive between sessions. There is one file per server and database.
+ * <p>
+ * The entries of a table are only valid as long as the table hasn't changed. We can't track individual rows, so we remember the
+ * <code>UPDATE_TIME</code> and <code>AUTO_INCREMENT</code> of the table from <code>information_schema</code> and discard the entries if either of
+ * them differs. Tables without an <code>UPDATE_TIME</code> are never cached, since we can't tell whether they've changed. InnoDB only keeps it in
+ * memory, so it's <code>NULL</code> after every restart of the server until the table is changed again.
+ *
+ * @author Sebastian Raubach
+ */
+public class PersistentReferenceCache
+{
+	private static final String FILE_PATTERN = "g3di-reference-cache-%s.bin";
+	private static final int    MAGIC        = 0x47334443;
+	private static final int    VERSION      = 1;
+
+	/** The maximal number of entries that are stored per referenced column */
+	private static final int MAX_ENTRIES      = 1000000;
+	/** Longer values can't be written using {@link DataOutputStream#writeUTF(String)} */
+	private static final int MAX_VALUE_LENGTH = 16384;
+
+	private final File                     file;
+	private final Map<String, CachedTable> tables = new HashMap<>();
+
+	private PersistentReferenceCache(File file)
+	{
+		this.file = file;
+	}
+
+	/**
+	 * Opens the {@link PersistentReferenceCache} of the current server and database. If the file cannot be read, the cache starts empty.
+	 *
+	 * @return The {@link PersistentReferenceCache}
+	 */
+	public static PersistentReferenceCache open()
+	{
+		GerminateParameterStore store = GerminateParameterStore.getInstance();
+
+		String name = store.getAsString(GerminateParameter.server) + "-" + store.getAsString(GerminateParameter.port) + "-" + store.getAsString(GerminateParameter.database);
+		name = name.replaceAll("[^A-Za-z0-9._-]", "_");
+
+		PersistentReferenceCache cache = new PersistentReferenceCache(new File(PropertyReader.CONFIG_FOLDER, String.format(FILE_PATTERN, name)));
+
+		try
+		{
+			cache.load();
+		}
+		catch (IOException e)
+		{
+			/* A broken cache file isn't a problem, we just start from scratch */
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+			cache.tables.clear();
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Reads the change markers of the given {@link DatabaseTable} from <code>information_schema</code>
+	 *
+	 * @param database The {@link Database} to use
+	 * @param table    The {@link DatabaseTable}
+	 * @return The {@link ChangeMarkers} or <code>null</code> if the table doesn't provide an update time, in which case it shouldn't be cached
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public static ChangeMarkers getChangeMarkers(Database database, DatabaseTable table) throws DatabaseException
+	{
+		/* MySQL 8 caches the values of information_schema.TABLES for a day by default, a table that has changed since would look unchanged */
+		try
+		{
+			DatabaseStatement expiry = database.prepareStatement(SQLUtils.SET_STATISTICS_EXPIRY);
+			StatementStatistics.getInstance().executeUpdate(SQLUtils.SET_STATISTICS_EXPIRY, expiry::executeUpdate);
+		}
+		catch (DatabaseException e)
+		{
+			/* Older servers don't know the variable, but they don't cache the values either */
+		}
+
+		DatabaseStatement stmt = database.prepareStatement(SQLUtils.SELECT_TABLE_CHANGE_MARKERS);
+		stmt.setString(1, GerminateParameterStore.getInstance().getAsString(GerminateParameter.database));
+		stmt.setString(2, table.getName());
+
+		DatabaseResult rs = StatementStatistics.getInstance().query(SQLUtils.SELECT_TABLE_CHANGE_MARKERS, stmt::query);
+
+		if (!rs.next())
+			return null;
+
+		Date updateTime = rs.getTimestamp(SQLUtils.UPDATE_TIME);
+		Long autoIncrement = rs.getLong(SQLUtils.AUTO_INCREMENT);
+
+		/* Without an update time, any change to the table that doesn't insert rows would go unnoticed */
+		if (updateTime == null)
+			return null;
+
+		return new ChangeMarkers(updateTime.getTime(), autoIncrement == null ? -1 : autoIncrement);
+	}
+
+	private static String getKey(DatabaseColumn.Condition condition)
+	{
+		return condition.getTable().getName() + "." + condition.getColumn().getName();
+	}
+
+	/**
+	 * Returns the cached entries of the given {@link DatabaseColumn.Condition} if the referenced table hasn't changed since they've been stored
+	 *
+	 * @param condition The {@link DatabaseColumn.Condition}
+	 * @param markers   The current {@link ChangeMarkers} of the referenced table
+	 * @return The cached entries or <code>null</code> if there are no valid entries
+	 */
+	public StringLongMap get(DatabaseColumn.Condition condition, ChangeMarkers markers)
+	{
+		CachedTable cached = tables.get(getKey(condition));
+
+		if (cached == null || markers == null || !markers.equals(cached.markers))
+			return null;
+
+		return cached.values;
+	}
+
+	/**
+	 * Replaces the entries of the given {@link DatabaseColumn.Condition}
+	 *
+	 * @param condition The {@link DatabaseColumn.Condition}
+	 * @param markers   The {@link ChangeMarkers} of the referenced table at the time the entries have been resolved
+	 * @param values    The resolved entries
+	 */
+	public void put(DatabaseColumn.Condition condition, ChangeMarkers markers, StringLongMap values)
+	{
+		String key = getKey(condition);
+
+		if (markers == null || values.size() < 1)
+			tables.remove(key);
+		else
+			tables.put(key, new CachedTable(markers, values));
+	}
+
+	private void load() throws IOException
+	{
+		if (!file.exists())
+			return;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return;
+
+			int count = in.readInt();
+
+			for (int i = 0; i < count; i++)
+			{
+				String key = in.readUTF();
+				ChangeMarkers markers = new ChangeMarkers(in.readLong(), in.readLong());
+
+				int size = in.readInt();
+				StringLongMap values = new StringLongMap(size);
+
+				for (int j = 0; j < size; j++)
+				{
+					String value = in.readUTF();
+					values.put(value, in.readLong());
+				}
+
+				tables.put(key, new CachedTable(markers, values));
+			}
+		}
+	}
+
+	/**
+	 * Writes the cache to disk. The file is written to a temporary file first and then moved into place, so a crash never leaves a broken file.
+	 *
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public void save() throws IOException
+	{
+		file.getParentFile().mkdirs();
+
+		File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(tables.size());
+
+			for (Map.Entry<String, CachedTable> entry : tables.entrySet())
+			{
+				CachedTable cached = entry.getValue();
+
+				/* Collect the entries first, writeUTF can't be called from within the lambda */
+				List<String> keys = new ArrayList<>(cached.values.size());
+				long[] ids = new long[Math.min(cached.values.size(), MAX_ENTRIES)];
+				cached.values.forEach((value, id) -> {
+					if (keys.size() < ids.length && value.length() <= MAX_VALUE_LENGTH)
+					{
+						ids[keys.size()] = id;
+						keys.add(value);
+					}
+				});
+
+				out.writeUTF(entry.getKey());
+				out.writeLong(cached.markers.updateTime);
+				out.writeLong(cached.markers.autoIncrement);
+				out.writeInt(keys.size());
+
+				for (int i = 0; i < keys.size(); i++)
+				{
+					out.writeUTF(keys.get(i));
+					out.writeLong(ids[i]);
+				}
+			}
+		}
+
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * {@link ChangeMarkers} are the values from <code>information_schema</code> that tell us whether a table has changed. Missing values are
+	 * represented by <code>-1</code>.
+	 */
+	public static class ChangeMarkers
+	{
+		private final long updateTime;
+		private final long autoIncrement;
+
+		public ChangeMarkers(long updateTime, long autoIncrement)
+		{
+			this.updateTime = updateTime;
+			this.autoIncrement = autoIncrement;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (o == null || getClass() != o.getClass())
+				return false;
+
+			ChangeMarkers that = (ChangeMarkers) o;
+
+			return updateTime == that.updateTime && autoIncrement == that.autoIncrement;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * Long.hashCode(updateTime) + Long.hashCode(autoIncrement);
+		}
+	}
+
+	private static class CachedTable
+	{
+		private final ChangeMarkers markers;
+		private final StringLongMap values;
+
+		private CachedTable(ChangeMarkers markers, StringLongMap values)
+		{
+			this.markers = markers;
+			this.values = values;
+		}
+	}
+}
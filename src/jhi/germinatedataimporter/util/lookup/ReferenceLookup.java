@@ -0,0 +1,302 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.lookup;
+
+import java.text.*;
+import java.util.*;
+import java.util.regex.*;
+
+import jhi.database.server.*;
+import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.*;
+import jhi.germinatedataimporter.database.entities.*;
+import jhi.germinatedataimporter.util.*;
+
+/**
+ * {@link ReferenceLookup} resolves values of a referenced {@link DatabaseColumn} to the id of the first row of the referenced {@link DatabaseTable}
+ * that contains the value. Resolved ids are kept in a {@link StringLongMap}. If the lookup has been preloaded, all (value, id) pairs of the table are
+ * already in memory and most values won't cause a query at all. Values that cannot be found are remembered as well, so each missing value is only
+ * looked up once.
+ *
+ * @author Sebastian Raubach
+ */
+public class ReferenceLookup
+{
+	/** Returned by {@link #resolve(Database, String)} if the value cannot be found in the referenced table */
+	public static final long NOT_FOUND = -1L;
+
+	/** Returned by the cache if the value hasn't been looked up yet */
+	private static final long NOT_CACHED = Long.MIN_VALUE;
+
+	/** The maximal number of values in a single <code>IN</code> statement */
+	private static final int RESOLVE_CHUNK_SIZE = 1000;
+
+	private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+	private final String  tableName;
+	private final String  columnName;
+	private final boolean negativeCaching;
+
+	private StringLongMap cache;
+	private boolean       preloaded = false;
+
+	/*
+	 * How many calls to resolve() have been answered from memory and how many had to look up the value in the database. Values fetched by
+	 * resolveAll() are only counted when they're resolved, so every row counts exactly once.
+	 */
+	private long hits;
+	private long misses;
+
+	/**
+	 * Creates a new instance of {@link ReferenceLookup}
+	 *
+	 * @param condition       The {@link DatabaseColumn.Condition} to resolve values for
+	 * @param negativeCaching Set to <code>false</code> if values that cannot be found mustn't be remembered, because the referenced table changes
+	 *                        during the import
+	 */
+	public ReferenceLookup(DatabaseColumn.Condition condition, boolean negativeCaching)
+	{
+		this.tableName = condition.getTable().getName();
+		this.columnName = condition.getColumn().getName();
+		this.negativeCaching = negativeCaching;
+		this.cache = new StringLongMap();
+	}
+
+	/**
+	 * Streams all (value, id) pairs of the referenced table into memory. Only the first (lowest) id of each value is kept, which mirrors the
+	 * <code>LIMIT 1</code> of the on-demand lookup.
+	 *
+	 * @param expectedSize The expected number of rows in the referenced table
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public void preload(long expectedSize) throws DatabaseException
+	{
+		cache = new StringLongMap((int) Math.min(expectedSize, Integer.MAX_VALUE >> 2));
+
+		/* Use a dedicated connection, since MySQL doesn't allow other queries while a result is being streamed */
+		Database database = Database.connect();
+
+		try
+		{
+			String sql = String.format(SQLUtils.SELECT_REFERENCE_VALUES, columnName, tableName);
+			DatabaseStatement stmt = database.prepareStatement(sql);
+			/* Tell the driver to stream the result rather than reading all of it into memory at once */
+			stmt.setFetchSize(Integer.MIN_VALUE);
+
+			DatabaseResult rs = StatementStatistics.getInstance().query(sql, stmt::query);
+
+			while (rs.next())
+			{
+				String value = rs.getString(SQLUtils.REFERENCE_VALUE);
+
+				if (value != null)
+					cache.putIfAbsent(value, rs.getLong(1));
+			}
+
+			preloaded = true;
+		}
+		finally
+		{
+			database.close();
+		}
+	}
+
+	/**
+	 * Resolves all the given values that aren't cached yet with one <code>IN</code> query per {@link #RESOLVE_CHUNK_SIZE} values and caches the
+	 * results, including the values that don't exist unless negative caching is disabled.
+	 *
+	 * @param database The {@link Database} to use
+	 * @param values   The distinct values to resolve
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public void resolveAll(Database database, Collection<String> values) throws DatabaseException
+	{
+		List<String> missing = new ArrayList<>();
+
+		for (String value : values)
+		{
+			if (!cache.containsKey(value))
+				missing.add(value);
+		}
+
+        /* We resolve values in chunks to avoid huge IN statements */
+		for (int start = 0; start < missing.size(); start += RESOLVE_CHUNK_SIZE)
+		{
+			List<String> chunk = missing.subList(start, Math.min(missing.size(), start + RESOLVE_CHUNK_SIZE));
+			Set<String> returned = new HashSet<>();
+
+			String sql = String.format(SQLUtils.SELECT_REFERENCE_VALUES_IN, columnName, tableName, columnName, SQLUtils.generateSqlPlaceholderString(chunk.size()));
+			DatabaseStatement stmt = database.prepareStatement(sql);
+
+			int i = 1;
+			for (String value : chunk)
+				stmt.setString(i++, value);
+
+			DatabaseResult rs = StatementStatistics.getInstance().query(sql, () -> new StatementText(sql, chunk.toArray(), chunk.size()), stmt::query);
+
+			/* Rows are ordered by id, so the first id of each value wins */
+			while (rs.next())
+			{
+				String value = rs.getString(SQLUtils.REFERENCE_VALUE);
+
+				if (value == null)
+					continue;
+
+				cache.putIfAbsent(value, rs.getLong(1));
+				returned.add(getCollationKey(value));
+			}
+
+			/*
+			 * A requested value that isn't collation-equal to any returned value doesn't exist. The others may have matched a returned value that differs
+			 * in case or trailing spaces, so leave them to the single lookup.
+			 */
+			if (negativeCaching)
+			{
+				for (String value : chunk)
+				{
+					if (!returned.contains(getCollationKey(value)))
+						cache.putIfAbsent(value, NOT_FOUND);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a key that ignores trailing spaces, case and accents, like MySQL's <code>PAD SPACE</code> <code>_ci</code> collations do. Values with
+	 * the same key may still differ, values with different keys are considered different by these collations.
+	 *
+	 * @param value The value
+	 * @return The collation key
+	 */
+	private static String getCollationKey(String value)
+	{
+		int end = value.length();
+		while (end > 0 && value.charAt(end - 1) == ' ')
+			end--;
+
+		String key = Normalizer.normalize(value.substring(0, end), Normalizer.Form.NFD);
+		key = COMBINING_MARKS.matcher(key).replaceAll("");
+
+		/* Upper case first, so that e.g. "ß" and "ss" get the same key */
+		return key.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Resolves the given value to the id of the referenced row
+	 *
+	 * @param database The {@link Database} to use for on-demand lookups
+	 * @param value    The value to resolve
+	 * @return The id of the referenced row or {@link #NOT_FOUND}
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public long resolve(Database database, String value) throws DatabaseException
+	{
+		long id = cache.get(value, NOT_CACHED);
+
+		/* Hits and known misses are answered from memory */
+		if (id != NOT_CACHED)
+		{
+			hits++;
+			return id;
+		}
+
+		misses++;
+
+		/*
+		 * Even if the table has been preloaded, ask the database. The column collation may consider values equal that differ in case or trailing
+		 * spaces, which the in-memory map doesn't know about.
+		 */
+		String sql = String.format(SQLUtils.SELECT_REFERENCE_ID, tableName, columnName);
+		DatabaseStatement stmt = database.prepareStatement(sql);
+		stmt.setString(1, value);
+
+		DatabaseResult rs = StatementStatistics.getInstance().query(sql, () -> new StatementText(sql, new Object[]{value}, 1), stmt::query);
+
+		if (rs.next())
+		{
+			id = rs.getLong(1);
+			cache.put(value, id);
+		}
+		else
+		{
+			id = NOT_FOUND;
+
+			if (negativeCaching)
+				cache.put(value, id);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Adds the given previously resolved entries to the cache
+	 *
+	 * @param entries The entries
+	 */
+	public void seed(StringLongMap entries)
+	{
+		entries.forEach(cache::putIfAbsent);
+	}
+
+	/**
+	 * Returns all values that have successfully been resolved so far
+	 *
+	 * @return All values that have successfully been resolved so far
+	 */
+	public StringLongMap getResolved()
+	{
+		StringLongMap result = new StringLongMap(cache.size());
+
+		cache.forEach((value, id) -> {
+			if (id != NOT_FOUND)
+				result.put(value, id);
+		});
+
+		return result;
+	}
+
+	public long getHits()
+	{
+		return hits;
+	}
+
+	public long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * Returns <code>true</code> if all values of the referenced table have been loaded into memory
+	 *
+	 * @return <code>true</code> if all values of the referenced table have been loaded into memory
+	 */
+	public boolean isPreloaded()
+	{
+		return preloaded;
+	}
+
+	/**
+	 * Returns the number of cached values
+	 *
+	 * @return The number of cached values
+	 */
+	public int size()
+	{
+		return cache.size();
+	}
+}
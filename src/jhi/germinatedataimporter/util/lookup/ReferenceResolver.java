@@ -0,0 +1,248 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.lookup;
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.*;
+
+import jhi.database.server.*;
+import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.entities.*;
+import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.log.*;
+import jhi.swtcommons.util.*;
+
+/**
+ * {@link ReferenceResolver} resolves the values of {@link DatabaseColumn.Condition}s to ids during an import. Referenced tables that are smaller than
+ * the configured {@link GerminateParameter#preloadthreshold} are loaded into memory at the start of the import. Larger tables are resolved on demand
+ * and the results are cached. If {@link GerminateParameter#referencecache} is enabled, the resolved values of the larger tables are kept in a {@link
+ * PersistentReferenceCache} between sessions.
+ * <p>
+ * If a {@link DatabaseColumn.Condition} references the table that is being imported to, the rows inserted during the import can be referenced by
+ * later rows. Such tables are never preloaded or seeded from the {@link PersistentReferenceCache}, and values that cannot be found aren't
+ * remembered, so that they're looked up again once they may have been inserted.
+ *
+ * @author Sebastian Raubach
+ */
+public class ReferenceResolver
+{
+	public static final int DEFAULT_PRELOAD_THRESHOLD = 100000;
+
+	private final Database                                            database;
+	private final DatabaseTable                                       target;
+	private final Map<String, ReferenceLookup>                        lookups              = new HashMap<>();
+	private final Map<String, DatabaseColumn.Condition>               persistentConditions = new HashMap<>();
+	private final Map<String, PersistentReferenceCache.ChangeMarkers> persistentMarkers    = new HashMap<>();
+	private       PersistentReferenceCache                            persistentCache;
+
+	/**
+	 * Creates a new instance of {@link ReferenceResolver}
+	 *
+	 * @param database The {@link Database} to use for on-demand lookups
+	 */
+	public ReferenceResolver(Database database)
+	{
+		this(database, null);
+	}
+
+	/**
+	 * Creates a new instance of {@link ReferenceResolver}
+	 *
+	 * @param database The {@link Database} to use for on-demand lookups
+	 * @param target   The {@link DatabaseTable} that is being imported to or <code>null</code> if no rows are inserted
+	 */
+	public ReferenceResolver(Database database, DatabaseTable target)
+	{
+		this.database = database;
+		this.target = target;
+	}
+
+	/**
+	 * Checks if the given {@link DatabaseColumn.Condition} references the table that is being imported to
+	 *
+	 * @param condition The {@link DatabaseColumn.Condition}
+	 * @return <code>true</code> if the given {@link DatabaseColumn.Condition} references the table that is being imported to
+	 */
+	private boolean isSelfReference(DatabaseColumn.Condition condition)
+	{
+		return target != null && target.equals(condition.getTable());
+	}
+
+	private static String getKey(DatabaseColumn.Condition condition)
+	{
+		return condition.getTable().getName() + "." + condition.getColumn().getName();
+	}
+
+	/**
+	 * Returns the configured preload threshold. Tables with more rows than this are never preloaded.
+	 *
+	 * @return The configured preload threshold
+	 */
+	public static int getPreloadThreshold()
+	{
+		Integer threshold = (Integer) GerminateParameterStore.getInstance().get(GerminateParameter.preloadthreshold);
+
+		return threshold == null ? DEFAULT_PRELOAD_THRESHOLD : threshold;
+	}
+
+	/**
+	 * Prepares the lookups for the given {@link DatabaseColumn.Condition}s and preloads the referenced tables that are small enough
+	 *
+	 * @param conditions The {@link DatabaseColumn.Condition}s that will be resolved during the import (<code>null</code> items are ignored)
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public void prepare(Collection<DatabaseColumn.Condition> conditions) throws DatabaseException
+	{
+		int threshold = getPreloadThreshold();
+
+		Boolean usePersistentCache = (Boolean) GerminateParameterStore.getInstance().get(GerminateParameter.referencecache);
+		if (usePersistentCache != null && usePersistentCache)
+			persistentCache = PersistentReferenceCache.open();
+
+		for (DatabaseColumn.Condition condition : conditions)
+		{
+			if (condition == null)
+				continue;
+
+			String key = getKey(condition);
+
+			if (lookups.containsKey(key))
+				continue;
+
+			boolean selfReference = isSelfReference(condition);
+			ReferenceLookup lookup = new ReferenceLookup(condition, !selfReference);
+			lookups.put(key, lookup);
+
+			/* The table changes during the import, so any snapshot of it would be outdated */
+			if (selfReference)
+				continue;
+
+			long size = condition.getTable().getSize();
+			if (threshold > 0 && size <= threshold)
+			{
+				lookup.preload(size);
+			}
+			else if (persistentCache != null)
+			{
+				/* Start with the values of previous sessions if the table hasn't changed since */
+				PersistentReferenceCache.ChangeMarkers markers = PersistentReferenceCache.getChangeMarkers(database, condition.getTable());
+				StringLongMap cached = persistentCache.get(condition, markers);
+
+				if (cached != null)
+					lookup.seed(cached);
+
+				persistentConditions.put(key, condition);
+				persistentMarkers.put(key, markers);
+			}
+		}
+	}
+
+	/**
+	 * Resolves all the given values of the given {@link DatabaseColumn.Condition} with as few queries as possible, so that subsequent calls to {@link
+	 * #resolve(DatabaseColumn.Condition, String)} can be answered from memory
+	 *
+	 * @param condition The {@link DatabaseColumn.Condition}
+	 * @param values    The distinct values to resolve
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public void resolveAll(DatabaseColumn.Condition condition, Collection<String> values) throws DatabaseException
+	{
+		if (CollectionUtils.isEmpty(values))
+			return;
+
+		getLookup(condition).resolveAll(database, values);
+	}
+
+	/**
+	 * Resolves the given value of the given {@link DatabaseColumn.Condition} to the id of the referenced row
+	 *
+	 * @param condition The {@link DatabaseColumn.Condition}
+	 * @param value     The value to resolve
+	 * @return The id of the referenced row or {@link ReferenceLookup#NOT_FOUND}
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	public long resolve(DatabaseColumn.Condition condition, String value) throws DatabaseException
+	{
+		return getLookup(condition).resolve(database, value);
+	}
+
+	/**
+	 * Writes the resolved values of the tables that haven't been preloaded to the {@link PersistentReferenceCache}. Failures are logged, but
+	 * otherwise ignored, since the cache is only an optimization.
+	 */
+	public void persist()
+	{
+		if (persistentCache == null || persistentConditions.isEmpty())
+			return;
+
+		for (Map.Entry<String, DatabaseColumn.Condition> entry : persistentConditions.entrySet())
+			persistentCache.put(entry.getValue(), persistentMarkers.get(entry.getKey()), lookups.get(entry.getKey()).getResolved());
+
+		try
+		{
+			persistentCache.save();
+		}
+		catch (IOException e)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+		}
+	}
+
+	/**
+	 * Returns the number of values that have been resolved from memory so far, including the values that have been fetched in batches by {@link
+	 * #resolveAll(DatabaseColumn.Condition, Collection)}
+	 *
+	 * @return The number of values that have been resolved from memory
+	 */
+	public long getHits()
+	{
+		long hits = 0;
+		for (ReferenceLookup lookup : lookups.values())
+			hits += lookup.getHits();
+		return hits;
+	}
+
+	/**
+	 * Returns the number of values that had to be resolved by a single lookup in the database so far
+	 *
+	 * @return The number of values that had to be resolved by a single lookup in the database
+	 */
+	public long getMisses()
+	{
+		long misses = 0;
+		for (ReferenceLookup lookup : lookups.values())
+			misses += lookup.getMisses();
+		return misses;
+	}
+
+	private ReferenceLookup getLookup(DatabaseColumn.Condition condition)
+	{
+		String key = getKey(condition);
+
+		ReferenceLookup lookup = lookups.get(key);
+
+		if (lookup == null)
+		{
+			lookup = new ReferenceLookup(condition, !isSelfReference(condition));
+			lookups.put(key, lookup);
+		}
+
+		return lookup;
+	}
+}
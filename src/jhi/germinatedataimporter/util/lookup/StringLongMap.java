@@ -0,0 +1,234 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.lookup;
+
+import java.util.function.*;
+
+/**
+ * {@link StringLongMap} is an open-addressing hash map from {@link String} keys to primitive <code>long</code> values. It uses linear probing and
+ * stores the values in a plain <code>long[]</code>, so neither lookups nor insertions box the values. <code>null</code> keys are not supported.
+ *
+ * @author Sebastian Raubach
+ */
+public class StringLongMap
+{
+	private static final int   MIN_CAPACITY = 16;
+	private static final float LOAD_FACTOR  = 0.5f;
+
+	private String[] keys;
+	private long[]   values;
+	private int      mask;
+	private int      size;
+	private int      resizeAt;
+
+	public StringLongMap()
+	{
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Creates a new instance of {@link StringLongMap} that can hold the given number of entries without having to resize
+	 *
+	 * @param expectedSize The expected number of entries
+	 */
+	public StringLongMap(int expectedSize)
+	{
+		allocate(capacityFor(expectedSize));
+	}
+
+	private static int capacityFor(int expectedSize)
+	{
+		long required = (long) Math.ceil(Math.max(expectedSize, MIN_CAPACITY) / LOAD_FACTOR);
+
+		int capacity = MIN_CAPACITY;
+		while (capacity < required && capacity < (1 << 30))
+			capacity <<= 1;
+
+		return capacity;
+	}
+
+	/**
+	 * Spreads the bits of the {@link String#hashCode()} so that keys with similar hashes don't end up in long probe sequences
+	 *
+	 * @param hash The original hash
+	 * @return The mixed hash
+	 */
+	private static int mix(int hash)
+	{
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new String[capacity];
+		values = new long[capacity];
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Returns the value stored for the given key or the given default value if there is no such key
+	 *
+	 * @param key          The key
+	 * @param defaultValue The value to return if the key isn't in the map
+	 * @return The value stored for the given key or the given default value if there is no such key
+	 */
+	public long get(String key, long defaultValue)
+	{
+		int index = mix(key.hashCode()) & mask;
+
+		String current;
+		while ((current = keys[index]) != null)
+		{
+			if (current.equals(key))
+				return values[index];
+
+			index = (index + 1) & mask;
+		}
+
+		return defaultValue;
+	}
+
+	/**
+	 * Checks if the given key is in the map
+	 *
+	 * @param key The key
+	 * @return <code>true</code> if the key is in the map
+	 */
+	public boolean containsKey(String key)
+	{
+		int index = mix(key.hashCode()) & mask;
+
+		String current;
+		while ((current = keys[index]) != null)
+		{
+			if (current.equals(key))
+				return true;
+
+			index = (index + 1) & mask;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Associates the given value with the given key. Existing values are replaced.
+	 *
+	 * @param key   The key
+	 * @param value The value
+	 */
+	public void put(String key, long value)
+	{
+		insert(key, value, true);
+	}
+
+	/**
+	 * Associates the given value with the given key if the key isn't in the map yet
+	 *
+	 * @param key   The key
+	 * @param value The value
+	 * @return <code>true</code> if the value has been added
+	 */
+	public boolean putIfAbsent(String key, long value)
+	{
+		return insert(key, value, false);
+	}
+
+	private boolean insert(String key, long value, boolean replace)
+	{
+		int index = mix(key.hashCode()) & mask;
+
+		String current;
+		while ((current = keys[index]) != null)
+		{
+			if (current.equals(key))
+			{
+				if (replace)
+					values[index] = value;
+				return replace;
+			}
+
+			index = (index + 1) & mask;
+		}
+
+		keys[index] = key;
+		values[index] = value;
+
+		if (++size > resizeAt)
+			rehash(keys.length << 1);
+
+		return true;
+	}
+
+	private void rehash(int capacity)
+	{
+		String[] oldKeys = keys;
+		long[] oldValues = values;
+
+		allocate(capacity);
+
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			String key = oldKeys[i];
+
+			if (key == null)
+				continue;
+
+			int index = mix(key.hashCode()) & mask;
+			while (keys[index] != null)
+				index = (index + 1) & mask;
+
+			keys[index] = key;
+			values[index] = oldValues[i];
+		}
+	}
+
+	/**
+	 * Passes all entries of this map to the given consumer
+	 *
+	 * @param consumer The consumer
+	 */
+	public void forEach(ObjLongConsumer<String> consumer)
+	{
+		for (int i = 0; i < keys.length; i++)
+		{
+			if (keys[i] != null)
+				consumer.accept(keys[i], values[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of entries in this map
+	 *
+	 * @return The number of entries in this map
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Removes all entries from the map
+	 */
+	public void clear()
+	{
+		allocate(MIN_CAPACITY << 1);
+		size = 0;
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.lookup;
+
+import java.util.*;
+
+import jhi.germinatedataimporter.database.entities.*;
+
+/**
+ * {@link UnresolvedReferenceReport} collects the values of {@link DatabaseColumn.Condition}s that couldn't be found in the referenced tables during
+ * an import. Each distinct value is only reported once together with the number of times it has been encountered.
+ *
+ * @author Sebastian Raubach
+ */
+public class UnresolvedReferenceReport
+{
+	private final Map<String, Map<String, Integer>> values = new LinkedHashMap<>();
+
+	private long skipped = 0;
+
+	/**
+	 * Adds the given value of the given {@link DatabaseColumn.Condition} to the report
+	 *
+	 * @param condition The {@link DatabaseColumn.Condition}
+	 * @param value     The value that couldn't be found
+	 */
+	public void add(DatabaseColumn.Condition condition, String value)
+	{
+		String key = condition.getTable().getName() + "." + condition.getColumn().getName();
+
+		Map<String, Integer> counts = values.get(key);
+
+		if (counts == null)
+		{
+			counts = new LinkedHashMap<>();
+			values.put(key, counts);
+		}
+
+		counts.merge(value, 1, Integer::sum);
+		skipped++;
+	}
+
+	/**
+	 * Returns <code>true</code> if no values have been reported
+	 *
+	 * @return <code>true</code> if no values have been reported
+	 */
+	public boolean isEmpty()
+	{
+		return skipped == 0;
+	}
+
+	/**
+	 * Returns the number of items that have been skipped because of missing references
+	 *
+	 * @return The number of items that have been skipped because of missing references
+	 */
+	public long getSkipped()
+	{
+		return skipped;
+	}
+
+	/**
+	 * Returns the number of distinct missing values
+	 *
+	 * @return The number of distinct missing values
+	 */
+	public int getDistinctValues()
+	{
+		int result = 0;
+
+		for (Map<String, Integer> counts : values.values())
+			result += counts.size();
+
+		return result;
+	}
+
+	/**
+	 * Formats the report as one line per missing value, ordered by the number of occurrences.
+	 *
+	 * @param limit The maximal number of lines to return (per referenced column) or <code>-1</code> for no limit
+	 * @return The formatted report
+	 */
+	public String format(int limit)
+	{
+		StringBuilder builder = new StringBuilder();
+
+		for (Map.Entry<String, Map<String, Integer>> column : values.entrySet())
+		{
+			builder.append(column.getKey())
+				   .append(":\n");
+
+			List<Map.Entry<String, Integer>> entries = new ArrayList<>(column.getValue().entrySet());
+			entries.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+
+			int end = limit < 0 ? entries.size() : Math.min(limit, entries.size());
+
+			for (int i = 0; i < end; i++)
+			{
+				builder.append("    ")
+					   .append(entries.get(i).getKey())
+					   .append(" (")
+					   .append(entries.get(i).getValue())
+					   .append(")\n");
+			}
+
+			if (end < entries.size())
+			{
+				builder.append("    ... (")
+					   .append(entries.size() - end)
+					   .append(")\n");
+			}
+		}
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.metrics;
+
+import java.lang.annotation.*;
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * {@link ImportEvents} emits Java Flight Recorder events for the phases of an import, so a recording (e.g. <code>jcmd &lt;pid&gt; JFR.start</code>)
+ * shows where a slow import spends its time. All events are in the category "Germinate Data Importer" and have a <code>table</code> and a
+ * <code>rows</code> field.
+ * <p>
+ * The application still targets Java 8, so the events can't extend <code>jdk.jfr.Event</code>. Instead, they are defined at runtime with
+ * <code>jdk.jfr.EventFactory</code>, which is called reflectively. If the runtime doesn't include Flight Recorder or no recording is running,
+ * {@link #begin(Type)} returns a {@link Span} that does nothing, without touching Flight Recorder at all.
+ *
+ * @author Sebastian Raubach
+ */
+public class ImportEvents
+{
+	private static final String CATEGORY = "Germinate Data Importer";
+
+	private static final Span NOOP = new Span(null);
+
+	private static final Set<Long> running   = new HashSet<>();
+	private static final Object[]  factories = new Object[Type.values().length];
+
+	private static volatile boolean active;
+
+	/* Handles of the jdk.jfr classes, null if Flight Recorder isn't available */
+	private static Constructor<?>              annotationElement;
+	private static Constructor<?>              valueDescriptor;
+	private static Method                      createFactory;
+	private static Class<? extends Annotation> name;
+	private static Class<? extends Annotation> label;
+	private static Class<? extends Annotation> description;
+	private static Class<? extends Annotation> category;
+	private static Class<? extends Annotation> stackTrace;
+	private static MethodHandle                newEvent;
+	private static MethodHandle                beginEvent;
+	private static MethodHandle                endEvent;
+	private static MethodHandle                commitEvent;
+	private static MethodHandle                setField;
+
+	static
+	{
+		try
+		{
+			annotationElement = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+			valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+			name = annotation("jdk.jfr.Name");
+			label = annotation("jdk.jfr.Label");
+			description = annotation("jdk.jfr.Description");
+			category = annotation("jdk.jfr.Category");
+			stackTrace = annotation("jdk.jfr.StackTrace");
+
+			Class<?> factory = Class.forName("jdk.jfr.EventFactory");
+			Class<?> event = Class.forName("jdk.jfr.Event");
+			createFactory = factory.getMethod("create", List.class, List.class);
+
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			newEvent = lookup.findVirtual(factory, "newEvent", MethodType.methodType(event)).asType(MethodType.methodType(Object.class, Object.class));
+			beginEvent = lookup.findVirtual(event, "begin", MethodType.methodType(void.class)).asType(MethodType.methodType(void.class, Object.class));
+			endEvent = lookup.findVirtual(event, "end", MethodType.methodType(void.class)).asType(MethodType.methodType(void.class, Object.class));
+			commitEvent = lookup.findVirtual(event, "commit", MethodType.methodType(void.class)).asType(MethodType.methodType(void.class, Object.class));
+			setField = lookup.findVirtual(event, "set", MethodType.methodType(void.class, int.class, Object.class)).asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+
+			/* Only emit events while a recording is running */
+			Class<?> recorder = Class.forName("jdk.jfr.FlightRecorder");
+			Class<?> listener = Class.forName("jdk.jfr.FlightRecorderListener");
+			Object proxy = Proxy.newProxyInstance(ImportEvents.class.getClassLoader(), new Class<?>[]{listener}, (p, method, args) -> {
+				switch (method.getName())
+				{
+					case "recorderInitialized":
+						for (Object recording : (List<?>) recorder.getMethod("getRecordings").invoke(args[0]))
+							update(recording);
+						return null;
+					case "recordingStateChanged":
+						update(args[0]);
+						return null;
+					case "hashCode":
+						return System.identityHashCode(p);
+					case "equals":
+						return p == args[0];
+					case "toString":
+						return ImportEvents.class.getSimpleName();
+					default:
+						return null;
+				}
+			});
+			recorder.getMethod("addListener", listener).invoke(null, proxy);
+		}
+		catch (Throwable e)
+		{
+			/* No Flight Recorder, no events */
+			disable();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Annotation> annotation(String className) throws ClassNotFoundException
+	{
+		return (Class<? extends Annotation>) Class.forName(className);
+	}
+
+	/**
+	 * Remembers whether the given <code>jdk.jfr.Recording</code> is running
+	 */
+	private static void update(Object recording) throws ReflectiveOperationException
+	{
+		long id = (Long) recording.getClass().getMethod("getId").invoke(recording);
+		boolean isRunning = "RUNNING".equals(String.valueOf(recording.getClass().getMethod("getState").invoke(recording)));
+
+		synchronized (running)
+		{
+			if (isRunning)
+				running.add(id);
+			else
+				running.remove(id);
+
+			active = newEvent != null && !running.isEmpty();
+		}
+	}
+
+	private static void disable()
+	{
+		newEvent = null;
+		active = false;
+	}
+
+	/**
+	 * Checks if events are currently recorded
+	 *
+	 * @return <code>true</code> if events are currently recorded
+	 */
+	public static boolean isActive()
+	{
+		return active;
+	}
+
+	/**
+	 * Starts timing an event of the given {@link Type}. The event is emitted by {@link Span#commit(String, long)}.
+	 *
+	 * @param type The {@link Type} of the event
+	 * @return The {@link Span} of the event
+	 */
+	public static Span begin(Type type)
+	{
+		if (!active)
+			return NOOP;
+
+		try
+		{
+			Object event = newEvent.invokeExact(getFactory(type));
+			beginEvent.invokeExact(event);
+
+			return new Span(event);
+		}
+		catch (Throwable e)
+		{
+			disable();
+			return NOOP;
+		}
+	}
+
+	/**
+	 * Returns the <code>jdk.jfr.EventFactory</code> of the given {@link Type}, which is created (and thereby registered) the first time an event of
+	 * this {@link Type} is recorded
+	 */
+	private static Object getFactory(Type type) throws ReflectiveOperationException
+	{
+		synchronized (factories)
+		{
+			Object factory = factories[type.ordinal()];
+
+			if (factory == null)
+			{
+				List<Object> annotations = Arrays.asList(
+						annotationElement.newInstance(name, "jhi.germinatedataimporter." + type.name),
+						annotationElement.newInstance(label, type.label),
+						annotationElement.newInstance(description, type.description),
+						annotationElement.newInstance(category, new String[]{CATEGORY}),
+						annotationElement.newInstance(stackTrace, false));
+
+				List<Object> fields = Arrays.asList(
+						valueDescriptor.newInstance(String.class, "table", Collections.singletonList(annotationElement.newInstance(label, "Table"))),
+						valueDescriptor.newInstance(long.class, "rows", Collections.singletonList(annotationElement.newInstance(label, type.rows))));
+
+				factory = factories[type.ordinal()] = createFactory.invoke(null, annotations, fields);
+			}
+
+			return factory;
+		}
+	}
+
+	/**
+	 * The types of events
+	 */
+	public enum Type
+	{
+		PARSE("ParseChunk", "Parse Chunk", "Reading and splitting a chunk of rows of the input file", "Rows"),
+		RESOLVE("ResolveReferences", "Resolve References", "Resolving the foreign keys of a chunk of rows", "Values"),
+		EXECUTE("ExecuteStatement", "Execute Statement", "Executing a single statement of an import", "Statements"),
+		REVERT("RevertChunk", "Revert Chunk", "Deleting a chunk of imported rows", "Rows"),
+		SCAN("ScanTable", "Scan Table", "Reading the columns and size of a database table", "Rows");
+
+		private final String name;
+		private final String label;
+		private final String description;
+		private final String rows;
+
+		Type(String name, String label, String description, String rows)
+		{
+			this.name = name;
+			this.label = label;
+			this.description = description;
+			this.rows = rows;
+		}
+	}
+
+	/**
+	 * A {@link Span} is a single event that has been started with {@link #begin(Type)}
+	 */
+	public static class Span
+	{
+		private final Object event;
+
+		private Span(Object event)
+		{
+			this.event = event;
+		}
+
+		/**
+		 * Ends the event and emits it
+		 *
+		 * @param table The name of the table
+		 * @param rows  The number of rows (or values or statements) that have been processed
+		 */
+		public void commit(String table, long rows)
+		{
+			if (event == null)
+				return;
+
+			try
+			{
+				setField.invokeExact(event, 0, (Object) table);
+				setField.invokeExact(event, 1, (Object) rows);
+				endEvent.invokeExact(event);
+				commitEvent.invokeExact(event);
+			}
+			catch (Throwable e)
+			{
+				disable();
+			}
+		}
+	}
+}
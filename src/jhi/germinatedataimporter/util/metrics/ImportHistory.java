@@ -0,0 +1,238 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.metrics;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import jhi.germinatedataimporter.util.*;
+
+/**
+ * {@link ImportHistory} keeps one compact {@link Record} per import in a tab separated file in the {@link PropertyReader#CONFIG_FOLDER}, so that the
+ * throughput of imports can be compared over time. Records are only ever appended. Once the file gets larger than {@link #MAX_FILE_SIZE}, the
+ * newest {@link #MAX_RECORDS} records are written to a temporary file, which then replaces the history, so it's never left half written.
+ *
+ * @author Sebastian Raubach
+ */
+public class ImportHistory
+{
+	private static final String FILE_NAME = "g3di-import-history.tsv";
+	private static final String SEPARATOR = "\t";
+
+	/** The number of records that are kept when the file is trimmed */
+	private static final int  MAX_RECORDS   = 5000;
+	/** The size of the file in bytes that triggers trimming */
+	private static final long MAX_FILE_SIZE = 1L << 20;
+
+	private static final String[] HEADERS = {"time", "database", "table", "mode", "outcome", "rows", "bytes", "duration_ms", "rows_per_second", "errors", "reader",
+											 "error_policy"};
+
+	private static final ImportHistory INSTANCE = new ImportHistory(new File(PropertyReader.CONFIG_FOLDER, FILE_NAME));
+
+	private final File file;
+
+	private ImportHistory(File file)
+	{
+		this.file = file;
+	}
+
+	public static ImportHistory getInstance()
+	{
+		return INSTANCE;
+	}
+
+	/**
+	 * Appends the given {@link Record} to the history
+	 *
+	 * @param record The {@link Record}
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public synchronized void append(Record record) throws IOException
+	{
+		if (file.length() > MAX_FILE_SIZE)
+		{
+			List<Record> records = load();
+
+			File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+			write(temp, records.subList(Math.max(0, records.size() - MAX_RECORDS), records.size()), false);
+
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		write(file, Collections.singletonList(record), true);
+	}
+
+	private static void write(File file, List<Record> records, boolean append) throws IOException
+	{
+		boolean header = !append || !file.exists() || file.length() == 0;
+
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8)))
+		{
+			if (header)
+			{
+				writer.write(String.join(SEPARATOR, HEADERS));
+				writer.newLine();
+			}
+
+			for (Record record : records)
+			{
+				writer.write(record.toLine());
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Reads all {@link Record}s of the history, the oldest first. Lines that can't be parsed are skipped.
+	 *
+	 * @return The {@link Record}s
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public synchronized List<Record> load() throws IOException
+	{
+		List<Record> result = new ArrayList<>();
+
+		if (!file.exists())
+			return result;
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				Record record = Record.parse(line);
+
+				if (record != null)
+					result.add(record);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Deletes the history
+	 *
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public synchronized void clear() throws IOException
+	{
+		if (file.exists() && !file.delete())
+			throw new IOException("Failed to delete " + file.getAbsolutePath());
+	}
+
+	/**
+	 * {@link Mode} is the kind of import a {@link Record} describes
+	 */
+	public enum Mode
+	{
+		INSERT,
+		INSERT_EXISTS,
+		UPDATE,
+		MATRIX
+	}
+
+	/**
+	 * {@link Record} describes a single import
+	 */
+	public static class Record
+	{
+		public final long                  time;
+		public final String                database;
+		public final String                table;
+		public final Mode                  mode;
+		public final ImportMetrics.Outcome outcome;
+		public final long                  rows;
+		public final long                  bytes;
+		public final long                  duration;
+		public final double                rowsPerSecond;
+		public final long                  errors;
+		public final String                reader;
+		public final String                errorPolicy;
+
+		/**
+		 * Creates a new instance of {@link Record}
+		 *
+		 * @param time          The start of the import in milliseconds since the epoch
+		 * @param database      The name of the database
+		 * @param table         The name of the table
+		 * @param mode          The {@link Mode}
+		 * @param outcome       The {@link ImportMetrics.Outcome}
+		 * @param rows          The number of imported rows
+		 * @param bytes         The size of the input file in bytes (<code>-1</code> if unknown)
+		 * @param duration      The duration of the import in milliseconds
+		 * @param rowsPerSecond The throughput in rows per second
+		 * @param errors        The number of errors
+		 * @param reader        The name of the reader strategy used to parse the input file
+		 * @param errorPolicy   The {@link ErrorPolicy} as returned by {@link ErrorPolicy#toString()}
+		 */
+		public Record(long time, String database, String table, Mode mode, ImportMetrics.Outcome outcome, long rows, long bytes, long duration, double rowsPerSecond, long errors,
+					  String reader, String errorPolicy)
+		{
+			this.time = time;
+			this.database = database;
+			this.table = table;
+			this.mode = mode;
+			this.outcome = outcome;
+			this.rows = rows;
+			this.bytes = bytes;
+			this.duration = duration;
+			this.rowsPerSecond = rowsPerSecond;
+			this.errors = errors;
+			this.reader = reader;
+			this.errorPolicy = errorPolicy;
+		}
+
+		private static String clean(String value)
+		{
+			return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+		}
+
+		private String toLine()
+		{
+			return String.join(SEPARATOR, Long.toString(time), clean(database), clean(table), mode.name(), outcome.name(), Long.toString(rows), Long.toString(bytes),
+					Long.toString(duration), String.format(Locale.ENGLISH, "%.1f", rowsPerSecond), Long.toString(errors), clean(reader), clean(errorPolicy));
+		}
+
+		/**
+		 * Parses a line of the history file
+		 *
+		 * @param line The line
+		 * @return The {@link Record} or <code>null</code> if the line isn't a valid record (e.g. the header)
+		 */
+		private static Record parse(String line)
+		{
+			String[] parts = line.split(SEPARATOR, -1);
+
+			if (parts.length < HEADERS.length)
+				return null;
+
+			try
+			{
+				return new Record(Long.parseLong(parts[0]), parts[1], parts[2], Mode.valueOf(parts[3]), ImportMetrics.Outcome.valueOf(parts[4]), Long.parseLong(parts[5]),
+						Long.parseLong(parts[6]), Long.parseLong(parts[7]), Double.parseDouble(parts[8]), Long.parseLong(parts[9]), parts[10], parts[11]);
+			}
+			catch (IllegalArgumentException e)
+			{
+				return null;
+			}
+		}
+	}
+}
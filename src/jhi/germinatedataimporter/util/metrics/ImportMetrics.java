@@ -0,0 +1,447 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.metrics;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.text.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * {@link ImportMetrics} collects the numbers of a single import: rows, cells and errors, the time spent reading and parsing the input, resolving
+ * references, binding values and executing statements, the latency of every statement in a {@link LatencyHistogram} and the hit rate of the
+ * reference cache.
+ * <p>
+ * The import thread is the only one that records values. Every now and then it calls {@link #publish()}, which creates an immutable {@link
+ * Snapshot} that any other thread can read with {@link #getSnapshot()}.
+ *
+ * @author Sebastian Raubach
+ */
+public class ImportMetrics
+{
+	private static final String SUMMARY_PATTERN = "g3di-import-%s.json";
+	private static final String FILE_TIMESTAMP  = "yyyyMMdd-HHmmss";
+	private static final String JSON_TIMESTAMP  = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+	/** The number of summaries that are kept, older ones are deleted whenever a new one is written */
+	private static final int     MAX_SUMMARIES = 100;
+	private static final Pattern SUMMARIES     = Pattern.compile("^g3di-import-\\d{8}-\\d{6}(-\\d+)?\\.json$");
+
+	private final String           table;
+	private final String           file;
+	private final LatencyHistogram execute = new LatencyHistogram();
+
+	private long startTime;
+	private long startNanos;
+	private long endNanos;
+
+	private long expectedRows = -1;
+	private long rows;
+	private long cells;
+	private long errors;
+	private long parseNanos;
+	private long resolveNanos;
+	private long bindNanos;
+	private long cacheHits;
+	private long cacheMisses;
+
+	/* The state of the current statement */
+	private long statementStart;
+	private long executeAtStatementStart;
+
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Creates a new instance of {@link ImportMetrics}
+	 *
+	 * @param table The name of the table the data is imported to
+	 * @param file  The name of the input file
+	 */
+	public ImportMetrics(String table, String file)
+	{
+		this.table = table;
+		this.file = file;
+
+		start();
+	}
+
+	/**
+	 * (Re)starts the clock
+	 */
+	public void start()
+	{
+		startTime = System.currentTimeMillis();
+		startNanos = System.nanoTime();
+		endNanos = 0;
+		snapshot = new Snapshot(this, null);
+	}
+
+	/**
+	 * Sets the number of rows of the input file (<code>-1</code> if unknown)
+	 *
+	 * @param expectedRows The number of rows of the input file
+	 */
+	public void setExpectedRows(long expectedRows)
+	{
+		this.expectedRows = expectedRows;
+	}
+
+	public void addRows(long rows)
+	{
+		this.rows += rows;
+	}
+
+	public void addCells(long cells)
+	{
+		this.cells += cells;
+	}
+
+	public void addError()
+	{
+		errors++;
+	}
+
+	/**
+	 * Adds the time spent reading and splitting lines of the input file
+	 *
+	 * @param nanos The time in nanoseconds
+	 */
+	public void addParse(long nanos)
+	{
+		parseNanos += nanos;
+	}
+
+	/**
+	 * Adds the time spent resolving references in bulk
+	 *
+	 * @param nanos The time in nanoseconds
+	 */
+	public void addResolve(long nanos)
+	{
+		resolveNanos += nanos;
+	}
+
+	/**
+	 * Marks the start of building and running a statement. Everything until {@link #endStatement()} that isn't recorded by {@link
+	 * #recordExecute(long)} counts as binding.
+	 */
+	public void beginStatement()
+	{
+		/* Statements that have been skipped without calling endStatement() still count */
+		endStatement();
+
+		statementStart = System.nanoTime();
+		executeAtStatementStart = execute.getTotal();
+	}
+
+	/**
+	 * Marks the end of the current statement (see {@link #beginStatement()})
+	 */
+	public void endStatement()
+	{
+		if (statementStart == 0)
+			return;
+
+		bindNanos += Math.max(0, System.nanoTime() - statementStart - (execute.getTotal() - executeAtStatementStart));
+		statementStart = 0;
+	}
+
+	/**
+	 * Records the time it took the database to execute a statement
+	 *
+	 * @param nanos The time in nanoseconds
+	 */
+	public void recordExecute(long nanos)
+	{
+		execute.record(nanos);
+	}
+
+	/**
+	 * Sets the current hit and miss counts of the reference cache
+	 *
+	 * @param hits   The number of values that have been resolved from memory
+	 * @param misses The number of values that had to be resolved by the database
+	 */
+	public void setCache(long hits, long misses)
+	{
+		this.cacheHits = hits;
+		this.cacheMisses = misses;
+	}
+
+	/**
+	 * Stops the clock and publishes the final {@link Snapshot}
+	 *
+	 * @param outcome The outcome of the import
+	 * @return The final {@link Snapshot}
+	 */
+	public Snapshot finish(Outcome outcome)
+	{
+		endStatement();
+		endNanos = System.nanoTime();
+
+		return snapshot = new Snapshot(this, outcome);
+	}
+
+	/**
+	 * Publishes a new {@link Snapshot} with the current numbers
+	 *
+	 * @return The new {@link Snapshot}
+	 */
+	public Snapshot publish()
+	{
+		return snapshot = new Snapshot(this, null);
+	}
+
+	/**
+	 * Returns the last published {@link Snapshot}
+	 *
+	 * @return The last published {@link Snapshot}
+	 */
+	public Snapshot getSnapshot()
+	{
+		return snapshot;
+	}
+
+	public LatencyHistogram getExecuteHistogram()
+	{
+		return execute;
+	}
+
+	/**
+	 * Writes the given {@link Snapshot} as JSON to a new file in the given folder. Only the newest {@link #MAX_SUMMARIES} summaries are kept.
+	 *
+	 * @param folder   The folder
+	 * @param snapshot The {@link Snapshot}
+	 * @return The JSON {@link File}
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public static File writeSummary(File folder, Snapshot snapshot) throws IOException
+	{
+		String timestamp = new SimpleDateFormat(FILE_TIMESTAMP).format(new Date(snapshot.startTime));
+
+		File result = new File(folder, String.format(SUMMARY_PATTERN, timestamp));
+		for (int i = 1; result.exists(); i++)
+			result = new File(folder, String.format(SUMMARY_PATTERN, timestamp + "-" + i));
+
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(result), StandardCharsets.UTF_8))
+		{
+			writer.write(snapshot.toJson());
+		}
+
+		deleteOldSummaries(folder);
+
+		return result;
+	}
+
+	/**
+	 * Deletes all but the newest {@link #MAX_SUMMARIES} summaries in the given folder
+	 *
+	 * @param folder The folder
+	 */
+	private static void deleteOldSummaries(File folder)
+	{
+		File[] files = folder.listFiles(f -> SUMMARIES.matcher(f.getName()).matches());
+
+		if (files == null || files.length <= MAX_SUMMARIES)
+			return;
+
+		/* Oldest first, the file names only have a resolution of one second */
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified).thenComparing(File::getName));
+
+		for (int i = 0; i < files.length - MAX_SUMMARIES; i++)
+			files[i].delete();
+	}
+
+	/**
+	 * {@link Outcome} is the way an import ended
+	 */
+	public enum Outcome
+	{
+		FINISHED,
+		CANCELLED,
+		FAILED
+	}
+
+	/**
+	 * {@link Snapshot} is an immutable copy of the numbers of an {@link ImportMetrics} at a certain time. Times are in nanoseconds, rates per second.
+	 */
+	public static class Snapshot
+	{
+		public final String  table;
+		public final String  file;
+		public final long    startTime;
+		public final long    elapsed;
+		public final Outcome outcome;
+		public final long    expectedRows;
+		public final long    rows;
+		public final long    cells;
+		public final long    errors;
+		public final double  rowsPerSecond;
+		public final double  cellsPerSecond;
+		public final long    parse;
+		public final long    resolve;
+		public final long    bind;
+		public final long    execute;
+		public final long    statements;
+		public final double  executeMean;
+		public final long    executeP50;
+		public final long    executeP90;
+		public final long    executeP99;
+		public final long    executeMax;
+		public final long    cacheHits;
+		public final long    cacheMisses;
+
+		private Snapshot(ImportMetrics metrics, Outcome outcome)
+		{
+			LatencyHistogram histogram = metrics.execute;
+
+			this.table = metrics.table;
+			this.file = metrics.file;
+			this.startTime = metrics.startTime;
+			this.elapsed = (metrics.endNanos != 0 ? metrics.endNanos : System.nanoTime()) - metrics.startNanos;
+			this.outcome = outcome;
+			this.expectedRows = metrics.expectedRows;
+			this.rows = metrics.rows;
+			this.cells = metrics.cells;
+			this.errors = metrics.errors;
+			this.rowsPerSecond = perSecond(rows, elapsed);
+			this.cellsPerSecond = perSecond(cells, elapsed);
+			this.parse = metrics.parseNanos;
+			this.resolve = metrics.resolveNanos;
+			this.bind = metrics.bindNanos;
+			this.execute = histogram.getTotal();
+			this.statements = histogram.getCount();
+			this.executeMean = histogram.getMean();
+			this.executeP50 = histogram.getPercentile(50);
+			this.executeP90 = histogram.getPercentile(90);
+			this.executeP99 = histogram.getPercentile(99);
+			this.executeMax = histogram.getMax();
+			this.cacheHits = metrics.cacheHits;
+			this.cacheMisses = metrics.cacheMisses;
+		}
+
+		private static double perSecond(long count, long nanos)
+		{
+			return nanos <= 0 ? 0 : count / (nanos / 1e9);
+		}
+
+		/**
+		 * Returns the estimated number of seconds until all rows have been imported or <code>-1</code> if the number of rows isn't known
+		 *
+		 * @return The estimated number of seconds until all rows have been imported or <code>-1</code>
+		 */
+		public double getRemainingSeconds()
+		{
+			if (expectedRows < 0 || rowsPerSecond <= 0)
+				return -1;
+
+			return Math.max(0, expectedRows - rows) / rowsPerSecond;
+		}
+
+		/**
+		 * Returns the share of references that have been resolved from memory in percent or <code>-1</code> if nothing has been resolved
+		 *
+		 * @return The cache hit rate in percent or <code>-1</code>
+		 */
+		public double getCacheHitRate()
+		{
+			long total = cacheHits + cacheMisses;
+			return total == 0 ? -1 : cacheHits * 100.0 / total;
+		}
+
+		/**
+		 * Returns the {@link Snapshot} as a JSON object
+		 *
+		 * @return The {@link Snapshot} as a JSON object
+		 */
+		public String toJson()
+		{
+			StringBuilder builder = new StringBuilder("{\n");
+
+			field(builder, "table", quote(table));
+			field(builder, "file", quote(file));
+			field(builder, "started", quote(new SimpleDateFormat(JSON_TIMESTAMP).format(new Date(startTime))));
+			field(builder, "outcome", outcome == null ? "null" : quote(outcome.name()));
+			field(builder, "durationMs", millis(elapsed));
+			field(builder, "rows", Long.toString(rows));
+			field(builder, "cells", Long.toString(cells));
+			field(builder, "errors", Long.toString(errors));
+			field(builder, "rowsPerSecond", number(rowsPerSecond));
+			field(builder, "cellsPerSecond", number(cellsPerSecond));
+			builder.append("  \"stagesMs\": {")
+				   .append("\"parse\": ").append(millis(parse))
+				   .append(", \"resolve\": ").append(millis(resolve))
+				   .append(", \"bind\": ").append(millis(bind))
+				   .append(", \"execute\": ").append(millis(execute))
+				   .append("},\n");
+			builder.append("  \"executeMs\": {")
+				   .append("\"count\": ").append(statements)
+				   .append(", \"mean\": ").append(number(executeMean / 1e6))
+				   .append(", \"p50\": ").append(millis(executeP50))
+				   .append(", \"p90\": ").append(millis(executeP90))
+				   .append(", \"p99\": ").append(millis(executeP99))
+				   .append(", \"max\": ").append(millis(executeMax))
+				   .append("},\n");
+			builder.append("  \"referenceCache\": {")
+				   .append("\"hits\": ").append(cacheHits)
+				   .append(", \"misses\": ").append(cacheMisses)
+				   .append(", \"hitRate\": ").append(getCacheHitRate() < 0 ? "null" : number(getCacheHitRate()))
+				   .append("}\n");
+
+			return builder.append("}\n").toString();
+		}
+
+		private static void field(StringBuilder builder, String name, String value)
+		{
+			builder.append("  \"").append(name).append("\": ").append(value).append(",\n");
+		}
+
+		private static String millis(long nanos)
+		{
+			return number(nanos / 1e6);
+		}
+
+		private static String number(double value)
+		{
+			return String.format(Locale.ENGLISH, "%.3f", value);
+		}
+
+		private static String quote(String value)
+		{
+			if (value == null)
+				return "null";
+
+			StringBuilder builder = new StringBuilder("\"");
+			for (int i = 0; i < value.length(); i++)
+			{
+				char c = value.charAt(i);
+
+				if (c == '"' || c == '\\')
+					builder.append('\\').append(c);
+				else if (c < ' ')
+					builder.append(String.format("\\u%04x", (int) c));
+				else
+					builder.append(c);
+			}
+
+			return builder.append('"').toString();
+		}
+	}
+}
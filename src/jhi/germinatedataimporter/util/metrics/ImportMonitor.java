@@ -0,0 +1,267 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.metrics;
+
+import java.lang.management.*;
+import java.util.function.*;
+import java.util.logging.*;
+
+import javax.management.*;
+
+import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.log.*;
+
+/**
+ * {@link ImportMonitor} exposes the {@link ImportMetrics} of the running import via JMX (see {@link ImportMonitorMXBean}), so long imports can be
+ * watched, throttled and cancelled from jconsole or any other JMX client. The numbers are taken from the last published {@link
+ * ImportMetrics.Snapshot}, i.e. they are at most as old as the last progress update.
+ *
+ * @author Sebastian Raubach
+ */
+public class ImportMonitor implements ImportMonitorMXBean
+{
+	public static final String OBJECT_NAME = "jhi.germinatedataimporter:type=ImportMonitor";
+
+	private static final ImportMonitor INSTANCE = new ImportMonitor();
+
+	private volatile ImportMetrics   metrics;
+	private volatile Runnable        cancel;
+	private volatile BooleanSupplier connection;
+	private volatile int             maxRowsPerSecond;
+
+	private boolean registered;
+
+	private ImportMonitor()
+	{
+	}
+
+	public static ImportMonitor getInstance()
+	{
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the {@link ImportMonitor} with the platform MBean server. Subsequent calls don't do anything.
+	 */
+	public static synchronized void register()
+	{
+		if (INSTANCE.registered)
+			return;
+
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+			INSTANCE.registered = true;
+		}
+		catch (JMException | SecurityException e)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+		}
+	}
+
+	/**
+	 * Makes the given import the one that's monitored
+	 *
+	 * @param metrics    The {@link ImportMetrics} of the import
+	 * @param cancel     Cancels the import
+	 * @param connection Returns <code>true</code> if the connection of the import is open
+	 */
+	public void attach(ImportMetrics metrics, Runnable cancel, BooleanSupplier connection)
+	{
+		this.metrics = metrics;
+		this.cancel = cancel;
+		this.connection = connection;
+	}
+
+	/**
+	 * Marks the given import as done. Its final numbers are still shown until the next import starts.
+	 *
+	 * @param metrics The {@link ImportMetrics} of the import
+	 */
+	public void detach(ImportMetrics metrics)
+	{
+		if (this.metrics == metrics)
+		{
+			cancel = null;
+			connection = null;
+		}
+	}
+
+	private ImportMetrics.Snapshot getSnapshot()
+	{
+		ImportMetrics metrics = this.metrics;
+		return metrics == null ? null : metrics.getSnapshot();
+	}
+
+	@Override
+	public boolean isRunning()
+	{
+		return cancel != null;
+	}
+
+	@Override
+	public String getTable()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? null : snapshot.table;
+	}
+
+	@Override
+	public String getFile()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? null : snapshot.file;
+	}
+
+	@Override
+	public String getOutcome()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null || snapshot.outcome == null ? null : snapshot.outcome.name();
+	}
+
+	@Override
+	public long getRowsProcessed()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? 0 : snapshot.rows;
+	}
+
+	@Override
+	public long getTotalRows()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? -1 : snapshot.expectedRows;
+	}
+
+	@Override
+	public double getRowsPerSecond()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? 0 : snapshot.rowsPerSecond;
+	}
+
+	@Override
+	public double getCellsPerSecond()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? 0 : snapshot.cellsPerSecond;
+	}
+
+	@Override
+	public long getErrors()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? 0 : snapshot.errors;
+	}
+
+	@Override
+	public double getElapsedSeconds()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? 0 : snapshot.elapsed / 1e9;
+	}
+
+	@Override
+	public double getEtaSeconds()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null || !isRunning() ? -1 : snapshot.getRemainingSeconds();
+	}
+
+	@Override
+	public long getStatementsExecuted()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? 0 : snapshot.statements;
+	}
+
+	@Override
+	public double getStatementMeanMillis()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? 0 : snapshot.executeMean / 1e6;
+	}
+
+	@Override
+	public double getStatementP99Millis()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? 0 : snapshot.executeP99 / 1e6;
+	}
+
+	@Override
+	public String getDatabase()
+	{
+		GerminateParameterStore store = GerminateParameterStore.getInstance();
+		return store.getAsString(GerminateParameter.server) + "/" + store.getAsString(GerminateParameter.database);
+	}
+
+	@Override
+	public boolean isConnectionOpen()
+	{
+		BooleanSupplier connection = this.connection;
+		return connection != null && connection.getAsBoolean();
+	}
+
+	@Override
+	public long getCacheHits()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? 0 : snapshot.cacheHits;
+	}
+
+	@Override
+	public long getCacheMisses()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? 0 : snapshot.cacheMisses;
+	}
+
+	@Override
+	public double getCacheHitRate()
+	{
+		ImportMetrics.Snapshot snapshot = getSnapshot();
+		return snapshot == null ? -1 : snapshot.getCacheHitRate();
+	}
+
+	@Override
+	public int getMaxRowsPerSecond()
+	{
+		return maxRowsPerSecond;
+	}
+
+	@Override
+	public void setMaxRowsPerSecond(int maxRowsPerSecond)
+	{
+		this.maxRowsPerSecond = Math.max(0, maxRowsPerSecond);
+	}
+
+	@Override
+	public boolean cancel()
+	{
+		Runnable cancel = this.cancel;
+
+		if (cancel == null)
+			return false;
+
+		cancel.run();
+		return true;
+	}
+}
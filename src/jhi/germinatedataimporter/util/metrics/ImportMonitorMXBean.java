@@ -0,0 +1,132 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.metrics;
+
+/**
+ * {@link ImportMonitorMXBean} is the JMX interface of the {@link ImportMonitor}. It shows the state of the running (or last) import and allows to
+ * cancel or throttle it.
+ *
+ * @author Sebastian Raubach
+ */
+public interface ImportMonitorMXBean
+{
+	/**
+	 * Returns <code>true</code> if an import is running
+	 *
+	 * @return <code>true</code> if an import is running
+	 */
+	boolean isRunning();
+
+	/**
+	 * Returns the name of the table the data is imported to
+	 *
+	 * @return The name of the table the data is imported to
+	 */
+	String getTable();
+
+	/**
+	 * Returns the name of the input file
+	 *
+	 * @return The name of the input file
+	 */
+	String getFile();
+
+	/**
+	 * Returns the outcome of the last import (<code>null</code> while it's running)
+	 *
+	 * @return The outcome of the last import
+	 */
+	String getOutcome();
+
+	long getRowsProcessed();
+
+	/**
+	 * Returns the number of rows of the input file or <code>-1</code> if it's unknown
+	 *
+	 * @return The number of rows of the input file or <code>-1</code>
+	 */
+	long getTotalRows();
+
+	double getRowsPerSecond();
+
+	double getCellsPerSecond();
+
+	long getErrors();
+
+	double getElapsedSeconds();
+
+	/**
+	 * Returns the estimated number of seconds until the import is done or <code>-1</code> if it can't be estimated
+	 *
+	 * @return The estimated number of seconds until the import is done or <code>-1</code>
+	 */
+	double getEtaSeconds();
+
+	long getStatementsExecuted();
+
+	double getStatementMeanMillis();
+
+	double getStatementP99Millis();
+
+	/**
+	 * Returns the database the importer is connected to as <code>server/database</code>
+	 *
+	 * @return The database the importer is connected to
+	 */
+	String getDatabase();
+
+	/**
+	 * Returns <code>true</code> if the connection of the running import is open
+	 *
+	 * @return <code>true</code> if the connection of the running import is open
+	 */
+	boolean isConnectionOpen();
+
+	long getCacheHits();
+
+	long getCacheMisses();
+
+	/**
+	 * Returns the share of references that have been resolved from memory in percent or <code>-1</code> if nothing has been resolved
+	 *
+	 * @return The cache hit rate in percent or <code>-1</code>
+	 */
+	double getCacheHitRate();
+
+	/**
+	 * Returns the maximal number of rows per second imports may process (<code>0</code> if there is no limit)
+	 *
+	 * @return The maximal number of rows per second
+	 */
+	int getMaxRowsPerSecond();
+
+	/**
+	 * Sets the maximal number of rows per second imports may process (<code>0</code> if there is no limit)
+	 *
+	 * @param maxRowsPerSecond The maximal number of rows per second
+	 */
+	void setMaxRowsPerSecond(int maxRowsPerSecond);
+
+	/**
+	 * Cancels the running import, just like the "Cancel" button of the progress dialog
+	 *
+	 * @return <code>true</code> if there was an import to cancel
+	 */
+	boolean cancel();
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.metrics;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * {@link LatencyHistogram} counts latencies in nanoseconds in logarithmic buckets with {@link #SUB_BUCKETS} linear sub-buckets per power of two,
+ * so every percentile is accurate to within 12.5%. Recording a value is a couple of bit operations and one array update, there are no locks and
+ * no allocations.
+ * <p>
+ * Only one thread may record values, any thread may read them.
+ *
+ * @author Sebastian Raubach
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS         = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong      count  = new AtomicLong();
+	private final AtomicLong      total  = new AtomicLong();
+	private final AtomicLong      max    = new AtomicLong();
+
+	/**
+	 * Returns the index of the bucket of the given value
+	 */
+	private static int getIndex(long value)
+	{
+		if (value < SUB_BUCKETS)
+			return (int) value;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the largest value that falls into the bucket with the given index
+	 */
+	private static long getUpperBound(int index)
+	{
+		if (index < SUB_BUCKETS)
+			return index;
+
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int sub = index % SUB_BUCKETS;
+		int shift = exponent - SUB_BUCKET_BITS;
+
+		return ((long) (SUB_BUCKETS + sub) << shift) + (1L << shift) - 1;
+	}
+
+	/**
+	 * Records the given latency. Only one thread may call this.
+	 *
+	 * @param nanos The latency in nanoseconds (negative values are recorded as <code>0</code>)
+	 */
+	public void record(long nanos)
+	{
+		if (nanos < 0)
+			nanos = 0;
+
+		/* There's only one writer, so there's no need for atomic increments */
+		int index = getIndex(nanos);
+		counts.lazySet(index, counts.get(index) + 1);
+		count.lazySet(count.get() + 1);
+		total.lazySet(total.get() + nanos);
+
+		if (nanos > max.get())
+			max.lazySet(nanos);
+	}
+
+	/**
+	 * Returns the number of recorded values
+	 *
+	 * @return The number of recorded values
+	 */
+	public long getCount()
+	{
+		return count.get();
+	}
+
+	/**
+	 * Returns the sum of all recorded values in nanoseconds
+	 *
+	 * @return The sum of all recorded values in nanoseconds
+	 */
+	public long getTotal()
+	{
+		return total.get();
+	}
+
+	/**
+	 * Returns the largest recorded value in nanoseconds
+	 *
+	 * @return The largest recorded value in nanoseconds
+	 */
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	/**
+	 * Returns the mean of the recorded values in nanoseconds
+	 *
+	 * @return The mean of the recorded values in nanoseconds or <code>0</code> if there are none
+	 */
+	public double getMean()
+	{
+		long n = count.get();
+		return n == 0 ? 0 : total.get() / (double) n;
+	}
+
+	/**
+	 * Returns the value in nanoseconds that the given percentage of the recorded values doesn't exceed. This is the upper bound of the bucket the
+	 * percentile falls into, but never more than the maximum.
+	 *
+	 * @param percentile The percentile (between <code>0</code> and <code>100</code>)
+	 * @return The value in nanoseconds or <code>0</code> if there are none
+	 */
+	public long getPercentile(double percentile)
+	{
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			n += counts.get(i);
+
+		if (n == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100));
+
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			seen += counts.get(i);
+
+			if (seen >= rank)
+				return Math.min(getUpperBound(i), max.get());
+		}
+
+		return max.get();
+	}
+}
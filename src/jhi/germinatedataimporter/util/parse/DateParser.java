@@ -0,0 +1,239 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.parse;
+
+import java.text.*;
+import java.time.*;
+import java.time.format.*;
+import java.time.temporal.*;
+import java.util.*;
+
+/**
+ * {@link DateParser} parses dates using a {@link SimpleDateFormat} pattern. Purely numeric patterns like <code>yyyy-MM-dd HH:mm:ss</code> are
+ * compiled into an immutable {@link DateTimeFormatter}, which is a lot faster than {@link SimpleDateFormat}. Everything the {@link DateTimeFormatter}
+ * can't handle is parsed with a {@link SimpleDateFormat} per thread: other patterns (names of months, two-digit years, time zones, ...), dates before
+ * 1583, for which {@link SimpleDateFormat} uses the Julian calendar, and values the strict {@link DateTimeFormatter} rejects, but the lenient
+ * {@link SimpleDateFormat} accepts (trailing text, leading whitespace, invalid dates that roll over into the next month, ...). The results are
+ * therefore always the same as the ones of {@link SimpleDateFormat}.
+ * <p>
+ * Input files usually only contain a few distinct dates, so the results are remembered in a least recently used cache of {@link #CACHE_SIZE}
+ * values. Files with many distinct dates are often sorted by date, so evicting the least recently used values keeps the cache useful for them.
+ * Instances can be shared between threads.
+ *
+ * @author Sebastian Raubach
+ */
+public class DateParser
+{
+	private static final int  CACHE_SIZE = 10000;
+	private static final long INVALID    = Long.MIN_VALUE;
+
+	/** {@link SimpleDateFormat} uses the Julian calendar before the Gregorian cutover in October 1582, {@link LocalDateTime} doesn't */
+	private static final int FIRST_GREGORIAN_YEAR = 1583;
+
+	private final String                      pattern;
+	private final boolean                     isTimestamp;
+	private final DateTimeFormatter           formatter;
+	private final ThreadLocal<DateFormat>     fallback;
+	private final Map<String, Long>           cache;
+
+	/**
+	 * Creates a new instance of {@link DateParser}
+	 *
+	 * @param pattern The {@link SimpleDateFormat} pattern
+	 */
+	public DateParser(String pattern)
+	{
+		this.pattern = pattern;
+		this.isTimestamp = pattern.contains("HH") && pattern.contains("mm");
+		this.formatter = compile(pattern);
+		this.fallback = ThreadLocal.withInitial(() -> new SimpleDateFormat(pattern));
+		this.cache = Collections.synchronizedMap(new LinkedHashMap<String, Long>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+			{
+				return size() > CACHE_SIZE;
+			}
+		});
+	}
+
+	/**
+	 * Compiles the given pattern into a {@link DateTimeFormatter} if it only consists of numeric fields (<code>yyyy</code>, <code>M</code>,
+	 * <code>d</code>, <code>H</code>, <code>m</code>, <code>s</code> and <code>SSS</code>), each followed by a separator or the end of the pattern.
+	 *
+	 * @param pattern The {@link SimpleDateFormat} pattern
+	 * @return The {@link DateTimeFormatter} or <code>null</code> if the pattern isn't supported
+	 */
+	private static DateTimeFormatter compile(String pattern)
+	{
+		DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+		boolean hasYear = false;
+
+		int i = 0;
+		while (i < pattern.length())
+		{
+			char c = pattern.charAt(i);
+
+			int count = 1;
+			while (i + count < pattern.length() && pattern.charAt(i + count) == c)
+				count++;
+
+			/* Adjacent numeric fields would need fixed widths */
+			if (Character.isLetter(c) && i + count < pattern.length() && Character.isLetter(pattern.charAt(i + count)))
+				return null;
+
+			switch (c)
+			{
+				case 'y':
+					if (count != 4)
+						return null;
+					builder.appendValue(ChronoField.YEAR, 4);
+					hasYear = true;
+					break;
+				case 'M':
+					if (count > 2)
+						return null;
+					builder.appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE);
+					break;
+				case 'd':
+					if (count > 2)
+						return null;
+					builder.appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE);
+					break;
+				case 'H':
+					if (count > 2)
+						return null;
+					builder.appendValue(ChronoField.HOUR_OF_DAY, 1, 2, SignStyle.NOT_NEGATIVE);
+					break;
+				case 'm':
+					if (count > 2)
+						return null;
+					builder.appendValue(ChronoField.MINUTE_OF_HOUR, 1, 2, SignStyle.NOT_NEGATIVE);
+					break;
+				case 's':
+					if (count > 2)
+						return null;
+					builder.appendValue(ChronoField.SECOND_OF_MINUTE, 1, 2, SignStyle.NOT_NEGATIVE);
+					break;
+				case 'S':
+					if (count != 3)
+						return null;
+					builder.appendValue(ChronoField.MILLI_OF_SECOND, 1, 3, SignStyle.NOT_NEGATIVE);
+					break;
+				case '-':
+				case '/':
+				case '.':
+				case ':':
+				case ' ':
+				case ',':
+					for (int j = 0; j < count; j++)
+						builder.appendLiteral(c);
+					break;
+				default:
+					return null;
+			}
+
+			i += count;
+		}
+
+		/* Without a year, SimpleDateFormat defaults to 1970, which isn't worth replicating */
+		if (!hasYear)
+			return null;
+
+		return builder.parseDefaulting(ChronoField.MONTH_OF_YEAR, 1)
+					  .parseDefaulting(ChronoField.DAY_OF_MONTH, 1)
+					  .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+					  .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+					  .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+					  .parseDefaulting(ChronoField.MILLI_OF_SECOND, 0)
+					  .toFormatter(Locale.ROOT)
+					  .withResolverStyle(ResolverStyle.STRICT);
+	}
+
+	/**
+	 * Returns the pattern
+	 *
+	 * @return The pattern
+	 */
+	public String getPattern()
+	{
+		return pattern;
+	}
+
+	/**
+	 * Checks if the pattern contains a time (hours and minutes), in which case the values should be stored as timestamps rather than dates
+	 *
+	 * @return <code>true</code> if the pattern contains a time
+	 */
+	public boolean isTimestamp()
+	{
+		return isTimestamp;
+	}
+
+	/**
+	 * Parses the given text
+	 *
+	 * @param text The text to parse
+	 * @return The parsed {@link Date}
+	 * @throws ParseException Thrown if the text doesn't match the pattern
+	 */
+	public Date parse(String text) throws ParseException
+	{
+		Long cached = cache.get(text);
+
+		if (cached == null)
+		{
+			cached = parseUncached(text);
+			cache.put(text, cached);
+		}
+
+		if (cached == INVALID)
+			throw new ParseException("Unparseable date: \"" + text + "\" (pattern: " + pattern + ")", 0);
+
+		/* Dates are mutable, so every caller gets its own */
+		return new Date(cached);
+	}
+
+	private long parseUncached(String text)
+	{
+		if (formatter != null)
+		{
+			try
+			{
+				LocalDateTime date = LocalDateTime.parse(text, formatter);
+
+				if (date.getYear() >= FIRST_GREGORIAN_YEAR)
+					return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+			}
+			catch (DateTimeParseException e)
+			{
+				/* Fall through, the lenient SimpleDateFormat accepts trailing text, rolls invalid dates over, etc. */
+			}
+		}
+
+		try
+		{
+			return fallback.get().parse(text).getTime();
+		}
+		catch (ParseException e)
+		{
+			return INVALID;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.parse;
+
+import java.text.*;
+import java.util.*;
+
+/**
+ * {@link NumberParser} parses decimal numbers using the decimal and grouping separators of a {@link Locale}. Plain numbers (an optional sign,
+ * digits with optional grouping separators and an optional fraction) are parsed directly into a <code>long</code> mantissa and a power of ten,
+ * which doesn't allocate anything. Everything else (exponents, very long numbers, trailing characters, ...) is passed on to a {@link DecimalFormat}
+ * of the same {@link Locale}, so the results are the same as before.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @author Sebastian Raubach
+ */
+public class NumberParser
+{
+	/** Mantissas up to 2^53 and powers of ten up to 10^22 are exact doubles, so one division is correctly rounded */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private final char decimalSeparator;
+	private final char groupingSeparator;
+	private final char minusSign;
+
+	private final ThreadLocal<DecimalFormat> fallback;
+
+	/**
+	 * Creates a new instance of {@link NumberParser}
+	 *
+	 * @param locale The {@link Locale} that defines the separators
+	 */
+	public NumberParser(Locale locale)
+	{
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+
+		this.decimalSeparator = symbols.getDecimalSeparator();
+		this.groupingSeparator = symbols.getGroupingSeparator();
+		this.minusSign = symbols.getMinusSign();
+		this.fallback = ThreadLocal.withInitial(() -> (DecimalFormat) NumberFormat.getInstance(locale));
+	}
+
+	/**
+	 * Parses the given text
+	 *
+	 * @param text The text to parse
+	 * @return The parsed number
+	 * @throws ParseException Thrown if the text isn't a number
+	 */
+	public double parse(String text) throws ParseException
+	{
+		int length = text.length();
+		int i = 0;
+
+		boolean negative = false;
+		if (i < length && text.charAt(i) == minusSign)
+		{
+			negative = true;
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean fraction = false;
+		boolean anyDigit = false;
+		char previous = 0;
+
+		for (; i < length; i++)
+		{
+			char c = text.charAt(i);
+
+			if (c >= '0' && c <= '9')
+			{
+				/* Leading zeros don't count towards the precision */
+				if (digits > 0 || c != '0')
+					digits++;
+				if (digits > 18)
+					return parseFallback(text);
+
+				mantissa = mantissa * 10 + (c - '0');
+				anyDigit = true;
+
+				if (fraction)
+					fractionDigits++;
+			}
+			/* Grouping separators are only allowed between digits of the integer part */
+			else if (c == groupingSeparator && !fraction && previous >= '0' && previous <= '9' && i + 1 < length)
+			{
+			}
+			else if (c == decimalSeparator && !fraction)
+			{
+				fraction = true;
+			}
+			else
+			{
+				return parseFallback(text);
+			}
+
+			previous = c;
+		}
+
+		/* Nothing but a sign or separators */
+		if (!anyDigit || mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length)
+			return parseFallback(text);
+
+		double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+
+		return negative ? -value : value;
+	}
+
+	private double parseFallback(String text) throws ParseException
+	{
+		return fallback.get().parse(text).doubleValue();
+	}
+}
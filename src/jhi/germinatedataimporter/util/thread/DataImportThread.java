@@ -17,14 +17,28 @@
 
 package jhi.germinatedataimporter.util.thread;
 
+import org.eclipse.core.runtime.*;
 import org.eclipse.jface.operation.*;
 
 import java.io.*;
 import java.text.*;
 import java.util.*;
+import java.util.logging.*;
 
+import jhi.database.server.*;
+import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.*;
 import jhi.germinatedataimporter.database.entities.*;
+import jhi.germinatedataimporter.gui.*;
+import jhi.germinatedataimporter.gui.dialog.*;
+import jhi.germinatedataimporter.gui.i18n.*;
 import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
+import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.exception.*;
+import jhi.germinatedataimporter.util.io.*;
+import jhi.germinatedataimporter.util.log.*;
+import jhi.germinatedataimporter.util.lookup.*;
+import jhi.germinatedataimporter.util.metrics.*;
 import jhi.swtcommons.util.*;
 
 /**
@@ -34,11 +48,52 @@ import jhi.swtcommons.util.*;
  */
 public abstract class DataImportThread implements IRunnableWithProgress
 {
+	/** The minimal number of rows a percentage of errors refers to if the size of the input file is unknown */
+	private static final long MIN_ROWS_FOR_PERCENTAGE = 1000;
+
 	protected InputOptions  options;
 	protected DatabaseTable table;
 
+	/** Resolves the values of {@link DatabaseColumn.Condition}s to the ids of the referenced rows */
+	protected ReferenceResolver resolver;
+
+	/** Collects the values that couldn't be resolved during the import */
+	protected UnresolvedReferenceReport unresolvedReferences = new UnresolvedReferenceReport();
+
 	protected Map<Class<?>, Boolean> exceptionsToIgnore = new HashMap<>();
 
+	/** Decides whether the import continues after a row has been rejected */
+	protected ErrorPolicy policy;
+
+	/** Receives the rows that couldn't be imported */
+	protected RejectsWriter rejects;
+
+	/** The number of rows of the input file if known, <code>-1</code> otherwise */
+	protected long totalRows = -1;
+
+	/** The number of errors so far */
+	protected long errors;
+
+	/** Decides which of the executed statements end up in the log */
+	protected StatementLogSampler sampler;
+
+	/** Throughput, stage times and statement latencies of the import */
+	protected ImportMetrics metrics;
+
+	/** The name of the {@link RowReader} that parses the input file, recorded in the {@link ImportHistory} */
+	protected String readerName;
+
+	/** The connection of the import, if it has been opened via {@link #connect()} */
+	protected volatile Database connection;
+
+	/** Set if the import has been cancelled via the {@link ImportMonitor} */
+	private volatile boolean cancelRequested;
+
+	/* The state of the throttle (see #throttle()) */
+	private long throttleStart;
+	private long throttleRows;
+	private int  throttleLimit;
+
 	/**
 	 * Creates a new instance of {@link DataImportThread}
 	 *
@@ -49,6 +104,356 @@ public abstract class DataImportThread implements IRunnableWithProgress
 	{
 		this.options = options;
 		this.table = table;
+
+		ErrorPolicy policy = (ErrorPolicy) GerminateParameterStore.getInstance().get(GerminateParameter.errorpolicy);
+		this.policy = policy == null ? ErrorPolicy.ASK : policy;
+
+		Integer first = (Integer) GerminateParameterStore.getInstance().get(GerminateParameter.sqllogfirst);
+		Integer every = (Integer) GerminateParameterStore.getInstance().get(GerminateParameter.sqllogevery);
+		this.sampler = new StatementLogSampler(first == null ? StatementLogSampler.DEFAULT_FIRST : first, every == null ? StatementLogSampler.DEFAULT_EVERY : every);
+
+		this.metrics = new ImportMetrics(table.getName(), options.file == null ? null : options.file.getName());
+	}
+
+	/**
+	 * Opens the connection of the import, which is reported by the {@link ImportMonitor}
+	 *
+	 * @return The {@link Database} connection
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	protected Database connect() throws DatabaseException
+	{
+		return connection = Database.connect();
+	}
+
+	/**
+	 * Cancels the import. The import stops before the next row, just like it does if the user presses "cancel".
+	 */
+	public void cancel()
+	{
+		cancelRequested = true;
+	}
+
+	/**
+	 * Checks if the import has been cancelled, either by the user or via {@link #cancel()}
+	 *
+	 * @param monitor The {@link IProgressMonitor}
+	 * @return <code>true</code> if the import has been cancelled
+	 */
+	protected boolean isCancelled(IProgressMonitor monitor)
+	{
+		return cancelRequested || monitor.isCanceled();
+	}
+
+	/**
+	 * Starts the {@link ImportMetrics} and makes this import the one that's shown by the {@link ImportMonitor}. Call this once {@link #totalRows}
+	 * is known.
+	 */
+	protected void startMetrics()
+	{
+		cancelRequested = false;
+		throttleStart = 0;
+
+		metrics.setExpectedRows(totalRows);
+		metrics.start();
+
+		ImportMonitor.getInstance().attach(metrics, this::cancel, () -> {
+			Database connection = this.connection;
+			return connection != null && !connection.isClosed();
+		});
+	}
+
+	/**
+	 * Waits as long as necessary to keep the import below the maximal number of rows per second of the {@link ImportMonitor}. Call this once per
+	 * row.
+	 */
+	protected void throttle()
+	{
+		int limit = ImportMonitor.getInstance().getMaxRowsPerSecond();
+
+		if (limit <= 0)
+		{
+			throttleStart = 0;
+			return;
+		}
+
+		long now = System.nanoTime();
+
+		/* Start over whenever the limit changes */
+		if (throttleStart == 0 || limit != throttleLimit)
+		{
+			throttleStart = now;
+			throttleRows = 0;
+			throttleLimit = limit;
+		}
+
+		long due = throttleStart + ++throttleRows * 1_000_000_000L / limit;
+
+		if (due > now)
+		{
+			try
+			{
+				Thread.sleep((due - now) / 1_000_000, (int) ((due - now) % 1_000_000));
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Executes a statement and records how long it took in the {@link ImportMetrics}
+	 *
+	 * @param call The {@link StatementCall} that executes the statement
+	 * @param <T>  The type of the result
+	 * @return The result of the {@link StatementCall}
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	protected <T> T runTimed(StatementCall<T> call) throws DatabaseException
+	{
+		long start = System.nanoTime();
+		ImportEvents.Span event = ImportEvents.begin(ImportEvents.Type.EXECUTE);
+
+		try
+		{
+			return call.call();
+		}
+		finally
+		{
+			metrics.recordExecute(System.nanoTime() - start);
+			event.commit(table.getName(), 1);
+		}
+	}
+
+	/**
+	 * Publishes the current {@link ImportMetrics} and shows them in the status bar. Call this whenever the progress is updated.
+	 */
+	protected void publishMetrics()
+	{
+		if (resolver != null)
+			metrics.setCache(resolver.getHits(), resolver.getMisses());
+
+		ImportMetrics.Snapshot snapshot = metrics.publish();
+
+		int percent = totalRows > 0 ? (int) Math.min(100, snapshot.rows * 100 / totalRows) : 0;
+		double hitRate = snapshot.getCacheHitRate();
+
+		GerminateDataImporter.getInstance().setStatusBar(percent, 100, RB.getString(RB.STATUS_IMPORT_METRICS, snapshot.table, snapshot.rowsPerSecond, snapshot.cellsPerSecond,
+				snapshot.executeP50 / 1e6, snapshot.executeP99 / 1e6, hitRate < 0 ? "-" : String.format("%.0f%%", hitRate), snapshot.errors));
+	}
+
+	/**
+	 * Stops the {@link ImportMetrics}, writes the summary as JSON next to the SQL log, adds the import to the {@link ImportHistory} and clears the
+	 * status bar. Only the first call has an effect.
+	 *
+	 * @param outcome The {@link ImportMetrics.Outcome} of the import
+	 */
+	protected void finishMetrics(ImportMetrics.Outcome outcome)
+	{
+		if (metrics.getSnapshot().outcome != null)
+			return;
+
+		if (resolver != null)
+			metrics.setCache(resolver.getHits(), resolver.getMisses());
+
+		ImportMetrics.Snapshot snapshot = metrics.finish(outcome);
+		ImportMonitor.getInstance().detach(metrics);
+
+		try
+		{
+			File folder = new File(SQLLogger.getInstance().getLogFile()).getParentFile();
+			ImportMetrics.writeSummary(folder, snapshot);
+		}
+		catch (IOException e)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+		}
+
+		try
+		{
+			long bytes = options.file != null && options.file.isFile() ? options.file.length() : -1;
+			ImportHistory.getInstance().append(new ImportHistory.Record(snapshot.startTime, GerminateParameterStore.getInstance().getAsString(GerminateParameter.database),
+					snapshot.table, getMode(), outcome, snapshot.rows, bytes, snapshot.elapsed / 1000000, snapshot.rowsPerSecond, snapshot.errors, readerName, policy.toString()));
+		}
+		catch (IOException e)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+		}
+
+		GerminateDataImporter.getInstance().setStatusBar(0, 0, RB.getString(RB.STATUS_IDLE));
+	}
+
+	/**
+	 * Returns the {@link ImportHistory.Mode} of this import
+	 *
+	 * @return The {@link ImportHistory.Mode} of this import
+	 */
+	protected abstract ImportHistory.Mode getMode();
+
+	/**
+	 * Resolves the given values of the given {@link DatabaseColumn.Condition} in batches (see {@link
+	 * ReferenceResolver#resolveAll(DatabaseColumn.Condition, Collection)}). This is only an optimization: if it fails, the values are resolved one by
+	 * one while the rows are imported, so that errors are handled per row like any other error.
+	 *
+	 * @param condition The {@link DatabaseColumn.Condition}
+	 * @param values    The distinct values to resolve
+	 */
+	protected void prefetchReferences(DatabaseColumn.Condition condition, Collection<String> values)
+	{
+		try
+		{
+			resolver.resolveAll(condition, values);
+		}
+		catch (DatabaseException e)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+		}
+	}
+
+	/**
+	 * Executes a statement and adds it to the {@link LogDialog} if the {@link StatementLogSampler} says so. Failed statements are always logged.
+	 * The {@link StatementText} is only rendered if the log entry is shown or written.
+	 *
+	 * @param header The header of the log entry
+	 * @param text   The {@link StatementText} of the statement
+	 * @param call   The {@link StatementCall} that executes the statement
+	 * @param <T>    The type of the result
+	 * @return The result of the {@link StatementCall}
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	protected <T> T runLogged(String header, StatementText text, StatementCall<T> call) throws DatabaseException
+	{
+		boolean logged = sampler.sample();
+
+		if (logged)
+			LogDialog.getInstance().add(header, text);
+
+		try
+		{
+			return runTimed(call);
+		}
+		catch (DatabaseException e)
+		{
+			if (!logged)
+				LogDialog.getInstance().add(header, text);
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Handles an error that occurred while importing a row. The row is copied to the {@link RejectsWriter} and the {@link ErrorPolicy} decides if
+	 * the import continues. Only {@link ErrorPolicy.Mode#ASK} involves the user (see {@link #onImportError(Exception, boolean)}), all the other
+	 * modes decide without blocking the import.
+	 *
+	 * @param e    The {@link Exception}
+	 * @param line The number of the row in the input file (the header is row 1)
+	 * @return <code>true</code> if the import should continue
+	 */
+	protected boolean handleError(Exception e, long line)
+	{
+		return handleError(e, line, null, null);
+	}
+
+	/**
+	 * Handles an error that occurred while importing a row. The row is written to the {@link RejectsWriter} and the {@link ErrorPolicy} decides
+	 * if the import continues. Only {@link ErrorPolicy.Mode#ASK} involves the user (see {@link #onImportError(Exception, boolean)}), all the other
+	 * modes decide without blocking the import.
+	 * <p>
+	 * Rows with an {@link UnresolvedReferenceException} are rejected and count towards the {@link ErrorPolicy} like any other error, but the user
+	 * isn't asked about them. They're summarized by the {@link UnresolvedReferenceReport} at the end of the import instead.
+	 *
+	 * @param e       The {@link Exception}
+	 * @param line    The number of the row in the input file (the header is row 1)
+	 * @param row     The fields to write to the {@link RejectsWriter} instead of the row as it appears in the input file (<code>null</code> to
+	 *                copy the row)
+	 * @param message The message to write to the {@link RejectsWriter} (<code>null</code> to use the message of the {@link Exception})
+	 * @return <code>true</code> if the import should continue
+	 */
+	protected boolean handleError(Exception e, long line, String[] row, String message)
+	{
+		boolean unresolved = e instanceof UnresolvedReferenceException;
+
+		/* Missing values are logged all at once by reportUnresolvedReferences() */
+		if (!unresolved)
+			ErrorLogger.getInstance().log(Level.SEVERE, e);
+
+		errors++;
+		metrics.addError();
+
+		try
+		{
+			rejects.write(line, row, message == null ? e.getLocalizedMessage() : message);
+		}
+		catch (IOException ioe)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, ioe);
+		}
+
+		switch (policy.getMode())
+		{
+			case ABORT:
+				return false;
+
+			case SKIP:
+				return true;
+
+			case LIMIT:
+				/* Percentages refer to the whole file if its size is known, otherwise to the rows so far (at least MIN_ROWS_FOR_PERCENTAGE) */
+				long rows = totalRows > 0 ? totalRows : Math.max(line - 1, MIN_ROWS_FOR_PERCENTAGE);
+				return !policy.isExceeded(errors, rows);
+
+			case ASK:
+			default:
+				if (unresolved)
+					return true;
+
+				/* Check if the user wants to ignore exceptions of this type */
+				Boolean dontAskAgain = exceptionsToIgnore.get(e.getClass());
+				if (dontAskAgain != null && dontAskAgain)
+					return true;
+				else if (dontAskAgain == null)
+					dontAskAgain = false;
+
+				/* Ask user what to do */
+				Tuple.Pair<Boolean, Boolean> shouldContinue = onImportError(e, dontAskAgain);
+
+				/* Check if user wants to ignore this exception in the future */
+				if (shouldContinue.getFirst())
+					exceptionsToIgnore.put(e.getClass(), shouldContinue.getSecond());
+
+				return shouldContinue.getFirst();
+		}
+	}
+
+	/**
+	 * Closes the {@link RejectsWriter} and passes it on to {@link #onRowsRejected(RejectsWriter)} if any rows have been rejected.
+	 */
+	protected void reportRejectedRows()
+	{
+		closeRejects();
+
+		if (rejects != null && rejects.getCount() > 0)
+			onRowsRejected(rejects);
+	}
+
+	/**
+	 * Closes the {@link RejectsWriter}. The rejected rows have been flushed already, so failures are only logged.
+	 */
+	protected void closeRejects()
+	{
+		if (rejects == null)
+			return;
+
+		try
+		{
+			rejects.close();
+		}
+		catch (IOException e)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+		}
 	}
 
 	/**
@@ -75,6 +480,36 @@ public abstract class DataImportThread implements IRunnableWithProgress
 	 */
 	public abstract void onImportCancelled(List<Long> generatedIds, int updatedIds);
 
+	/**
+	 * Logs the {@link UnresolvedReferenceReport} and passes it on to {@link #onUnresolvedReferences(UnresolvedReferenceReport)} if any values
+	 * couldn't be resolved.
+	 */
+	protected void reportUnresolvedReferences()
+	{
+		if (unresolvedReferences.isEmpty())
+			return;
+
+		ErrorLogger.getInstance().log(Level.WARNING, "Skipped " + unresolvedReferences.getSkipped() + " items with unresolved references:\n" + unresolvedReferences.format(-1));
+
+		onUnresolvedReferences(unresolvedReferences);
+	}
+
+	/**
+	 * Called at the end of the import process if items have been skipped, because their referenced values couldn't be found. This includes imports
+	 * that failed or have been cancelled.
+	 *
+	 * @param report The {@link UnresolvedReferenceReport} containing the missing values
+	 */
+	public abstract void onUnresolvedReferences(UnresolvedReferenceReport report);
+
+	/**
+	 * Called at the end of the import process if rows have been rejected. This includes imports that failed or have been cancelled, before {@link
+	 * #onImportFailed(List, int, Exception)} or {@link #onImportCancelled(List, int)} is called.
+	 *
+	 * @param rejects The {@link RejectsWriter} containing the rejected rows
+	 */
+	public abstract void onRowsRejected(RejectsWriter rejects);
+
 	/**
 	 * Called when the import process has finished with the generated ids of imported data items.
 	 *
@@ -0,0 +1,420 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.thread;
+
+import org.eclipse.core.runtime.*;
+import org.eclipse.jface.operation.*;
+import org.eclipse.swt.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
+import java.util.regex.*;
+
+import jhi.database.server.*;
+import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.entities.*;
+import jhi.germinatedataimporter.database.entities.DatabaseColumn.*;
+import jhi.germinatedataimporter.gui.*;
+import jhi.germinatedataimporter.gui.i18n.*;
+import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
+import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.io.*;
+import jhi.germinatedataimporter.util.log.*;
+import jhi.germinatedataimporter.util.lookup.*;
+import jhi.germinatedataimporter.util.parse.*;
+import jhi.germinatedataimporter.util.validation.*;
+import jhi.swtcommons.util.*;
+
+/**
+ * {@link DataValidationThread} implements {@link IRunnableWithProgress} and is a thread that checks the whole input file against the mapping without
+ * writing anything to the database. The file is read in chunks and the cells of each chunk are checked on the {@link ForkJoinPool#commonPool()},
+ * while the next chunk is being read. The referenced values of each chunk are then resolved with one query per {@link Condition} (see {@link
+ * ReferenceResolver#resolveAll(Condition, Collection)}) on this thread, since the {@link ReferenceResolver} isn't thread-safe.
+ * <p>
+ * All problems are written to a {@link ValidationReport} next to the input file, ordered by line number.
+ *
+ * @author Sebastian Raubach
+ */
+public abstract class DataValidationThread implements IRunnableWithProgress
+{
+	/** The approximate number of cells per chunk */
+	private static final int CHUNK_CELLS = 1 << 18;
+
+	/*
+	 * Values of decimal and date columns without options are passed on to the database as they are, so they only have to be in a format MySQL
+	 * accepts. Dates may use any punctuation as delimiter and leave out leading zeros (2017-1-1, 2017/01/01) or all delimiters (20170101), the time
+	 * may leave out the seconds and can be separated by a 'T'.
+	 */
+	private static final Pattern DECIMAL      = Pattern.compile("\\s*[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?\\s*");
+	private static final Pattern DATE         = Pattern.compile("(\\d{4}|\\d{2})\\p{Punct}(\\d{1,2})\\p{Punct}(\\d{1,2})(?:[ T]+(\\d{1,2})(?:\\p{Punct}(\\d{1,2})(?:\\p{Punct}(\\d{1,2})(?:\\.\\d{1,6})?)?)?)?");
+	private static final Pattern DATE_COMPACT = Pattern.compile("(\\d{4}|\\d{2})(\\d{2})(\\d{2})(?:(\\d{2})(\\d{2})(\\d{2})(?:\\.\\d{1,6})?)?");
+
+	protected InputOptions      options;
+	protected ReferenceResolver resolver;
+	protected String[]          headers;
+
+	/**
+	 * Creates a new instance of {@link DataValidationThread}
+	 *
+	 * @param options The {@link InputOptions}s
+	 */
+	public DataValidationThread(InputOptions options)
+	{
+		this.options = options;
+	}
+
+	@Override
+	public final void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException
+	{
+		/* Ensure there is a monitor of some sort */
+		if (monitor == null)
+			monitor = new NullProgressMonitor();
+
+		ImportProgress progress = new ImportProgress(monitor, options);
+		progress.begin(RB.getString(RB.DIALOG_VALIDATION_PROGRESS_TITLE));
+		monitor.subTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_REFERENCES));
+
+		Database database = null;
+		RowReader reader = null;
+		ValidationReport report = null;
+		Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+
+		try
+		{
+			/* Load the small referenced tables into memory */
+			database = Database.connect();
+			resolver = new ReferenceResolver(database);
+			resolver.prepare(getConditions());
+
+			Boolean trimCells = (Boolean) GerminateParameterStore.getInstance().get(GerminateParameter.removetrailingspaces);
+
+			reader = RowReaders.open(options, trimCells != null && trimCells);
+			report = new ValidationReport(ValidationReport.getReportFile(options.file));
+
+			headers = reader.next(null);
+			if (headers == null)
+				headers = new String[0];
+
+			/* The header row is line 1 */
+			List<ValidationError> headerErrors = new ArrayList<>();
+			reader.setProjection(prepare(headers, headerErrors));
+			report.add(headerErrors);
+
+			int chunkSize = Math.max(1, CHUNK_CELLS / Math.max(headers.length, 1));
+			int maxInFlight = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+			long rowCount = 0;
+
+			while (true)
+			{
+				/* Check if the user pressed "cancel" */
+				if (monitor.isCanceled())
+				{
+					inFlight.forEach(future -> future.cancel(false));
+					monitor.done();
+
+					GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
+
+					return;
+				}
+
+				/* Read the next chunk. The arrays can't be reused, since the previous chunks are still being checked */
+				List<String[]> rows = new ArrayList<>(chunkSize);
+				long[] lines = new long[chunkSize];
+				String[] parts;
+				while (rows.size() < chunkSize && (parts = reader.next(null)) != null)
+				{
+					/* Quoted fields can contain line breaks, so ask the reader where the row starts */
+					lines[rows.size()] = reader.getLine();
+					rows.add(parts);
+				}
+
+				if (rows.isEmpty())
+					break;
+
+				Chunk chunk = new Chunk(lines, rows);
+				rowCount += rows.size();
+
+				inFlight.add(ForkJoinPool.commonPool().submit(() -> validate(chunk)));
+
+				/* Wait for the oldest chunk if enough are on their way */
+				if (inFlight.size() >= maxInFlight)
+					finish(inFlight.poll(), report);
+
+				if (progress.isDue())
+					progress.update(rowCount, RB.getString(RB.DIALOG_VALIDATION_PROGRESS_ROW, rowCount));
+			}
+
+			while (!inFlight.isEmpty())
+				finish(inFlight.poll(), report);
+
+			report.close();
+
+			/* Don't leave an empty report behind */
+			if (report.isEmpty())
+				report.getFile().delete();
+
+			/* Remember the resolved references for the import */
+			resolver.persist();
+
+			monitor.done();
+			GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
+
+			onValidationFinished(report);
+		}
+		catch (DatabaseException | IOException | ExecutionException e)
+		{
+			inFlight.forEach(future -> future.cancel(false));
+
+			Exception cause = e;
+			if (e instanceof ExecutionException && e.getCause() instanceof Exception)
+				cause = (Exception) e.getCause();
+
+			ErrorLogger.getInstance().log(Level.SEVERE, cause);
+
+			monitor.done();
+			GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
+
+			onValidationFailed(cause);
+		}
+		finally
+		{
+			close(reader);
+			close(report);
+
+			/* Remember to close the database connection used for the lookups */
+			if (database != null)
+				database.close();
+		}
+	}
+
+	private static void close(Closeable closeable)
+	{
+		if (closeable == null)
+			return;
+
+		try
+		{
+			closeable.close();
+		}
+		catch (IOException e)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+		}
+	}
+
+	/**
+	 * Checks the cells of the given {@link Chunk}. This runs on the {@link ForkJoinPool#commonPool()}.
+	 *
+	 * @param chunk The {@link Chunk}
+	 * @return The {@link Chunk}
+	 */
+	private Chunk validate(Chunk chunk)
+	{
+		for (int i = 0; i < chunk.rows.size(); i++)
+			validate(chunk.rows.get(i), chunk.lines[i], chunk.errors, chunk.references);
+
+		return chunk;
+	}
+
+	/**
+	 * Waits for the given {@link Chunk}, resolves its referenced values and adds its {@link ValidationError}s to the {@link ValidationReport}
+	 *
+	 * @param future The {@link Future} of the {@link Chunk}
+	 * @param report The {@link ValidationReport}
+	 */
+	private void finish(Future<Chunk> future, ValidationReport report) throws DatabaseException, IOException, ExecutionException, InterruptedException
+	{
+		Chunk chunk = future.get();
+
+		for (Map.Entry<Condition, Set<String>> entry : chunk.references.entrySet())
+			resolver.resolveAll(entry.getKey(), entry.getValue());
+
+		for (int i = 0; i < chunk.rows.size(); i++)
+			checkReferences(chunk.rows.get(i), chunk.lines[i], chunk.errors);
+
+		/* The sort is stable, so the errors of one line stay in column order */
+		chunk.errors.sort(Comparator.comparingLong(ValidationError::getLine));
+
+		report.addRows(chunk.rows.size());
+		report.add(chunk.errors);
+	}
+
+	/**
+	 * Checks a value that's passed on to the database as it is against the {@link DatabaseColumn}, i.e. empty values have to be allowed and decimal
+	 * and date values have to be in a format the database accepts
+	 *
+	 * @param column The {@link DatabaseColumn}
+	 * @param name   The name of the input column
+	 * @param value  The value
+	 * @param line   The line number
+	 * @param errors The {@link List} to add the {@link ValidationError} to
+	 */
+	protected static void checkValue(DatabaseColumn column, String name, String value, long line, List<ValidationError> errors)
+	{
+		if (StringUtils.isEmpty(value))
+		{
+			if (Boolean.FALSE.equals(column.getCanBeNull()))
+				errors.add(new ValidationError(line, name, value, "Empty value, but " + column.getName() + " cannot be null"));
+		}
+		else if (column.isDecimal())
+		{
+			if (!DECIMAL.matcher(value).matches())
+				errors.add(new ValidationError(line, name, value, "Not a decimal number"));
+		}
+		else if (column.isDate())
+		{
+			if (!isDate(value))
+				errors.add(new ValidationError(line, name, value, "Not a date (e.g. yyyy-MM-dd or yyyy-MM-dd HH:mm:ss)"));
+		}
+	}
+
+	/**
+	 * Checks if MySQL accepts the given value as a date or datetime, i.e. if it matches {@link #DATE} or {@link #DATE_COMPACT} and all parts are in
+	 * their range
+	 */
+	private static boolean isDate(String value)
+	{
+		value = value.trim();
+
+		Matcher matcher = DATE.matcher(value);
+		if (!matcher.matches())
+		{
+			matcher = DATE_COMPACT.matcher(value);
+			if (!matcher.matches())
+				return false;
+		}
+
+		return inRange(matcher.group(2), 1, 12) && inRange(matcher.group(3), 1, 31) && inRange(matcher.group(4), 0, 23) && inRange(matcher.group(5), 0, 59)
+				&& inRange(matcher.group(6), 0, 59);
+	}
+
+	private static boolean inRange(String part, int min, int max)
+	{
+		if (part == null)
+			return true;
+
+		int value = Integer.parseInt(part);
+		return value >= min && value <= max;
+	}
+
+	/**
+	 * Checks if the given value of the given {@link Condition} has been resolved
+	 *
+	 * @param condition The {@link Condition}
+	 * @param name      The name of the input column
+	 * @param value     The value
+	 * @param line      The line number
+	 * @param errors    The {@link List} to add the {@link ValidationError} to
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	protected void checkReference(Condition condition, String name, String value, long line, List<ValidationError> errors) throws DatabaseException
+	{
+		if (resolver.resolve(condition, value) == ReferenceLookup.NOT_FOUND)
+			errors.add(new ValidationError(line, name, value, "Not found in " + condition.getTable().getName() + "." + condition.getColumn().getName()));
+	}
+
+	/**
+	 * Remembers the given value of the given {@link Condition}, so that it's resolved together with the other values of the chunk
+	 *
+	 * @param references The values of the chunk by {@link Condition}
+	 * @param condition  The {@link Condition}
+	 * @param value      The value
+	 */
+	protected static void addReference(Map<Condition, Set<String>> references, Condition condition, String value)
+	{
+		references.computeIfAbsent(condition, c -> new HashSet<>()).add(value);
+	}
+
+	/**
+	 * Returns the {@link Condition}s used by the mapping. <code>null</code> items are ignored.
+	 *
+	 * @return The {@link Condition}s used by the mapping
+	 */
+	protected abstract List<Condition> getConditions();
+
+	/**
+	 * Prepares the validation based on the header row of the input file. Problems with the headers themselves are reported for line 1.
+	 *
+	 * @param headers The header row
+	 * @param errors  The {@link List} to add the {@link ValidationError}s of the header row to
+	 * @return The columns that have to be extracted from the input file (see {@link RowReader#setProjection(boolean[])})
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	protected abstract boolean[] prepare(String[] headers, List<ValidationError> errors) throws DatabaseException;
+
+	/**
+	 * Checks the cells of one row that don't require the database and collects the values that have to be resolved. This is called from several
+	 * threads at the same time, so implementations mustn't change any state.
+	 *
+	 * @param row        The row
+	 * @param line       The line number of the row
+	 * @param errors     The {@link List} to add the {@link ValidationError}s to
+	 * @param references The values to resolve by {@link Condition} (see {@link #addReference(Map, Condition, String)})
+	 */
+	protected abstract void validate(String[] row, long line, List<ValidationError> errors, Map<Condition, Set<String>> references);
+
+	/**
+	 * Checks if the referenced values of one row can be resolved. The values collected by {@link #validate(String[], long, List, Map)} have already
+	 * been resolved, so {@link ReferenceResolver#resolve(Condition, String)} doesn't have to query the database.
+	 *
+	 * @param row    The row
+	 * @param line   The line number of the row
+	 * @param errors The {@link List} to add the {@link ValidationError}s to
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 */
+	protected abstract void checkReferences(String[] row, long line, List<ValidationError> errors) throws DatabaseException;
+
+	/**
+	 * Called when the validation has finished
+	 *
+	 * @param report The {@link ValidationReport}
+	 */
+	public abstract void onValidationFinished(ValidationReport report);
+
+	/**
+	 * Called when the validation couldn't be completed
+	 *
+	 * @param e The {@link Exception}
+	 */
+	public abstract void onValidationFailed(Exception e);
+
+	/**
+	 * {@link Chunk} is a consecutive block of rows of the input file together with the lines they start in, their {@link ValidationError}s and
+	 * referenced values
+	 *
+	 * @author Sebastian Raubach
+	 */
+	private static class Chunk
+	{
+		private final long[]                      lines;
+		private final List<String[]>              rows;
+		private final List<ValidationError>       errors     = new ArrayList<>();
+		private final Map<Condition, Set<String>> references = new HashMap<>();
+
+		private Chunk(long[] lines, List<String[]> rows)
+		{
+			this.lines = lines;
+			this.rows = rows;
+		}
+	}
+}
@@ -24,6 +24,7 @@ import jhi.germinatedataimporter.database.entities.*;
 import jhi.germinatedataimporter.gui.*;
 import jhi.germinatedataimporter.gui.i18n.*;
 import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.metrics.*;
 
 /**
  * {@link DatabaseTableScanThread} scans all {@link DatabaseTable}s and calls their {@link DatabaseTable#getColumns()} and {@link
@@ -75,8 +76,10 @@ public class DatabaseTableScanThread extends Thread
 			try
 			{
 				GerminateDataImporter.getInstance().setStatusBar(counter++, tables.size(), RB.getString(RB.STATUS_UPDATING_TABLE_SIZE, table.getName()));
+				ImportEvents.Span event = ImportEvents.begin(ImportEvents.Type.SCAN);
 				table.getColumns();
 				table.refresh();
+				event.commit(table.getName(), table.getSize());
 			}
 			catch (DatabaseException e)
 			{
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.thread;
+
+import org.eclipse.core.runtime.*;
+import org.eclipse.swt.*;
+
+import java.util.concurrent.*;
+
+import jhi.germinatedataimporter.gui.*;
+import jhi.germinatedataimporter.gui.i18n.*;
+import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
+import jhi.germinatedataimporter.util.io.*;
+
+/**
+ * {@link ImportProgress} reports the progress of an import to the {@link IProgressMonitor} and the task bar. If the input file has been pre-scanned
+ * (see {@link InputPreScanThread}), the number of rows is known and the progress is determinate, including an estimate of the remaining time.
+ * Otherwise it's indeterminate like before. Updates are limited to ten per second.
+ *
+ * @author Sebastian Raubach
+ */
+class ImportProgress
+{
+	private static final int  TOTAL_WORK      = 1000;
+	private static final long UPDATE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/** Lists grow cheaply, so don't reserve memory for rows that may never be imported */
+	private static final int MAX_INITIAL_CAPACITY = 1 << 12;
+
+	private final IProgressMonitor monitor;
+	private final InputStatistics  statistics;
+	private final long             totalRows;
+
+	private long    start;
+	private long    lastUpdate;
+	private boolean updated = false;
+	private int     worked  = 0;
+
+	/**
+	 * Creates a new instance of {@link ImportProgress}
+	 *
+	 * @param monitor The {@link IProgressMonitor}
+	 * @param options The {@link InputOptions} (with or without {@link InputStatistics})
+	 */
+	ImportProgress(IProgressMonitor monitor, InputOptions options)
+	{
+		this.monitor = monitor;
+
+		InputStatistics statistics = options.statistics;
+		this.statistics = (statistics != null && statistics.matches(options)) ? statistics : null;
+		this.totalRows = this.statistics != null ? this.statistics.getRows() : -1;
+	}
+
+	/**
+	 * Returns the {@link InputStatistics} of the input file or <code>null</code> if they are unknown
+	 *
+	 * @return The {@link InputStatistics} of the input file or <code>null</code> if they are unknown
+	 */
+	InputStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	/**
+	 * Returns the number of data rows of the input file or <code>-1</code> if it's unknown
+	 *
+	 * @return The number of data rows of the input file or <code>-1</code> if it's unknown
+	 */
+	long getTotalRows()
+	{
+		return totalRows;
+	}
+
+	/**
+	 * Returns a suitable initial capacity for a list that will hold the given number of elements per row of the input file. It's at most {@link
+	 * #MAX_INITIAL_CAPACITY}, the list grows as the rows are imported.
+	 *
+	 * @param perRow The number of elements per row
+	 * @return A suitable initial capacity
+	 */
+	int getInitialCapacity(long perRow)
+	{
+		if (totalRows <= 0)
+			return 10;
+		else
+			return (int) Math.min(totalRows * perRow, MAX_INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Starts the task
+	 */
+	void begin()
+	{
+		begin(RB.getString(RB.DIALOG_IMPORT_PROGRESS_TITLE));
+	}
+
+	/**
+	 * Starts the task with the given title
+	 *
+	 * @param title The title of the task
+	 */
+	void begin(String title)
+	{
+		if (totalRows > 0)
+		{
+			monitor.beginTask(title, TOTAL_WORK);
+			GerminateDataImporter.getInstance().setTaskBarProgress(SWT.NORMAL, 0);
+		}
+		else
+		{
+			monitor.beginTask(title, IProgressMonitor.UNKNOWN);
+			GerminateDataImporter.getInstance().setTaskBarProgress(SWT.INDETERMINATE, 0);
+		}
+
+		start = System.nanoTime();
+	}
+
+	/**
+	 * Checks if it's time for the next update. The remaining time is estimated from the time since the first call of this method.
+	 *
+	 * @return <code>true</code> if it's time for the next update
+	 */
+	boolean isDue()
+	{
+		long now = System.nanoTime();
+
+		if (!updated)
+		{
+			start = now;
+			lastUpdate = now;
+			updated = true;
+			return true;
+		}
+		else if (now - lastUpdate >= UPDATE_INTERVAL)
+		{
+			lastUpdate = now;
+			return true;
+		}
+		else
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Reports the progress
+	 *
+	 * @param row     The current row (starting at 1)
+	 * @param message The message describing the current step
+	 */
+	void update(long row, String message)
+	{
+		if (totalRows <= 0)
+		{
+			monitor.subTask(message);
+			return;
+		}
+
+		double done = Math.min(1, (row - 1) / (double) totalRows);
+
+		int work = (int) (done * TOTAL_WORK);
+		if (work > worked)
+		{
+			monitor.worked(work - worked);
+			worked = work;
+			GerminateDataImporter.getInstance().setTaskBarProgress(SWT.NORMAL, (int) (done * 100));
+		}
+
+		String remaining;
+		if (row > 1)
+		{
+			long seconds = (long) ((System.nanoTime() - start) / 1e9 / (row - 1) * Math.max(totalRows - row + 1, 0));
+			remaining = String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+		}
+		else
+		{
+			remaining = "-";
+		}
+
+		monitor.subTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_ETA, message, (int) (done * 100), remaining));
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.thread;
+
+import java.io.*;
+import java.util.function.*;
+import java.util.logging.*;
+
+import jhi.germinatedataimporter.gui.*;
+import jhi.germinatedataimporter.gui.i18n.*;
+import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
+import jhi.germinatedataimporter.util.io.*;
+import jhi.germinatedataimporter.util.log.*;
+
+/**
+ * {@link InputPreScanThread} scans the input file in the background as soon as it has been selected. The resulting {@link InputStatistics} are
+ * stored in the {@link InputOptions}, so that the import threads can show determinate progress.
+ *
+ * @author Sebastian Raubach
+ */
+public class InputPreScanThread extends Thread
+{
+	private final InputOptions              options;
+	private final Consumer<InputStatistics> callback;
+
+	/**
+	 * Creates a new instance of {@link InputPreScanThread}
+	 *
+	 * @param options  The {@link InputOptions}
+	 * @param callback Called with the {@link InputStatistics} once the scan has finished (not called if the scan fails or is interrupted)
+	 */
+	public InputPreScanThread(InputOptions options, Consumer<InputStatistics> callback)
+	{
+		super("InputPreScanThread");
+		this.options = options;
+		this.callback = callback;
+		setDaemon(true);
+	}
+
+	@Override
+	public void run()
+	{
+		/* Take a copy, the options may change while we're scanning */
+		InputOptions copy = new InputOptions();
+		copy.file = options.file;
+		copy.separator = options.separator;
+		copy.locale = options.locale;
+
+		String name = copy.file.getName();
+		long size = copy.file.length();
+		GerminateDataImporter.getInstance().setStatusBar(0, 0, RB.getString(RB.STATUS_SCANNING_INPUT_FILE, name));
+
+		try
+		{
+			InputStatistics statistics = InputScanner.scan(copy, bytes -> GerminateDataImporter.getInstance().setStatusBar((int) (bytes * 100 / Math.max(size, 1)), 100, RB.getString(RB.STATUS_SCANNING_INPUT_FILE, name)));
+
+			if (statistics != null)
+				callback.accept(statistics);
+		}
+		catch (IOException e)
+		{
+			ErrorLogger.getInstance().log(Level.WARNING, e);
+		}
+		finally
+		{
+			GerminateDataImporter.getInstance().setStatusBar(0, 0, RB.getString(RB.STATUS_IDLE));
+		}
+	}
+}
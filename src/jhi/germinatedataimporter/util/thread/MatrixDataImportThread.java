@@ -29,8 +29,10 @@ import java.util.*;
 import java.util.logging.*;
 import java.util.regex.*;
 
+import jhi.database.server.*;
 import jhi.database.server.query.*;
 import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.*;
 import jhi.germinatedataimporter.database.entities.*;
 import jhi.germinatedataimporter.database.entities.DatabaseColumn.*;
 import jhi.germinatedataimporter.gui.*;
@@ -40,16 +42,30 @@ import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
 import jhi.germinatedataimporter.gui.widget.MatrixColumnMapperRow.*;
 import jhi.germinatedataimporter.util.*;
 import jhi.germinatedataimporter.util.exception.*;
+import jhi.germinatedataimporter.util.io.*;
 import jhi.germinatedataimporter.util.log.*;
+import jhi.germinatedataimporter.util.lookup.*;
+import jhi.germinatedataimporter.util.metrics.*;
 import jhi.swtcommons.util.*;
 
 /**
  * {@link MatrixDataImportThread} implements {@link IRunnableWithProgress} and is a thread that imports the data into the database.
+ * <p>
+ * Every cell is a database row, but errors are handled per input row: a row is rejected at most once and the {@link ErrorPolicy} counts it as a
+ * single error. Rows with a cell that can't be parsed are rejected before any of their cells is inserted. If inserting some of the cells of a row
+ * fails or some of their referenced values can't be found, the other cells are still inserted and kept, and they are removed from the rejected
+ * row.
  *
  * @author Sebastian Raubach
  */
 public abstract class MatrixDataImportThread extends DataImportThread
 {
+	/** The number of input rows whose references are resolved together */
+	private static final int CHUNK_SIZE = 1000;
+
+	/** Marks the cells of a row that have been imported */
+	private static final Object[] IMPORTED = new Object[0];
+
 	private List<MatrixColumnMapperRowDTO> mapping;
 
 	/**
@@ -65,6 +81,12 @@ public abstract class MatrixDataImportThread extends DataImportThread
 		this.mapping = mapping;
 	}
 
+	@Override
+	protected ImportHistory.Mode getMode()
+	{
+		return ImportHistory.Mode.MATRIX;
+	}
+
 	@Override
 	public final void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException
 	{
@@ -72,10 +94,9 @@ public abstract class MatrixDataImportThread extends DataImportThread
 		if (monitor == null)
 			monitor = new NullProgressMonitor();
 
-		GerminateDataImporter.getInstance().setTaskBarProgress(SWT.INDETERMINATE, 0);
-
         /* Tell the user what you are doing */
-		monitor.beginTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_TITLE), IProgressMonitor.UNKNOWN);
+		ImportProgress progress = new ImportProgress(monitor, options);
+		progress.begin();
 		monitor.subTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_PREPARATION));
 
 		if (mapping == null || mapping.size() < 1)
@@ -99,18 +120,9 @@ public abstract class MatrixDataImportThread extends DataImportThread
         /* Now create placeholders or sub-queries or constants */
 		for (int i = 0; i < mapping.size(); i++)
 		{
-			/* If there is a condition, add the sub-query to get the appropriate
-			 * id */
-			if (mapping.get(i).keyCondition != null)
-			{
-				Condition cond = mapping.get(i).keyCondition;
-				builder.append(String.format(SQLUtils.SELECT_SUBQUERY, cond.getTable().getName(), cond.getColumn().getName()));
-			}
-			/* Otherwise, just add the content itself */
-			else
-			{
-				builder.append("?");
-			}
+			/* Add a placeholder, values of conditions are resolved to the
+			 * referenced id before they're bound */
+			builder.append("?");
 
 			if (i < mapping.size() - 1)
 				builder.append(", ");
@@ -120,221 +132,437 @@ public abstract class MatrixDataImportThread extends DataImportThread
 
 		String theQuery = builder.toString();
 
-		List<Long> generatedIds = new ArrayList<>();
+		/* Every cell except for the row identifier is one database row */
+		InputStatistics statistics = progress.getStatistics();
+		List<Long> generatedIds = new ArrayList<>(progress.getInitialCapacity(statistics != null ? Math.max(statistics.getColumns() - 1, 1) : 1));
 		int updatedIds = 0;
+		unresolvedReferences = new UnresolvedReferenceReport();
+		totalRows = progress.getTotalRows();
+		errors = 0;
+		startMetrics();
+
+		Database database = null;
 
 		try
 		{
-			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(options.file), "UTF8"));
+			Boolean trimCells = (Boolean) GerminateParameterStore.getInstance().get(GerminateParameter.removetrailingspaces);
+
+			RowReader reader = RowReaders.open(options, trimCells != null && trimCells);
+			readerName = reader.getClass().getSimpleName();
 
             /* Skip the first line (headers) */
-			String line = br.readLine();
-			String[] headers = line.split(options.separator.getSeparator(), -1);
+			String[] headers = reader.next(null);
+
+			/* A matrix needs the column of row identifiers and at least one column of values */
+			if (headers == null || headers.length < 2)
+				throw new IOException(RB.getString(RB.ERROR_FILE_NO_DATA));
+
+			rejects = new RejectsWriter(options.file, options.separator);
 
 			long rowCounter = 1l;
 			long cellCounter = 1l;
 
-			Boolean trimCells = (Boolean) GerminateParameterStore.getInstance().get(GerminateParameter.removetrailingspaces);
+			/* Load the small referenced tables into memory */
+			monitor.subTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_REFERENCES));
+			List<Condition> conditions = new ArrayList<>();
+			for (MatrixColumnMapperRowDTO dto : mapping)
+				conditions.add(dto.keyCondition);
+			database = connect();
+			resolver = new ReferenceResolver(database, table);
+			resolver.prepare(conditions);
 
-			while ((line = br.readLine()) != null)
+			List<String[]> chunk = new ArrayList<>(CHUNK_SIZE);
+
+			while (true)
 			{
-				try
+				/* Read the next chunk of rows */
+				long parseStart = System.nanoTime();
+				ImportEvents.Span parseEvent = ImportEvents.begin(ImportEvents.Type.PARSE);
+				int rows = 0;
+				while (rows < CHUNK_SIZE)
 				{
-					monitor.subTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_DATUM, rowCounter++, cellCounter));
+					/* Reuse the field arrays of the previous chunk */
+					String[] parts = reader.next(rows < chunk.size() ? chunk.get(rows) : null);
 
-					String[] parts = line.split(options.separator.getSeparator(), -1);
+					if (parts == null)
+						break;
 
-					if (trimCells != null && trimCells)
-					{
-						for (int i = 0; i < parts.length; i++)
-						{
-							if (parts[i] != null)
-								parts[i] = parts[i].trim();
-						}
-					}
+					if (rows < chunk.size())
+						chunk.set(rows, parts);
+					else
+						chunk.add(parts);
+
+					rows++;
+				}
+
+				metrics.addParse(System.nanoTime() - parseStart);
+				parseEvent.commit(table.getName(), rows);
+
+				if (rows == 0)
+				{
+					/* There's nothing but the header */
+					if (rowCounter == 1)
+						throw new IOException(RB.getString(RB.ERROR_FILE_NO_DATA));
+
+					break;
+				}
 
-					if (parts.length != headers.length)
-						throw new InvalidColumnNumberException("Columns found: " + parts.length + ". Columns expected: " + headers.length);
+				/* Resolve the ids of the column headers once */
+				if (rowCounter == 1)
+				{
+					ImportEvents.Span headerEvent = ImportEvents.begin(ImportEvents.Type.RESOLVE);
+					resolveReferences(MatrixSourceElement.COL_ID, Arrays.asList(headers).subList(1, headers.length));
+					headerEvent.commit(table.getName(), headers.length - 1);
+				}
 
-					String rowIdent = parts[0];
+				/* Resolve the referenced ids of all rows of this chunk at once */
+				long resolveStart = System.nanoTime();
+				ImportEvents.Span resolveEvent = ImportEvents.begin(ImportEvents.Type.RESOLVE);
+				resolveReferences(chunk.subList(0, rows));
+				metrics.addResolve(System.nanoTime() - resolveStart);
+				resolveEvent.commit(table.getName(), rows);
+
+				for (String[] parts : chunk.subList(0, rows))
+				{
+					/* The first error of the row and what to write to the rejects file, if the row has only partially been imported */
+					Exception error = null;
+					String[] rejected = null;
+					String message = null;
 
-					outer:
-					for (int col = 1; col < headers.length; col++)
+					try
 					{
-						/* Check if the user pressed "cancel" */
-						if (monitor.isCanceled())
+						if (progress.isDue())
 						{
-							monitor.done();
-							br.close();
+							progress.update(rowCounter, RB.getString(RB.DIALOG_IMPORT_PROGRESS_DATUM, rowCounter, cellCounter));
+							publishMetrics();
+						}
+						rowCounter++;
+						throttle();
+						metrics.addRows(1);
 
-							GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
-							onImportCancelled(generatedIds, updatedIds);
+						if (parts.length != headers.length)
+							throw new InvalidColumnNumberException("Columns found: " + parts.length + ". Columns expected: " + headers.length);
 
-							return;
-						}
+						/* Bind all cells before inserting any of them, so a row with an invalid cell is rejected without leaving parts of it behind */
+						List<UnresolvedReferenceException> unresolved = new ArrayList<>();
+						Object[][] cells = bindCells(headers, parts, unresolved);
 
-						String colIdent = headers[col];
+						int imported = 0;
+						int failed = unresolved.size();
 
-						ValueQuery query = new ValueQuery(theQuery);
+						/* Cells with missing values are rejected like cells that fail */
+						if (!unresolved.isEmpty())
+							error = unresolved.get(0);
 
-                        /* Iterate over all selected DatabaseColumns */
-						for (MatrixColumnMapperRowDTO dto : mapping)
+						for (int col = 1; col < headers.length; col++)
 						{
-							try
-							{
-								String value = null;
+							Object[] values = cells[col];
 
-                                /* If it's not a predefined mapping */
-								if (dto.element == null)
-								{
-									value = dto.manualEntry;
-								}
-								else
-								{
-									switch (dto.element)
-									{
-										case COL_ID:
-											value = colIdent;
-											break;
-
-										case ROW_ID:
-											value = rowIdent;
-											break;
-
-										case VALUE:
-											/* Ignore empty cells */
-											if (StringUtils.isEmpty(parts[col]))
-											{
-												query.closeDatabase();
-												continue outer;
-											}
-											/* Process the regex */
-											else if (dto.regex != null)
-											{
-												Matcher m = dto.regex.matcher(parts[col]);
-
-												if (m.find())
-													value = m.group();
-												else
-													throw new ParseException("Regex '" + dto.regex.toString() + "' didn't find a match in: '" + parts[col] + "'.");
-											}
-											/* Process manual entry */
-											else if (!StringUtils.isEmpty(dto.manualEntry))
-											{
-												value = dto.manualEntry;
-											}
-											/* Just copy the value */
-											else
-											{
-												value = parts[col];
-											}
-											break;
-									}
-								}
+							if (values == null)
+								continue;
 
-                                /* Either set or nullify */
-								if (StringUtils.isEmpty(value))
-									query.setNull(Types.VARCHAR);
-								else
-									query.setString(value);
-							}
-							catch (ParseException | NumberFormatException e)
+							/* Check if the user pressed "cancel" */
+							if (isCancelled(monitor))
 							{
-								ErrorLogger.getInstance().log(Level.SEVERE, e);
+								monitor.done();
+								reader.close();
 
-                                /* Check if the user wants to ignore exceptions
-								 * of this type */
-								Boolean dontAskAgain = exceptionsToIgnore.get(e.getClass());
-								if (dontAskAgain != null && dontAskAgain)
-									continue;
-								else if (dontAskAgain == null)
-									dontAskAgain = false;
+								GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
+								resolver.persist();
+								finishMetrics(ImportMetrics.Outcome.CANCELLED);
+								reportUnresolvedReferences();
+								reportRejectedRows();
+								onImportCancelled(generatedIds, updatedIds);
 
-                                /* Ask user what to do */
-								Tuple.Pair<Boolean, Boolean> shouldContinue = onImportError(e, dontAskAgain);
+								return;
+							}
 
-                                /* If user doesn't want to continue, fail */
-								if (!shouldContinue.getFirst())
-								{
-									GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
-									onImportFailed(generatedIds, updatedIds, e);
-									br.close();
-									e.printStackTrace();
+							if (progress.isDue())
+							{
+								progress.update(rowCounter - 1, RB.getString(RB.DIALOG_IMPORT_PROGRESS_DATUM, rowCounter, cellCounter));
+								publishMetrics();
+							}
+							cellCounter++;
+							metrics.addCells(1);
 
-									/* Remember to close the database connection */
-									query.closeDatabase();
+							try
+							{
+								metrics.beginStatement();
+								ValueQuery query = new ValueQuery(theQuery);
 
-									return;
-								}
-								else
+								for (Object value : values)
 								{
-                                    /* Else check if user wants to ignore this
-                                     * exception in the future */
-									exceptionsToIgnore.put(e.getClass(), shouldContinue.getSecond());
-
-									continue;
+									if (value == null)
+										query.setNull(Types.VARCHAR);
+									else if (value instanceof Long)
+										query.setLong((Long) value);
+									else
+										query.setString((String) value);
 								}
+
+                                /* Execute and store the generated ids */
+								StatementText text = new StatementText(theQuery, values, values.length);
+								generatedIds.addAll(runLogged(RB.getString(RB.DIALOG_LOG_INSERT), text, () -> StatementStatistics.getInstance().execute(theQuery, () -> text, query::execute)));
+								metrics.endStatement();
+
+								cells[col] = IMPORTED;
+								imported++;
+							}
+							catch (DatabaseException e)
+							{
+								/* Carry on with the other cells, the row is rejected once they're done */
+								if (error == null)
+									error = e;
+								failed++;
 							}
 						}
 
-						monitor.subTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_DATUM, rowCounter, cellCounter++));
-
-						LogDialog.getInstance().add(RB.getString(RB.DIALOG_LOG_INSERT), query.getStringRepresentation());
+						/*
+						 * The cells that have been imported stay in the database. They're removed from the rejected row, so that importing the rejects file
+						 * again only inserts the cells that failed. Empty cells are ignored by the import.
+						 */
+						if (failed > 0 && imported > 0)
+						{
+							rejected = parts.clone();
+							for (int col = 1; col < headers.length; col++)
+							{
+								if (cells[col] == IMPORTED)
+									rejected[col] = "";
+							}
 
-                        /* Execute and store the generated ids */
-						generatedIds.addAll(query.execute());
+							message = RB.getString(RB.WARNING_IMPORT_REJECTED_PARTIAL, imported, imported + failed, error.getLocalizedMessage());
+						}
 					}
-				}
-				catch (DatabaseException | InvalidColumnNumberException e)
-				{
-					ErrorLogger.getInstance().log(Level.SEVERE, e);
-                    
-                    /* Check if the user wants to ignore exceptions of this type */
-					Boolean dontAskAgain = exceptionsToIgnore.get(e.getClass());
-					if (dontAskAgain != null && dontAskAgain)
-						continue;
-					else if (dontAskAgain == null)
-						dontAskAgain = false;
-
-                    /* Ask user what to do */
-					Tuple.Pair<Boolean, Boolean> shouldContinue = onImportError(e, dontAskAgain);
-
-                    /* If user doesn't want to continue, fail */
-					if (!shouldContinue.getFirst())
+					catch (ParseException | NumberFormatException | DatabaseException | InvalidColumnNumberException e)
 					{
-						GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
-						onImportFailed(generatedIds, updatedIds, e);
-						br.close();
-						e.printStackTrace();
-
-						return;
+						error = e;
 					}
-					else
+
+					/* Reject the row once, no matter how many of its cells failed, and fail if the error policy says so */
+					if (error != null && !handleError(error, rowCounter, rejected, message))
 					{
-                        /* Else check if user wants to ignore this exception in
-                         * the future */
-						exceptionsToIgnore.put(e.getClass(), shouldContinue.getSecond());
+						GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
+						finishMetrics(ImportMetrics.Outcome.FAILED);
+						reportUnresolvedReferences();
+						reportRejectedRows();
+						onImportFailed(generatedIds, updatedIds, error);
+						reader.close();
 
-						continue;
+						return;
 					}
 				}
 			}
 
-			br.close();
+			reader.close();
 		}
-		catch (IOException e)
+		catch (DatabaseException | IOException e)
 		{
 			ErrorLogger.getInstance().log(Level.SEVERE, e);
 
 			GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
+			finishMetrics(ImportMetrics.Outcome.FAILED);
 			onImportFailed(generatedIds, updatedIds, e);
 		}
+		finally
+		{
+			/* Remember to close the database connection used for the lookups */
+			if (database != null)
+				database.close();
+		}
 
         /* We are done */
 		monitor.done();
 
 		GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
 
+		/* Remember the resolved references for the next session */
+		if (resolver != null)
+			resolver.persist();
+
+		finishMetrics(ImportMetrics.Outcome.FINISHED);
+
+		reportUnresolvedReferences();
+		reportRejectedRows();
 		onImportFinished(generatedIds, updatedIds);
 	}
+
+	/**
+	 * Resolves the values of all {@link Condition}s that use the given {@link MatrixSourceElement} with one query per {@link Condition}
+	 *
+	 * @param element The {@link MatrixSourceElement}
+	 * @param values  The values of the {@link MatrixSourceElement}
+	 */
+	private void resolveReferences(MatrixSourceElement element, Collection<String> values)
+	{
+		for (MatrixColumnMapperRowDTO dto : mapping)
+		{
+			if (dto.keyCondition != null && dto.element == element && StringUtils.isEmpty(dto.manualEntry))
+				prefetchReferences(dto.keyCondition, new HashSet<>(values));
+		}
+	}
+
+	/**
+	 * Binds the values of all cells of a row. Empty cells are skipped, as are cells with values that can't be resolved, which are added to the {@link
+	 * UnresolvedReferenceReport} and the given {@link List}.
+	 *
+	 * @param headers    The header row
+	 * @param parts      The fields of the row
+	 * @param unresolved Receives an {@link UnresolvedReferenceException} for each cell with a value that can't be resolved
+	 * @return The bound values of each cell that should be inserted, indexed by the column of the cell (<code>null</code> for skipped cells)
+	 * @throws DatabaseException Thrown if the interaction with the database fails
+	 * @throws ParseException    Thrown if the regex of a {@link MatrixColumnMapperRowDTO} doesn't match the value of a cell
+	 */
+	private Object[][] bindCells(String[] headers, String[] parts, List<UnresolvedReferenceException> unresolved) throws DatabaseException, ParseException
+	{
+		Object[][] cells = new Object[headers.length][];
+		String rowIdent = parts[0];
+
+		outer:
+		for (int col = 1; col < headers.length; col++)
+		{
+			String colIdent = headers[col];
+
+			/* Remember the bound values, the statement is only rendered if it's shown in the log */
+			Object[] values = new Object[mapping.size()];
+			int bound = 0;
+
+            /* Iterate over all selected DatabaseColumns */
+			for (MatrixColumnMapperRowDTO dto : mapping)
+			{
+				String value = null;
+
+                /* If it's not a predefined mapping */
+				if (dto.element == null)
+				{
+					value = dto.manualEntry;
+				}
+				else
+				{
+					switch (dto.element)
+					{
+						case COL_ID:
+							value = colIdent;
+							break;
+
+						case ROW_ID:
+							value = rowIdent;
+							break;
+
+						case VALUE:
+							/* Ignore empty cells */
+							if (StringUtils.isEmpty(parts[col]))
+							{
+								continue outer;
+							}
+							/* Process the regex */
+							else if (dto.regex != null)
+							{
+								Matcher m = dto.regex.matcher(parts[col]);
+
+								if (m.find())
+									value = m.group();
+								else
+									throw new ParseException("Regex '" + dto.regex.toString() + "' didn't find a match in: '" + parts[col] + "'.");
+							}
+							/* Process manual entry */
+							else if (!StringUtils.isEmpty(dto.manualEntry))
+							{
+								value = dto.manualEntry;
+							}
+							/* Just copy the value */
+							else
+							{
+								value = parts[col];
+							}
+							break;
+					}
+				}
+
+                /* Either set or nullify */
+				if (StringUtils.isEmpty(value))
+				{
+					values[bound++] = null;
+				}
+				/* Resolve the referenced id */
+				else if (dto.keyCondition != null)
+				{
+					long id = resolver.resolve(dto.keyCondition, value);
+
+					/* Skip the cell and remember the missing value */
+					if (id == ReferenceLookup.NOT_FOUND)
+					{
+						unresolvedReferences.add(dto.keyCondition, value);
+						unresolved.add(new UnresolvedReferenceException(dto.keyCondition, value));
+						continue outer;
+					}
+
+					values[bound++] = id;
+				}
+				else
+				{
+					values[bound++] = value;
+				}
+			}
+
+			cells[col] = values;
+		}
+
+		return cells;
+	}
+
+	/**
+	 * Resolves the values of all {@link Condition}s of the given chunk of rows with one query per {@link Condition}
+	 *
+	 * @param chunk The chunk of rows
+	 */
+	private void resolveReferences(List<String[]> chunk)
+	{
+		for (MatrixColumnMapperRowDTO dto : mapping)
+		{
+			if (dto.keyCondition == null || dto.element == MatrixSourceElement.COL_ID)
+				continue;
+
+			Set<String> values = new HashSet<>();
+
+			/* Manual entries are the same for every cell */
+			if (dto.element == null || !StringUtils.isEmpty(dto.manualEntry))
+			{
+				if (!StringUtils.isEmpty(dto.manualEntry))
+					values.add(dto.manualEntry);
+			}
+			else if (dto.element == MatrixSourceElement.ROW_ID)
+			{
+				for (String[] parts : chunk)
+				{
+					if (!StringUtils.isEmpty(parts[0]))
+						values.add(parts[0]);
+				}
+			}
+			else
+			{
+				for (String[] parts : chunk)
+				{
+					for (int col = 1; col < parts.length; col++)
+					{
+						if (StringUtils.isEmpty(parts[col]))
+							continue;
+
+						if (dto.regex != null)
+						{
+							Matcher m = dto.regex.matcher(parts[col]);
+
+							if (m.find())
+								values.add(m.group());
+						}
+						else
+						{
+							values.add(parts[col]);
+						}
+					}
+				}
+			}
+
+			prefetchReferences(dto.keyCondition, values);
+		}
+	}
 }
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.thread;
+
+import java.util.*;
+import java.util.regex.*;
+
+import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.entities.*;
+import jhi.germinatedataimporter.database.entities.DatabaseColumn.*;
+import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
+import jhi.germinatedataimporter.gui.widget.MatrixColumnMapperRow.*;
+import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.validation.*;
+import jhi.swtcommons.util.*;
+
+/**
+ * {@link MatrixDataValidationThread} is a {@link DataValidationThread} that checks the input of a {@link MatrixDataImportThread}. Column headers and
+ * manual entries are checked once, the row identifiers once per row and the values once per non-empty cell.
+ *
+ * @author Sebastian Raubach
+ */
+public abstract class MatrixDataValidationThread extends DataValidationThread
+{
+	private List<MatrixColumnMapperRowDTO> mapping;
+
+	/**
+	 * Creates a new instance of {@link MatrixDataValidationThread}
+	 *
+	 * @param options The {@link InputOptions}s
+	 * @param mapping The mapping of {@link MatrixSourceElement}, {@link DatabaseColumn} and {@link Condition} ({@link Condition} can be
+	 *                <code>null</code>)
+	 */
+	public MatrixDataValidationThread(InputOptions options, List<MatrixColumnMapperRowDTO> mapping)
+	{
+		super(options);
+		this.mapping = mapping;
+	}
+
+	@Override
+	protected List<Condition> getConditions()
+	{
+		List<Condition> conditions = new ArrayList<>();
+		for (MatrixColumnMapperRowDTO dto : mapping)
+			conditions.add(dto.keyCondition);
+		return conditions;
+	}
+
+	@Override
+	protected boolean[] prepare(String[] headers, List<ValidationError> errors) throws DatabaseException
+	{
+		for (MatrixColumnMapperRowDTO dto : mapping)
+		{
+			if (dto.element == MatrixSourceElement.COL_ID)
+			{
+				List<String> identifiers = Arrays.asList(headers).subList(Math.min(1, headers.length), headers.length);
+
+				if (dto.keyCondition != null)
+					resolver.resolveAll(dto.keyCondition, identifiers);
+
+				for (String identifier : identifiers)
+				{
+					if (dto.keyCondition != null && !StringUtils.isEmpty(identifier))
+						checkReference(dto.keyCondition, identifier, identifier, 1, errors);
+					else
+						checkValue(dto.columnDatabase, identifier, identifier, 1, errors);
+				}
+			}
+			/* Manual entries are the same for every cell, so check them once */
+			else if (isManualEntry(dto))
+			{
+				if (dto.keyCondition != null)
+				{
+					resolver.resolveAll(dto.keyCondition, Collections.singleton(dto.manualEntry));
+					checkReference(dto.keyCondition, dto.columnDatabase.getName(), dto.manualEntry, 1, errors);
+				}
+				else
+				{
+					checkValue(dto.columnDatabase, dto.columnDatabase.getName(), dto.manualEntry, 1, errors);
+				}
+			}
+		}
+
+		/* All columns are needed */
+		return null;
+	}
+
+	/**
+	 * Checks if the {@link MatrixColumnMapperRowDTO} uses its manual entry instead of a value of the input file
+	 */
+	private static boolean isManualEntry(MatrixColumnMapperRowDTO dto)
+	{
+		return dto.element == null || (dto.element == MatrixSourceElement.VALUE && dto.regex == null && !StringUtils.isEmpty(dto.manualEntry));
+	}
+
+	/**
+	 * Returns the value of the given cell that's passed on to the database
+	 *
+	 * @param dto  The {@link MatrixColumnMapperRowDTO} of the {@link MatrixSourceElement#VALUE}
+	 * @param cell The content of the cell
+	 * @return The value or <code>null</code> if the regular expression doesn't match
+	 */
+	private static String getValue(MatrixColumnMapperRowDTO dto, String cell)
+	{
+		if (dto.regex == null)
+			return cell;
+
+		Matcher m = dto.regex.matcher(cell);
+
+		return m.find() ? m.group() : null;
+	}
+
+	@Override
+	protected void validate(String[] row, long line, List<ValidationError> errors, Map<Condition, Set<String>> references)
+	{
+		if (row.length != headers.length)
+		{
+			errors.add(new ValidationError(line, null, null, "Columns found: " + row.length + ". Columns expected: " + headers.length));
+			return;
+		}
+
+		for (MatrixColumnMapperRowDTO dto : mapping)
+		{
+			if (dto.element == MatrixSourceElement.ROW_ID)
+			{
+				check(dto, headers[0], row[0], line, errors, references);
+			}
+			else if (dto.element == MatrixSourceElement.VALUE && !isManualEntry(dto))
+			{
+				for (int col = 1; col < row.length; col++)
+				{
+					/* Empty cells are ignored */
+					if (StringUtils.isEmpty(row[col]))
+						continue;
+
+					String value = getValue(dto, row[col]);
+
+					if (value == null)
+						errors.add(new ValidationError(line, headers[col], row[col], "Regex '" + dto.regex.toString() + "' didn't find a match"));
+					else
+						check(dto, headers[col], value, line, errors, references);
+				}
+			}
+		}
+	}
+
+	private void check(MatrixColumnMapperRowDTO dto, String name, String value, long line, List<ValidationError> errors, Map<Condition, Set<String>> references)
+	{
+		if (dto.keyCondition != null && !StringUtils.isEmpty(value))
+			addReference(references, dto.keyCondition, value);
+		else
+			checkValue(dto.columnDatabase, name, value, line, errors);
+	}
+
+	@Override
+	protected void checkReferences(String[] row, long line, List<ValidationError> errors) throws DatabaseException
+	{
+		if (row.length != headers.length)
+			return;
+
+		for (MatrixColumnMapperRowDTO dto : mapping)
+		{
+			if (dto.keyCondition == null)
+				continue;
+
+			if (dto.element == MatrixSourceElement.ROW_ID)
+			{
+				if (!StringUtils.isEmpty(row[0]))
+					checkReference(dto.keyCondition, headers[0], row[0], line, errors);
+			}
+			else if (dto.element == MatrixSourceElement.VALUE && !isManualEntry(dto))
+			{
+				for (int col = 1; col < row.length; col++)
+				{
+					if (StringUtils.isEmpty(row[col]))
+						continue;
+
+					String value = getValue(dto, row[col]);
+
+					if (!StringUtils.isEmpty(value))
+						checkReference(dto.keyCondition, headers[col], value, line, errors);
+				}
+			}
+		}
+	}
+}
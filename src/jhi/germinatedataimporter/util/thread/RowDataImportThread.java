@@ -31,6 +31,7 @@ import java.util.logging.*;
 
 import jhi.database.server.*;
 import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.*;
 import jhi.germinatedataimporter.database.entities.*;
 import jhi.germinatedataimporter.database.entities.DatabaseColumn.*;
 import jhi.germinatedataimporter.gui.*;
@@ -41,7 +42,11 @@ import jhi.germinatedataimporter.gui.widget.*;
 import jhi.germinatedataimporter.gui.widget.SimpleColumnMapperRow.*;
 import jhi.germinatedataimporter.util.*;
 import jhi.germinatedataimporter.util.exception.*;
+import jhi.germinatedataimporter.util.io.*;
 import jhi.germinatedataimporter.util.log.*;
+import jhi.germinatedataimporter.util.lookup.*;
+import jhi.germinatedataimporter.util.metrics.*;
+import jhi.germinatedataimporter.util.parse.*;
 import jhi.swtcommons.util.*;
 
 /**
@@ -51,8 +56,11 @@ import jhi.swtcommons.util.*;
  */
 public abstract class RowDataImportThread extends DataImportThread
 {
+	/** The number of input rows whose references are resolved together */
+	private static final int CHUNK_SIZE = 1000;
+
 	protected List<SimpleColumnMapperRowDTO> mapping;
-	protected DecimalFormat                  numberFormat;
+	protected NumberParser                   numberParser;
 	protected int                            updatedIds;
 
 	/**
@@ -75,10 +83,9 @@ public abstract class RowDataImportThread extends DataImportThread
 		if (monitor == null)
 			monitor = new NullProgressMonitor();
 
-		GerminateDataImporter.getInstance().setTaskBarProgress(SWT.INDETERMINATE, 0);
-
         /* Tell the user what you are doing */
-		monitor.beginTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_TITLE), IProgressMonitor.UNKNOWN);
+		ImportProgress progress = new ImportProgress(monitor, options);
+		progress.begin();
 		monitor.subTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_PREPARATION));
 
 		if (mapping == null || mapping.size() < 1)
@@ -89,20 +96,32 @@ public abstract class RowDataImportThread extends DataImportThread
 
 		prepareQueries();
 
-		List<Long> generatedIds = new ArrayList<>();
+		List<Long> generatedIds = new ArrayList<>(progress.getInitialCapacity(1));
 		updatedIds = 0;
+		unresolvedReferences = new UnresolvedReferenceReport();
+		totalRows = progress.getTotalRows();
+		errors = 0;
+		startMetrics();
 
 		try
 		{
-			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(options.file), "UTF8"));
+			Boolean trimCells = (Boolean) GerminateParameterStore.getInstance().get(GerminateParameter.removetrailingspaces);
+
+			RowReader reader = RowReaders.open(options, trimCells != null && trimCells);
+			readerName = reader.getClass().getSimpleName();
 
             /* Skip the first line (headers) */
-			String line = br.readLine();
-			String[] headers = line.split(options.separator.getSeparator(), -1);
+			String[] headers = reader.next(null);
+			if (headers == null)
+				headers = new String[0];
+
+			rejects = new RejectsWriter(options.file, options.separator);
 
             /* Remember the position (column index) in the input file */
 			for (SimpleColumnMapperRowDTO dto : mapping)
 			{
+				dto.indexInSourceFile = -1;
+
 				for (int i = 0; i < headers.length; i++)
 				{
 					if (headers[i].trim().equals(dto.columnFile))
@@ -113,87 +132,131 @@ public abstract class RowDataImportThread extends DataImportThread
 				}
 			}
 
+            /* Only the mapped columns have to be extracted from the remaining lines, the others are skipped without creating Strings for them. The
+             * rows still have the full number of columns, so they can be checked against the headers. */
+			boolean[] projected = new boolean[headers.length];
+			for (SimpleColumnMapperRowDTO dto : mapping)
+			{
+				if (dto.indexInSourceFile != -1)
+					projected[dto.indexInSourceFile] = true;
+			}
+			reader.setProjection(projected);
+
 			int counter = 1;
 
-			Database database = Database.connect();
+			Database database = connect();
+
+			/* Load the small referenced tables into memory */
+			monitor.subTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_REFERENCES));
+			List<Condition> conditions = new ArrayList<>();
+			for (SimpleColumnMapperRowDTO dto : mapping)
+				conditions.add(dto.keyCondition);
+			resolver = new ReferenceResolver(database, table);
+			resolver.prepare(conditions);
 
-			numberFormat = (DecimalFormat) NumberFormat.getInstance(options.locale);
+			numberParser = new NumberParser(options.locale);
 
-			Boolean trimCells = (Boolean) GerminateParameterStore.getInstance().get(GerminateParameter.removetrailingspaces);
+			List<String[]> chunk = new ArrayList<>(CHUNK_SIZE);
 
-			while ((line = br.readLine()) != null)
+			while (true)
 			{
-				/* Check if the user pressed "cancel" */
-				if (monitor.isCanceled())
+				/* Read the next chunk of rows */
+				long parseStart = System.nanoTime();
+				ImportEvents.Span parseEvent = ImportEvents.begin(ImportEvents.Type.PARSE);
+				int rows = 0;
+				while (rows < CHUNK_SIZE)
 				{
-					monitor.done();
-					br.close();
+					/* Reuse the field arrays of the previous chunk */
+					String[] parts = reader.next(rows < chunk.size() ? chunk.get(rows) : null);
 
-					GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
-					onImportCancelled(generatedIds, updatedIds);
+					if (parts == null)
+						break;
+
+					if (rows < chunk.size())
+						chunk.set(rows, parts);
+					else
+						chunk.add(parts);
 
-					return;
+					rows++;
 				}
 
-				monitor.subTask(RB.getString(RB.DIALOG_IMPORT_PROGRESS_ROW, counter++));
+				metrics.addParse(System.nanoTime() - parseStart);
+				parseEvent.commit(table.getName(), rows);
+
+				if (rows == 0)
+					break;
 
-				String[] parts = line.split(options.separator.getSeparator(), -1);
+				/* Resolve the referenced ids of all rows of this chunk at once */
+				long resolveStart = System.nanoTime();
+				ImportEvents.Span resolveEvent = ImportEvents.begin(ImportEvents.Type.RESOLVE);
+				resolveReferences(chunk.subList(0, rows));
+				metrics.addResolve(System.nanoTime() - resolveStart);
+				resolveEvent.commit(table.getName(), rows);
 
-				if (trimCells != null && trimCells)
+				for (String[] parts : chunk.subList(0, rows))
 				{
-					for (int i = 0; i < parts.length; i++)
+					/* Check if the user pressed "cancel" */
+					if (isCancelled(monitor))
 					{
-						if (parts[i] != null)
-							parts[i] = parts[i].trim();
-					}
-				}
+						monitor.done();
+						reader.close();
 
-				try
-				{
-					if (parts.length != headers.length)
-						throw new InvalidColumnNumberException("Columns found: " + parts.length + ". Columns expected: " + headers.length);
+						GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
+						resolver.persist();
+						finishMetrics(ImportMetrics.Outcome.CANCELLED);
+						reportUnresolvedReferences();
+						reportRejectedRows();
+						onImportCancelled(generatedIds, updatedIds);
 
-					/* Execute and store the generated ids */
-					generatedIds.addAll(runStatement(database, parts));
-				}
-				catch (ParseException | DatabaseException | NumberFormatException | InvalidColumnNumberException e)
-				{
-					ErrorLogger.getInstance().log(Level.SEVERE, e);
+						return;
+					}
 
-                    /* Check if the user wants to ignore exceptions of this type */
-					Boolean dontAskAgain = exceptionsToIgnore.get(e.getClass());
-					if (dontAskAgain != null && dontAskAgain)
-						continue;
-					else if (dontAskAgain == null)
-						dontAskAgain = false;
+					if (progress.isDue())
+					{
+						progress.update(counter, RB.getString(RB.DIALOG_IMPORT_PROGRESS_ROW, counter));
+						publishMetrics();
+					}
+					counter++;
 
-                    /* Ask user what to do */
-					Tuple.Pair<Boolean, Boolean> shouldContinue = onImportError(e, dontAskAgain);
+					throttle();
+					metrics.addRows(1);
+					metrics.addCells(mapping.size());
 
-                    /* If user doesn't want to continue, fail */
-					if (!shouldContinue.getFirst())
+					try
 					{
-						database.close();
-
-						GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
-						onImportFailed(generatedIds, updatedIds, e);
-						br.close();
-						e.printStackTrace();
+						if (parts.length != headers.length)
+							throw new InvalidColumnNumberException("Columns found: " + parts.length + ". Columns expected: " + headers.length);
 
-						return;
+						/* Execute and store the generated ids */
+						metrics.beginStatement();
+						generatedIds.addAll(runStatement(database, parts));
+						metrics.endStatement();
 					}
-					else
+					catch (UnresolvedReferenceException | ParseException | DatabaseException | NumberFormatException | InvalidColumnNumberException e)
 					{
-						/*
-						 * Else check if user wants to ignore this exception in
-                         * the future
-                         */
-						exceptionsToIgnore.put(e.getClass(), shouldContinue.getSecond());
+						/* Don't bother the database with missing values, just remember them */
+						if (e instanceof UnresolvedReferenceException)
+							unresolvedReferences.add(((UnresolvedReferenceException) e).getCondition(), ((UnresolvedReferenceException) e).getValue());
+
+						/* Reject the row and fail if the error policy says so */
+						if (!handleError(e, counter))
+						{
+							database.close();
+
+							GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
+							finishMetrics(ImportMetrics.Outcome.FAILED);
+							reportUnresolvedReferences();
+							reportRejectedRows();
+							onImportFailed(generatedIds, updatedIds, e);
+							reader.close();
+
+							return;
+						}
 					}
 				}
 			}
 
-			br.close();
+			reader.close();
 
 			database.close();
 		}
@@ -202,6 +265,7 @@ public abstract class RowDataImportThread extends DataImportThread
 			ErrorLogger.getInstance().log(Level.SEVERE, e);
 
 			GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
+			finishMetrics(ImportMetrics.Outcome.FAILED);
 			onImportFailed(generatedIds, updatedIds, e);
 		}
 
@@ -210,10 +274,49 @@ public abstract class RowDataImportThread extends DataImportThread
 
 		GerminateDataImporter.getInstance().setTaskBarProgress(SWT.DEFAULT, 0);
 
+		/* Remember the resolved references for the next session */
+		if (resolver != null)
+			resolver.persist();
+
+		finishMetrics(ImportMetrics.Outcome.FINISHED);
+
+		reportUnresolvedReferences();
+		reportRejectedRows();
 		onImportFinished(generatedIds, updatedIds);
 	}
 
-	protected boolean setPart(SimpleColumnMapperRow.SimpleColumnMapperRowDTO dto, DatabaseStatement stmt, String[] parts, int sourceIndex, int placeholderIndex) throws DatabaseException, ParseException
+	/**
+	 * Resolves the values of all {@link Condition}s of the given chunk of rows with one query per {@link Condition}
+	 *
+	 * @param chunk The chunk of rows
+	 */
+	private void resolveReferences(List<String[]> chunk)
+	{
+		for (SimpleColumnMapperRowDTO dto : mapping)
+		{
+			if (dto.keyCondition == null)
+				continue;
+
+			Set<String> values = new HashSet<>();
+
+			if (!StringUtils.isEmpty(dto.manualEntry))
+			{
+				values.add(dto.manualEntry);
+			}
+			else if (dto.indexInSourceFile != -1)
+			{
+				for (String[] parts : chunk)
+				{
+					if (dto.indexInSourceFile < parts.length && !StringUtils.isEmpty(parts[dto.indexInSourceFile]))
+						values.add(parts[dto.indexInSourceFile]);
+				}
+			}
+
+			prefetchReferences(dto.keyCondition, values);
+		}
+	}
+
+	protected boolean setPart(SimpleColumnMapperRow.SimpleColumnMapperRowDTO dto, LoggedStatement stmt, String[] parts, int sourceIndex, int placeholderIndex) throws DatabaseException, ParseException, UnresolvedReferenceException
 	{
 		/* If there's a number range defined, check it */
 		if (dto.numberRanges != null)
@@ -223,7 +326,7 @@ public abstract class RowDataImportThread extends DataImportThread
 
 			Collection<NumberRangeDialog.NumberRange> ranges = dto.numberRanges;
 
-			double value = numberFormat.parse(parts[sourceIndex]).doubleValue();
+			double value = numberParser.parse(parts[sourceIndex]);
 
             /*
 			 * If the value is not in the defined ranges, continue with the next
@@ -268,12 +371,11 @@ public abstract class RowDataImportThread extends DataImportThread
 				}
 				else
 				{
-					SimpleDateFormat dateFormat = ((DateOptionsDialog.PatternOption) option).format;
-					boolean isTimestamp = dateFormat.toPattern().contains("HH") && dateFormat.toPattern().contains("mm");
+					DateParser parser = ((DateOptionsDialog.PatternOption) option).parser;
 
-					Date date = dateFormat.parse(parts[sourceIndex]);
+					Date date = parser.parse(parts[sourceIndex]);
 
-					if (isTimestamp)
+					if (parser.isTimestamp())
 						stmt.setTimestamp(placeholderIndex, date);
 					else
 						stmt.setDate(placeholderIndex, date);
@@ -287,7 +389,7 @@ public abstract class RowDataImportThread extends DataImportThread
 			if (placeholderIndex == -1)
 				return true;
 
-			stmt.setString(placeholderIndex, dto.manualEntry);
+			setValue(dto, stmt, placeholderIndex, dto.manualEntry);
 		}
 		/* If it's not a date, simply copy from the input file */
 		else
@@ -295,20 +397,47 @@ public abstract class RowDataImportThread extends DataImportThread
 			if (placeholderIndex == -1 || sourceIndex == -1)
 				return true;
 
-			String part = parts[sourceIndex];
-
-			if (StringUtils.isEmpty(part))
-				stmt.setNull(placeholderIndex, Types.VARCHAR);
-			else
-				stmt.setString(placeholderIndex, part);
+			setValue(dto, stmt, placeholderIndex, parts[sourceIndex]);
 		}
 
 		return true;
 	}
 
+	/**
+	 * Binds the given value to the placeholder. If the {@link SimpleColumnMapperRowDTO} has a {@link Condition}, the value is resolved to the id of
+	 * the referenced row first.
+	 *
+	 * @param dto              The {@link SimpleColumnMapperRowDTO}
+	 * @param stmt             The {@link LoggedStatement}
+	 * @param placeholderIndex The index of the placeholder
+	 * @param value            The value to bind
+	 * @throws DatabaseException             Thrown if the interaction with the database fails
+	 * @throws UnresolvedReferenceException Thrown if the value cannot be found in the referenced table
+	 */
+	private void setValue(SimpleColumnMapperRowDTO dto, LoggedStatement stmt, int placeholderIndex, String value) throws DatabaseException, UnresolvedReferenceException
+	{
+		if (StringUtils.isEmpty(value))
+		{
+			stmt.setNull(placeholderIndex, Types.VARCHAR);
+		}
+		else if (dto.keyCondition != null)
+		{
+			long id = resolver.resolve(dto.keyCondition, value);
+
+			if (id == ReferenceLookup.NOT_FOUND)
+				throw new UnresolvedReferenceException(dto.keyCondition, value);
+
+			stmt.setLong(placeholderIndex, id);
+		}
+		else
+		{
+			stmt.setString(placeholderIndex, value);
+		}
+	}
+
 	protected abstract void prepareQueries();
 
-	protected abstract List<Long> runStatement(Database database, String[] parts) throws DatabaseException, ParseException;
+	protected abstract List<Long> runStatement(Database database, String[] parts) throws DatabaseException, ParseException, UnresolvedReferenceException;
 
 	protected enum StatementType
 	{
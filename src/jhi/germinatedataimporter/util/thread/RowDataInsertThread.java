@@ -22,11 +22,14 @@ import java.util.*;
 
 import jhi.database.server.*;
 import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.*;
 import jhi.germinatedataimporter.database.entities.*;
 import jhi.germinatedataimporter.gui.dialog.*;
 import jhi.germinatedataimporter.gui.i18n.*;
 import jhi.germinatedataimporter.gui.widget.*;
 import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.exception.*;
+import jhi.germinatedataimporter.util.metrics.*;
 import jhi.swtcommons.util.*;
 
 /**
@@ -50,24 +53,20 @@ public abstract class RowDataInsertThread extends RowDataImportThread
 	}
 
 	@Override
-	protected List<Long> runStatement(Database database, String[] parts) throws DatabaseException, ParseException
+	protected ImportHistory.Mode getMode()
 	{
-		DatabaseStatement stmt = getInsertStatement(database, parts);
+		return ImportHistory.Mode.INSERT;
+	}
+
+	@Override
+	protected List<Long> runStatement(Database database, String[] parts) throws DatabaseException, ParseException, UnresolvedReferenceException
+	{
+		LoggedStatement stmt = getInsertStatement(database, parts);
 
 		if (stmt == null)
 			return new ArrayList<>();
 
-		LogDialog.getInstance().add(RB.getString(RB.DIALOG_LOG_INSERT), stmt.getStringRepresentation());
-
-		try
-		{
-			List<Long> ids = stmt.execute();
-			return ids;
-		}
-		catch (DatabaseException e)
-		{
-			throw (e);
-		}
+		return runLogged(RB.getString(RB.DIALOG_LOG_INSERT), stmt.getText(), stmt::execute);
 	}
 
 	@Override
@@ -102,14 +101,13 @@ public abstract class RowDataInsertThread extends RowDataImportThread
 			SimpleColumnMapperRow.SimpleColumnMapperRowDTO dto = mapping.get(i);
 
             /*
-			 * If there is a condition, add the sub-query to get the appropriate
-             * id
+			 * If there is a condition, add a placeholder for the id. The value
+             * is resolved to the referenced id before it's bound
              */
 			if (dto.keyCondition != null)
 			{
-				DatabaseColumn.Condition cond = dto.keyCondition;
 				builder.append(StatementType.INSERT.operator)
-					   .append(String.format(SQLUtils.SELECT_SUBQUERY, cond.getTable().getName(), cond.getColumn().getName()));
+					   .append("?");
 
 				dto.indexInInsertStatement = placeholderCounter++;
 			}
@@ -153,9 +151,9 @@ public abstract class RowDataInsertThread extends RowDataImportThread
 		return builder.toString();
 	}
 
-	protected DatabaseStatement getInsertStatement(Database database, String[] parts) throws DatabaseException, ParseException
+	protected LoggedStatement getInsertStatement(Database database, String[] parts) throws DatabaseException, ParseException, UnresolvedReferenceException
 	{
-		DatabaseStatement stmt = database.prepareStatement(insertQuery);
+		LoggedStatement stmt = new LoggedStatement(database, insertQuery);
 
         /* Iterate over all selected DatabaseColumns */
 		for (SimpleColumnMapperRow.SimpleColumnMapperRowDTO dto : mapping)
@@ -22,11 +22,14 @@ import java.util.*;
 
 import jhi.database.server.*;
 import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.*;
 import jhi.germinatedataimporter.database.entities.*;
 import jhi.germinatedataimporter.gui.dialog.*;
 import jhi.germinatedataimporter.gui.i18n.*;
 import jhi.germinatedataimporter.gui.widget.*;
 import jhi.germinatedataimporter.util.*;
+import jhi.germinatedataimporter.util.exception.*;
+import jhi.germinatedataimporter.util.metrics.*;
 import jhi.swtcommons.util.*;
 
 /**
@@ -50,6 +53,12 @@ public abstract class RowDataUpdateThread extends RowDataInsertThread
 		super(options, mapping, table);
 	}
 
+	@Override
+	protected ImportHistory.Mode getMode()
+	{
+		return ImportHistory.Mode.UPDATE;
+	}
+
 	@Override
 	protected void prepareQueries()
 	{
@@ -102,14 +111,13 @@ public abstract class RowDataUpdateThread extends RowDataInsertThread
 			builder.append(dto.columnDatabase.getName());
 
             /*
-			 * If there is a condition, add the sub-query to get the appropriate
-             * id
+			 * If there is a condition, add a placeholder for the id. The value
+             * is resolved to the referenced id before it's bound
              */
 			if (dto.keyCondition != null)
 			{
-				DatabaseColumn.Condition cond = dto.keyCondition;
 				builder.append(type.operator)
-					   .append(String.format(SQLUtils.SELECT_SUBQUERY, cond.getTable().getName(), cond.getColumn().getName()));
+					   .append("?");
 
 				setIndex(type, dto, placeholderCounter++);
 			}
@@ -166,9 +174,9 @@ public abstract class RowDataUpdateThread extends RowDataInsertThread
 		}
 	}
 
-	private long checkIfExists(Database database, String[] parts) throws DatabaseException, ParseException
+	private long checkIfExists(Database database, String[] parts) throws DatabaseException, ParseException, UnresolvedReferenceException
 	{
-		DatabaseStatement stmt = database.prepareStatement(selectQuery);
+		LoggedStatement stmt = new LoggedStatement(database, selectQuery);
 
         /* Iterate over all selected DatabaseColumns */
 		for (SimpleColumnMapperRow.SimpleColumnMapperRowDTO dto : mapping)
@@ -182,7 +190,7 @@ public abstract class RowDataUpdateThread extends RowDataInsertThread
 				return -1;
 		}
 
-		DatabaseResult rs = stmt.query();
+		DatabaseResult rs = runTimed(stmt::query);
 
 		if (rs.next())
 		{
@@ -192,9 +200,9 @@ public abstract class RowDataUpdateThread extends RowDataInsertThread
 		return -1;
 	}
 
-	private DatabaseStatement getUpdateStatement(Database database, String[] parts, long id) throws DatabaseException, ParseException
+	private LoggedStatement getUpdateStatement(Database database, String[] parts, long id) throws DatabaseException, ParseException, UnresolvedReferenceException
 	{
-		DatabaseStatement stmt = database.prepareStatement(updateQuery);
+		LoggedStatement stmt = new LoggedStatement(database, updateQuery);
 
 		int counter = 1;
 		/* Iterate over all selected DatabaseColumns */
@@ -217,9 +225,9 @@ public abstract class RowDataUpdateThread extends RowDataInsertThread
 	}
 
 	@Override
-	protected List<Long> runStatement(Database database, String[] parts) throws DatabaseException, ParseException
+	protected List<Long> runStatement(Database database, String[] parts) throws DatabaseException, ParseException, UnresolvedReferenceException
 	{
-		DatabaseStatement stmt;
+		LoggedStatement stmt;
 
 		long existingId = checkIfExists(database, parts);
 
@@ -230,10 +238,8 @@ public abstract class RowDataUpdateThread extends RowDataInsertThread
 			if (stmt == null)
 				return new ArrayList<>();
 
-			LogDialog.getInstance().add(RB.getString(RB.DIALOG_LOG_INSERT), stmt.getStringRepresentation());
-
                         /* Execute and store the generated ids */
-			updatedIds += stmt.executeUpdate();
+			updatedIds += runLogged(RB.getString(RB.DIALOG_LOG_INSERT), stmt.getText(), stmt::executeUpdate);
 
 			return new ArrayList<>();
 		}
@@ -244,10 +250,8 @@ public abstract class RowDataUpdateThread extends RowDataInsertThread
 			if (stmt == null)
 				return new ArrayList<>();
 
-			LogDialog.getInstance().add(RB.getString(RB.DIALOG_LOG_INSERT), stmt.getStringRepresentation());
-
             /* Execute and store the generated ids */
-			return stmt.execute();
+			return runLogged(RB.getString(RB.DIALOG_LOG_INSERT), stmt.getText(), stmt::execute);
 		}
 	}
 }
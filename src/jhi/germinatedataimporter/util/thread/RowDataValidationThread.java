@@ -0,0 +1,206 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.thread;
+
+import java.text.*;
+import java.util.*;
+
+import jhi.database.shared.exception.*;
+import jhi.germinatedataimporter.database.entities.*;
+import jhi.germinatedataimporter.database.entities.DatabaseColumn.*;
+import jhi.germinatedataimporter.gui.dialog.*;
+import jhi.germinatedataimporter.gui.widget.ColumnMapper.*;
+import jhi.germinatedataimporter.gui.widget.SimpleColumnMapperRow.*;
+import jhi.germinatedataimporter.util.parse.*;
+import jhi.germinatedataimporter.util.validation.*;
+import jhi.swtcommons.util.*;
+
+/**
+ * {@link RowDataValidationThread} is a {@link DataValidationThread} that checks the input of a {@link RowDataImportThread}. The checks follow the
+ * way the cells are bound by {@link RowDataImportThread}: number ranges and date patterns have to parse, other values have to fit the {@link
+ * DatabaseColumn} and referenced values have to exist.
+ *
+ * @author Sebastian Raubach
+ */
+public abstract class RowDataValidationThread extends DataValidationThread
+{
+	private List<SimpleColumnMapperRowDTO> mapping;
+	private NumberParser                   numberParser;
+	/* The index of the input column of each item of the mapping. The DTOs are shared with the import, so they aren't changed */
+	private int[]                          indices;
+
+	/**
+	 * Creates a new instance of {@link RowDataValidationThread}
+	 *
+	 * @param options The {@link InputOptions}s
+	 * @param mapping The mapping of file column name, {@link DatabaseColumn} and {@link Condition} ({@link Condition} can be <code>null</code>)
+	 */
+	public RowDataValidationThread(InputOptions options, List<SimpleColumnMapperRowDTO> mapping)
+	{
+		super(options);
+		this.mapping = mapping;
+	}
+
+	@Override
+	protected List<Condition> getConditions()
+	{
+		List<Condition> conditions = new ArrayList<>();
+		for (SimpleColumnMapperRowDTO dto : mapping)
+			conditions.add(dto.keyCondition);
+		return conditions;
+	}
+
+	@Override
+	protected boolean[] prepare(String[] headers, List<ValidationError> errors) throws DatabaseException
+	{
+		numberParser = new NumberParser(options.locale);
+
+		boolean[] projected = new boolean[headers.length];
+		indices = new int[mapping.size()];
+		Arrays.fill(indices, -1);
+
+		for (int m = 0; m < mapping.size(); m++)
+		{
+			SimpleColumnMapperRowDTO dto = mapping.get(m);
+
+			/* Manual entries are the same for every row, so check them once */
+			if (isManualEntry(dto))
+			{
+				if (dto.keyCondition != null)
+				{
+					resolver.resolveAll(dto.keyCondition, Collections.singleton(dto.manualEntry));
+					checkReference(dto.keyCondition, dto.columnDatabase.getName(), dto.manualEntry, 1, errors);
+				}
+
+				continue;
+			}
+
+			if (StringUtils.isEmpty(dto.columnFile))
+				continue;
+
+			for (int i = 0; i < headers.length; i++)
+			{
+				if (headers[i].trim().equals(dto.columnFile))
+				{
+					indices[m] = i;
+					projected[i] = true;
+					break;
+				}
+			}
+
+			if (indices[m] == -1)
+				errors.add(new ValidationError(1, dto.columnFile, null, "Column not found in the input file"));
+		}
+
+		return projected;
+	}
+
+	/**
+	 * Checks if the {@link SimpleColumnMapperRowDTO} uses its manual entry instead of a value of the input file
+	 */
+	private static boolean isManualEntry(SimpleColumnMapperRowDTO dto)
+	{
+		return dto.numberRanges == null && dto.dateOption == null && !StringUtils.isEmpty(dto.manualEntry);
+	}
+
+	@Override
+	protected void validate(String[] row, long line, List<ValidationError> errors, Map<Condition, Set<String>> references)
+	{
+		if (row.length != headers.length)
+		{
+			errors.add(new ValidationError(line, null, null, "Columns found: " + row.length + ". Columns expected: " + headers.length));
+			return;
+		}
+
+		for (int m = 0; m < mapping.size(); m++)
+		{
+			SimpleColumnMapperRowDTO dto = mapping.get(m);
+
+			if (isManualEntry(dto) || indices[m] == -1)
+				continue;
+
+			String value = row[indices[m]];
+
+			if (dto.numberRanges != null)
+			{
+				/* Values outside of the ranges are skipped, but the value has to be a number */
+				try
+				{
+					numberParser.parse(value);
+				}
+				catch (ParseException e)
+				{
+					errors.add(new ValidationError(line, dto.columnFile, value, "Not a number"));
+				}
+			}
+			else if (dto.dateOption instanceof DateOptionsDialog.PatternOption)
+			{
+				if (StringUtils.isEmpty(value))
+				{
+					checkValue(dto.columnDatabase, dto.columnFile, value, line, errors);
+				}
+				else
+				{
+					DateParser parser = ((DateOptionsDialog.PatternOption) dto.dateOption).parser;
+
+					try
+					{
+						parser.parse(value);
+					}
+					catch (ParseException e)
+					{
+						errors.add(new ValidationError(line, dto.columnFile, value, "Doesn't match the date pattern " + parser.getPattern()));
+					}
+				}
+			}
+			else if (dto.dateOption != null)
+			{
+				/* The current date or a fixed date, nothing to check */
+			}
+			else if (dto.keyCondition != null && !StringUtils.isEmpty(value))
+			{
+				addReference(references, dto.keyCondition, value);
+			}
+			else
+			{
+				checkValue(dto.columnDatabase, dto.columnFile, value, line, errors);
+			}
+		}
+	}
+
+	@Override
+	protected void checkReferences(String[] row, long line, List<ValidationError> errors) throws DatabaseException
+	{
+		if (row.length != headers.length)
+			return;
+
+		for (int m = 0; m < mapping.size(); m++)
+		{
+			SimpleColumnMapperRowDTO dto = mapping.get(m);
+
+			if (dto.keyCondition == null || dto.numberRanges != null || dto.dateOption != null || isManualEntry(dto) || indices[m] == -1)
+				continue;
+
+			String value = row[indices[m]];
+
+			if (!StringUtils.isEmpty(value))
+				checkReference(dto.keyCondition, dto.columnFile, value, line, errors);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.validation;
+
+/**
+ * {@link ValidationError} describes a problem with a single cell (or row) of the input file found during validation.
+ *
+ * @author Sebastian Raubach
+ */
+public class ValidationError
+{
+	private final long   line;
+	private final String column;
+	private final String value;
+	private final String message;
+
+	/**
+	 * Creates a new instance of {@link ValidationError}
+	 *
+	 * @param line    The line number in the input file (starting at 1 with the header row)
+	 * @param column  The name of the input column (can be <code>null</code> if the whole row is affected)
+	 * @param value   The offending value (can be <code>null</code>)
+	 * @param message The description of the problem
+	 */
+	public ValidationError(long line, String column, String value, String message)
+	{
+		this.line = line;
+		this.column = column;
+		this.value = value;
+		this.message = message;
+	}
+
+	public long getLine()
+	{
+		return line;
+	}
+
+	public String getColumn()
+	{
+		return column;
+	}
+
+	public String getValue()
+	{
+		return value;
+	}
+
+	public String getMessage()
+	{
+		return message;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ValidationError [line=" + line + ", column=" + column + ", value=" + value + ", message=" + message + "]";
+	}
+}
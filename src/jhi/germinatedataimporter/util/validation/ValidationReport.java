@@ -0,0 +1,186 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jhi.germinatedataimporter.util.validation;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * {@link ValidationReport} collects the {@link ValidationError}s of a validation run. All errors are written to a tab-delimited report file as they
+ * come in, only the first {@link #KEPT_ERRORS} are kept in memory to be shown to the user.
+ *
+ * @author Sebastian Raubach
+ */
+public class ValidationReport implements Closeable
+{
+	private static final int KEPT_ERRORS = 100;
+
+	private final File   file;
+	private final Writer writer;
+
+	private final List<ValidationError> firstErrors     = new ArrayList<>();
+	private final Map<String, Long>     errorsPerColumn = new LinkedHashMap<>();
+
+	private long rows           = 0;
+	private long errors         = 0;
+	private long rowsWithErrors = 0;
+	private long lastErrorLine  = -1;
+
+	/**
+	 * Creates a new instance of {@link ValidationReport} that writes to the given {@link File}
+	 *
+	 * @param file The report {@link File}
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public ValidationReport(File file) throws IOException
+	{
+		this.file = file;
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+
+		writer.write("line\tcolumn\tvalue\tmessage");
+		writer.write(System.lineSeparator());
+	}
+
+	/**
+	 * Returns the report {@link File} for the given input {@link File}. It's placed next to the input file.
+	 *
+	 * @param input The input {@link File}
+	 * @return The report {@link File}
+	 */
+	public static File getReportFile(File input)
+	{
+		return new File(input.getAbsoluteFile().getParentFile(), input.getName() + ".validation.txt");
+	}
+
+	/**
+	 * Adds the given number of validated rows
+	 *
+	 * @param rows The number of validated rows
+	 */
+	public void addRows(long rows)
+	{
+		this.rows += rows;
+	}
+
+	/**
+	 * Adds the given {@link ValidationError}s. They have to be ordered by line number.
+	 *
+	 * @param errors The {@link ValidationError}s
+	 * @throws IOException Thrown if the file interaction fails
+	 */
+	public void add(List<ValidationError> errors) throws IOException
+	{
+		for (ValidationError error : errors)
+		{
+			this.errors++;
+
+			if (error.getLine() != lastErrorLine)
+			{
+				rowsWithErrors++;
+				lastErrorLine = error.getLine();
+			}
+
+			String column = error.getColumn() == null ? "" : error.getColumn();
+			errorsPerColumn.merge(column, 1L, Long::sum);
+
+			if (firstErrors.size() < KEPT_ERRORS)
+				firstErrors.add(error);
+
+			writer.write(Long.toString(error.getLine()));
+			writer.write('\t');
+			writer.write(escape(column));
+			writer.write('\t');
+			writer.write(escape(error.getValue()));
+			writer.write('\t');
+			writer.write(escape(error.getMessage()));
+			writer.write(System.lineSeparator());
+		}
+	}
+
+	private static String escape(String value)
+	{
+		if (value == null)
+			return "";
+
+		return value.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	public long getRows()
+	{
+		return rows;
+	}
+
+	public long getErrors()
+	{
+		return errors;
+	}
+
+	public long getRowsWithErrors()
+	{
+		return rowsWithErrors;
+	}
+
+	public boolean isEmpty()
+	{
+		return errors == 0;
+	}
+
+	/**
+	 * Returns a human readable summary of the first errors and the number of errors per column
+	 *
+	 * @param limit The maximal number of errors to list (at most {@link #KEPT_ERRORS})
+	 * @return A human readable summary
+	 */
+	public String format(int limit)
+	{
+		StringBuilder builder = new StringBuilder();
+
+		for (ValidationError error : firstErrors.subList(0, Math.min(limit, firstErrors.size())))
+		{
+			builder.append(error.getLine()).append(": ");
+
+			if (error.getColumn() != null)
+				builder.append(error.getColumn()).append(" - ");
+
+			builder.append(error.getMessage()).append("\n");
+		}
+
+		if (errors > limit)
+			builder.append("...\n");
+
+		builder.append("\n");
+
+		for (Map.Entry<String, Long> entry : errorsPerColumn.entrySet())
+			builder.append(entry.getKey().isEmpty() ? "-" : entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+
+		return builder.toString();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		writer.close();
+	}
+}
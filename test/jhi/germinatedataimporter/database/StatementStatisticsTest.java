@@ -0,0 +1,97 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.database;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the fingerprint normaliser of {@link StatementStatistics}
+ *
+ * @author Sebastian Raubach
+ */
+public class StatementStatisticsTest
+{
+	@Test
+	public void testWhitespace()
+	{
+		assertEquals("SELECT * FROM t WHERE id = ?", StatementStatistics.fingerprint("  SELECT  *\n\tFROM t\r\n WHERE id = ? "));
+	}
+
+	@Test
+	public void testStrings()
+	{
+		assertEquals("SELECT * FROM t WHERE name = ?", StatementStatistics.fingerprint("SELECT * FROM t WHERE name = 'O''Brien'"));
+		assertEquals("SELECT * FROM t WHERE name = ? AND x = ?", StatementStatistics.fingerprint("SELECT * FROM t WHERE name = 'a\\'b' AND x = \"q\""));
+
+		/* Numbers and IN lists inside strings are part of the string */
+		assertEquals("SELECT * FROM t WHERE a = ? AND b = ?", StatementStatistics.fingerprint("SELECT * FROM t WHERE a = 'x IN (1, 2)' AND b = ''"));
+	}
+
+	@Test
+	public void testNumbers()
+	{
+		assertEquals("SELECT * FROM t WHERE a = ? AND b = ? LIMIT ?, ?", StatementStatistics.fingerprint("SELECT * FROM t WHERE a = -1.5 AND b = 42 LIMIT 10, 20"));
+	}
+
+	@Test
+	public void testIdentifiersAreKept()
+	{
+		String sql = "SELECT col1, t2.x FROM `table1` t2 WHERE `c3` = ?";
+		assertEquals(sql, StatementStatistics.fingerprint(sql));
+	}
+
+	@Test
+	public void testInLists()
+	{
+		String expected = "SELECT id, name FROM germinatebase WHERE name IN (...)";
+
+		/* All chunks of a bulk lookup share a fingerprint, no matter how many values they contain or how they're written */
+		assertEquals(expected, StatementStatistics.fingerprint("SELECT id, name FROM germinatebase WHERE name IN (?)"));
+		assertEquals(expected, StatementStatistics.fingerprint("SELECT id, name FROM germinatebase WHERE name IN (?, ?, ?)"));
+		assertEquals(expected, StatementStatistics.fingerprint("SELECT id, name FROM germinatebase WHERE name in (?,?)"));
+		assertEquals(expected, StatementStatistics.fingerprint("SELECT id, name FROM germinatebase WHERE name IN ('a', 'b')"));
+		assertEquals(expected, StatementStatistics.fingerprint("SELECT id, name FROM germinatebase WHERE name IN ( 1, 2, 3 )"));
+	}
+
+	@Test
+	public void testValueListsAreKept()
+	{
+		/* Only IN lists are collapsed, the placeholders of an INSERT define the statement */
+		String sql = "INSERT INTO t (a, b) VALUES (?, ?)";
+		assertEquals(sql, StatementStatistics.fingerprint(sql));
+	}
+
+	@Test
+	public void testSameStatementSameFingerprint()
+	{
+		assertEquals(StatementStatistics.fingerprint("UPDATE t SET a = 'x' WHERE id = 1"), StatementStatistics.fingerprint("UPDATE  t SET a = 'yz' WHERE id = 12345"));
+		assertNotEquals(StatementStatistics.fingerprint("UPDATE t SET a = 1 WHERE id = 1"), StatementStatistics.fingerprint("UPDATE t SET b = 1 WHERE id = 1"));
+	}
+
+	@Test
+	public void testCountPlaceholders()
+	{
+		assertEquals(0, StatementStatistics.countPlaceholders("SELECT * FROM t"));
+		assertEquals(2, StatementStatistics.countPlaceholders("INSERT INTO t (a, b) VALUES (?, ?)"));
+
+		/* Question marks inside strings aren't placeholders */
+		assertEquals(1, StatementStatistics.countPlaceholders("SELECT * FROM t WHERE a = 'why?' AND b = ? AND c = \"?\""));
+	}
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link ErrorPolicy}
+ *
+ * @author Sebastian Raubach
+ */
+public class ErrorPolicyTest
+{
+	@Test
+	public void testParseModes()
+	{
+		assertEquals(ErrorPolicy.Mode.ASK, ErrorPolicy.parse("ASK").getMode());
+		assertEquals(ErrorPolicy.Mode.ABORT, ErrorPolicy.parse("abort").getMode());
+		assertEquals(ErrorPolicy.Mode.SKIP, ErrorPolicy.parse(" Skip ").getMode());
+	}
+
+	@Test
+	public void testParseLimits()
+	{
+		ErrorPolicy absolute = ErrorPolicy.parse("LIMIT:100");
+		assertEquals(ErrorPolicy.Mode.LIMIT, absolute.getMode());
+		assertEquals("100", absolute.getLimitString());
+
+		ErrorPolicy percentage = ErrorPolicy.parse("limit : 5 %");
+		assertEquals(ErrorPolicy.Mode.LIMIT, percentage.getMode());
+		assertEquals("5%", percentage.getLimitString());
+
+		assertEquals("2.5%", ErrorPolicy.parse("LIMIT:2.5%").getLimitString());
+		assertEquals("0", ErrorPolicy.parseLimit("0").getLimitString());
+	}
+
+	@Test
+	public void testToStringCanBeParsed()
+	{
+		String[] values = {"ASK", "ABORT", "SKIP", "LIMIT:0", "LIMIT:100", "LIMIT:5%", "LIMIT:2.5%", "LIMIT:100%"};
+
+		for (String value : values)
+		{
+			assertEquals(value, ErrorPolicy.parse(value).toString());
+			assertEquals(value, ErrorPolicy.parse(ErrorPolicy.parse(value).toString()).toString());
+		}
+
+		assertEquals("ASK", ErrorPolicy.ASK.toString());
+	}
+
+	@Test
+	public void testInvalid()
+	{
+		String[] values = {"", "UNKNOWN", "LIMIT", "LIMIT:", "LIMIT:abc", "LIMIT:-1", "LIMIT:101%", "LIMIT:1.5", "SKIP:10", "LIMIT:NaN%", ":10"};
+
+		for (String value : values)
+		{
+			try
+			{
+				ErrorPolicy.parse(value);
+				fail("'" + value + "' should have been rejected");
+			}
+			catch (IllegalArgumentException e)
+			{
+				/* Expected */
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNull()
+	{
+		ErrorPolicy.parse(null);
+	}
+
+	@Test
+	public void testIsExceeded()
+	{
+		ErrorPolicy absolute = ErrorPolicy.parse("LIMIT:10");
+		assertFalse(absolute.isExceeded(0, 0));
+		assertFalse(absolute.isExceeded(10, 10));
+		assertTrue(absolute.isExceeded(11, 1000));
+
+		ErrorPolicy none = ErrorPolicy.parse("LIMIT:0");
+		assertFalse(none.isExceeded(0, 100));
+		assertTrue(none.isExceeded(1, 100));
+
+		ErrorPolicy percentage = ErrorPolicy.parse("LIMIT:5%");
+		assertFalse(percentage.isExceeded(5, 100));
+		assertTrue(percentage.isExceeded(6, 100));
+		assertFalse(percentage.isExceeded(50, 1000));
+		assertTrue(percentage.isExceeded(1, 10));
+	}
+}
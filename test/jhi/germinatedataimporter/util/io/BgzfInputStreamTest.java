@@ -0,0 +1,250 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.io;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link BgzfInputStream} and the detection of compressed input files by {@link InputStreams}
+ *
+ * @author Sebastian Raubach
+ */
+public class BgzfInputStreamTest
+{
+	/** The maximal number of uncompressed bytes bgzip puts into a block */
+	private static final int BLOCK_DATA_SIZE = 0xff00;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Compresses the given data the way bgzip does, including the empty end-of-file block
+	 */
+	private static byte[] bgzip(byte[] data) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		for (int offset = 0; offset < data.length; offset += BLOCK_DATA_SIZE)
+			writeBlock(out, data, offset, Math.min(BLOCK_DATA_SIZE, data.length - offset));
+
+		writeBlock(out, data, 0, 0);
+
+		return out.toByteArray();
+	}
+
+	private static void writeBlock(ByteArrayOutputStream out, byte[] data, int offset, int length) throws IOException
+	{
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(data, offset, length);
+		deflater.finish();
+
+		byte[] deflated = new byte[length + 1024];
+		int deflatedLength = 0;
+		while (!deflater.finished())
+			deflatedLength += deflater.deflate(deflated, deflatedLength, deflated.length - deflatedLength);
+		deflater.end();
+
+		CRC32 crc = new CRC32();
+		crc.update(data, offset, length);
+
+		/* Header, extra length, the "BC" subfield with the block size minus one, the data, CRC and the uncompressed size */
+		int blockSize = 18 + deflatedLength + 8;
+		out.write(new byte[]{0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0});
+		writeShort(out, blockSize - 1);
+		out.write(deflated, 0, deflatedLength);
+		writeInt(out, (int) crc.getValue());
+		writeInt(out, length);
+	}
+
+	private static void writeShort(OutputStream out, int value) throws IOException
+	{
+		out.write(value & 0xff);
+		out.write((value >>> 8) & 0xff);
+	}
+
+	private static void writeInt(OutputStream out, int value) throws IOException
+	{
+		writeShort(out, value & 0xffff);
+		writeShort(out, (value >>> 16) & 0xffff);
+	}
+
+	private static byte[] createData(int rows)
+	{
+		StringBuilder builder = new StringBuilder("id\tname\tvalue\n");
+		Random random = new Random(42);
+
+		for (int i = 0; i < rows; i++)
+			builder.append(i).append("\tgermplasm-").append(random.nextInt(1000)).append('\t').append(random.nextDouble()).append('\n');
+
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+
+		int read;
+		while ((read = in.read(buffer)) != -1)
+			out.write(buffer, 0, read);
+
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testMultipleBlocks() throws IOException
+	{
+		byte[] data = createData(50000);
+		byte[] compressed = bgzip(data);
+
+		assertTrue(data.length > 10 * BLOCK_DATA_SIZE);
+
+		try (InputStream in = new BgzfInputStream(new ByteArrayInputStream(compressed)))
+		{
+			assertArrayEquals(data, readAll(in));
+		}
+	}
+
+	@Test
+	public void testSingleBytes() throws IOException
+	{
+		byte[] data = createData(20000);
+
+		try (InputStream in = new BgzfInputStream(new ByteArrayInputStream(bgzip(data))))
+		{
+			for (int i = 0; i < data.length; i++)
+				assertEquals("Byte " + i, data[i] & 0xff, in.read());
+
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void testEmpty() throws IOException
+	{
+		try (InputStream in = new BgzfInputStream(new ByteArrayInputStream(bgzip(new byte[0]))))
+		{
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test(expected = ZipException.class)
+	public void testCorruptCrc() throws IOException
+	{
+		byte[] compressed = bgzip(createData(100));
+
+		/* The CRC of the first block is right in front of its size, which is followed by the end-of-file block */
+		int endOfFileBlock = 28;
+		compressed[compressed.length - endOfFileBlock - 8] ^= 0x01;
+
+		try (InputStream in = new BgzfInputStream(new ByteArrayInputStream(compressed)))
+		{
+			readAll(in);
+		}
+	}
+
+	@Test
+	public void testCorruptSize() throws IOException
+	{
+		/* The inflated size of the first block is right in front of the end-of-file block */
+		int endOfFileBlock = 28;
+
+		for (int size : new int[]{-1, 65537, Integer.MAX_VALUE})
+		{
+			byte[] compressed = bgzip(createData(100));
+
+			for (int i = 0; i < 4; i++)
+				compressed[compressed.length - endOfFileBlock - 4 + i] = (byte) (size >>> (8 * i));
+
+			try (InputStream in = new BgzfInputStream(new ByteArrayInputStream(compressed)))
+			{
+				readAll(in);
+				fail("Size " + size + " should have been rejected");
+			}
+			catch (ZipException e)
+			{
+				/* Expected */
+			}
+		}
+	}
+
+	@Test(expected = ZipException.class)
+	public void testPlainGzip() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out))
+		{
+			gzip.write(createData(10));
+		}
+
+		try (InputStream in = new BgzfInputStream(new ByteArrayInputStream(out.toByteArray())))
+		{
+			readAll(in);
+		}
+	}
+
+	@Test
+	public void testDetectAndOpen() throws IOException
+	{
+		byte[] data = createData(1000);
+
+		File plain = folder.newFile("data.txt");
+		Files.write(plain.toPath(), data);
+
+		File bgzip = folder.newFile("data.txt.bgz");
+		Files.write(bgzip.toPath(), bgzip(data));
+
+		File gzip = folder.newFile("data.txt.gz");
+		try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(gzip)))
+		{
+			out.write(data);
+		}
+
+		File zip = folder.newFile("data.zip");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip)))
+		{
+			out.putNextEntry(new ZipEntry("folder/"));
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("folder/data.txt"));
+			out.write(data);
+			out.closeEntry();
+		}
+
+		assertEquals(InputStreams.Compression.NONE, InputStreams.detect(plain));
+		assertEquals(InputStreams.Compression.BGZIP, InputStreams.detect(bgzip));
+		assertEquals(InputStreams.Compression.GZIP, InputStreams.detect(gzip));
+		assertEquals(InputStreams.Compression.ZIP, InputStreams.detect(zip));
+
+		for (File file : new File[]{plain, bgzip, gzip, zip})
+		{
+			try (InputStream in = InputStreams.open(file))
+			{
+				assertArrayEquals(file.getName(), data, readAll(in));
+			}
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.io;
+
+import org.junit.*;
+
+import java.io.*;
+import java.util.*;
+
+import jhi.germinatedataimporter.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link CsvRowReader}
+ *
+ * @author Sebastian Raubach
+ */
+public class CsvRowReaderTest
+{
+	private static List<String[]> readAll(Reader input, boolean trim) throws IOException
+	{
+		List<String[]> result = new ArrayList<>();
+
+		try (CsvRowReader reader = new CsvRowReader(input, FileSeparator.COMMA, trim))
+		{
+			String[] row;
+			while ((row = reader.next(null)) != null)
+				result.add(row);
+		}
+
+		return result;
+	}
+
+	private static void assertRows(List<String[]> actual, String[]... expected)
+	{
+		assertEquals(expected.length, actual.size());
+
+		for (int i = 0; i < expected.length; i++)
+			assertArrayEquals("Row " + i, expected[i], actual.get(i));
+	}
+
+	@Test
+	public void testUnquoted() throws IOException
+	{
+		assertRows(readAll(new StringReader("a,b,c\n1,,3\n,,\n"), false), new String[]{"a", "b", "c"}, new String[]{"1", "", "3"}, new String[]{"", "", ""});
+	}
+
+	@Test
+	public void testLineEndings() throws IOException
+	{
+		String[][] expected = {{"a", "b"}, {"1", "2"}, {"3", "4"}};
+
+		assertRows(readAll(new StringReader("a,b\r\n1,2\r\n3,4"), false), expected);
+		assertRows(readAll(new StringReader("a,b\r1,2\r3,4\r"), false), expected);
+		assertRows(readAll(new StringReader("a,b\n1,2\n3,4\n"), false), expected);
+	}
+
+	@Test
+	public void testQuoted() throws IOException
+	{
+		assertRows(readAll(new StringReader("\"a,b\",\"say \"\"hi\"\"\",\"\"\n"), false), new String[]{"a,b", "say \"hi\"", ""});
+	}
+
+	@Test
+	public void testQuotedLineBreaks() throws IOException
+	{
+		assertRows(readAll(new StringReader("id,note\n1,\"first\nsecond\"\n2,\"a\r\nb\"\n"), false), new String[]{"id", "note"}, new String[]{"1", "first\nsecond"},
+				new String[]{"2", "a\r\nb"});
+	}
+
+	@Test
+	public void testTrim() throws IOException
+	{
+		assertRows(readAll(new StringReader(" a , b \n\" c \", d"), true), new String[]{"a", "b"}, new String[]{"c", "d"});
+		assertRows(readAll(new StringReader(" a , b "), false), new String[]{" a ", " b "});
+	}
+
+	@Test
+	public void testLineNumbers() throws IOException
+	{
+		try (CsvRowReader reader = new CsvRowReader(new StringReader("a,b\n1,\"x\ny\"\n2,z\n3,\"p\n\nq\"\n4,w"), FileSeparator.COMMA, false))
+		{
+			long[] expected = {1, 2, 4, 5, 8};
+
+			for (long line : expected)
+			{
+				assertNotNull(reader.next(null));
+				assertEquals(line, reader.getLine());
+			}
+
+			assertNull(reader.next(null));
+		}
+	}
+
+	@Test
+	public void testProjection() throws IOException
+	{
+		try (CsvRowReader reader = new CsvRowReader(new StringReader("a,b,c\n1,\"2\",3,4\n"), FileSeparator.COMMA, false))
+		{
+			assertArrayEquals(new String[]{"a", "b", "c"}, reader.next(null));
+
+			reader.setProjection(new boolean[]{false, true, false});
+			assertArrayEquals(new String[]{null, "2", null, null}, reader.next(null));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnterminatedQuote() throws IOException
+	{
+		readAll(new StringReader("a,b\n1,\"never closed\n2,3\n"), false);
+	}
+
+	@Test
+	public void testRowsAcrossBufferBoundaries() throws IOException
+	{
+		/* Rows that don't fit into what's left of the input buffer have to be read by the general path */
+		StringBuilder builder = new StringBuilder();
+		List<String[]> expected = new ArrayList<>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 20000; i++)
+		{
+			String text = random.nextInt(10) == 0 ? "with \"\"quotes\"\" and, comma" : "plain" + i;
+			String quoted = text.contains(",") ? "\"" + text + "\"" : text;
+
+			builder.append(i).append(',').append(quoted).append(random.nextBoolean() ? "\r\n" : "\n");
+			expected.add(new String[]{Integer.toString(i), text.replace("\"\"", "\"")});
+		}
+
+		/* Also hand the characters out in small pieces, so the boundaries fall everywhere */
+		Reader chunked = new FilterReader(new StringReader(builder.toString()))
+		{
+			private final Random sizes = new Random(7);
+
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException
+			{
+				return super.read(buffer, offset, Math.min(length, 1 + sizes.nextInt(100)));
+			}
+		};
+
+		assertRows(readAll(new StringReader(builder.toString()), false), expected.toArray(new String[0][]));
+		assertRows(readAll(chunked, false), expected.toArray(new String[0][]));
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.io;
+
+import org.junit.*;
+
+import jhi.germinatedataimporter.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link LineTokenizer}
+ *
+ * @author Sebastian Raubach
+ */
+public class LineTokenizerTest
+{
+	@Test
+	public void testMatchesSplit()
+	{
+		LineTokenizer tokenizer = new LineTokenizer(FileSeparator.TAB, false);
+
+		String[] lines = {"a\tb\tc", "", "\t", "a\t\tc", "\ta", "a\t", "a\t\t", " a \t b "};
+
+		for (String line : lines)
+			assertArrayEquals(line, line.split("\t", -1), tokenizer.tokenize(line, null));
+	}
+
+	@Test
+	public void testRegexCharacterAsSeparator()
+	{
+		/* The pipe is a special character in regular expressions, but not for the tokenizer */
+		LineTokenizer tokenizer = new LineTokenizer(FileSeparator.PIPE, false);
+
+		assertArrayEquals(new String[]{"a", "b", "", "c"}, tokenizer.tokenize("a|b||c", null));
+	}
+
+	@Test
+	public void testTrim()
+	{
+		LineTokenizer tokenizer = new LineTokenizer(FileSeparator.COMMA, true);
+
+		assertArrayEquals(new String[]{"a", "b", "", "c d"}, tokenizer.tokenize(" a ,\tb\t,   , c d ", null));
+	}
+
+	@Test
+	public void testReuse()
+	{
+		LineTokenizer tokenizer = new LineTokenizer(FileSeparator.COMMA, false);
+
+		String[] first = tokenizer.tokenize("a,b,c", null);
+		String[] second = tokenizer.tokenize("d,e,f", first);
+
+		assertSame(first, second);
+		assertArrayEquals(new String[]{"d", "e", "f"}, second);
+
+		/* A different number of fields needs a new array */
+		String[] third = tokenizer.tokenize("g,h", second);
+
+		assertNotSame(second, third);
+		assertArrayEquals(new String[]{"g", "h"}, third);
+	}
+
+	@Test
+	public void testProjection()
+	{
+		LineTokenizer tokenizer = new LineTokenizer(FileSeparator.COMMA, false);
+		tokenizer.setProjection(new boolean[]{true, false, true});
+
+		/* Fields beyond the projection aren't extracted either, but the number of fields is kept */
+		assertArrayEquals(new String[]{"a", null, "c", null}, tokenizer.tokenize("a,b,c,d", null));
+
+		tokenizer.setProjection(null);
+		assertArrayEquals(new String[]{"a", "b", "c", "d"}, tokenizer.tokenize("a,b,c,d", null));
+	}
+
+	@Test
+	public void testManyFields()
+	{
+		LineTokenizer tokenizer = new LineTokenizer(FileSeparator.SEMICOLON, false);
+
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+			builder.append(i == 0 ? "" : ";").append(i);
+
+		String[] fields = tokenizer.tokenize(builder.toString(), null);
+
+		assertEquals(1000, fields.length);
+		assertEquals("999", fields[999]);
+	}
+
+	@Test
+	public void testCountFields()
+	{
+		LineTokenizer tokenizer = new LineTokenizer(FileSeparator.TAB, false);
+
+		assertEquals(1, tokenizer.countFields(""));
+		assertEquals(3, tokenizer.countFields("a\t\tc"));
+		assertEquals(2, tokenizer.countFields("a\t"));
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.lookup;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link StringLongMap}
+ *
+ * @author Sebastian Raubach
+ */
+public class StringLongMapTest
+{
+	@Test
+	public void testPutAndGet()
+	{
+		StringLongMap map = new StringLongMap();
+
+		map.put("a", 1);
+		map.put("b", 2);
+		map.put("", 3);
+
+		assertEquals(3, map.size());
+		assertEquals(1, map.get("a", -1));
+		assertEquals(2, map.get("b", -1));
+		assertEquals(3, map.get("", -1));
+		assertEquals(-1, map.get("c", -1));
+		assertTrue(map.containsKey("a"));
+		assertFalse(map.containsKey("c"));
+	}
+
+	@Test
+	public void testPutReplaces()
+	{
+		StringLongMap map = new StringLongMap();
+
+		map.put("a", 1);
+		map.put("a", 2);
+
+		assertEquals(1, map.size());
+		assertEquals(2, map.get("a", -1));
+	}
+
+	@Test
+	public void testPutIfAbsent()
+	{
+		StringLongMap map = new StringLongMap();
+
+		assertTrue(map.putIfAbsent("a", 1));
+		assertFalse(map.putIfAbsent("a", 2));
+
+		assertEquals(1, map.size());
+		assertEquals(1, map.get("a", -1));
+	}
+
+	@Test
+	public void testValuesAreNotConfusedWithTheDefault()
+	{
+		StringLongMap map = new StringLongMap();
+
+		map.put("min", Long.MIN_VALUE);
+		map.put("zero", 0);
+
+		assertEquals(Long.MIN_VALUE, map.get("min", 0));
+		assertEquals(0, map.get("zero", Long.MIN_VALUE));
+	}
+
+	@Test
+	public void testCollidingKeys()
+	{
+		/* "Aa" and "BB" have the same hash code, so they end up in the same probe sequence */
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+
+		StringLongMap map = new StringLongMap();
+		map.put("Aa", 1);
+		map.put("BB", 2);
+		map.put("AaAa", 3);
+		map.put("BBBB", 4);
+		map.put("AaBB", 5);
+
+		assertEquals(5, map.size());
+		assertEquals(1, map.get("Aa", -1));
+		assertEquals(2, map.get("BB", -1));
+		assertEquals(3, map.get("AaAa", -1));
+		assertEquals(4, map.get("BBBB", -1));
+		assertEquals(5, map.get("AaBB", -1));
+		assertFalse(map.containsKey("BBAa"));
+	}
+
+	@Test
+	public void testGrowsAndMatchesHashMap()
+	{
+		StringLongMap map = new StringLongMap(4);
+		Map<String, Long> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 100000; i++)
+		{
+			String key = "key" + random.nextInt(50000);
+			long value = random.nextLong();
+
+			map.put(key, value);
+			expected.put(key, value);
+		}
+
+		assertEquals(expected.size(), map.size());
+
+		for (Map.Entry<String, Long> entry : expected.entrySet())
+			assertEquals(entry.getValue().longValue(), map.get(entry.getKey(), -1));
+
+		assertFalse(map.containsKey("key50000"));
+	}
+
+	@Test
+	public void testForEach()
+	{
+		StringLongMap map = new StringLongMap();
+		for (int i = 0; i < 1000; i++)
+			map.put(Integer.toString(i), i);
+
+		Map<String, Long> visited = new HashMap<>();
+		map.forEach(visited::put);
+
+		assertEquals(1000, visited.size());
+		for (int i = 0; i < 1000; i++)
+			assertEquals(Long.valueOf(i), visited.get(Integer.toString(i)));
+	}
+
+	@Test
+	public void testClear()
+	{
+		StringLongMap map = new StringLongMap();
+		for (int i = 0; i < 1000; i++)
+			map.put(Integer.toString(i), i);
+
+		map.clear();
+
+		assertEquals(0, map.size());
+		assertFalse(map.containsKey("1"));
+
+		map.put("1", 2);
+		assertEquals(2, map.get("1", -1));
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.metrics;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link LatencyHistogram}
+ *
+ * @author Sebastian Raubach
+ */
+public class LatencyHistogramTest
+{
+	@Test
+	public void testEmpty()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getTotal());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getMean(), 0);
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(0, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testSummary()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(100);
+		histogram.record(200);
+		histogram.record(600);
+
+		assertEquals(3, histogram.getCount());
+		assertEquals(900, histogram.getTotal());
+		assertEquals(600, histogram.getMax());
+		assertEquals(300, histogram.getMean(), 0);
+	}
+
+	@Test
+	public void testSmallValuesAreExact()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 8; i++)
+			histogram.record(i);
+
+		assertEquals(0, histogram.getPercentile(0));
+		assertEquals(3, histogram.getPercentile(50));
+		assertEquals(7, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testExtremeValues()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+
+		assertEquals(2, histogram.getCount());
+		assertEquals(Long.MAX_VALUE, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+
+		/* Percentiles outside of 0 - 100 are clamped */
+		assertEquals(0, histogram.getPercentile(-1));
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(101));
+	}
+
+	@Test
+	public void testPercentilesAreAccurate()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		Random random = new Random(42);
+
+		/* Log-normal values between microseconds and seconds, like statement latencies */
+		long[] values = new long[100000];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = (long) Math.exp(random.nextGaussian() * 2 + 13);
+			histogram.record(values[i]);
+		}
+
+		Arrays.sort(values);
+
+		for (double percentile : new double[]{1, 10, 50, 90, 95, 99, 99.9, 100})
+		{
+			long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+			long reported = histogram.getPercentile(percentile);
+
+			/* The upper bound of the bucket is never below the exact value and at most one sub-bucket (12.5%) above it */
+			assertTrue(percentile + ": " + reported + " < " + exact, reported >= exact);
+			assertTrue(percentile + ": " + reported + " > " + exact + " + 12.5%", reported <= exact * 1.125 + 1);
+		}
+
+		assertEquals(values[values.length - 1], histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testReadWhileRecording() throws InterruptedException
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		Thread writer = new Thread(() -> {
+			for (int i = 1; i <= 1000000; i++)
+				histogram.record(i % 1000);
+		});
+		writer.start();
+
+		/* A reader never sees inconsistent values, only ones that are a little behind */
+		while (writer.isAlive())
+		{
+			long p50 = histogram.getPercentile(50);
+			assertTrue(p50 >= 0 && p50 <= 1000);
+			assertTrue(histogram.getMax() < 1000);
+		}
+
+		writer.join();
+
+		assertEquals(1000000, histogram.getCount());
+		assertEquals(999, histogram.getMax());
+	}
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.parse;
+
+import org.junit.*;
+
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link DateParser}
+ *
+ * @author Sebastian Raubach
+ */
+public class DateParserTest
+{
+	private static Date parseWithSimpleDateFormat(String pattern, String text) throws ParseException
+	{
+		return new SimpleDateFormat(pattern).parse(text);
+	}
+
+	@Test
+	public void testNumericPatterns() throws ParseException
+	{
+		String[][] cases = {
+				{"yyyy-MM-dd", "2017-01-05"},
+				{"yyyy-MM-dd", "2017-1-5"},
+				{"dd/MM/yyyy", "31/12/1999"},
+				{"yyyy-MM-dd HH:mm:ss", "2017-06-15 23:59:59"},
+				{"yyyy-MM-dd HH:mm", "2017-06-15 08:30"},
+				{"dd.MM.yyyy HH:mm:ss.SSS", "01.02.2003 04:05:06.789"},
+				{"yyyy", "1984"}
+		};
+
+		for (String[] c : cases)
+			assertEquals(c[0] + " " + c[1], parseWithSimpleDateFormat(c[0], c[1]), new DateParser(c[0]).parse(c[1]));
+	}
+
+	@Test
+	public void testFallbackPatterns() throws ParseException
+	{
+		/* Two-digit years and adjacent fields aren't compiled, but still have to work */
+		String[][] cases = {
+				{"yy-MM-dd", "17-01-05"},
+				{"yyyyMMdd", "20170105"},
+				{"dd-MM-yyyy'T'HH:mm", "05-01-2017T10:00"}
+		};
+
+		for (String[] c : cases)
+			assertEquals(c[0] + " " + c[1], parseWithSimpleDateFormat(c[0], c[1]), new DateParser(c[0]).parse(c[1]));
+	}
+
+	@Test
+	public void testRandomDates() throws ParseException
+	{
+		String pattern = "dd/MM/yyyy HH:mm:ss";
+		SimpleDateFormat format = new SimpleDateFormat(pattern);
+		DateParser parser = new DateParser(pattern);
+		Random random = new Random(42);
+
+		for (int i = 0; i < 10000; i++)
+		{
+			String text = format.format(new Date(random.nextLong() % (4000L * 365 * 24 * 3600 * 1000) + 1000L * 365 * 24 * 3600 * 1000));
+			assertEquals(text, format.parse(text), parser.parse(text));
+		}
+	}
+
+	@Test
+	public void testJulianDates() throws ParseException
+	{
+		/* Before October 1582 SimpleDateFormat uses the Julian calendar, the results have to be the same */
+		for (String text : new String[]{"1582-10-04", "1582-10-15", "1500-03-01", "0583-11-19"})
+			assertEquals(text, parseWithSimpleDateFormat("yyyy-MM-dd", text), new DateParser("yyyy-MM-dd").parse(text));
+	}
+
+	@Test
+	public void testLenientValues() throws ParseException
+	{
+		/* Values the strict formatter rejects still have to be parsed the same way SimpleDateFormat does */
+		String[][] cases = {
+				{"yyyy-MM-dd", "2017-01-05 00:00:00"},
+				{"yyyy-MM-dd HH:mm:ss", "2017-01-05 10:11:12.0"},
+				{"yyyy-MM-dd", " 2017-01-05"},
+				{"dd/MM/yyyy", "5/1/2017 12:00"},
+				{"yyyy-MM-dd", "2017-02-30"},
+				{"yyyy-MM-dd", "2017-13-01"},
+				{"yyyy-MM-dd", "1000-02-29"}
+		};
+
+		for (String[] c : cases)
+		{
+			DateParser parser = new DateParser(c[0]);
+
+			/* Twice, since the second time the result comes from the cache */
+			for (int i = 0; i < 2; i++)
+				assertEquals(c[0] + " " + c[1], parseWithSimpleDateFormat(c[0], c[1]), parser.parse(c[1]));
+		}
+	}
+
+	@Test
+	public void testInvalidDatesAreRejected()
+	{
+		DateParser parser = new DateParser("yyyy-MM-dd");
+
+		for (String text : new String[]{"abc", "", "2017/01/01", "2017-", "-"})
+		{
+			/* Twice, since the second time the result comes from the cache */
+			for (int i = 0; i < 2; i++)
+			{
+				try
+				{
+					parser.parse(text);
+					fail("'" + text + "' should have been rejected");
+				}
+				catch (ParseException e)
+				{
+					assertTrue(e.getMessage().contains("yyyy-MM-dd"));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIsTimestamp()
+	{
+		assertFalse(new DateParser("yyyy-MM-dd").isTimestamp());
+		assertTrue(new DateParser("yyyy-MM-dd HH:mm").isTimestamp());
+		assertTrue(new DateParser("yyyy-MM-dd HH:mm:ss").isTimestamp());
+		assertEquals("dd/MM/yyyy", new DateParser("dd/MM/yyyy").getPattern());
+	}
+
+	@Test
+	public void testCachedDatesAreCopies() throws ParseException
+	{
+		DateParser parser = new DateParser("yyyy-MM-dd");
+
+		Date first = parser.parse("2017-01-05");
+		long time = first.getTime();
+		first.setTime(0);
+
+		Date second = parser.parse("2017-01-05");
+
+		assertNotSame(first, second);
+		assertEquals(time, second.getTime());
+	}
+
+	@Test
+	public void testManyDistinctDates() throws ParseException
+	{
+		/* More distinct values than the cache can hold, the evicted ones have to be parsed again */
+		String pattern = "yyyy-MM-dd HH:mm:ss";
+		SimpleDateFormat format = new SimpleDateFormat(pattern);
+		DateParser parser = new DateParser(pattern);
+
+		for (int round = 0; round < 2; round++)
+		{
+			for (int i = 0; i < 30000; i++)
+			{
+				String text = String.format("2017-03-%02d %02d:%02d:%02d", 1 + i % 28, i / 60 % 24, i % 60, i / 1440 % 60);
+				assertEquals(text, format.parse(text), parser.parse(text));
+			}
+		}
+	}
+
+	@Test
+	public void testSharedBetweenThreads() throws Exception
+	{
+		String pattern = "dd.MM.yyyy";
+		DateParser parser = new DateParser(pattern);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try
+		{
+			List<Future<?>> futures = new ArrayList<>();
+
+			for (int t = 0; t < 4; t++)
+			{
+				futures.add(executor.submit(() -> {
+					SimpleDateFormat format = new SimpleDateFormat(pattern);
+
+					for (int i = 0; i < 5000; i++)
+					{
+						String text = String.format("%02d.%02d.%d", 1 + i % 28, 1 + i % 12, 1900 + i % 200);
+						assertEquals(text, format.parse(text), parser.parse(text));
+					}
+
+					return null;
+				}));
+			}
+
+			for (Future<?> future : futures)
+				future.get();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2017 Information and Computational Sciences,
+ * The James Hutton Institute.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jhi.germinatedataimporter.util.parse;
+
+import org.junit.*;
+
+import java.math.*;
+import java.text.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link NumberParser}
+ *
+ * @author Sebastian Raubach
+ */
+public class NumberParserTest
+{
+	private static final Locale[] LOCALES = {Locale.ENGLISH, Locale.GERMANY, Locale.FRANCE, new Locale("de", "CH")};
+
+	/**
+	 * Checks that the {@link NumberParser} returns exactly what a {@link DecimalFormat} of the same {@link Locale} returns
+	 */
+	private static void assertSameAsDecimalFormat(Locale locale, String text)
+	{
+		NumberParser parser = new NumberParser(locale);
+		DecimalFormat format = (DecimalFormat) NumberFormat.getInstance(locale);
+
+		Double expected;
+		try
+		{
+			expected = format.parse(text).doubleValue();
+		}
+		catch (ParseException e)
+		{
+			expected = null;
+		}
+
+		try
+		{
+			double actual = parser.parse(text);
+
+			assertNotNull(locale + ": '" + text + "' should have been rejected", expected);
+			assertEquals(locale + ": '" + text + "'", Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+		}
+		catch (ParseException e)
+		{
+			assertNull(locale + ": '" + text + "' should have been parsed", expected);
+		}
+	}
+
+	@Test
+	public void testEnglish() throws ParseException
+	{
+		NumberParser parser = new NumberParser(Locale.ENGLISH);
+
+		assertEquals(0, parser.parse("0"), 0);
+		assertEquals(42, parser.parse("42"), 0);
+		assertEquals(-42.5, parser.parse("-42.5"), 0);
+		assertEquals(1234567.89, parser.parse("1,234,567.89"), 0);
+		assertEquals(0.1, parser.parse(".1"), 0);
+		assertEquals(7, parser.parse("007"), 0);
+	}
+
+	@Test
+	public void testGerman() throws ParseException
+	{
+		NumberParser parser = new NumberParser(Locale.GERMANY);
+
+		assertEquals(1234.5, parser.parse("1.234,5"), 0);
+		assertEquals(-0.25, parser.parse("-0,25"), 0);
+	}
+
+	@Test(expected = ParseException.class)
+	public void testNotANumber() throws ParseException
+	{
+		new NumberParser(Locale.ENGLISH).parse("abc");
+	}
+
+	@Test(expected = ParseException.class)
+	public void testEmpty() throws ParseException
+	{
+		new NumberParser(Locale.ENGLISH).parse("");
+	}
+
+	@Test
+	public void testSpecialCases()
+	{
+		String[] texts = {"-", ".", ",", "-0", "0.", "1,", ",1", "1,,2", "1..2", "1.2.3", "1e3", "1E3", "12abc", " 1", "1 ", "+1", "--1", "12345678901234567890",
+				"0.12345678901234567890", "9007199254740993", "123456789012345678", "1,2,3", "1.000.000", "1.000,5", " ", "1 000", "1 000,5"};
+
+		for (Locale locale : LOCALES)
+		{
+			for (String text : texts)
+				assertSameAsDecimalFormat(locale, text);
+		}
+	}
+
+	@Test
+	public void testRandomNumbers()
+	{
+		Random random = new Random(42);
+
+		for (Locale locale : LOCALES)
+		{
+			DecimalFormat format = (DecimalFormat) NumberFormat.getInstance(locale);
+
+			for (int i = 0; i < 20000; i++)
+			{
+				format.setMaximumFractionDigits(random.nextInt(12));
+				format.setGroupingUsed(random.nextBoolean());
+
+				double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(14));
+				assertSameAsDecimalFormat(locale, format.format(value));
+			}
+		}
+	}
+
+	@Test
+	public void testCorrectlyRounded() throws ParseException
+	{
+		NumberParser parser = new NumberParser(Locale.ENGLISH);
+		Random random = new Random(7);
+
+		/* The fast path has to return the double that's closest to the decimal value, just like Double.parseDouble */
+		for (int i = 0; i < 100000; i++)
+		{
+			String text = new BigDecimal(random.nextInt(Integer.MAX_VALUE)).movePointLeft(random.nextInt(10)).toPlainString();
+			assertEquals(text, Double.doubleToLongBits(Double.parseDouble(text)), Double.doubleToLongBits(parser.parse(text)));
+		}
+	}
+}